@@ -47,7 +47,7 @@ public class ClientsFragmentTest {
 
     @Before
     public void setup() {
-        // 1) On seed le stockage utilisé par ClientService.filter() et resetFilter()
+        // 1) On seed le stockage relu par l'écran des clients (recherche et resetFilter())
         seedLocalStorageWithKnownClients();
 
         // 2) On lance le fragment après le seed
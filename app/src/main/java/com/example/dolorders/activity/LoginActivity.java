@@ -10,13 +10,12 @@ import android.widget.Button;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
 
 import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.Volley;
 import com.example.dolorders.R;
+import com.example.dolorders.repository.FileRequetesVolley;
 import com.example.dolorders.service.ServiceGestionSession;
+import com.example.dolorders.service.ServiceIdentifiants;
 import com.example.dolorders.service.ServiceUrl;
 import com.google.android.material.textfield.TextInputEditText;
 
@@ -53,9 +52,6 @@ public class LoginActivity extends AppCompatActivity {
     /** Tag pour les logs liés à l'activité de connexion */
     private static final String LOGIN_ACTIVITY = "LoginActivity";
 
-    /** Nom du fichier pour les SharedPreferences cryptées */
-    private static final String CRYPTED_FILE_NAME = "secure_prefs_crypto";
-
     /** Tag pour les logs de débogage liés à la connexion */
     private static final String DEBUG_TAG = "LOGIN_DEBUG";
 
@@ -70,8 +66,8 @@ public class LoginActivity extends AppCompatActivity {
         etUrl = findViewById(R.id.etUrl);
         btnLogin = findViewById(R.id.btnLogin);
 
-        // Initialisation de la RequestQueue de Volley
-        requestQueue = Volley.newRequestQueue(this);
+        // File de requêtes Volley partagée par toute l'application
+        requestQueue = FileRequetesVolley.get(this);
 
         // Initialisation du service pour gérer les URLs
         serviceUrl = new ServiceUrl(this);
@@ -153,20 +149,11 @@ public class LoginActivity extends AppCompatActivity {
         etUrl.setInputType(android.text.InputType.TYPE_CLASS_TEXT | android.text.InputType.TYPE_TEXT_VARIATION_URI);
     }
 
-    /** Initialise les SharedPreferences cryptées pour stocker les credentials de manière sécurisée */
+    /** Initialise les SharedPreferences cryptées pour stocker les credentials de manière sécurisée.
+     * L'instance est partagée avec le reste de l'application (voir {@link ServiceIdentifiants}) */
     private SharedPreferences getEncryptedSharedPreferences()
             throws GeneralSecurityException, IOException {
-        MasterKey masterKey = new MasterKey.Builder(this)
-                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                .build();
-
-        return EncryptedSharedPreferences.create(
-                this,
-                CRYPTED_FILE_NAME,
-                masterKey,
-                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-        );
+        return ServiceIdentifiants.getPreferencesCryptees(this);
     }
 
     /** Valide les entrées utilisateur pour le nom d'utilisateur, le mot de passe et l'URL.
@@ -273,6 +260,7 @@ public class LoginActivity extends AppCompatActivity {
         editor.putString("base_url", baseUrl);
         editor.putBoolean("is_logged_in", true);
         editor.apply();
+        ServiceIdentifiants.invalider();
 
         android.util.Log.d(DEBUG_TAG, "Identifiants sauvegardés de manière cryptée");
 
@@ -282,56 +270,20 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     public static String getApiKey(AppCompatActivity activity) {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(activity)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    activity,
-                    CRYPTED_FILE_NAME,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("api_key", null);
-        } catch (GeneralSecurityException | IOException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return ServiceIdentifiants.getApiKey(activity);
     }
 
     /**
-     * Récupère le nom d'utilisateur depuis les SharedPreferences cryptées
+     * Récupère le nom d'utilisateur depuis les identifiants de session
      * @param context Le contexte de l'activité pour accéder aux SharedPreferences
      * @return Le nom d'utilisateur récupéré ou null en cas d'erreur
      */
     public static String getUsername(android.content.Context context) {
-        try {
-            android.util.Log.d(LOGIN_ACTIVITY, "Tentative de récupération du username");
-
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-            // Accès aux SharedPreferences cryptées
-            SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    CRYPTED_FILE_NAME,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-            // Récupération du nom d'utilisateur
-            String username = securePrefs.getString(USER_NAME, null);
-            android.util.Log.d(LOGIN_ACTIVITY, "Username récupéré: " + username);
-            return username;
-        } catch (GeneralSecurityException | IOException e) {
-            android.util.Log.e(LOGIN_ACTIVITY, "Erreur lors de la récupération du username", e);
-            e.printStackTrace();
-            return null;
-        }
+        String username = ServiceIdentifiants.getUsername(context);
+        android.util.Log.d(LOGIN_ACTIVITY, "Username récupéré: " + username);
+        return username;
     }
+
     /** Affiche un message d'erreur à l'utilisateur et réactive le bouton de connexion.
      * @param message Le message d'erreur à afficher
      */
@@ -448,7 +400,8 @@ public class LoginActivity extends AppCompatActivity {
             }
         };
 
-        // Ajouter la requête à la queue
+        // Ajouter la requête à la queue (étiquetée pour être annulée avec l'activité)
+        request.setTag(this);
         requestQueue.add(request);
     }
 
@@ -462,6 +415,7 @@ public class LoginActivity extends AppCompatActivity {
             editor.remove("api_key");
             editor.remove(USER_NAME);
             editor.apply();
+            ServiceIdentifiants.invalider();
 
             Log.d(LOGIN_ACTIVITY, "🔓 Utilisateur déconnecté");
         } catch (Exception e) {
@@ -1,7 +1,6 @@
 package com.example.dolorders.activity;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -14,12 +13,14 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
 
 import com.example.dolorders.R;
+import com.example.dolorders.repository.DepotDonneesLocales;
+import com.example.dolorders.service.EnvoiAutomatiqueListeAttente;
+import com.example.dolorders.service.PlanificateurSyncAuto;
 import com.example.dolorders.service.ServiceConnexionInternet;
 import com.example.dolorders.service.ServiceGestionSession;
+import com.example.dolorders.service.ServiceIdentifiants;
 import com.example.dolorders.service.ServiceUrl;
 import com.example.dolorders.ui.fragment.ClientsFragment;
 import com.example.dolorders.ui.fragment.CommandesFragment;
@@ -27,8 +28,6 @@ import com.example.dolorders.ui.fragment.HomeFragment;
 import com.example.dolorders.ui.fragment.ListeAttenteFragment;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
-import java.io.IOException;
-import java.security.GeneralSecurityException;
 
 public class MainActivity extends AppCompatActivity {
     /** TAG pour les logs de MainActivity */
@@ -38,6 +37,9 @@ public class MainActivity extends AppCompatActivity {
     /** Service pour surveiller la connexion Internet en temps réel */
     private ServiceConnexionInternet serviceConnexion;
 
+    /** Envoi automatique de la liste d'attente quand le Wi-Fi revient (partagé par l'application) */
+    private PlanificateurSyncAuto planificateurSyncAuto;
+
     /** Indicateur visuel de l'état de la connexion Internet */
      private View connectionIndicator;
 
@@ -132,27 +134,10 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Récupère l'URL de base depuis les SharedPreferences cryptées
+     * Récupère l'URL de base depuis les identifiants de session
      */
     private String getBaseUrl() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(this)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    this,
-                    "secure_prefs_crypto",
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("base_url", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de l'URL", e);
-            return null;
-        }
+        return ServiceIdentifiants.getBaseUrl(this);
     }
 
     /**
@@ -164,6 +149,22 @@ public class MainActivity extends AppCompatActivity {
         // Mise à jour l'indicateur avec l'état initial
         updateConnectionIndicator(serviceConnexion.isInternetAvailable());
 
+        // Envoi automatique de la liste d'attente sur réseau Wi-Fi (non facturé)
+        PlanificateurSyncAuto planificateur = EnvoiAutomatiqueListeAttente.get(this);
+        planificateurSyncAuto = planificateur;
+
+        serviceConnexion.setReseauNonFactureListener(new ServiceConnexionInternet.ReseauNonFactureListener() {
+            @Override
+            public void onReseauNonFactureDisponible() {
+                planificateur.onReseauDisponible();
+            }
+
+            @Override
+            public void onReseauNonFacturePerdu() {
+                planificateur.onReseauPerdu();
+            }
+        });
+
         // Démarrer la surveillance en temps réel
         serviceConnexion.startMonitoring(isConnected ->
                 runOnUiThread(() -> {
@@ -221,6 +222,13 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Les écritures regroupées des commandes sont faites avant que le processus puisse être arrêté
+        DepotDonneesLocales.get(this).ecrireModificationsEnAttente();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -228,5 +236,8 @@ public class MainActivity extends AppCompatActivity {
         if (serviceConnexion != null) {
             serviceConnexion.stopMonitoring();
         }
+        if (planificateurSyncAuto != null) {
+            planificateurSyncAuto.onReseauPerdu();
+        }
     }
 }
@@ -5,7 +5,7 @@ import com.google.gson.annotations.SerializedName;
 /**
  * DTO (Data Transfer Object) pour la réponse API de Dolibarr concernant les clients (thirdparties).
  * Représente la structure JSON renvoyée par l'API /thirdparties.
- * Appel API : GET /thirdparties?sortfield=t.rowid&sortorder=ASC&limit=100&properties=id,name,phone,email,address,zip,town
+ * Appel API : GET /thirdparties?sortfield=t.rowid&sortorder=ASC&properties=id,name,phone,email,address,zip,town&limit=100&page=N
  */
 public class ClientApiReponseDto {
     /** Note : Les annotations @SerializedName sont utilisées pour faire correspondre les noms des
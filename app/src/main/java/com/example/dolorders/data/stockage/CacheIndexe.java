@@ -0,0 +1,377 @@
+package com.example.dolorders.data.stockage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache mémoire d'un jeu de données persisté, avec index par clé.
+ * <p>
+ * Les données sont associées à la {@link SignatureFichier} du stockage au moment où elles ont été
+ * chargées ou écrites : si la signature courante diffère, le cache est considéré comme périmé.
+ * Les gestionnaires de stockage l'utilisent en écriture traversante (write-through) : chaque
+ * sauvegarde met à jour le fichier puis le cache, si bien qu'un écran ne relit le JSON que si
+ * le fichier a été modifié hors du gestionnaire.
+ * <p>
+ * Une mutation isolée (ajout, modification, suppression) est appliquée sur place avec
+ * {@link #ajouter}, {@link #modifier}, {@link #retirer} et {@link #retirerParIndex} : seules les
+ * entrées d'index de l'élément concerné sont mises à jour, sans copie de la liste.
+ * <p>
+ * Les objets métier étant immuables, ils sont partagés ; seules les listes retournées sont des copies.
+ * Toutes les méthodes sont synchronisées, le cache étant partagé par tout le processus.
+ *
+ * @param <T> Type des éléments stockés
+ */
+public class CacheIndexe<T> {
+
+    /**
+     * Extrait la ou les clés d'un élément pour un index.
+     */
+    public interface ExtracteurCles<T> {
+        Collection<String> extraire(T element);
+    }
+
+    /** Extracteur de l'identifiant unique (index principal) */
+    private final ExtracteurCles<T> extracteurId;
+
+    /** Extracteurs des index secondaires, par nom d'index */
+    private final Map<String, ExtracteurCles<T>> extracteurs = new LinkedHashMap<>();
+
+    /** Éléments dans l'ordre du stockage */
+    private List<T> elements;
+
+    /** Index principal : identifiant -> éléments portant cet identifiant, dans l'ordre du stockage */
+    private Map<String, List<T>> parId = new HashMap<>();
+
+    /** Index secondaires : nom d'index -> clé -> éléments */
+    private Map<String, Map<String, List<T>>> index = new HashMap<>();
+
+    /** Signature du stockage correspondant aux éléments en cache */
+    private SignatureFichier signature;
+
+    /**
+     * Constructeur.
+     *
+     * @param extracteurId Extracteur de l'identifiant unique des éléments
+     */
+    public CacheIndexe(ExtracteurCles<T> extracteurId) {
+        this.extracteurId = extracteurId;
+    }
+
+    /**
+     * Déclare un index secondaire.
+     *
+     * @param nom        Nom de l'index (ex : "client", "produit")
+     * @param extracteur Extracteur des clés de l'index pour un élément
+     * @return Ce cache, pour chaîner les déclarations
+     */
+    public synchronized CacheIndexe<T> ajouterIndex(String nom, ExtracteurCles<T> extracteur) {
+        extracteurs.put(nom, extracteur);
+        invalider();
+        return this;
+    }
+
+    /**
+     * Indique si le cache correspond à l'état actuel du stockage.
+     *
+     * @param signatureCourante Signature actuelle du stockage
+     * @return true si les données en cache peuvent être utilisées
+     */
+    public synchronized boolean estValide(SignatureFichier signatureCourante) {
+        return elements != null && signature != null && signature.equals(signatureCourante);
+    }
+
+    /**
+     * Retourne une copie des éléments si le cache est à jour.
+     *
+     * @param signatureCourante Signature actuelle du stockage
+     * @return Copie des éléments, ou null si le cache est vide ou périmé
+     */
+    public synchronized List<T> lire(SignatureFichier signatureCourante) {
+        if (!estValide(signatureCourante)) {
+            return null;
+        }
+        return new ArrayList<>(elements);
+    }
+
+    /**
+     * Remplace le contenu du cache et reconstruit les index.
+     *
+     * @param nouveauxElements Éléments lus ou écrits dans le stockage
+     * @param nouvelleSignature Signature du stockage après lecture ou écriture
+     */
+    public synchronized void remplacer(List<T> nouveauxElements, SignatureFichier nouvelleSignature) {
+        elements = new ArrayList<>(nouveauxElements);
+        parId = new HashMap<>();
+        index = new HashMap<>();
+        for (String nom : extracteurs.keySet()) {
+            index.put(nom, new HashMap<>());
+        }
+        for (T element : elements) {
+            indexer(element);
+        }
+        signature = nouvelleSignature;
+    }
+
+    /**
+     * Ajoute un élément à la fin du cache, ou remplace sur place l'élément de même identifiant.
+     * L'appelant doit s'être assuré que le cache est à jour (voir {@link #estValide}) ; la signature
+     * n'est pas modifiée (mutation pas encore écrite, voir {@link #mettreAJourSignature}).
+     *
+     * @param element Élément ajouté ou modifié
+     */
+    public synchronized void ajouter(T element) {
+        if (!modifier(element)) {
+            elements.add(element);
+            indexer(element);
+        }
+    }
+
+    /**
+     * Remplace sur place l'élément de même identifiant (le premier en cas de doublon).
+     * L'appelant doit s'être assuré que le cache est à jour (voir {@link #estValide}).
+     *
+     * @param element Nouvelle version de l'élément
+     * @return false si aucun élément ne porte cet identifiant (rien n'est modifié)
+     */
+    public synchronized boolean modifier(T element) {
+        verifierCharge();
+        T ancien = null;
+        for (String id : extraireCles(extracteurId, element)) {
+            ancien = premier(parId.get(id));
+            if (ancien != null) {
+                break;
+            }
+        }
+        if (ancien == null) {
+            return false;
+        }
+        elements.set(positionIdentique(elements, ancien), element);
+        remplacerDansIndex(parId, extracteurId, ancien, element);
+        for (Map.Entry<String, ExtracteurCles<T>> entree : extracteurs.entrySet()) {
+            remplacerDansIndex(index.get(entree.getKey()), entree.getValue(), ancien, element);
+        }
+        return true;
+    }
+
+    /**
+     * Retire tous les éléments portant un identifiant.
+     * L'appelant doit s'être assuré que le cache est à jour (voir {@link #estValide}).
+     *
+     * @param id Identifiant des éléments à retirer
+     * @return Nombre d'éléments retirés
+     */
+    public synchronized int retirer(String id) {
+        verifierCharge();
+        return id == null ? 0 : retirerTous(parId.get(id));
+    }
+
+    /**
+     * Retire tous les éléments associés à une clé d'un index secondaire (ex : commandes d'un client).
+     * L'appelant doit s'être assuré que le cache est à jour (voir {@link #estValide}).
+     *
+     * @param nom Nom de l'index
+     * @param cle Clé des éléments à retirer
+     * @return Nombre d'éléments retirés
+     */
+    public synchronized int retirerParIndex(String nom, String cle) {
+        verifierCharge();
+        Map<String, List<T>> indexNomme = index.get(nom);
+        if (indexNomme == null) {
+            throw new IllegalArgumentException("Index inconnu : " + nom);
+        }
+        return cle == null ? 0 : retirerTous(indexNomme.get(cle));
+    }
+
+    /**
+     * Associe les éléments en cache à une nouvelle signature du stockage, après l'écriture sur disque
+     * des mutations déjà appliquées au cache. Sans effet si le cache est vide.
+     *
+     * @param nouvelleSignature Signature du stockage après l'écriture
+     */
+    public synchronized void mettreAJourSignature(SignatureFichier nouvelleSignature) {
+        if (elements != null) {
+            signature = nouvelleSignature;
+        }
+    }
+
+    /**
+     * Recherche un élément par son identifiant.
+     * L'appelant doit s'être assuré que le cache est à jour (voir {@link #estValide}).
+     *
+     * @param id Identifiant recherché
+     * @return L'élément, ou null s'il n'existe pas
+     */
+    public synchronized T parId(String id) {
+        if (id == null) {
+            return null;
+        }
+        // En cas de doublon d'ID, le premier élément reste prioritaire (comme une recherche linéaire)
+        return premier(parId.get(id));
+    }
+
+    /**
+     * Retourne les éléments associés à une clé d'un index secondaire.
+     * L'appelant doit s'être assuré que le cache est à jour (voir {@link #estValide}).
+     *
+     * @param nom Nom de l'index
+     * @param cle Clé recherchée
+     * @return Copie des éléments associés (liste vide si aucun)
+     */
+    public synchronized List<T> parIndex(String nom, String cle) {
+        Map<String, List<T>> indexNomme = index.get(nom);
+        if (indexNomme == null) {
+            throw new IllegalArgumentException("Index inconnu : " + nom);
+        }
+        List<T> resultat = cle == null ? null : indexNomme.get(cle);
+        return resultat == null ? new ArrayList<>() : new ArrayList<>(resultat);
+    }
+
+    /**
+     * Retourne le nombre d'éléments en cache.
+     *
+     * @return Nombre d'éléments, 0 si le cache est vide
+     */
+    public synchronized int taille() {
+        return elements == null ? 0 : elements.size();
+    }
+
+    /**
+     * Vide le cache : la prochaine lecture relira le stockage.
+     */
+    public synchronized void invalider() {
+        elements = null;
+        signature = null;
+        parId = new HashMap<>();
+        index = new HashMap<>();
+    }
+
+    /**
+     * Ajoute un élément (déjà placé dans la liste) à tous les index.
+     */
+    private void indexer(T element) {
+        ajouterAuxCles(parId, extraireCles(extracteurId, element), element);
+        for (Map.Entry<String, ExtracteurCles<T>> entree : extracteurs.entrySet()) {
+            ajouterAuxCles(index.get(entree.getKey()), extraireCles(entree.getValue(), element), element);
+        }
+    }
+
+    private static <T> void ajouterAuxCles(Map<String, List<T>> indexNomme, Collection<String> cles, T element) {
+        for (String cle : cles) {
+            List<T> liste = indexNomme.get(cle);
+            if (liste == null) {
+                liste = new ArrayList<>();
+                indexNomme.put(cle, liste);
+            }
+            // Un élément n'apparaît qu'une fois par clé (ex : deux lignes du même produit)
+            if (liste.isEmpty() || liste.get(liste.size() - 1) != element) {
+                liste.add(element);
+            }
+        }
+    }
+
+    /**
+     * Remplace un élément par sa nouvelle version dans un index. Pour une clé commune aux deux versions,
+     * l'élément garde sa place ; une nouvelle clé le reçoit en fin de liste.
+     */
+    private void remplacerDansIndex(Map<String, List<T>> indexNomme, ExtracteurCles<T> extracteur,
+                                    T ancien, T nouveau) {
+        Set<String> anciennesCles = new LinkedHashSet<>(extraireCles(extracteur, ancien));
+        Set<String> nouvellesCles = new LinkedHashSet<>(extraireCles(extracteur, nouveau));
+        for (String cle : anciennesCles) {
+            List<T> liste = indexNomme.get(cle);
+            int position = liste == null ? -1 : positionIdentique(liste, ancien);
+            if (position < 0) {
+                continue;
+            }
+            if (nouvellesCles.contains(cle)) {
+                liste.set(position, nouveau);
+            } else {
+                retirerDeLaCle(indexNomme, cle, liste, position);
+            }
+        }
+        nouvellesCles.removeAll(anciennesCles);
+        ajouterAuxCles(indexNomme, nouvellesCles, nouveau);
+    }
+
+    /**
+     * Retire des éléments de la liste et de tous les index (la liste est parcourue une seule fois).
+     *
+     * @param aRetirer Éléments à retirer (lus dans un index), ou null
+     * @return Nombre d'éléments retirés
+     */
+    private int retirerTous(List<T> aRetirer) {
+        if (aRetirer == null || aRetirer.isEmpty()) {
+            return 0;
+        }
+        // Les éléments sont comparés par identité, comme dans les index
+        Set<T> retires = Collections.newSetFromMap(new IdentityHashMap<>());
+        retires.addAll(aRetirer);
+        elements.removeIf(retires::contains);
+
+        for (T element : retires) {
+            retirerDesCles(parId, extraireCles(extracteurId, element), element);
+            for (Map.Entry<String, ExtracteurCles<T>> entree : extracteurs.entrySet()) {
+                retirerDesCles(index.get(entree.getKey()), extraireCles(entree.getValue(), element), element);
+            }
+        }
+        return retires.size();
+    }
+
+    private static <T> void retirerDesCles(Map<String, List<T>> indexNomme, Collection<String> cles, T element) {
+        for (String cle : cles) {
+            List<T> liste = indexNomme.get(cle);
+            int position = liste == null ? -1 : positionIdentique(liste, element);
+            if (position >= 0) {
+                retirerDeLaCle(indexNomme, cle, liste, position);
+            }
+        }
+    }
+
+    private static <T> void retirerDeLaCle(Map<String, List<T>> indexNomme, String cle, List<T> liste, int position) {
+        liste.remove(position);
+        if (liste.isEmpty()) {
+            indexNomme.remove(cle);
+        }
+    }
+
+    private static <T> int positionIdentique(List<T> liste, T element) {
+        for (int i = 0; i < liste.size(); i++) {
+            if (liste.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static <T> T premier(List<T> liste) {
+        return liste == null || liste.isEmpty() ? null : liste.get(0);
+    }
+
+    private void verifierCharge() {
+        if (elements == null) {
+            throw new IllegalStateException("Cache vide : le stockage doit être relu avant une mutation");
+        }
+    }
+
+    private Collection<String> extraireCles(ExtracteurCles<T> extracteur, T element) {
+        Collection<String> cles = extracteur.extraire(element);
+        if (cles == null) {
+            return Collections.emptyList();
+        }
+        List<String> nonNulles = new ArrayList<>(cles.size());
+        for (String cle : cles) {
+            if (cle != null) {
+                nonNulles.add(cle);
+            }
+        }
+        return nonNulles;
+    }
+}
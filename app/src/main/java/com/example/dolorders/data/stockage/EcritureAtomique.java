@@ -0,0 +1,296 @@
+package com.example.dolorders.data.stockage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Remplacement atomique et durable d'un fichier de stockage.
+ * <p>
+ * Le nouveau contenu est écrit dans un fichier temporaire, synchronisé sur disque (fsync), puis
+ * renommé à la place du fichier : une coupure pendant l'écriture laisse l'ancien fichier intact.
+ * La génération précédente est conservée à côté (« .bak »), et chaque génération est accompagnée
+ * d'un petit fichier « .crc » (taille + somme CRC32) qui permet de détecter un fichier abîmé.
+ * <p>
+ * Au chargement, {@link #recuperer(File)} vérifie le fichier et, s'il est absent ou abîmé alors
+ * qu'une sauvegarde valide existe, remet la sauvegarde en place. Un fichier sans « .crc »
+ * (écrit avant l'introduction de cette classe) est considéré comme valide.
+ * <p>
+ * L'ordre des renommages garantit qu'après une coupure à n'importe quel moment, soit le fichier,
+ * soit sa sauvegarde correspond à sa somme de contrôle.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class EcritureAtomique {
+
+    /** Suffixe du fichier temporaire pendant l'écriture */
+    public static final String SUFFIXE_TEMPORAIRE = ".tmp";
+
+    /** Suffixe de la génération précédente du fichier */
+    public static final String SUFFIXE_SAUVEGARDE = ".bak";
+
+    /** Suffixe du fichier de somme de contrôle d'une génération */
+    public static final String SUFFIXE_CONTROLE = ".crc";
+
+    /** Version du format du fichier de somme de contrôle */
+    private static final int VERSION_CONTROLE = 1;
+
+    private EcritureAtomique() {
+    }
+
+    /**
+     * Contenu à écrire dans le fichier.
+     */
+    public interface Contenu {
+        /**
+         * Écrit le contenu. Le flux peut être fermé par l'implémentation : la fermeture réelle
+         * n'a lieu qu'après la synchronisation sur disque.
+         *
+         * @param sortie Flux du fichier temporaire
+         * @throws IOException si l'écriture échoue
+         */
+        void ecrire(OutputStream sortie) throws IOException;
+    }
+
+    /**
+     * Remplace le fichier par un nouveau contenu, de façon atomique.
+     *
+     * @param cible   Fichier à remplacer (créé s'il n'existe pas)
+     * @param contenu Contenu à écrire
+     * @throws IOException si l'écriture échoue ; le fichier précédent est alors conservé
+     */
+    public static void ecrire(File cible, Contenu contenu) throws IOException {
+        File temporaire = fichierTemporaire(cible);
+        CRC32 somme = new CRC32();
+        long taille;
+        try (FileOutputStream fos = new FileOutputStream(temporaire)) {
+            CompteurSortie sortie = new CompteurSortie(
+                    new CheckedOutputStream(new BufferedOutputStream(fos), somme));
+            contenu.ecrire(sortie);
+            sortie.flush();
+            fos.getFD().sync();
+            taille = sortie.taille;
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temporaire.delete();
+            throw e;
+        }
+        installer(temporaire, cible, taille, somme.getValue());
+    }
+
+    /**
+     * Installe un fichier temporaire déjà écrit et synchronisé à la place du fichier
+     * (ex : écriture en flux par pages). La somme de contrôle est calculée en relisant le fichier temporaire.
+     *
+     * @param temporaire Fichier temporaire complet
+     * @param cible      Fichier à remplacer
+     * @throws IOException si le remplacement échoue
+     */
+    public static void remplacer(File temporaire, File cible) throws IOException {
+        installer(temporaire, cible, temporaire.length(), calculerSomme(temporaire));
+    }
+
+    /**
+     * Vérifie le fichier avant sa lecture et remet la sauvegarde en place s'il est absent ou abîmé.
+     *
+     * @param cible Fichier de stockage
+     * @return true si la sauvegarde a été restaurée, false si le fichier est laissé tel quel
+     */
+    public static boolean recuperer(File cible) {
+        if (cible.exists() && estValide(cible, fichierControle(cible))) {
+            return false;
+        }
+        return restaurerSauvegarde(cible);
+    }
+
+    /**
+     * Remet la sauvegarde en place, si elle existe et correspond à sa somme de contrôle
+     * (ex : fichier courant illisible bien que sa somme soit correcte).
+     *
+     * @param cible Fichier de stockage
+     * @return true si la sauvegarde a été restaurée
+     */
+    public static boolean restaurerSauvegarde(File cible) {
+        File sauvegarde = fichierSauvegarde(cible);
+        File controleSauvegarde = fichierControle(sauvegarde);
+        if (!sauvegarde.exists() || !estValide(sauvegarde, controleSauvegarde)) {
+            return false;
+        }
+        try {
+            // La somme d'abord : tant que la sauvegarde n'est pas renommée, elle reste restaurable
+            if (controleSauvegarde.exists()) {
+                deplacer(controleSauvegarde, fichierControle(cible));
+            } else {
+                Files.deleteIfExists(fichierControle(cible).toPath());
+            }
+            deplacer(sauvegarde, cible);
+            synchroniserDossier(cible);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Supprime le fichier, sa sauvegarde, leurs sommes de contrôle et un éventuel fichier temporaire.
+     *
+     * @param cible Fichier de stockage
+     * @throws IOException si une suppression échoue
+     */
+    public static void supprimer(File cible) throws IOException {
+        File sauvegarde = fichierSauvegarde(cible);
+        Files.deleteIfExists(cible.toPath());
+        Files.deleteIfExists(fichierControle(cible).toPath());
+        Files.deleteIfExists(sauvegarde.toPath());
+        Files.deleteIfExists(fichierControle(sauvegarde).toPath());
+        Files.deleteIfExists(fichierTemporaire(cible).toPath());
+    }
+
+    /**
+     * @return Fichier temporaire utilisé pendant l'écriture de la cible
+     */
+    public static File fichierTemporaire(File cible) {
+        return new File(cible.getParentFile(), cible.getName() + SUFFIXE_TEMPORAIRE);
+    }
+
+    /**
+     * @return Génération précédente de la cible
+     */
+    public static File fichierSauvegarde(File cible) {
+        return new File(cible.getParentFile(), cible.getName() + SUFFIXE_SAUVEGARDE);
+    }
+
+    static File fichierControle(File fichier) {
+        return new File(fichier.getParentFile(), fichier.getName() + SUFFIXE_CONTROLE);
+    }
+
+    /**
+     * Remplace la cible par le fichier temporaire en gardant la génération précédente.
+     */
+    private static void installer(File temporaire, File cible, long taille, long somme) throws IOException {
+        File controle = fichierControle(cible);
+        File sauvegarde = fichierSauvegarde(cible);
+        File controleSauvegarde = fichierControle(sauvegarde);
+
+        // 1. La génération courante devient la sauvegarde (somme d'abord, fichier ensuite)
+        if (cible.exists()) {
+            if (controle.exists()) {
+                deplacer(controle, controleSauvegarde);
+            } else {
+                Files.deleteIfExists(controleSauvegarde.toPath());
+            }
+            deplacer(cible, sauvegarde);
+        }
+
+        // 2. Somme de la nouvelle génération, puis le fichier lui-même
+        ecrireControle(controle, taille, somme);
+        deplacer(temporaire, cible);
+        synchroniserDossier(cible);
+    }
+
+    private static void ecrireControle(File controle, long taille, long somme) throws IOException {
+        File temporaire = fichierTemporaire(controle);
+        try (FileOutputStream fos = new FileOutputStream(temporaire);
+             DataOutputStream sortie = new DataOutputStream(new BufferedOutputStream(fos))) {
+            sortie.writeInt(VERSION_CONTROLE);
+            sortie.writeLong(taille);
+            sortie.writeLong(somme);
+            sortie.flush();
+            fos.getFD().sync();
+        }
+        deplacer(temporaire, controle);
+    }
+
+    /**
+     * Vérifie un fichier par rapport à sa somme de contrôle. Sans somme, le fichier est accepté.
+     */
+    private static boolean estValide(File fichier, File controle) {
+        if (!controle.exists()) {
+            return fichier.exists();
+        }
+        try (DataInputStream entree = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(controle)))) {
+            if (entree.readInt() != VERSION_CONTROLE) {
+                return false;
+            }
+            long taille = entree.readLong();
+            long somme = entree.readLong();
+            return fichier.length() == taille && calculerSomme(fichier) == somme;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long calculerSomme(File fichier) throws IOException {
+        CRC32 somme = new CRC32();
+        byte[] tampon = new byte[64 * 1024];
+        try (InputStream entree = new FileInputStream(fichier)) {
+            int lus;
+            while ((lus = entree.read(tampon)) != -1) {
+                somme.update(tampon, 0, lus);
+            }
+        }
+        return somme.getValue();
+    }
+
+    private static void deplacer(File source, File destination) throws IOException {
+        Files.move(source.toPath(), destination.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Synchronise le dossier pour rendre les renommages durables.
+     * Non pris en charge par tous les systèmes de fichiers : un échec est ignoré.
+     */
+    private static void synchroniserDossier(File fichier) {
+        File dossier = fichier.getAbsoluteFile().getParentFile();
+        try (FileChannel canal = FileChannel.open(dossier.toPath(), StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException | RuntimeException ignoree) {
+            // Le renommage reste atomique, seule sa durabilité immédiate n'est pas garantie
+        }
+    }
+
+    /**
+     * Flux qui compte les octets écrits et dont la fermeture ne ferme pas le fichier
+     * (synchronisé puis fermé par {@link #ecrire(File, Contenu)}).
+     */
+    private static final class CompteurSortie extends FilterOutputStream {
+        private long taille;
+
+        CompteurSortie(OutputStream sortie) {
+            super(sortie);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            taille++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            taille += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
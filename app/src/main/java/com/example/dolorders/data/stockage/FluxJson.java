@@ -0,0 +1,105 @@
+package com.example.dolorders.data.stockage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture et écriture en flux des fichiers de stockage JSON (tableau d'objets).
+ * <p>
+ * Les éléments sont écrits un par un dans un {@link JsonWriter} et lus un par un depuis un
+ * {@link JsonReader}, avec l'adaptateur enregistré dans le {@link Gson} fourni : le document n'est
+ * jamais construit en entier dans une chaîne, ce qui évite une copie complète du fichier en mémoire.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class FluxJson {
+
+    private FluxJson() {
+    }
+
+    /**
+     * Écrit une liste sous forme de tableau JSON. Le flux est fermé à la fin de l'écriture.
+     *
+     * @param gson     Instance Gson portant l'adaptateur du type
+     * @param sortie   Flux de destination
+     * @param elements Éléments à écrire
+     * @param type     Classe des éléments
+     * @throws IOException si l'écriture échoue
+     */
+    public static <T> void ecrireListe(Gson gson, OutputStream sortie, List<T> elements, Class<T> type)
+            throws IOException {
+        TypeAdapter<T> adaptateur = gson.getAdapter(type);
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(sortie, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (T element : elements) {
+                if (element == null) {
+                    writer.nullValue();
+                } else {
+                    adaptateur.write(writer, element);
+                }
+            }
+            writer.endArray();
+        }
+    }
+
+    /**
+     * Lit un tableau JSON élément par élément. Le flux est fermé à la fin de la lecture.
+     * Un fichier vide ou contenant {@code null} donne une liste vide.
+     *
+     * @param gson   Instance Gson portant l'adaptateur du type
+     * @param entree Flux source
+     * @param type   Classe des éléments
+     * @return Liste des éléments lus, modifiable
+     * @throws IOException si la lecture échoue ou si le contenu n'est pas un tableau valide
+     */
+    public static <T> List<T> lireListe(Gson gson, InputStream entree, Class<T> type) throws IOException {
+        TypeAdapter<T> adaptateur = gson.getAdapter(type);
+        List<T> elements = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(entree, StandardCharsets.UTF_8)))) {
+            // Même tolérance que Gson.fromJson, utilisé auparavant
+            reader.setLenient(true);
+
+            JsonToken premier;
+            try {
+                premier = reader.peek();
+            } catch (EOFException fichierVide) {
+                return elements;
+            }
+            if (premier == JsonToken.NULL) {
+                return elements;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    elements.add(null);
+                } else {
+                    elements.add(adaptateur.read(reader));
+                }
+            }
+            reader.endArray();
+            return elements;
+        } catch (IllegalStateException | JsonParseException e) {
+            throw new IOException("Contenu JSON invalide", e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.dolorders.data.stockage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Résumé d'un fichier de stockage (nombre d'enregistrements, montant total, date de modification),
+ * conservé dans un petit fichier annexe « .meta » réécrit à chaque écriture du stockage.
+ * <p>
+ * Les compteurs de l'accueil lisent ce résumé au lieu de désérialiser tout le fichier.
+ * Le résumé contient la signature du stockage au moment où il a été écrit : s'il ne correspond
+ * plus aux fichiers sur disque (écriture interrompue, ancienne version), {@link #lire} retourne null
+ * et l'appelant recalcule le résumé à partir des données.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class MetadonneesStockage {
+
+    /** Suffixe du fichier annexe, ajouté au nom du fichier de stockage */
+    public static final String SUFFIXE = ".meta";
+
+    /** Version du format du fichier annexe, à incrémenter si le format change */
+    private static final int VERSION_FORMAT = 1;
+
+    private final int nbEnregistrements;
+    private final double montantTotal;
+    private final long dateModification;
+
+    public MetadonneesStockage(int nbEnregistrements, double montantTotal, long dateModification) {
+        this.nbEnregistrements = nbEnregistrements;
+        this.montantTotal = montantTotal;
+        this.dateModification = dateModification;
+    }
+
+    /**
+     * @return Résumé d'un stockage vide ou absent
+     */
+    public static MetadonneesStockage vide() {
+        return new MetadonneesStockage(0, 0.0, 0L);
+    }
+
+    /**
+     * @return Nombre d'enregistrements du stockage
+     */
+    public int getNbEnregistrements() {
+        return nbEnregistrements;
+    }
+
+    /**
+     * @return Somme des montants des enregistrements (0 si le stockage n'a pas de montant)
+     */
+    public double getMontantTotal() {
+        return montantTotal;
+    }
+
+    /**
+     * @return Date de la dernière écriture du stockage (millisecondes depuis l'époque)
+     */
+    public long getDateModification() {
+        return dateModification;
+    }
+
+    /**
+     * Retourne le fichier annexe d'un fichier de stockage.
+     *
+     * @param fichierStockage Fichier de stockage principal
+     * @return Fichier « .meta » placé à côté
+     */
+    public static File fichierAnnexe(File fichierStockage) {
+        return new File(fichierStockage.getParentFile(), fichierStockage.getName() + SUFFIXE);
+    }
+
+    /**
+     * Écrit le résumé dans le fichier annexe, avec la signature courante du stockage.
+     * Le fichier est écrit à côté puis renommé, pour ne jamais laisser un résumé tronqué.
+     *
+     * @param fichier   Fichier annexe
+     * @param signature Signature du stockage après l'écriture résumée
+     * @throws IOException si l'écriture échoue
+     */
+    public void ecrire(File fichier, SignatureFichier signature) throws IOException {
+        File temporaire = new File(fichier.getParentFile(), fichier.getName() + ".tmp");
+        try (DataOutputStream sortie = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaire)))) {
+            sortie.writeInt(VERSION_FORMAT);
+            signature.ecrire(sortie);
+            sortie.writeInt(nbEnregistrements);
+            sortie.writeDouble(montantTotal);
+            sortie.writeLong(dateModification);
+        }
+        if (!temporaire.renameTo(fichier)) {
+            throw new IOException("Impossible de renommer " + temporaire.getName());
+        }
+    }
+
+    /**
+     * Relit le résumé s'il correspond encore au stockage.
+     *
+     * @param fichier          Fichier annexe
+     * @param signatureCourante Signature actuelle du stockage
+     * @return Le résumé, ou null s'il est absent, illisible ou périmé
+     */
+    public static MetadonneesStockage lire(File fichier, SignatureFichier signatureCourante) {
+        if (!fichier.exists()) {
+            return null;
+        }
+        try (DataInputStream entree = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(fichier)))) {
+            if (entree.readInt() != VERSION_FORMAT) {
+                return null;
+            }
+            if (!signatureCourante.equals(SignatureFichier.lire(entree))) {
+                return null;
+            }
+            int nb = entree.readInt();
+            double montant = entree.readDouble();
+            long date = entree.readLong();
+            return new MetadonneesStockage(nb, montant, date);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Supprime le fichier annexe (stockage vidé, ou résumé impossible à calculer).
+     *
+     * @param fichier Fichier annexe
+     */
+    public static void supprimer(File fichier) {
+        // Un échec est sans conséquence : un résumé resté sur disque sera rejeté par sa signature
+        //noinspection ResultOfMethodCallIgnored
+        fichier.delete();
+    }
+}
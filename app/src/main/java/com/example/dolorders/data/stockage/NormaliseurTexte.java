@@ -0,0 +1,46 @@
+package com.example.dolorders.data.stockage;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation des textes pour les index de recherche (produits, clients).
+ * La saisie et les données indexées passent par la même normalisation, si bien qu'une recherche
+ * ne dépend ni de la casse, ni des accents, ni de la ponctuation.
+ */
+public final class NormaliseurTexte {
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NormaliseurTexte() {
+        // Classe utilitaire : ne doit pas être instanciée
+    }
+
+    /**
+     * Normalise un texte : minuscules, accents retirés, ponctuation remplacée
+     * par des espaces, espaces multiples réduits.
+     *
+     * @param texte Texte à normaliser (peut être null)
+     * @return Texte normalisé ("" si null ou vide)
+     */
+    public static String normaliser(String texte) {
+        if (texte == null || texte.isEmpty()) {
+            return "";
+        }
+        String sansAccents = DIACRITIQUES.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATEURS.matcher(sansAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Normalise un texte en ne gardant que lettres et chiffres, sans aucun séparateur
+     * (numéros de téléphone, codes postaux : "01 23.45" et "012345" sont équivalents).
+     *
+     * @param texte Texte à normaliser (peut être null)
+     * @return Texte normalisé et compacté ("" si null ou vide)
+     */
+    public static String normaliserCompact(String texte) {
+        return normaliser(texte).replace(" ", "");
+    }
+}
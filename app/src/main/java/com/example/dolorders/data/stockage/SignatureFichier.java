@@ -0,0 +1,83 @@
+package com.example.dolorders.data.stockage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Empreinte légère d'un ou plusieurs fichiers de stockage (taille + date de modification).
+ * Permet de détecter qu'un fichier a changé sur disque sans relire son contenu.
+ */
+public final class SignatureFichier {
+
+    /** Tailles et dates de modification, dans l'ordre des fichiers fournis */
+    private final long[] valeurs;
+
+    private SignatureFichier(long[] valeurs) {
+        this.valeurs = valeurs;
+    }
+
+    /**
+     * Calcule la signature des fichiers donnés.
+     * Un fichier absent a une taille et une date égales à -1.
+     *
+     * @param fichiers Fichiers composant le stockage (ex : instantané + journal)
+     * @return La signature courante
+     */
+    public static SignatureFichier de(File... fichiers) {
+        long[] valeurs = new long[fichiers.length * 2];
+        for (int i = 0; i < fichiers.length; i++) {
+            File fichier = fichiers[i];
+            boolean existe = fichier.exists();
+            valeurs[i * 2] = existe ? fichier.length() : -1;
+            valeurs[i * 2 + 1] = existe ? fichier.lastModified() : -1;
+        }
+        return new SignatureFichier(valeurs);
+    }
+
+    /**
+     * Écrit la signature, pour la comparer plus tard à celle du stockage (ex : en-tête d'un index persisté).
+     *
+     * @param sortie Flux de sortie
+     * @throws IOException si l'écriture échoue
+     */
+    public void ecrire(DataOutput sortie) throws IOException {
+        sortie.writeInt(valeurs.length);
+        for (long valeur : valeurs) {
+            sortie.writeLong(valeur);
+        }
+    }
+
+    /**
+     * Relit une signature écrite par {@link #ecrire(DataOutput)}.
+     *
+     * @param entree Flux d'entrée
+     * @return La signature lue
+     * @throws IOException si la lecture échoue
+     */
+    public static SignatureFichier lire(DataInput entree) throws IOException {
+        int nb = entree.readInt();
+        if (nb < 0 || nb > 64) {
+            throw new IOException("Signature invalide (" + nb + " valeurs)");
+        }
+        long[] valeurs = new long[nb];
+        for (int i = 0; i < nb; i++) {
+            valeurs[i] = entree.readLong();
+        }
+        return new SignatureFichier(valeurs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(valeurs, ((SignatureFichier) o).valeurs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(valeurs);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.dolorders.data.stockage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regroupement des écritures d'un stockage (écriture différée).
+ * <p>
+ * Le stockage applique ses mutations en mémoire et les signale au tampon ({@link #signaler()}) ;
+ * le tampon déclenche une seule écriture sur disque ({@link Vidage}) pour toutes les mutations
+ * signalées pendant un court délai, ou pendant une transaction explicite
+ * ({@link #commencerTransaction()} / {@link #terminerTransaction()}).
+ * <p>
+ * Le verrou du tampon sert de verrou d'écriture du stockage : le vidage s'exécute en le tenant,
+ * et le stockage doit le prendre pendant ses mutations pour qu'une écriture différée ne s'intercale
+ * pas au milieu d'une mutation.
+ * <p>
+ * Les écritures en attente peuvent être forcées à tout moment ({@link #vider()}), et pour tous
+ * les stockages à la fois ({@link #viderTous()}), par exemple quand l'application passe en arrière-plan.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class TamponEcriture {
+
+    /**
+     * Écriture sur disque des mutations en attente.
+     */
+    public interface Vidage {
+        /**
+         * @return true si l'écriture a réussi ; sinon les mutations restent en attente
+         */
+        boolean vider();
+    }
+
+    /** Tampons créés dans le processus, vidés ensemble par {@link #viderTous()} */
+    private static final List<TamponEcriture> TAMPONS = new CopyOnWriteArrayList<>();
+
+    /** Thread des écritures différées, partagé par tous les tampons */
+    private static final ScheduledExecutorService PLANIFICATEUR = Executors.newSingleThreadScheduledExecutor(
+            tache -> {
+                Thread thread = new Thread(tache, "ecriture-differee");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Vidage vidage;
+    private final long delaiMs;
+    private final ScheduledExecutorService planificateur;
+
+    private int transactions;
+    private boolean modifie;
+    private ScheduledFuture<?> vidagePlanifie;
+
+    /**
+     * @param vidage  Écriture des mutations en attente
+     * @param delaiMs Délai pendant lequel les mutations sont regroupées avant l'écriture
+     */
+    public TamponEcriture(Vidage vidage, long delaiMs) {
+        this(vidage, delaiMs, PLANIFICATEUR);
+    }
+
+    TamponEcriture(Vidage vidage, long delaiMs, ScheduledExecutorService planificateur) {
+        this.vidage = vidage;
+        this.delaiMs = delaiMs;
+        this.planificateur = planificateur;
+        TAMPONS.add(this);
+    }
+
+    /**
+     * Signale une mutation appliquée en mémoire. L'écriture est planifiée après le délai,
+     * sauf pendant une transaction (écrite à sa fin).
+     */
+    public synchronized void signaler() {
+        modifie = true;
+        if (transactions == 0 && vidagePlanifie == null) {
+            vidagePlanifie = planificateur.schedule(this::vider, delaiMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Signale une mutation qui doit être sur disque au retour (ex : saisie de l'utilisateur) :
+     * elle est écrite tout de suite, avec les mutations en attente, sauf pendant une transaction
+     * (écrite à sa fin).
+     *
+     * @return false si l'écriture a échoué (la mutation reste en attente)
+     */
+    public synchronized boolean signalerEtEcrire() {
+        modifie = true;
+        return transactions > 0 || vider();
+    }
+
+    /**
+     * Commence une transaction : les mutations ne sont écrites qu'à la fin de la transaction la plus externe.
+     * Chaque appel doit être suivi d'un appel à {@link #terminerTransaction()} (bloc finally).
+     */
+    public synchronized void commencerTransaction() {
+        transactions++;
+    }
+
+    /**
+     * Termine une transaction ; à la fin de la plus externe, les mutations en attente sont écrites.
+     *
+     * @return false si l'écriture a échoué
+     */
+    public synchronized boolean terminerTransaction() {
+        if (transactions == 0) {
+            throw new IllegalStateException("Aucune transaction en cours");
+        }
+        transactions--;
+        return transactions > 0 || vider();
+    }
+
+    /**
+     * Écrit immédiatement les mutations en attente.
+     *
+     * @return true si rien n'était en attente ou si l'écriture a réussi
+     */
+    public synchronized boolean vider() {
+        if (vidagePlanifie != null) {
+            vidagePlanifie.cancel(false);
+            vidagePlanifie = null;
+        }
+        if (!modifie) {
+            return true;
+        }
+        modifie = false;
+        if (!vidage.vider()) {
+            // Réessayé à la prochaine mutation ou au prochain vidage forcé
+            modifie = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true si des mutations n'ont pas encore été écrites
+     */
+    public synchronized boolean aDesModificationsEnAttente() {
+        return modifie;
+    }
+
+    /**
+     * Écrit immédiatement les mutations en attente de tous les stockages.
+     *
+     * @return false si au moins une écriture a échoué
+     */
+    public static boolean viderTous() {
+        boolean succes = true;
+        for (TamponEcriture tampon : TAMPONS) {
+            succes &= tampon.vider();
+        }
+        return succes;
+    }
+}
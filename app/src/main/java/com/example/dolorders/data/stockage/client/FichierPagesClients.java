@@ -0,0 +1,179 @@
+package com.example.dolorders.data.stockage.client;
+
+import com.example.dolorders.objet.Client;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fichier intermédiaire des clients reçus pendant une synchronisation paginée.
+ * <p>
+ * Chaque page est ajoutée à la fin du fichier, un client par ligne JSON : le coût d'une page est
+ * proportionnel à sa taille et non au nombre de clients déjà reçus. Le fichier n'est relu qu'une fois,
+ * à la fin de la synchronisation ({@link #lireClients()}) ; un client présent plusieurs fois (page
+ * réécrite après une reprise) n'est gardé qu'une fois, avec sa dernière version.
+ * <p>
+ * Une ligne tronquée (coupure pendant l'écriture d'une page) est ignorée à la lecture, et retirée
+ * du fichier avant l'ajout suivant.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public class FichierPagesClients {
+
+    /** Fichier intermédiaire */
+    private final File fichier;
+
+    /** Instance de Gson configurée avec l'adaptateur unifié pour Client */
+    private final Gson gson;
+
+    /** true une fois la fin du fichier vérifiée (pas de ligne tronquée avant un ajout) */
+    private boolean finVerifiee;
+
+    /**
+     * Constructeur du fichier intermédiaire.
+     *
+     * @param fichier Fichier des pages reçues (créé au premier ajout)
+     */
+    public FichierPagesClients(File fichier) {
+        this.fichier = fichier;
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(Client.class, new AdaptateurStockageClient())
+                .create();
+    }
+
+    /**
+     * Ajoute une page de clients à la fin du fichier et la synchronise sur disque.
+     * Si l'écriture échoue, le fichier est ramené à sa taille d'avant l'ajout.
+     *
+     * @param clients Clients de la page
+     * @throws IOException si l'écriture échoue
+     */
+    public synchronized void ajouterPage(List<Client> clients) throws IOException {
+        if (clients.isEmpty()) {
+            return;
+        }
+        StringBuilder lignes = new StringBuilder();
+        for (Client client : clients) {
+            lignes.append(gson.toJson(client, Client.class)).append('\n');
+        }
+
+        try (FileChannel canal = FileChannel.open(fichier.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            if (!finVerifiee) {
+                retirerLigneTronquee(canal);
+                finVerifiee = true;
+            }
+            long taille = canal.size();
+            try {
+                ByteBuffer tampon = ByteBuffer.wrap(lignes.toString().getBytes(StandardCharsets.UTF_8));
+                canal.position(taille);
+                while (tampon.hasRemaining()) {
+                    canal.write(tampon);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                try {
+                    canal.truncate(taille);
+                } catch (IOException ignoree) {
+                    // La ligne tronquée restante sera retirée avant le prochain ajout
+                }
+                finVerifiee = false;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Relit tous les clients reçus, dans l'ordre de leur première réception.
+     * Un client reçu plusieurs fois (même ID) n'apparaît qu'une fois, avec sa dernière version.
+     *
+     * @return Clients reçus, ou une liste vide si le fichier est absent
+     * @throws IOException si la lecture échoue
+     */
+    public synchronized List<Client> lireClients() throws IOException {
+        if (!fichier.exists()) {
+            return new ArrayList<>();
+        }
+        Map<String, Client> clientsParId = new LinkedHashMap<>();
+        List<Client> sansId = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(fichier), StandardCharsets.UTF_8))) {
+            String ligne;
+            while ((ligne = reader.readLine()) != null) {
+                Client client = lireLigne(ligne);
+                if (client == null) {
+                    continue;
+                }
+                if (client.getId() == null) {
+                    sansId.add(client);
+                } else {
+                    clientsParId.put(client.getId(), client);
+                }
+            }
+        }
+        List<Client> clients = new ArrayList<>(clientsParId.values());
+        clients.addAll(sansId);
+        return clients;
+    }
+
+    /**
+     * Supprime le fichier intermédiaire (nouvelle synchronisation ou synchronisation terminée).
+     *
+     * @throws IOException si la suppression échoue
+     */
+    public synchronized void supprimer() throws IOException {
+        Files.deleteIfExists(fichier.toPath());
+        finVerifiee = false;
+    }
+
+    /**
+     * Décode une ligne du fichier.
+     *
+     * @return Le client, ou null si la ligne est vide ou illisible (ligne tronquée)
+     */
+    private Client lireLigne(String ligne) {
+        if (ligne.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return gson.fromJson(ligne, Client.class);
+        } catch (JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ramène le fichier à sa dernière fin de ligne s'il se termine par une ligne tronquée.
+     */
+    private static void retirerLigneTronquee(FileChannel canal) throws IOException {
+        long taille = canal.size();
+        ByteBuffer octet = ByteBuffer.allocate(1);
+        long position = taille;
+        while (position > 0) {
+            octet.clear();
+            canal.read(octet, position - 1);
+            if (octet.get(0) == '\n') {
+                break;
+            }
+            position--;
+        }
+        if (position < taille) {
+            canal.truncate(position);
+        }
+    }
+}
@@ -3,31 +3,39 @@ package com.example.dolorders.data.stockage.client;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.dolorders.data.stockage.CacheIndexe;
+import com.example.dolorders.data.stockage.EcritureAtomique;
+import com.example.dolorders.data.stockage.FluxJson;
+import com.example.dolorders.data.stockage.MetadonneesStockage;
+import com.example.dolorders.data.stockage.SignatureFichier;
 import com.example.dolorders.objet.Client;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gestionnaire unifié de stockage des clients dans un fichier JSON local.
  * Gère à la fois les clients créés localement et ceux provenant de l'API Dolibarr.
  * Le fichier est stocké dans le répertoire interne de l'application
  * et sera automatiquement supprimé si l'application est désinstallée.
+ * <p>
+ * Les clients lus sont conservés dans un cache mémoire partagé par tout le processus
+ * (un par fichier), mis à jour à chaque sauvegarde et invalidé si le fichier change sur disque.
+ * Chaque sauvegarde réécrit aussi le résumé du fichier (voir {@link MetadonneesStockage}) :
+ * le nombre de clients se lit sans désérialiser la liste.
+ * <p>
+ * Le fichier est remplacé de façon atomique à chaque sauvegarde (voir {@link EcritureAtomique}) :
+ * une coupure pendant l'écriture ne le tronque pas, et la génération précédente est relue
+ * si le fichier courant est absent ou abîmé.
  */
 public class GestionnaireStockageClient {
 
@@ -40,6 +48,9 @@ public class GestionnaireStockageClient {
     /** Tag de log pour le gestionnaire de stockage des clients */
     private static final String TAG = "ClientStorage";
 
+    /** Caches mémoire partagés par toutes les instances, indexés par chemin de fichier */
+    private static final Map<String, CacheIndexe<Client>> CACHES = new ConcurrentHashMap<>();
+
     /** Contexte de l'application pour accéder au système de fichiers internes */
     private final Context context;
 
@@ -89,21 +100,20 @@ public class GestionnaireStockageClient {
         }
 
         try {
-            // Conversion de la liste en JSON
-            String jsonData = gson.toJson(clients);
-
-            // Écriture dans le fichier interne
-            try (FileOutputStream fos = context.openFileOutput(getFileName(), Context.MODE_PRIVATE)) {
-                OutputStreamWriter writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-                writer.write(jsonData);
-                writer.close();
-            }
+            // Écriture en flux dans un fichier temporaire, client par client, puis remplacement atomique
+            EcritureAtomique.ecrire(getFichier(),
+                    sortie -> FluxJson.ecrireListe(gson, sortie, clients, Client.class));
+
+            // Mise à jour du cache avec les données écrites (écriture traversante)
+            getCache().remplacer(clients, SignatureFichier.de(getFichier()));
+            ecrireMetadonnees(clients);
 
             Log.d(TAG, "Clients sauvegardés avec succès (" + clients.size() + " clients) dans : " + getFileName());
             return true;
 
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la sauvegarde des clients", e);
+            getCache().invalider();
             return false;
         }
     }
@@ -114,47 +124,72 @@ public class GestionnaireStockageClient {
      * @return Liste des clients sauvegardés, ou une liste vide si aucune donnée
      */
     public List<Client> loadClients() {
-        File file = new File(context.getFilesDir(), getFileName());
+        File file = getFichier();
+
+        // Écriture précédente interrompue avant le renommage : la sauvegarde est remise en place
+        if (!file.exists()) {
+            recupererSauvegarde(file);
+        }
 
         // Si le fichier n'existe pas, retourner une liste vide
         if (!file.exists()) {
             Log.d(TAG, "Aucun fichier de clients trouvé : " + getFileName());
+            getCache().invalider();
             return new ArrayList<>();
         }
 
-        try {
-            // Lecture du fichier
-            StringBuilder jsonBuilder;
-            try (FileInputStream fis = context.openFileInput(getFileName())) {
-                jsonBuilder = new StringBuilder();
-                // Utilisation d'un BufferedReader pour lire le contenu du fichier
-                try (InputStreamReader reader = new InputStreamReader(fis, StandardCharsets.UTF_8)) {
-                    try (BufferedReader bufferedReader = new BufferedReader(reader)) {
-                        String line;
-                        while ((line = bufferedReader.readLine()) != null) {
-                            jsonBuilder.append(line);
-                        }
-                    }
-                }
-            }
+        // Fichier inchangé depuis la dernière lecture ou écriture : pas de nouveau parsing
+        SignatureFichier signature = SignatureFichier.de(file);
+        List<Client> enCache = getCache().lire(signature);
+        if (enCache != null) {
+            return enCache;
+        }
 
-            // Conversion du JSON en liste d'objets Client
-            String jsonData = jsonBuilder.toString();
-            Type listType = new TypeToken<List<Client>>() {
-            }.getType();
-            List<Client> clients = gson.fromJson(jsonData, listType);
+        // Fichier modifié sur disque : sa somme de contrôle est vérifiée avant la lecture
+        if (recupererSauvegarde(file)) {
+            signature = SignatureFichier.de(file);
+        }
 
-            if (clients == null) {
-                clients = new ArrayList<>();
+        try {
+            return lireFichier(file, signature);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors du chargement des clients", e);
+        }
+
+        // Fichier illisible malgré une somme correcte : dernière tentative avec la génération précédente
+        if (EcritureAtomique.restaurerSauvegarde(file)) {
+            Log.w(TAG, "Clients relus depuis la sauvegarde : " + getFileName());
+            try {
+                return lireFichier(file, SignatureFichier.de(file));
+            } catch (Exception e) {
+                Log.e(TAG, "Sauvegarde des clients illisible", e);
             }
+        }
+        return new ArrayList<>();
+    }
 
-            Log.d(TAG, "Clients chargés avec succès (" + clients.size() + " clients)");
-            return clients;
+    /**
+     * Lit le fichier en flux, client par client, et met le cache à jour.
+     */
+    private List<Client> lireFichier(File file, SignatureFichier signature) throws IOException {
+        List<Client> clients = FluxJson.lireListe(gson, new FileInputStream(file), Client.class);
+        getCache().remplacer(clients, signature);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Erreur lors du chargement des clients", e);
-            return new ArrayList<>();
+        Log.d(TAG, "Clients chargés avec succès (" + clients.size() + " clients)");
+        return clients;
+    }
+
+    /**
+     * Remet la génération précédente en place si le fichier est absent ou abîmé.
+     *
+     * @return true si la sauvegarde a été restaurée
+     */
+    private boolean recupererSauvegarde(File file) {
+        boolean restauree = EcritureAtomique.recuperer(file);
+        if (restauree) {
+            Log.w(TAG, "Fichier de clients absent ou abîmé, sauvegarde restaurée : " + getFileName());
         }
+        return restauree;
     }
 
     /**
@@ -163,7 +198,7 @@ public class GestionnaireStockageClient {
      * @return true si le fichier existe et contient des données
      */
     public boolean hasStoredClients() {
-        File file = new File(context.getFilesDir(), getFileName());
+        File file = getFichier();
         return file.exists() && file.length() > 0;
     }
 
@@ -183,11 +218,12 @@ public class GestionnaireStockageClient {
      * @return true si la suppression a réussi, false sinon
      */
     public boolean clearClients() {
-        File file = new File(context.getFilesDir(), getFileName());
-        Path path = file.toPath();
+        File file = getFichier();
 
         try {
-            Files.deleteIfExists(path);
+            EcritureAtomique.supprimer(file);
+            MetadonneesStockage.supprimer(getFichierMetadonnees());
+            getCache().invalider();
             Log.d(TAG, "Fichier de clients supprimé avec succès ou inexistant");
             return true;
 
@@ -221,7 +257,52 @@ public class GestionnaireStockageClient {
      * @return Nombre de clients
      */
     public int getClientCount() {
-        return loadClients().size();
+        return getMetadonnees().getNbEnregistrements();
+    }
+
+    /**
+     * Retourne le résumé du stockage (nombre de clients, date de modification) sans lire la liste,
+     * depuis le cache mémoire ou le fichier « .meta ». Le résumé n'est recalculé à partir des clients
+     * que s'il est absent ou périmé.
+     *
+     * @return Le résumé du stockage
+     */
+    public MetadonneesStockage getMetadonnees() {
+        File file = getFichier();
+        if (!file.exists() && !recupererSauvegarde(file)) {
+            return MetadonneesStockage.vide();
+        }
+
+        SignatureFichier signature = SignatureFichier.de(file);
+        if (getCache().estValide(signature)) {
+            return new MetadonneesStockage(getCache().taille(), 0.0, file.lastModified());
+        }
+
+        MetadonneesStockage metadonnees = MetadonneesStockage.lire(getFichierMetadonnees(), signature);
+        if (metadonnees != null) {
+            return metadonnees;
+        }
+
+        // Résumé absent ou périmé : recalculé une fois à partir des clients
+        List<Client> clients = loadClients();
+        ecrireMetadonnees(clients);
+        return new MetadonneesStockage(clients.size(), 0.0, file.lastModified());
+    }
+
+    /**
+     * Recherche un client par son ID via l'index du cache.
+     *
+     * @param clientId ID du client recherché
+     * @return Le client trouvé, ou null si non trouvé
+     */
+    public Client findClientById(String clientId) {
+        if (clientId == null || clientId.isEmpty()) {
+            return null;
+        }
+
+        // Charge le cache si nécessaire (fichier modifié ou première lecture)
+        loadClients();
+        return getCache().parId(clientId);
     }
 
     /**
@@ -290,5 +371,49 @@ public class GestionnaireStockageClient {
         // Sauvegarde de la liste mise à jour
         return saveClients(clients);
     }
-}
 
+    /**
+     * Retourne le fichier de stockage utilisé par cette instance.
+     *
+     * @return Le fichier dans le répertoire interne de l'application
+     */
+    private File getFichier() {
+        return new File(context.getFilesDir(), getFileName());
+    }
+
+    /**
+     * Retourne le fichier annexe contenant le résumé du stockage.
+     *
+     * @return Le fichier « .meta » du stockage
+     */
+    private File getFichierMetadonnees() {
+        return MetadonneesStockage.fichierAnnexe(getFichier());
+    }
+
+    /**
+     * Réécrit le résumé du stockage après une écriture.
+     * En cas d'échec, le résumé est supprimé : il sera recalculé à la prochaine lecture.
+     *
+     * @param clients Clients présents dans le fichier
+     */
+    private void ecrireMetadonnees(List<Client> clients) {
+        File file = getFichier();
+        try {
+            new MetadonneesStockage(clients.size(), 0.0, file.lastModified())
+                    .ecrire(getFichierMetadonnees(), SignatureFichier.de(file));
+        } catch (IOException e) {
+            Log.w(TAG, "Résumé des clients non écrit", e);
+            MetadonneesStockage.supprimer(getFichierMetadonnees());
+        }
+    }
+
+    /**
+     * Retourne le cache mémoire associé au fichier de stockage.
+     *
+     * @return Le cache partagé pour ce fichier
+     */
+    private CacheIndexe<Client> getCache() {
+        return CACHES.computeIfAbsent(getFichier().getAbsolutePath(),
+                chemin -> new CacheIndexe<>(client -> Collections.singletonList(client.getId())));
+    }
+}
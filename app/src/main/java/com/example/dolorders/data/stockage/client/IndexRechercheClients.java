@@ -0,0 +1,300 @@
+package com.example.dolorders.data.stockage.client;
+
+import com.example.dolorders.data.stockage.NormaliseurTexte;
+import com.example.dolorders.objet.Client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index de recherche multi-critères des clients (nom, adresse, code postal, ville, téléphone).
+ * <p>
+ * Les champs de chaque client sont normalisés une seule fois (voir {@link NormaliseurTexte}) et
+ * indexés par trigrammes, champ par champ. Une recherche intersecte les listes des critères de
+ * 3 caractères ou plus, puis vérifie les candidats restants sur les champs déjà normalisés :
+ * le résultat est celui d'un filtre « contient » sur chaque critère, sans parcourir tous les clients.
+ * <p>
+ * L'index est mis à jour au fil de l'eau ({@link #ajouter}, {@link #retirer}, {@link #synchroniser}) :
+ * un client modifié est retiré puis réindexé, sans reconstruire le reste de l'index.
+ * Toutes les méthodes sont synchronisées.
+ */
+public class IndexRechercheClients {
+
+    /**
+     * Champs de recherche d'un client, dans l'ordre des tableaux de champs normalisés.
+     */
+    private enum Champ {
+        NOM, ADRESSE, CODE_POSTAL, VILLE, TELEPHONE
+    }
+
+    /** Longueur des n-grammes indexés */
+    private static final int TAILLE_NGRAMME = 3;
+
+    /** Nombre minimal d'emplacements libérés avant un compactage de l'index */
+    private static final int SEUIL_COMPACTAGE = 64;
+
+    private static final Champ[] CHAMPS = Champ.values();
+
+    /** Clients par emplacement ; null pour un emplacement libéré (client retiré ou modifié) */
+    private final List<Client> clients = new ArrayList<>();
+
+    /** Champs normalisés par emplacement, dans l'ordre de {@link Champ} */
+    private final List<String[]> champsNormalises = new ArrayList<>();
+
+    /** Emplacement de chaque client indexé (par identité : les clients sont immuables) */
+    private final Map<Client, Integer> emplacements = new IdentityHashMap<>();
+
+    /** Par champ : trigramme -> emplacements croissants des clients le contenant */
+    private final List<Map<String, ListeEmplacements>> trigrammes = new ArrayList<>();
+
+    private int nbLibres;
+
+    public IndexRechercheClients() {
+        for (int i = 0; i < CHAMPS.length; i++) {
+            trigrammes.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Construit l'index d'une liste de clients.
+     *
+     * @param clients Clients à indexer
+     */
+    public IndexRechercheClients(Collection<Client> clients) {
+        this();
+        for (Client client : clients) {
+            ajouter(client);
+        }
+    }
+
+    /**
+     * Indexe un client. Sans effet si ce client est déjà indexé.
+     *
+     * @param client Client à indexer
+     */
+    public synchronized void ajouter(Client client) {
+        if (client == null || emplacements.containsKey(client)) {
+            return;
+        }
+        int emplacement = clients.size();
+        String[] champs = normaliserChamps(client);
+
+        clients.add(client);
+        champsNormalises.add(champs);
+        emplacements.put(client, emplacement);
+
+        for (int c = 0; c < CHAMPS.length; c++) {
+            String texte = champs[c];
+            Map<String, ListeEmplacements> index = trigrammes.get(c);
+            for (int debut = 0; debut + TAILLE_NGRAMME <= texte.length(); debut++) {
+                String trigramme = texte.substring(debut, debut + TAILLE_NGRAMME);
+                ListeEmplacements liste = index.get(trigramme);
+                if (liste == null) {
+                    liste = new ListeEmplacements();
+                    index.put(trigramme, liste);
+                }
+                liste.ajouter(emplacement);
+            }
+        }
+    }
+
+    /**
+     * Retire un client de l'index. Son emplacement est libéré, et récupéré au prochain compactage.
+     *
+     * @param client Client à retirer
+     */
+    public synchronized void retirer(Client client) {
+        Integer emplacement = client == null ? null : emplacements.remove(client);
+        if (emplacement == null) {
+            return;
+        }
+        clients.set(emplacement, null);
+        champsNormalises.set(emplacement, null);
+        nbLibres++;
+
+        if (nbLibres > SEUIL_COMPACTAGE && nbLibres > emplacements.size()) {
+            compacter();
+        }
+    }
+
+    /**
+     * Met l'index en accord avec une liste de clients : les clients absents sont retirés,
+     * les nouveaux (ou modifiés, donc de nouvelles instances) sont indexés, les autres sont conservés.
+     *
+     * @param nouveauxClients Liste complète des clients
+     */
+    public synchronized void synchroniser(Collection<Client> nouveauxClients) {
+        Map<Client, Boolean> presents = new IdentityHashMap<>();
+        for (Client client : nouveauxClients) {
+            if (client != null) {
+                presents.put(client, Boolean.TRUE);
+            }
+        }
+        for (Client client : new ArrayList<>(emplacements.keySet())) {
+            if (!presents.containsKey(client)) {
+                retirer(client);
+            }
+        }
+        for (Client client : nouveauxClients) {
+            ajouter(client);
+        }
+    }
+
+    /**
+     * Recherche les clients dont chaque champ renseigné contient la valeur demandée
+     * (sans tenir compte de la casse, des accents ni de la ponctuation).
+     * Un critère null ou vide est ignoré.
+     *
+     * @return Clients correspondants, dans l'ordre d'indexation
+     */
+    public synchronized List<Client> rechercher(String nom, String adresse, String codePostal,
+                                                String ville, String telephone) {
+        String[] criteres = {
+                NormaliseurTexte.normaliser(nom),
+                NormaliseurTexte.normaliser(adresse),
+                NormaliseurTexte.normaliserCompact(codePostal),
+                NormaliseurTexte.normaliser(ville),
+                NormaliseurTexte.normaliserCompact(telephone)
+        };
+
+        int[] candidats = candidats(criteres);
+        List<Client> resultats = new ArrayList<>();
+        if (candidats == null) {
+            // Aucun critère indexable : vérification de tous les clients, sur les champs normalisés
+            for (int emplacement = 0; emplacement < clients.size(); emplacement++) {
+                ajouterSiCorrespond(emplacement, criteres, resultats);
+            }
+        } else {
+            for (int emplacement : candidats) {
+                ajouterSiCorrespond(emplacement, criteres, resultats);
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * @return Nombre de clients indexés
+     */
+    public synchronized int taille() {
+        return emplacements.size();
+    }
+
+    private void ajouterSiCorrespond(int emplacement, String[] criteres, List<Client> resultats) {
+        String[] champs = champsNormalises.get(emplacement);
+        if (champs == null) {
+            return;
+        }
+        for (int c = 0; c < criteres.length; c++) {
+            if (!criteres[c].isEmpty() && !champs[c].contains(criteres[c])) {
+                return;
+            }
+        }
+        resultats.add(clients.get(emplacement));
+    }
+
+    /**
+     * Intersection des emplacements contenant tous les trigrammes des critères indexables,
+     * en partant de la liste la plus courte.
+     *
+     * @return Emplacements candidats, ou null si aucun critère ne fait au moins 3 caractères
+     */
+    private int[] candidats(String[] criteres) {
+        List<ListeEmplacements> listes = new ArrayList<>();
+        for (int c = 0; c < criteres.length; c++) {
+            String critere = criteres[c];
+            for (int debut = 0; debut + TAILLE_NGRAMME <= critere.length(); debut++) {
+                ListeEmplacements liste = trigrammes.get(c).get(critere.substring(debut, debut + TAILLE_NGRAMME));
+                if (liste == null) {
+                    return new int[0];
+                }
+                listes.add(liste);
+            }
+        }
+        if (listes.isEmpty()) {
+            return null;
+        }
+        Collections.sort(listes, (a, b) -> Integer.compare(a.taille, b.taille));
+
+        int[] resultat = Arrays.copyOf(listes.get(0).valeurs, listes.get(0).taille);
+        for (int i = 1; i < listes.size() && resultat.length > 0; i++) {
+            resultat = intersection(resultat, listes.get(i));
+        }
+        return resultat;
+    }
+
+    private static int[] intersection(int[] a, ListeEmplacements b) {
+        int[] resultat = new int[Math.min(a.length, b.taille)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.taille) {
+            if (a[i] < b.valeurs[j]) {
+                i++;
+            } else if (a[i] > b.valeurs[j]) {
+                j++;
+            } else {
+                resultat[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+
+    /**
+     * Reconstruit l'index sans les emplacements libérés, dans l'ordre d'indexation.
+     */
+    private void compacter() {
+        List<Client> restants = new ArrayList<>(emplacements.size());
+        for (Client client : clients) {
+            if (client != null) {
+                restants.add(client);
+            }
+        }
+        clients.clear();
+        champsNormalises.clear();
+        emplacements.clear();
+        for (Map<String, ListeEmplacements> index : trigrammes) {
+            index.clear();
+        }
+        nbLibres = 0;
+        for (Client client : restants) {
+            ajouter(client);
+        }
+    }
+
+    private static String[] normaliserChamps(Client client) {
+        return new String[]{
+                NormaliseurTexte.normaliser(client.getNom()),
+                NormaliseurTexte.normaliser(client.getAdresse()),
+                NormaliseurTexte.normaliserCompact(client.getCodePostal()),
+                NormaliseurTexte.normaliser(client.getVille()),
+                NormaliseurTexte.normaliserCompact(client.getTelephone())
+        };
+    }
+
+    /**
+     * Liste croissante d'emplacements sans doublon.
+     * Les emplacements étant attribués dans l'ordre croissant, l'ajout en fin suffit à la garder triée.
+     */
+    private static final class ListeEmplacements {
+        private int[] valeurs = new int[4];
+        private int taille;
+
+        void ajouter(int emplacement) {
+            if (taille > 0 && valeurs[taille - 1] == emplacement) {
+                return;
+            }
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            valeurs[taille++] = emplacement;
+        }
+    }
+}
@@ -3,51 +3,105 @@ package com.example.dolorders.data.stockage.commande;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.dolorders.data.stockage.CacheIndexe;
+import com.example.dolorders.data.stockage.EcritureAtomique;
+import com.example.dolorders.data.stockage.FluxJson;
+import com.example.dolorders.data.stockage.MetadonneesStockage;
+import com.example.dolorders.data.stockage.SignatureFichier;
+import com.example.dolorders.data.stockage.TamponEcriture;
 import com.example.dolorders.objet.Client;
 import com.example.dolorders.objet.Commande;
+import com.example.dolorders.objet.LigneCommande;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gestionnaire de stockage des commandes dans un fichier JSON local.
  * Le fichier est stocké dans le répertoire interne de l'application
  * et sera automatiquement supprimé si l'application est désinstallée.
+ * <p>
+ * Les mutations unitaires (ajout, modification, suppression) sont ajoutées à un journal
+ * (voir {@link JournalCommandes}) au lieu de réécrire tout le fichier. Le journal est rejoué
+ * au chargement puis compacté dans l'instantané JSON lorsqu'il dépasse {@link #SEUIL_COMPACTION}.
+ * <p>
+ * Les lignes du journal sont écrites en différé (voir {@link TamponEcriture}) : les mutations faites
+ * pendant {@link #DELAI_REGROUPEMENT_MS} ms, ou dans une transaction ({@link #commencerTransaction()}),
+ * sont écrites ensemble avec une seule synchronisation sur disque, suivie d'une seule mise à jour
+ * du résumé. Elles sont visibles immédiatement par les lectures, via le cache et le rejeu du journal.
+ * Les ajouts et modifications, saisis par l'utilisateur, sont écrits sur disque avant le retour ;
+ * seules les suppressions (en série pendant un envoi) sont différées.
+ * {@link TamponEcriture#viderTous()} force l'écriture (passage en arrière-plan, fin d'envoi).
+ * <p>
+ * L'état reconstruit est conservé dans un cache mémoire partagé par tout le processus, indexé
+ * par ID de commande, par ID de client et par ID de produit. Chaque mutation met le cache à jour
+ * en même temps que le journal ; il est invalidé si l'instantané ou le journal change sur disque.
+ * <p>
+ * Chaque écriture réécrit aussi le résumé du stockage (voir {@link MetadonneesStockage}) :
+ * le nombre de commandes et leur montant total se lisent sans rejouer l'instantané ni le journal.
+ * <p>
+ * L'instantané est remplacé de façon atomique (voir {@link EcritureAtomique}) : une coupure pendant
+ * une sauvegarde ou une compaction ne le tronque pas. S'il est absent ou abîmé, l'instantané
+ * précédent est remis en place ; le journal compacté dans l'instantané perdu, archivé jusqu'à
+ * l'écriture de l'instantané suivant (voir {@link JournalCommandes#archiver()}), est alors rejoué
+ * sur cette génération, suivi du journal courant.
  */
 public class GestionnaireStockageCommande {
 
     /** Nom du fichier de stockage pour les commandes */
     private static final String FILE_NAME = "commandes_data.json";
 
+    /** Suffixe du fichier journal associé au fichier de stockage */
+    private static final String SUFFIXE_JOURNAL = ".journal";
+
+    /** Taille du journal (en octets) au-delà de laquelle il est compacté dans l'instantané */
+    static final long SEUIL_COMPACTION = 64 * 1024L;
+
     /** Tag de log pour le gestionnaire de stockage des commandes */
     private static final String TAG = "CommandeStorage";
 
+    /** Nom de l'index des commandes par ID de client */
+    private static final String INDEX_CLIENT = "client";
+
+    /** Nom de l'index des commandes par ID de produit */
+    private static final String INDEX_PRODUIT = "produit";
+
+    /** Délai pendant lequel les mutations successives sont regroupées en une seule écriture */
+    static final long DELAI_REGROUPEMENT_MS = 500;
+
+    /** Caches mémoire partagés par toutes les instances, indexés par chemin de fichier */
+    private static final Map<String, CacheIndexe<Commande>> CACHES = new ConcurrentHashMap<>();
+
+    /** Journaux partagés par toutes les instances, indexés par chemin de fichier */
+    private static final Map<String, JournalCommandes> JOURNAUX = new ConcurrentHashMap<>();
+
+    /** Tampons d'écriture partagés par toutes les instances, indexés par chemin de fichier */
+    private static final Map<String, TamponEcriture> TAMPONS = new ConcurrentHashMap<>();
+
     /** Contexte de l'application pour accéder au système de fichiers internes */
     private final Context context;
 
     /** Instance de Gson configurée avec l'adaptateur personnalisé pour Commande */
     private final Gson gson;
 
+    /** Journal des mutations (partagé), obtenu à la première utilisation (getFileName() peut être surchargé) */
+    private JournalCommandes journal;
+
     /**
      * Constructeur du gestionnaire de stockage des commandes.
      * @param context Contexte de l'application
      */
     public GestionnaireStockageCommande(Context context) {
-        this.context = context;
+        // Le tampon d'écriture partagé garde une référence au gestionnaire : pas de contexte d'écran
+        this.context = context.getApplicationContext();
         // Configuration de Gson avec l'adaptateur personnalisé pour Commande
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(Commande.class, new AdapteurStockageCommande())
@@ -67,76 +121,174 @@ public class GestionnaireStockageCommande {
             return false;
         }
 
-        try {
-            // Conversion de la liste en JSON
-            String jsonData = gson.toJson(commandes);
+        synchronized (getTampon()) {
+            try {
+                // Écriture en flux dans un fichier temporaire, commande par commande, puis remplacement atomique
+                EcritureAtomique.ecrire(getFichier(),
+                        sortie -> FluxJson.ecrireListe(gson, sortie, commandes, Commande.class));
 
-            // Écriture dans le fichier interne
-            FileOutputStream fos = context.openFileOutput(getFileName(), Context.MODE_PRIVATE);
-            try (OutputStreamWriter writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
-                writer.write(jsonData);
-            }
-            fos.close();
+                // L'instantané contient désormais tout l'état : le journal et ses lignes en attente sont
+                // archivés, pour rester applicables à l'instantané précédent s'il doit être remis en place
+                getJournal().archiver();
 
-            Log.d(TAG, "Commandes sauvegardées avec succès (" + commandes.size() + " commandes) dans : " + getFileName());
-            return true;
+                // Mise à jour du cache avec les données écrites (écriture traversante)
+                getCache().remplacer(commandes, signatureCourante());
+                ecrireMetadonnees(commandes);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Erreur lors de la sauvegarde des commandes", e);
-            return false;
+                Log.d(TAG, "Commandes sauvegardées avec succès (" + commandes.size() + " commandes) dans : " + getFileName());
+                return true;
+
+            } catch (Exception e) {
+                Log.e(TAG, "Erreur lors de la sauvegarde des commandes", e);
+                getCache().invalider();
+                return false;
+            }
         }
     }
 
+    /**
+     * Commence une transaction : les mutations suivantes ne sont écrites sur disque qu'à la fin
+     * de la transaction, en une seule fois. Chaque appel doit être suivi d'un appel à
+     * {@link #terminerTransaction()}, dans un bloc finally.
+     */
+    public void commencerTransaction() {
+        getTampon().commencerTransaction();
+    }
+
+    /**
+     * Termine une transaction et écrit les mutations en attente (à la fin de la transaction la plus externe).
+     *
+     * @return false si l'écriture a échoué (les mutations restent en attente)
+     */
+    public boolean terminerTransaction() {
+        return getTampon().terminerTransaction();
+    }
+
+    /**
+     * Écrit immédiatement les mutations en attente, sans attendre la fin du délai de regroupement.
+     *
+     * @return true si rien n'était en attente ou si l'écriture a réussi
+     */
+    public boolean ecrireModificationsEnAttente() {
+        return getTampon().vider();
+    }
+
     /**
      * Charge la liste des commandes depuis le fichier JSON.
      *
      * @return Liste des commandes sauvegardées, ou une liste vide si aucune donnée
      */
     public List<Commande> loadCommandes() {
-        File file = new File(context.getFilesDir(), getFileName());
+        File file = getFichier();
 
-        // Si le fichier n'existe pas, retourner une liste vide
+        // Écriture précédente interrompue avant le renommage : l'instantané précédent est remis en place
         if (!file.exists()) {
+            recupererSauvegarde(file);
+        }
+
+        // Si aucun fichier n'existe, retourner une liste vide
+        if (!file.exists() && !getJournal().contientDesEntrees()) {
             Log.d(TAG, "Aucun fichier de commandes trouvé : " + getFileName());
+            getCache().invalider();
             return new ArrayList<>();
         }
 
+        // Instantané et journal inchangés : l'état en mémoire est réutilisé
+        SignatureFichier signature = signatureCourante();
+        List<Commande> enCache = getCache().lire(signature);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        // Stockage modifié sur disque : la somme de contrôle de l'instantané est vérifiée avant la lecture
+        if (file.exists() && recupererSauvegarde(file)) {
+            signature = signatureCourante();
+        }
+
         try {
-            // Lecture du fichier
-            StringBuilder jsonBuilder;
-            try (FileInputStream fis = context.openFileInput(getFileName())) {
-                InputStreamReader reader = new InputStreamReader(fis, StandardCharsets.UTF_8);
-                BufferedReader bufferedReader = new BufferedReader(reader);
-
-                jsonBuilder = new StringBuilder();
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    jsonBuilder.append(line);
-                }
+            return chargerEtatEnCache(signature);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors du chargement des commandes", e);
+        }
 
-                bufferedReader.close();
-                reader.close();
+        // Instantané illisible malgré une somme correcte : dernière tentative avec la génération précédente
+        if (EcritureAtomique.restaurerSauvegarde(file)) {
+            Log.w(TAG, "Commandes relues depuis la sauvegarde : " + getFileName());
+            reprendreJournalArchive();
+            try {
+                return chargerEtatEnCache(signatureCourante());
+            } catch (Exception e) {
+                Log.e(TAG, "Sauvegarde des commandes illisible", e);
             }
+        }
+        return new ArrayList<>();
+    }
 
-            // Conversion du JSON en liste d'objets Commande
-            String jsonData = jsonBuilder.toString();
-            Type listType = new TypeToken<List<Commande>>() {
-            }.getType();
-            List<Commande> commandes = gson.fromJson(jsonData, listType);
+    /**
+     * Reconstruit l'état courant et met le cache à jour.
+     */
+    private List<Commande> chargerEtatEnCache(SignatureFichier signature) throws IOException {
+        List<Commande> commandes = chargerEtat();
+        getCache().remplacer(commandes, signature);
 
-            if (commandes == null) {
-                commandes = new ArrayList<>();
-            }
+        Log.d(TAG, "Commandes chargées avec succès (" + commandes.size() + " commandes)");
+        return commandes;
+    }
 
-            Log.d(TAG, "Commandes chargées avec succès (" + commandes.size() + " commandes)");
-            return commandes;
+    /**
+     * Remet l'instantané précédent en place si l'instantané est absent ou abîmé.
+     *
+     * @return true si la sauvegarde a été restaurée
+     */
+    private boolean recupererSauvegarde(File file) {
+        boolean restauree = EcritureAtomique.recuperer(file);
+        if (restauree) {
+            Log.w(TAG, "Instantané des commandes absent ou abîmé, sauvegarde restaurée : " + getFileName());
+            reprendreJournalArchive();
+        }
+        return restauree;
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Erreur lors du chargement des commandes", e);
-            return new ArrayList<>();
+    /**
+     * Après la remise en place de l'instantané précédent, reprend en tête du journal les entrées
+     * compactées dans l'instantané perdu.
+     */
+    private void reprendreJournalArchive() {
+        try {
+            if (getJournal().reprendreArchive()) {
+                Log.w(TAG, "Journal archivé rejoué sur la sauvegarde : " + getFileName());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Reprise du journal archivé impossible", e);
         }
     }
 
+    /**
+     * Reconstruit l'état courant : instantané JSON + rejeu du journal.
+     *
+     * @return Liste des commandes
+     * @throws IOException si la lecture de l'instantané ou du journal échoue
+     */
+    private List<Commande> chargerEtat() throws IOException {
+        File file = getFichier();
+        List<Commande> commandes = file.exists() ? lireInstantane() : new ArrayList<>();
+
+        // Rejoue les mutations enregistrées depuis le dernier instantané
+        getJournal().rejouer(commandes);
+        return commandes;
+    }
+
+    /**
+     * Lit l'instantané JSON des commandes.
+     *
+     * @return Liste des commandes de l'instantané
+     * @throws IOException si la lecture échoue
+     */
+    private List<Commande> lireInstantane() throws IOException {
+        // Lecture en flux du fichier, commande par commande
+        return FluxJson.lireListe(gson, new FileInputStream(getFichier()), Commande.class);
+    }
+
     /**
      * Vérifie si des données commandes existent dans le stockage.
      *
@@ -144,7 +296,7 @@ public class GestionnaireStockageCommande {
      */
     public boolean hasStoredCommandes() {
         File file = new File(context.getFilesDir(), getFileName());
-        return file.exists() && file.length() > 0;
+        return (file.exists() && file.length() > 0) || getJournal().contientDesEntrees();
     }
 
     /**
@@ -163,16 +315,18 @@ public class GestionnaireStockageCommande {
      * @return true si la suppression a réussi, false sinon
      */
     public boolean clearCommandes() {
-        File file = new File(context.getFilesDir(), getFileName());
-        Path path = file.toPath();
-
-        try {
-            Files.deleteIfExists(path);
-            Log.d(TAG, "Fichier de commandes supprimé avec succès");
-            return true;
-        } catch (IOException e) {
-            Log.w(TAG, "Échec de la suppression du fichier de commandes");
-            return false;
+        synchronized (getTampon()) {
+            try {
+                EcritureAtomique.supprimer(getFichier());
+                getJournal().vider();
+                MetadonneesStockage.supprimer(getFichierMetadonnees());
+                getCache().invalider();
+                Log.d(TAG, "Fichier de commandes supprimé avec succès");
+                return true;
+            } catch (IOException e) {
+                Log.w(TAG, "Échec de la suppression du fichier de commandes");
+                return false;
+            }
         }
     }
 
@@ -188,9 +342,20 @@ public class GestionnaireStockageCommande {
             return false;
         }
 
-        List<Commande> commandes = loadCommandes();
-        commandes.add(commande);
-        return saveCommandes(commandes);
+        try {
+            synchronized (getTampon()) {
+                boolean etatConnu = assurerCache();
+                getJournal().enregistrerAjout(commande);
+                if (etatConnu) {
+                    getCache().ajouter(commande);
+                }
+                // La commande saisie doit survivre à un arrêt de l'application dès le retour
+                return enregistrerMutation(etatConnu, true);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de l'ajout de la commande au journal", e);
+            return false;
+        }
     }
 
     /**
@@ -200,26 +365,35 @@ public class GestionnaireStockageCommande {
      * @return true si la suppression a réussi, false sinon
      */
     public boolean deleteCommande(String commandeId) {
+        return deleteCommande(commandeId, false);
+    }
+
+    /**
+     * Supprime une commande par son ID, en choisissant si la suppression est écrite sur disque
+     * avant le retour ou regroupée avec les suivantes.
+     *
+     * @param commandeId      ID de la commande à supprimer
+     * @param ecrireSansDelai true pour que la suppression survive à un arrêt de l'application dès le retour
+     * @return true si la suppression a réussi (et a été écrite, si ecrireSansDelai), false sinon
+     */
+    public boolean deleteCommande(String commandeId, boolean ecrireSansDelai) {
         if (commandeId == null || commandeId.isEmpty()) {
             Log.w(TAG, "Tentative de suppression avec un ID null ou vide");
             return false;
         }
 
-        List<Commande> commandes = loadCommandes();
-        boolean removed = false;
-
-        for (int i = 0; i < commandes.size(); i++) {
-            if (commandeId.equals(commandes.get(i).getId())) {
-                commandes.remove(i);
-                removed = true;
-                break;
+        try {
+            synchronized (getTampon()) {
+                if (!assurerCache() || getCache().parId(commandeId) == null) {
+                    Log.w(TAG, "Aucune commande trouvée avec l'ID : " + commandeId);
+                    return false;
+                }
+                getJournal().enregistrerSuppression(commandeId);
+                getCache().retirer(commandeId);
+                return enregistrerMutation(true, ecrireSansDelai);
             }
-        }
-
-        if (removed) {
-            return saveCommandes(commandes);
-        } else {
-            Log.w(TAG, "Aucune commande trouvée avec l'ID : " + commandeId);
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de l'enregistrement de la suppression", e);
             return false;
         }
     }
@@ -236,23 +410,21 @@ public class GestionnaireStockageCommande {
             return false;
         }
 
-        List<Commande> commandes = loadCommandes();
-        boolean modified = false;
-
-        for (int i = commandes.size() - 1; i >= 0; i--) {
-            if (commandes.get(i).getClient() != null &&
-                    clientId.equals(commandes.get(i).getClient().getId())) {
-                commandes.remove(i);
-                modified = true;
+        try {
+            synchronized (getTampon()) {
+                if (!assurerCache() || getCache().parIndex(INDEX_CLIENT, clientId).isEmpty()) {
+                    Log.d(TAG, "Aucune commande trouvée pour le client : " + clientId);
+                    return true;
+                }
+                getJournal().enregistrerSuppressionClient(clientId);
+                getCache().retirerParIndex(INDEX_CLIENT, clientId);
+                enregistrerMutation(true, false);
             }
-        }
-
-        if (modified) {
             Log.d(TAG, "Commandes du client " + clientId + " supprimées");
-            return saveCommandes(commandes);
-        } else {
-            Log.d(TAG, "Aucune commande trouvée pour le client : " + clientId);
             return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de l'enregistrement de la suppression des commandes du client", e);
+            return false;
         }
     }
 
@@ -267,14 +439,10 @@ public class GestionnaireStockageCommande {
             return null;
         }
 
-        List<Commande> commandes = loadCommandes();
-        for (Commande commande : commandes) {
-            if (commandeId.equals(commande.getId())) {
-                return commande;
-            }
+        if (!assurerCache()) {
+            return null;
         }
-
-        return null;
+        return getCache().parId(commandeId);
     }
 
     /**
@@ -290,24 +458,20 @@ public class GestionnaireStockageCommande {
             return false;
         }
 
-        List<Commande> commandes = loadCommandes();
-        boolean found = false;
-
-        // On parcourt la liste pour trouver la commande et la remplacer
-        for (int i = 0; i < commandes.size(); i++) {
-            if (updatedCommande.getId().equals(commandes.get(i).getId())) {
-                commandes.set(i, updatedCommande);
-                found = true;
-                break; // On a trouvé, on peut arrêter la boucle
+        // Seule la commande modifiée est écrite dans le journal
+        try {
+            synchronized (getTampon()) {
+                if (!assurerCache() || getCache().parId(updatedCommande.getId()) == null) {
+                    Log.w(TAG, "Aucune commande à modifier trouvée avec l'ID : " + updatedCommande.getId());
+                    return false; // La commande n'a pas été trouvée, on ne sauvegarde rien
+                }
+                getJournal().enregistrerModification(updatedCommande);
+                getCache().modifier(updatedCommande);
+                return enregistrerMutation(true, true);
             }
-        }
-
-        if (found) {
-            // Si on a trouvé la commande, on sauvegarde la liste complète mise à jour
-            return saveCommandes(commandes);
-        } else {
-            Log.w(TAG, "Aucune commande à modifier trouvée avec l'ID : " + updatedCommande.getId());
-            return false; // La commande n'a pas été trouvée, on ne sauvegarde rien
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de l'enregistrement de la modification", e);
+            return false;
         }
     }
 
@@ -317,7 +481,40 @@ public class GestionnaireStockageCommande {
      * @return Nombre de commandes
      */
     public int getCommandeCount() {
-        return loadCommandes().size();
+        return getMetadonnees().getNbEnregistrements();
+    }
+
+    /**
+     * Retourne le résumé du stockage (nombre de commandes, montant total, date de modification)
+     * sans lire les commandes, depuis le cache mémoire ou le fichier « .meta ».
+     * Le résumé n'est recalculé à partir des commandes que s'il est absent ou périmé.
+     *
+     * @return Le résumé du stockage
+     */
+    public MetadonneesStockage getMetadonnees() {
+        File file = getFichier();
+        if (!file.exists() && !recupererSauvegarde(file) && !getJournal().contientDesEntrees()) {
+            return MetadonneesStockage.vide();
+        }
+
+        SignatureFichier signature = signatureCourante();
+        List<Commande> enCache = getCache().lire(signature);
+        if (enCache != null) {
+            return resumer(enCache);
+        }
+
+        MetadonneesStockage metadonnees = MetadonneesStockage.lire(getFichierMetadonnees(), signature);
+        if (metadonnees != null) {
+            return metadonnees;
+        }
+
+        // Résumé absent ou périmé : recalculé une fois à partir des commandes
+        if (!assurerCache()) {
+            return MetadonneesStockage.vide();
+        }
+        List<Commande> commandes = getCache().lire(signatureCourante());
+        ecrireMetadonnees(commandes);
+        return resumer(commandes);
     }
 
     /**
@@ -333,14 +530,23 @@ public class GestionnaireStockageCommande {
             return result;
         }
 
-        List<Commande> commandes = loadCommandes();
-        for (Commande commande : commandes) {
-            if (commande.getClient() != null && clientId.equals(commande.getClient().getId())) {
-                result.add(commande);
-            }
+        if (!assurerCache()) {
+            return result;
         }
+        return getCache().parIndex(INDEX_CLIENT, clientId);
+    }
 
-        return result;
+    /**
+     * Récupère toutes les commandes contenant un produit donné.
+     *
+     * @param produitId ID du produit
+     * @return Liste des commandes ayant au moins une ligne pour ce produit
+     */
+    public List<Commande> getCommandesByProduit(String produitId) {
+        if (produitId == null || produitId.isEmpty() || !assurerCache()) {
+            return new ArrayList<>();
+        }
+        return getCache().parIndex(INDEX_PRODUIT, produitId);
     }
 
     /**
@@ -357,41 +563,235 @@ public class GestionnaireStockageCommande {
             return false;
         }
 
-        List<Commande> commandes = loadCommandes();
-        boolean modified = false;
+        try {
+            synchronized (getTampon()) {
+                List<Commande> commandesDuClient = assurerCache()
+                        ? getCache().parIndex(INDEX_CLIENT, updatedClient.getId())
+                        : new ArrayList<>();
+                if (commandesDuClient.isEmpty()) {
+                    Log.d(TAG, "Aucune commande trouvée pour le client : " + updatedClient.getId());
+                    return true;
+                }
+                // Seules les commandes du client sont réécrites dans le journal
+                for (Commande commande : commandesDuClient) {
+                    // Reconstruire la commande avec le client mis à jour
+                    Commande updatedCommande = new Commande.Builder()
+                            .setId(commande.getId())
+                            .setClient(updatedClient)
+                            .setDateCommande(commande.getDateCommande())
+                            .setLignesCommande(commande.getLignesCommande())
+                            .setUtilisateur(commande.getUtilisateur())
+                            .build();
+
+                    getJournal().enregistrerModification(updatedCommande);
+                    getCache().modifier(updatedCommande);
+                    Log.d(TAG, "Client mis à jour dans la commande : " + commande.getId());
+                }
+                if (!enregistrerMutation(true, true)) {
+                    Log.w(TAG, "Mise à jour du client dans les commandes : écriture reportée");
+                    return false;
+                }
+            }
+            Log.d(TAG, "Mise à jour du client dans les commandes : réussie");
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Mise à jour du client dans les commandes : échec de sauvegarde", e);
+            return false;
+        }
+    }
+
+    /**
+     * Retourne le journal des mutations associé au fichier de stockage.
+     *
+     * @return Le journal des commandes
+     */
+    private JournalCommandes getJournal() {
+        if (journal == null) {
+            // Partagé par toutes les instances : les lignes en attente doivent être vues de tous
+            journal = JOURNAUX.computeIfAbsent(getFichier().getAbsolutePath(), chemin -> new JournalCommandes(
+                    new File(context.getFilesDir(), getFileName() + SUFFIXE_JOURNAL), gson, true));
+        }
+        return journal;
+    }
+
+    /**
+     * Retourne le tampon d'écriture du stockage, partagé par toutes les instances.
+     * Son verrou protège les mutations contre une écriture différée simultanée.
+     *
+     * @return Le tampon d'écriture pour ce fichier
+     */
+    private TamponEcriture getTampon() {
+        return TAMPONS.computeIfAbsent(getFichier().getAbsolutePath(),
+                chemin -> new TamponEcriture(this::ecrireMutationsEnAttente, DELAI_REGROUPEMENT_MS));
+    }
+
+    /**
+     * Retourne le fichier annexe contenant le résumé du stockage.
+     *
+     * @return Le fichier « .meta » du stockage
+     */
+    private File getFichierMetadonnees() {
+        return MetadonneesStockage.fichierAnnexe(new File(context.getFilesDir(), getFileName()));
+    }
+
+    /**
+     * Calcule le résumé d'une liste de commandes.
+     * La date de modification est la plus récente de l'instantané et du journal.
+     *
+     * @param commandes Commandes du stockage
+     * @return Le résumé
+     */
+    private MetadonneesStockage resumer(List<Commande> commandes) {
+        double montantTotal = 0.0;
+        for (Commande commande : commandes) {
+            montantTotal += commande.getMontantTotal();
+        }
+        long dateModification = Math.max(
+                new File(context.getFilesDir(), getFileName()).lastModified(),
+                new File(context.getFilesDir(), getFileName() + SUFFIXE_JOURNAL).lastModified());
+        return new MetadonneesStockage(commandes.size(), montantTotal, dateModification);
+    }
+
+    /**
+     * Réécrit le résumé du stockage après une écriture.
+     * En cas d'échec, le résumé est supprimé : il sera recalculé à la prochaine lecture.
+     *
+     * @param commandes Commandes présentes dans le stockage
+     */
+    private void ecrireMetadonnees(List<Commande> commandes) {
+        try {
+            resumer(commandes).ecrire(getFichierMetadonnees(), signatureCourante());
+        } catch (IOException e) {
+            Log.w(TAG, "Résumé des commandes non écrit", e);
+            MetadonneesStockage.supprimer(getFichierMetadonnees());
+        }
+    }
 
-        // Parcourt toutes les commandes
-        for (int i = 0; i < commandes.size(); i++) {
-            Commande commande = commandes.get(i);
+    /**
+     * Retourne le cache mémoire associé au fichier de stockage.
+     *
+     * @return Le cache partagé pour ce fichier
+     */
+    private CacheIndexe<Commande> getCache() {
+        return CACHES.computeIfAbsent(new File(context.getFilesDir(), getFileName()).getAbsolutePath(),
+                chemin -> new CacheIndexe<Commande>(commande -> Collections.singletonList(commande.getId()))
+                        .ajouterIndex(INDEX_CLIENT, commande -> commande.getClient() == null
+                                ? Collections.emptyList()
+                                : Collections.singletonList(commande.getClient().getId()))
+                        .ajouterIndex(INDEX_PRODUIT, commande -> {
+                            List<String> produitIds = new ArrayList<>();
+                            if (commande.getLignesCommande() != null) {
+                                for (LigneCommande ligne : commande.getLignesCommande()) {
+                                    produitIds.add(ligne.getProduit().getId());
+                                }
+                            }
+                            return produitIds;
+                        }));
+    }
 
-            // Si la commande contient le client à mettre à jour
-            if (commande.getClient() != null &&
-                    updatedClient.getId().equals(commande.getClient().getId())) {
+    /**
+     * Retourne le fichier de l'instantané.
+     *
+     * @return Le fichier dans le répertoire interne de l'application
+     */
+    private File getFichier() {
+        return new File(context.getFilesDir(), getFileName());
+    }
 
-                // Reconstruire la commande avec le client mis à jour
-                Commande updatedCommande = new Commande.Builder()
-                        .setId(commande.getId())
-                        .setClient(updatedClient)
-                        .setDateCommande(commande.getDateCommande())
-                        .setLignesCommande(commande.getLignesCommande())
-                        .setUtilisateur(commande.getUtilisateur())
-                        .build();
+    /**
+     * Calcule la signature du stockage (instantané + journal).
+     *
+     * @return La signature courante
+     */
+    private SignatureFichier signatureCourante() {
+        return SignatureFichier.de(
+                new File(context.getFilesDir(), getFileName()),
+                new File(context.getFilesDir(), getFileName() + SUFFIXE_JOURNAL));
+    }
 
-                commandes.set(i, updatedCommande);
-                modified = true;
+    /**
+     * Charge le cache s'il est vide ou périmé.
+     *
+     * @return true si le cache reflète le stockage, false si la lecture a échoué
+     */
+    private boolean assurerCache() {
+        if (getCache().estValide(signatureCourante())) {
+            return true;
+        }
+        loadCommandes();
+        return getCache().estValide(signatureCourante());
+    }
 
-                Log.d(TAG, "Client mis à jour dans la commande : " + commande.getId());
-            }
+    /**
+     * Planifie l'écriture d'une ligne ajoutée au journal (ou l'écrit aussitôt), une fois la mutation
+     * appliquée sur place au cache. Si l'état précédent était inconnu, le cache est invalidé pour
+     * forcer une relecture (qui rejoue aussi les lignes en attente).
+     * Doit être appelée en tenant le verrou du tampon d'écriture.
+     *
+     * @param etatConnu       true si la mutation a été appliquée au cache
+     * @param ecrireSansDelai true pour écrire la ligne avant le retour (hors transaction)
+     * @return false si l'écriture immédiate a échoué (la ligne reste en attente)
+     */
+    private boolean enregistrerMutation(boolean etatConnu, boolean ecrireSansDelai) {
+        if (etatConnu) {
+            // Le fichier n'a pas encore changé : le cache reste valide pour la signature actuelle
+            getCache().mettreAJourSignature(signatureCourante());
+        } else {
+            getCache().invalider();
+            MetadonneesStockage.supprimer(getFichierMetadonnees());
         }
+        if (ecrireSansDelai) {
+            return getTampon().signalerEtEcrire();
+        }
+        getTampon().signaler();
+        return true;
+    }
 
-        if (modified) {
-            boolean saved = saveCommandes(commandes);
-            Log.d(TAG, "Mise à jour du client dans les commandes : " +
-                    (saved ? "réussie" : "échec de sauvegarde"));
-            return saved;
+    /**
+     * Écrit les lignes du journal en attente (une seule synchronisation sur disque), puis met à jour
+     * le cache, le résumé et compacte le journal si nécessaire. Appelée par le tampon d'écriture,
+     * qui tient son verrou.
+     *
+     * @return true si l'écriture a réussi
+     */
+    private boolean ecrireMutationsEnAttente() {
+        boolean etatConnu = getCache().estValide(signatureCourante());
+        try {
+            getJournal().ecrireEnAttente();
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de l'écriture du journal des commandes", e);
+            // Les lignes restent en attente et sont rejouées à la prochaine lecture
+            getCache().invalider();
+            return false;
+        }
+
+        if (etatConnu) {
+            // Les mutations écrites sont déjà dans le cache : seule la signature change
+            getCache().mettreAJourSignature(signatureCourante());
+            ecrireMetadonnees(getCache().lire(signatureCourante()));
         } else {
-            Log.d(TAG, "Aucune commande trouvée pour le client : " + updatedClient.getId());
-            return true;
+            getCache().invalider();
+            MetadonneesStockage.supprimer(getFichierMetadonnees());
+        }
+        compacterSiNecessaire();
+        return true;
+    }
+
+    /**
+     * Compacte le journal dans l'instantané lorsqu'il devient trop volumineux.
+     * Le rejeu au chargement reste ainsi borné.
+     */
+    private void compacterSiNecessaire() {
+        if (getJournal().getTaille() < SEUIL_COMPACTION) {
+            return;
+        }
+
+        Log.d(TAG, "Compaction du journal des commandes (" + getJournal().getTaille() + " octets)");
+        try {
+            // Pas de loadCommandes() ici : une erreur de lecture ne doit pas écraser l'instantané
+            saveCommandes(chargerEtat());
+        } catch (Exception e) {
+            Log.w(TAG, "Compaction reportée, le journal est conservé", e);
         }
     }
 }
@@ -0,0 +1,445 @@
+package com.example.dolorders.data.stockage.commande;
+
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Journal en ajout seul (append-only) des mutations de commandes.
+ * Chaque ajout, modification ou suppression est écrit sur une ligne JSON à la fin du fichier,
+ * ce qui rend le coût d'une écriture proportionnel à la modification et non à la taille du stockage.
+ * <p>
+ * Le journal est rejoué par-dessus le dernier instantané (snapshot) lors du chargement.
+ * Le rejeu est idempotent : rejouer un journal déjà intégré dans l'instantané ne crée pas de doublon,
+ * ce qui protège contre un arrêt brutal entre l'écriture de l'instantané et la purge du journal.
+ * Une ligne tronquée (coupure pendant l'écriture) est ignorée au rejeu, et retirée du fichier avant
+ * le premier ajout : les lignes ajoutées ensuite ne sont pas collées à sa suite.
+ * <p>
+ * En mode différé, les lignes sont gardées en mémoire et écrites ensemble, avec une seule
+ * synchronisation sur disque, par {@link #ecrireEnAttente()} (voir {@link com.example.dolorders.data.stockage.TamponEcriture}).
+ * Les lignes en attente sont rejouées après celles du fichier.
+ * <p>
+ * Lors d'une compaction, le journal n'est pas supprimé mais archivé ({@link #archiver()}) : l'instantané
+ * précédent, conservé en sauvegarde, et l'archive donnent ensemble l'état compacté. Si la sauvegarde
+ * doit être remise en place, l'archive est reprise en tête du journal ({@link #reprendreArchive()}).
+ */
+public class JournalCommandes {
+
+    /** Opération : ajout d'une commande */
+    static final String OP_AJOUT = "ajout";
+
+    /** Opération : remplacement d'une commande existante */
+    static final String OP_MODIFICATION = "modification";
+
+    /** Opération : suppression d'une commande par son ID */
+    static final String OP_SUPPRESSION = "suppression";
+
+    /** Opération : suppression de toutes les commandes d'un client */
+    static final String OP_SUPPRESSION_CLIENT = "suppression_client";
+
+    private static final String CLE_OP = "op";
+    private static final String CLE_COMMANDE = "commande";
+    private static final String CLE_ID = "id";
+
+    /** Suffixe du journal archivé lors de la dernière compaction */
+    static final String SUFFIXE_ARCHIVE = ".precedent";
+
+    /** Suffixe du fichier temporaire pendant le remplacement d'un fichier du journal */
+    private static final String SUFFIXE_TEMPORAIRE = ".tmp";
+
+    /** Fichier du journal */
+    private final File fichier;
+
+    /** Instance de Gson configurée avec l'adaptateur de Commande */
+    private final Gson gson;
+
+    /** true si les lignes sont gardées en mémoire jusqu'à {@link #ecrireEnAttente()} */
+    private final boolean differe;
+
+    /** Lignes non encore écrites dans le fichier (mode différé) */
+    private final StringBuilder enAttente = new StringBuilder();
+
+    /** true une fois la fin du fichier vérifiée (pas de ligne tronquée avant un ajout) */
+    private boolean finVerifiee;
+
+    /**
+     * Constructeur du journal.
+     *
+     * @param fichier Fichier du journal (créé au premier ajout)
+     * @param gson    Instance de Gson configurée avec AdapteurStockageCommande
+     */
+    public JournalCommandes(File fichier, Gson gson) {
+        this(fichier, gson, false);
+    }
+
+    /**
+     * Constructeur du journal.
+     *
+     * @param fichier Fichier du journal (créé au premier ajout)
+     * @param gson    Instance de Gson configurée avec AdapteurStockageCommande
+     * @param differe true pour garder les lignes en mémoire jusqu'à {@link #ecrireEnAttente()}
+     */
+    public JournalCommandes(File fichier, Gson gson, boolean differe) {
+        this.fichier = fichier;
+        this.gson = gson;
+        this.differe = differe;
+    }
+
+    /**
+     * Ajoute une commande dans le journal.
+     *
+     * @param commande Commande ajoutée
+     * @throws IOException si l'écriture échoue
+     */
+    public void enregistrerAjout(Commande commande) throws IOException {
+        JsonObject entree = new JsonObject();
+        entree.addProperty(CLE_OP, OP_AJOUT);
+        entree.add(CLE_COMMANDE, gson.toJsonTree(commande, Commande.class));
+        ajouterLigne(entree);
+    }
+
+    /**
+     * Enregistre le remplacement d'une commande existante.
+     *
+     * @param commande Commande avec les nouvelles données (même ID)
+     * @throws IOException si l'écriture échoue
+     */
+    public void enregistrerModification(Commande commande) throws IOException {
+        JsonObject entree = new JsonObject();
+        entree.addProperty(CLE_OP, OP_MODIFICATION);
+        entree.add(CLE_COMMANDE, gson.toJsonTree(commande, Commande.class));
+        ajouterLigne(entree);
+    }
+
+    /**
+     * Enregistre la suppression d'une commande.
+     *
+     * @param commandeId ID de la commande supprimée
+     * @throws IOException si l'écriture échoue
+     */
+    public void enregistrerSuppression(String commandeId) throws IOException {
+        JsonObject entree = new JsonObject();
+        entree.addProperty(CLE_OP, OP_SUPPRESSION);
+        entree.addProperty(CLE_ID, commandeId);
+        ajouterLigne(entree);
+    }
+
+    /**
+     * Enregistre la suppression de toutes les commandes d'un client.
+     *
+     * @param clientId ID du client
+     * @throws IOException si l'écriture échoue
+     */
+    public void enregistrerSuppressionClient(String clientId) throws IOException {
+        JsonObject entree = new JsonObject();
+        entree.addProperty(CLE_OP, OP_SUPPRESSION_CLIENT);
+        entree.addProperty(CLE_ID, clientId);
+        ajouterLigne(entree);
+    }
+
+    /**
+     * Rejoue le journal sur la liste fournie (l'instantané chargé).
+     * La liste est modifiée en place.
+     *
+     * @param commandes Liste des commandes de l'instantané
+     * @return Nombre d'entrées rejouées
+     * @throws IOException si la lecture échoue
+     */
+    public synchronized int rejouer(List<Commande> commandes) throws IOException {
+        int nbEntrees = 0;
+        if (fichier.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(fichier), StandardCharsets.UTF_8))) {
+                nbEntrees += rejouerLignes(reader, commandes);
+            }
+        }
+        if (enAttente.length() > 0) {
+            nbEntrees += rejouerLignes(new BufferedReader(new StringReader(enAttente.toString())), commandes);
+        }
+        return nbEntrees;
+    }
+
+    private int rejouerLignes(BufferedReader reader, List<Commande> commandes) throws IOException {
+        int nbEntrees = 0;
+        String ligne;
+        while ((ligne = reader.readLine()) != null) {
+            if (ligne.trim().isEmpty()) {
+                continue;
+            }
+
+            JsonObject entree;
+            try {
+                entree = JsonParser.parseString(ligne).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException e) {
+                // Ligne tronquée par un arrêt brutal : seule cette ligne est ignorée
+                continue;
+            }
+
+            appliquer(entree, commandes);
+            nbEntrees++;
+        }
+        return nbEntrees;
+    }
+
+    /**
+     * Écrit les lignes en attente à la fin du fichier, avec une seule synchronisation sur disque.
+     * En cas d'échec, les lignes restent en attente et la partie déjà écrite est retirée du fichier.
+     *
+     * @throws IOException si l'écriture échoue
+     */
+    public synchronized void ecrireEnAttente() throws IOException {
+        if (enAttente.length() == 0) {
+            return;
+        }
+        ecrireDansFichier(enAttente.toString());
+        enAttente.setLength(0);
+    }
+
+    /**
+     * @return true si des lignes n'ont pas encore été écrites dans le fichier
+     */
+    public synchronized boolean aDesLignesEnAttente() {
+        return enAttente.length() > 0;
+    }
+
+    /**
+     * Indique si le journal contient des entrées non compactées.
+     *
+     * @return true si le fichier existe et n'est pas vide
+     */
+    public synchronized boolean contientDesEntrees() {
+        return (fichier.exists() && fichier.length() > 0) || enAttente.length() > 0;
+    }
+
+    /**
+     * Retourne la taille actuelle du journal en octets.
+     *
+     * @return Taille du fichier, 0 s'il n'existe pas
+     */
+    public long getTaille() {
+        return fichier.exists() ? fichier.length() : 0;
+    }
+
+    /**
+     * Supprime le journal, son archive et les lignes en attente (suppression de tout le stockage).
+     *
+     * @throws IOException si la suppression échoue
+     */
+    public synchronized void vider() throws IOException {
+        Files.deleteIfExists(fichier.toPath());
+        Files.deleteIfExists(getFichierArchive().toPath());
+        enAttente.setLength(0);
+        finVerifiee = false;
+    }
+
+    /**
+     * Archive le journal une fois compacté dans un nouvel instantané : ses entrées (fichier et lignes
+     * en attente) restent applicables à l'instantané précédent, gardé en sauvegarde, tant que
+     * l'instantané suivant n'est pas écrit. L'archive de la compaction précédente est remplacée,
+     * comme la sauvegarde à laquelle elle s'appliquait. Le journal repart vide.
+     *
+     * @throws IOException si l'écriture de l'archive échoue (le journal est alors conservé)
+     */
+    public synchronized void archiver() throws IOException {
+        byte[] contenu = concatener(lire(fichier), enAttente.toString().getBytes(StandardCharsets.UTF_8));
+        remplacer(getFichierArchive(), contenu);
+        Files.deleteIfExists(fichier.toPath());
+        enAttente.setLength(0);
+        finVerifiee = false;
+    }
+
+    /**
+     * Reprend l'archive en tête du journal, après la remise en place de l'instantané précédent :
+     * les entrées compactées sont rejouées sur cette génération avant les entrées suivantes.
+     *
+     * @return true si une archive a été reprise
+     * @throws IOException si la réécriture du journal échoue (l'archive est alors conservée)
+     */
+    public synchronized boolean reprendreArchive() throws IOException {
+        File archive = getFichierArchive();
+        if (!archive.exists()) {
+            return false;
+        }
+        remplacer(fichier, concatener(lire(archive), lire(fichier)));
+        Files.delete(archive.toPath());
+        finVerifiee = false;
+        return true;
+    }
+
+    /**
+     * @return Fichier de l'archive du journal
+     */
+    File getFichierArchive() {
+        return new File(fichier.getParentFile(), fichier.getName() + SUFFIXE_ARCHIVE);
+    }
+
+    /**
+     * Applique une entrée du journal sur la liste des commandes.
+     */
+    private void appliquer(JsonObject entree, List<Commande> commandes) {
+        String op = entree.has(CLE_OP) ? entree.get(CLE_OP).getAsString() : "";
+
+        switch (op) {
+            case OP_AJOUT:
+            case OP_MODIFICATION:
+                Commande commande = gson.fromJson(entree.get(CLE_COMMANDE), Commande.class);
+                int index = indexDe(commandes, commande.getId());
+                if (index >= 0) {
+                    commandes.set(index, commande);
+                } else if (OP_AJOUT.equals(op)) {
+                    commandes.add(commande);
+                }
+                break;
+            case OP_SUPPRESSION:
+                int indexSuppression = indexDe(commandes, entree.get(CLE_ID).getAsString());
+                if (indexSuppression >= 0) {
+                    commandes.remove(indexSuppression);
+                }
+                break;
+            case OP_SUPPRESSION_CLIENT:
+                String clientId = entree.get(CLE_ID).getAsString();
+                commandes.removeIf(c -> {
+                    Client client = c.getClient();
+                    return client != null && clientId.equals(client.getId());
+                });
+                break;
+            default:
+                // Opération inconnue (version future) : ignorée
+                break;
+        }
+    }
+
+    /**
+     * Recherche l'index d'une commande par son ID.
+     */
+    private int indexDe(List<Commande> commandes, String commandeId) {
+        if (commandeId == null) {
+            return -1;
+        }
+        for (int i = 0; i < commandes.size(); i++) {
+            if (commandeId.equals(commandes.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ajoute une ligne à la fin du journal et force son écriture sur disque,
+     * ou la garde en attente en mode différé.
+     */
+    private synchronized void ajouterLigne(JsonObject entree) throws IOException {
+        String ligne = gson.toJson(entree) + '\n';
+        if (differe) {
+            enAttente.append(ligne);
+        } else {
+            ecrireDansFichier(ligne);
+        }
+    }
+
+    /**
+     * Ajoute des lignes à la fin du fichier et force leur écriture sur disque.
+     * Si l'écriture échoue, le fichier est ramené à sa taille précédente : les lignes, gardées
+     * en attente par l'appelant, ne seront pas écrites deux fois.
+     */
+    private void ecrireDansFichier(String lignes) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            if (!finVerifiee) {
+                retirerLigneTronquee(canal);
+                finVerifiee = true;
+            }
+            long taille = canal.size();
+            try {
+                ByteBuffer tampon = ByteBuffer.wrap(lignes.getBytes(StandardCharsets.UTF_8));
+                canal.position(taille);
+                while (tampon.hasRemaining()) {
+                    canal.write(tampon);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                try {
+                    canal.truncate(taille);
+                } catch (IOException ignoree) {
+                    // La ligne tronquée restante sera retirée avant le prochain ajout
+                }
+                finVerifiee = false;
+                throw e;
+            }
+        }
+    }
+
+    private static byte[] lire(File fichier) throws IOException {
+        return fichier.exists() ? Files.readAllBytes(fichier.toPath()) : new byte[0];
+    }
+
+    /**
+     * Met deux suites de lignes bout à bout. Une ligne tronquée à la fin de la première reste
+     * sur sa propre ligne (ignorée au rejeu) au lieu d'être collée à la suivante.
+     */
+    private static byte[] concatener(byte[] debut, byte[] fin) {
+        ByteArrayOutputStream resultat = new ByteArrayOutputStream(debut.length + fin.length + 1);
+        resultat.write(debut, 0, debut.length);
+        if (debut.length > 0 && debut[debut.length - 1] != '\n') {
+            resultat.write('\n');
+        }
+        resultat.write(fin, 0, fin.length);
+        return resultat.toByteArray();
+    }
+
+    /**
+     * Remplace un fichier par un contenu, par un fichier temporaire synchronisé sur disque puis renommé.
+     */
+    private static void remplacer(File cible, byte[] contenu) throws IOException {
+        File temporaire = new File(cible.getParentFile(), cible.getName() + SUFFIXE_TEMPORAIRE);
+        try (FileOutputStream sortie = new FileOutputStream(temporaire)) {
+            sortie.write(contenu);
+            sortie.getFD().sync();
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temporaire.delete();
+            throw e;
+        }
+        Files.move(temporaire.toPath(), cible.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Ramène le fichier à sa dernière fin de ligne s'il se termine par une ligne tronquée.
+     */
+    private static void retirerLigneTronquee(FileChannel canal) throws IOException {
+        long taille = canal.size();
+        ByteBuffer octet = ByteBuffer.allocate(1);
+        long position = taille;
+        while (position > 0) {
+            octet.clear();
+            canal.read(octet, position - 1);
+            if (octet.get(0) == '\n') {
+                break;
+            }
+            position--;
+        }
+        if (position < taille) {
+            canal.truncate(position);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.dolorders.data.stockage.produit;
+
+import com.example.dolorders.objet.Produit;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Format binaire compact du catalogue de produits.
+ * <p>
+ * Le fichier commence par un en-tête (marqueur, version du format, nombre de produits, position
+ * des tables), suivi des produits les uns après les autres : identifiant, libellé et description
+ * en UTF-8 précédés de leur longueur (-1 pour null), puis prix unitaire et taux de TVA en double.
+ * Viennent ensuite deux tables : la position de chaque produit dans le fichier, puis les numéros
+ * des produits triés par identifiant. Elles permettent de lire un produit sans lire les autres
+ * (voir {@link CatalogueProjete}).
+ * <p>
+ * La lecture passe par une projection mémoire du fichier ({@link MappedByteBuffer}) : pas de copie
+ * du fichier dans un tampon intermédiaire ni d'analyse de texte, contrairement à l'ancien fichier JSON.
+ * Les fichiers de la version 1 (sans tables) restent lisibles par {@link #lire(File)}.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class CatalogueBinaire {
+
+    /** Marqueur de début de fichier (« DOLP ») */
+    static final int MARQUEUR = 0x444F4C50;
+
+    /** Version du format, à incrémenter si le format change */
+    static final int VERSION_FORMAT = 2;
+
+    /** Première version du format : produits à la suite, sans tables */
+    static final int VERSION_SANS_TABLES = 1;
+
+    /** Position du nombre de produits dans l'en-tête, complété à la fin d'une écriture */
+    private static final int POSITION_NOMBRE = 8;
+
+    /** Taille de l'en-tête : marqueur, version, nombre de produits et position des tables */
+    static final int TAILLE_EN_TETE = 3 * Integer.BYTES + Long.BYTES;
+
+    /** Taille de l'en-tête de la version 1 : marqueur, version et nombre de produits */
+    private static final int TAILLE_EN_TETE_SANS_TABLES = 3 * Integer.BYTES;
+
+    /** Taille minimale d'un produit : trois longueurs de texte et deux doubles */
+    private static final int TAILLE_MIN_PRODUIT = 3 * Integer.BYTES + 2 * Double.BYTES;
+
+    private CatalogueBinaire() {
+    }
+
+    /**
+     * Écrit un catalogue complet.
+     *
+     * @param fichier  Fichier de destination (écrasé)
+     * @param produits Produits à écrire
+     * @throws IOException si l'écriture échoue
+     */
+    public static void ecrire(File fichier, List<Produit> produits) throws IOException {
+        try (Ecriture ecriture = new Ecriture(fichier)) {
+            for (Produit produit : produits) {
+                ecriture.ajouter(produit);
+            }
+            ecriture.terminer();
+        }
+    }
+
+    /**
+     * Lit un catalogue complet par projection mémoire du fichier.
+     *
+     * @param fichier Fichier du catalogue
+     * @return Produits du catalogue, dans l'ordre d'écriture
+     * @throws IOException si le fichier est illisible, d'une version inconnue ou tronqué
+     */
+    public static List<Produit> lire(File fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            try {
+                int version = lireVersion(tampon, fichier);
+                int nombre = lireNombre(tampon, fichier);
+                if (version == VERSION_SANS_TABLES) {
+                    tampon.position(TAILLE_EN_TETE_SANS_TABLES);
+                } else {
+                    // Les produits s'arrêtent aux tables, qui doivent être complètes
+                    long positionTables = lirePositionTables(tampon);
+                    if (positionTables < TAILLE_EN_TETE
+                            || positionTables + (long) (nombre + 1) * Integer.BYTES > tampon.limit()) {
+                        throw new IOException("Tables du catalogue tronquées : " + fichier.getName());
+                    }
+                    tampon.limit((int) positionTables);
+                    tampon.position(TAILLE_EN_TETE);
+                }
+                if (nombre > tampon.remaining() / TAILLE_MIN_PRODUIT) {
+                    throw new IOException("Catalogue tronqué : " + nombre + " produits annoncés");
+                }
+
+                List<Produit> produits = new ArrayList<>(nombre);
+                LecteurTextes textes = new LecteurTextes();
+                for (int i = 0; i < nombre; i++) {
+                    produits.add(lireProduit(tampon, textes));
+                }
+                return produits;
+            } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Catalogue tronqué ou invalide : " + fichier.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Lit la version du fichier après avoir vérifié son marqueur.
+     *
+     * @return {@link #VERSION_FORMAT} ou {@link #VERSION_SANS_TABLES}
+     * @throws IOException si le fichier n'est pas un catalogue ou d'une version inconnue
+     */
+    static int lireVersion(ByteBuffer tampon, File fichier) throws IOException {
+        if (tampon.limit() < TAILLE_EN_TETE_SANS_TABLES || tampon.getInt(0) != MARQUEUR) {
+            throw new IOException("Fichier de catalogue non reconnu : " + fichier.getName());
+        }
+        int version = tampon.getInt(Integer.BYTES);
+        if (version != VERSION_FORMAT && version != VERSION_SANS_TABLES) {
+            throw new IOException("Version de catalogue non prise en charge : " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Lit le nombre de produits de l'en-tête.
+     *
+     * @throws IOException si l'écriture du fichier n'a pas été terminée
+     */
+    static int lireNombre(ByteBuffer tampon, File fichier) throws IOException {
+        int nombre = tampon.getInt(POSITION_NOMBRE);
+        if (nombre < 0) {
+            throw new IOException("Écriture du catalogue non terminée : " + fichier.getName());
+        }
+        return nombre;
+    }
+
+    /**
+     * Lit la position des tables dans l'en-tête (version {@link #VERSION_FORMAT} uniquement).
+     */
+    static long lirePositionTables(ByteBuffer tampon) {
+        return tampon.getLong(POSITION_NOMBRE + Integer.BYTES);
+    }
+
+    /**
+     * Lit un produit à la position courante du tampon.
+     */
+    static Produit lireProduit(ByteBuffer tampon, LecteurTextes textes) throws IOException {
+        String id = textes.lire(tampon);
+        String libelle = textes.lire(tampon);
+        String description = textes.lire(tampon);
+        double prixUnitaire = tampon.getDouble();
+        double tauxTva = tampon.getDouble();
+        return new Produit(id, libelle, description, prixUnitaire, tauxTva);
+    }
+
+    /**
+     * Décode les textes du catalogue avec un tampon d'octets réutilisé d'un texte à l'autre.
+     */
+    static final class LecteurTextes {
+        private byte[] octets = new byte[256];
+
+        String lire(ByteBuffer tampon) throws IOException {
+            int longueur = tampon.getInt();
+            if (longueur < 0) {
+                return null;
+            }
+            if (longueur > tampon.remaining()) {
+                throw new IOException("Texte tronqué dans le catalogue (" + longueur + " octets)");
+            }
+            if (longueur > octets.length) {
+                octets = new byte[Math.max(longueur, octets.length * 2)];
+            }
+            tampon.get(octets, 0, longueur);
+            return new String(octets, 0, longueur, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void ecrireTexte(DataOutputStream sortie, String texte) throws IOException {
+        if (texte == null) {
+            sortie.writeInt(-1);
+            return;
+        }
+        byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+        sortie.writeInt(octets.length);
+        sortie.write(octets);
+    }
+
+    /**
+     * Écriture en flux d'un catalogue, produit par produit (ex : pages reçues de l'API).
+     * Le nombre de produits et la position des tables ne sont renseignés dans l'en-tête qu'à l'appel
+     * de {@link #terminer()} : un fichier dont l'écriture a été interrompue est rejeté à la lecture.
+     */
+    public static final class Ecriture implements Closeable {
+
+        private final File fichier;
+        private final DataOutputStream sortie;
+        private final List<String> ids = new ArrayList<>();
+        private int[] positions = new int[64];
+        private int nombre;
+        private boolean terminee;
+
+        /**
+         * Ouvre l'écriture et écrit l'en-tête.
+         *
+         * @param fichier Fichier de destination (écrasé)
+         * @throws IOException si le fichier ne peut pas être créé
+         */
+        public Ecriture(File fichier) throws IOException {
+            this.fichier = fichier;
+            this.sortie = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fichier)));
+            sortie.writeInt(MARQUEUR);
+            sortie.writeInt(VERSION_FORMAT);
+            sortie.writeInt(-1);
+            sortie.writeLong(-1L);
+        }
+
+        /**
+         * Ajoute un produit à la suite du fichier.
+         *
+         * @param produit Produit à écrire
+         * @throws IOException si l'écriture échoue
+         */
+        public void ajouter(Produit produit) throws IOException {
+            if (nombre == positions.length) {
+                positions = Arrays.copyOf(positions, nombre * 2);
+            }
+            positions[nombre] = sortie.size();
+            ids.add(produit.getId());
+
+            ecrireTexte(sortie, produit.getId());
+            ecrireTexte(sortie, produit.getLibelle());
+            ecrireTexte(sortie, produit.getDescription());
+            sortie.writeDouble(produit.getPrixUnitaire());
+            sortie.writeDouble(produit.getTauxTva());
+            nombre++;
+        }
+
+        /**
+         * Termine l'écriture : les tables sont écrites à la suite des produits, puis le nombre de
+         * produits et la position des tables sont inscrits dans l'en-tête.
+         *
+         * @return Nombre de produits écrits
+         * @throws IOException si la finalisation échoue
+         */
+        public int terminer() throws IOException {
+            long positionTables = sortie.size();
+
+            // Table des positions, dans l'ordre des produits
+            for (int i = 0; i < nombre; i++) {
+                sortie.writeInt(positions[i]);
+            }
+
+            // Numéros des produits ayant un identifiant, triés par identifiant
+            List<Integer> parId = new ArrayList<>(nombre);
+            for (int i = 0; i < nombre; i++) {
+                if (ids.get(i) != null) {
+                    parId.add(i);
+                }
+            }
+            parId.sort((a, b) -> ids.get(a).compareTo(ids.get(b)));
+            sortie.writeInt(parId.size());
+            for (int numero : parId) {
+                sortie.writeInt(numero);
+            }
+            sortie.close();
+
+            try (RandomAccessFile acces = new RandomAccessFile(fichier, "rw")) {
+                acces.seek(POSITION_NOMBRE);
+                acces.writeInt(nombre);
+                acces.writeLong(positionTables);
+                acces.getFD().sync();
+            }
+            terminee = true;
+            return nombre;
+        }
+
+        /**
+         * Ferme le fichier sans le terminer s'il ne l'a pas été (écriture abandonnée).
+         */
+        @Override
+        public void close() throws IOException {
+            if (!terminee) {
+                sortie.close();
+            }
+        }
+    }
+}
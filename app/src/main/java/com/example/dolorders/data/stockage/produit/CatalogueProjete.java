@@ -0,0 +1,219 @@
+package com.example.dolorders.data.stockage.produit;
+
+import com.example.dolorders.objet.Produit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Vue en lecture seule d'un catalogue binaire (voir {@link CatalogueBinaire}), projeté en mémoire.
+ * <p>
+ * Aucun produit n'est lu à l'ouverture : seuls l'en-tête et les tables de positions sont consultés.
+ * Un produit est décodé à la demande, par numéro ({@link #get(int)}) ou par identifiant
+ * ({@link #parId(String)}, recherche dichotomique dans la table triée), et les derniers produits
+ * utilisés sont gardés dans un petit cache LRU. La mémoire occupée ne dépend donc pas de la taille
+ * du catalogue : le contenu du fichier reste dans la projection, gérée par le système.
+ * <p>
+ * Le fichier étant remplacé par renommage à chaque sauvegarde, une vue ouverte reste valide
+ * sur l'ancien contenu ; le gestionnaire de stockage en ouvre une nouvelle quand la signature change.
+ * Toutes les méthodes sont synchronisées.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class CatalogueProjete {
+
+    /** Nombre de produits décodés gardés en mémoire */
+    static final int CAPACITE_CACHE = 128;
+
+    private final ByteBuffer tampon;
+    private final IntBuffer positions;
+    private final IntBuffer numerosParId;
+    private final int nombre;
+    private final CatalogueBinaire.LecteurTextes textes = new CatalogueBinaire.LecteurTextes();
+    private final Vue vue = new Vue();
+
+    /** Derniers produits utilisés, par numéro, du moins au plus récent */
+    private final Map<Integer, Produit> recents = new LinkedHashMap<Integer, Produit>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Produit> plusAncien) {
+            return size() > CAPACITE_CACHE;
+        }
+    };
+
+    private CatalogueProjete(ByteBuffer tampon, IntBuffer positions, IntBuffer numerosParId, int nombre) {
+        this.tampon = tampon;
+        this.positions = positions;
+        this.numerosParId = numerosParId;
+        this.nombre = nombre;
+    }
+
+    /**
+     * Ouvre la vue d'un catalogue binaire.
+     *
+     * @param fichier Fichier du catalogue
+     * @return La vue du catalogue
+     * @throws IOException si le fichier est illisible, tronqué ou sans tables (version 1 du format)
+     */
+    public static CatalogueProjete ouvrir(File fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier.toPath(), StandardOpenOption.READ)) {
+            // La projection reste valide après la fermeture du canal
+            MappedByteBuffer tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            try {
+                if (CatalogueBinaire.lireVersion(tampon, fichier) != CatalogueBinaire.VERSION_FORMAT) {
+                    throw new IOException("Catalogue sans table de positions : " + fichier.getName());
+                }
+                int nombre = CatalogueBinaire.lireNombre(tampon, fichier);
+                long positionTables = CatalogueBinaire.lirePositionTables(tampon);
+                if (positionTables < CatalogueBinaire.TAILLE_EN_TETE
+                        || positionTables + (long) nombre * Integer.BYTES + Integer.BYTES > tampon.limit()) {
+                    throw new IOException("Tables du catalogue tronquées : " + fichier.getName());
+                }
+
+                ByteBuffer tables = tampon.duplicate();
+                tables.position((int) positionTables);
+                IntBuffer positions = tables.slice().asIntBuffer();
+                positions.limit(nombre);
+
+                tables.position((int) positionTables + nombre * Integer.BYTES);
+                int nbParId = tables.getInt();
+                if (nbParId < 0 || nbParId > nombre || nbParId > tables.remaining() / Integer.BYTES) {
+                    throw new IOException("Table des identifiants tronquée : " + fichier.getName());
+                }
+                IntBuffer numerosParId = tables.slice().asIntBuffer();
+                numerosParId.limit(nbParId);
+
+                return new CatalogueProjete(tampon, positions, numerosParId, nombre);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Catalogue tronqué ou invalide : " + fichier.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @return Nombre de produits du catalogue
+     */
+    public int taille() {
+        return nombre;
+    }
+
+    /**
+     * Retourne le produit d'un numéro donné, décodé à la demande.
+     *
+     * @param numero Numéro du produit (ordre du catalogue)
+     * @return Le produit
+     * @throws IndexOutOfBoundsException si le numéro est hors du catalogue
+     * @throws IllegalStateException     si l'enregistrement est illisible
+     */
+    public synchronized Produit get(int numero) {
+        if (numero < 0 || numero >= nombre) {
+            throw new IndexOutOfBoundsException("Produit " + numero + " sur " + nombre);
+        }
+        Produit produit = recents.get(numero);
+        if (produit == null) {
+            produit = decoder(numero);
+            recents.put(numero, produit);
+        }
+        return produit;
+    }
+
+    /**
+     * Recherche un produit par identifiant, sans parcourir le catalogue.
+     *
+     * @param id Identifiant recherché
+     * @return Le produit, ou null s'il n'existe pas
+     */
+    public synchronized Produit parId(String id) {
+        if (id == null) {
+            return null;
+        }
+        int debut = 0;
+        int fin = numerosParId.limit() - 1;
+        while (debut <= fin) {
+            int milieu = (debut + fin) >>> 1;
+            int numero = numerosParId.get(milieu);
+            int comparaison = lireId(numero).compareTo(id);
+            if (comparaison == 0) {
+                return get(numero);
+            } else if (comparaison < 0) {
+                debut = milieu + 1;
+            } else {
+                fin = milieu - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retourne le catalogue sous forme de liste en lecture seule, dont les éléments sont décodés
+     * à la demande ({@link #get(int)}). Parcourir toute la liste ne garde pas les produits en mémoire.
+     *
+     * @return Vue liste du catalogue
+     */
+    public List<Produit> vue() {
+        return vue;
+    }
+
+    /**
+     * @return Nombre de produits actuellement décodés et gardés en mémoire
+     */
+    synchronized int nbProduitsEnMemoire() {
+        return recents.size();
+    }
+
+    private Produit decoder(int numero) {
+        try {
+            ByteBuffer lecture = tampon.duplicate();
+            lecture.position(positions.get(numero));
+            return CatalogueBinaire.lireProduit(lecture, textes);
+        } catch (IOException | IndexOutOfBoundsException | BufferUnderflowException
+                 | IllegalArgumentException e) {
+            throw new IllegalStateException("Produit " + numero + " illisible dans le catalogue", e);
+        }
+    }
+
+    /**
+     * Lit uniquement l'identifiant d'un produit (pour la recherche dichotomique), sans décoder le reste.
+     */
+    private String lireId(int numero) {
+        Produit enCache = recents.get(numero);
+        if (enCache != null) {
+            return enCache.getId();
+        }
+        try {
+            ByteBuffer lecture = tampon.duplicate();
+            lecture.position(positions.get(numero));
+            String id = textes.lire(lecture);
+            return id != null ? id : "";
+        } catch (IOException | IndexOutOfBoundsException | BufferUnderflowException
+                 | IllegalArgumentException e) {
+            throw new IllegalStateException("Produit " + numero + " illisible dans le catalogue", e);
+        }
+    }
+
+    /**
+     * Liste en lecture seule adossée au catalogue projeté.
+     */
+    final class Vue extends AbstractList<Produit> implements RandomAccess {
+
+        @Override
+        public Produit get(int index) {
+            return CatalogueProjete.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return nombre;
+        }
+    }
+}
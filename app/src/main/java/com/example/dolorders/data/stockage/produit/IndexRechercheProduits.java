@@ -0,0 +1,621 @@
+package com.example.dolorders.data.stockage.produit;
+
+import com.example.dolorders.data.stockage.NormaliseurTexte;
+import com.example.dolorders.data.stockage.SignatureFichier;
+import com.example.dolorders.objet.Produit;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index de recherche du catalogue de produits, pour l'auto-complétion.
+ * <p>
+ * Le libellé et la description de chaque produit sont normalisés une seule fois
+ * (minuscules, sans accents ni ponctuation, voir {@link #normaliser(String)}), puis indexés :
+ * <ul>
+ *     <li>par trigrammes : une requête de 3 caractères ou plus ne vérifie que les produits
+ *     contenant tous ses trigrammes (recherche « contient », comme auparavant) ;</li>
+ *     <li>par mots : une requête plus courte cherche les mots commençant par la saisie,
+ *     par recherche dichotomique dans la liste triée des mots.</li>
+ * </ul>
+ * Les résultats sont classés par qualité de correspondance (voir {@link #rang}).
+ * <p>
+ * L'index est immuable et peut être persisté à côté du catalogue
+ * ({@link #ecrire}, {@link #lire}) pour ne pas être reconstruit à chaque lancement.
+ * Un index relu garde les textes normalisés dans la projection mémoire de son fichier : ils ne sont
+ * décodés que pour les produits candidats d'une recherche. Seuls les mots et les trigrammes (avec les
+ * positions des produits) sont en mémoire. Un index tout juste construit garde ses textes normalisés
+ * en mémoire jusqu'à ce qu'il soit relu depuis son fichier.
+ */
+public class IndexRechercheProduits {
+
+    /** Version du format persisté, à incrémenter à chaque changement de format ou de normalisation */
+    private static final int VERSION_FORMAT = 2;
+
+    /** Longueur des n-grammes indexés */
+    private static final int TAILLE_NGRAMME = 3;
+
+    /** Rang d'un produit ne correspondant pas à la requête */
+    private static final int SANS_CORRESPONDANCE = Integer.MAX_VALUE;
+
+    /** Produits, dans l'ordre du catalogue */
+    private final List<Produit> produits;
+
+    /** Libellés et descriptions normalisés, par position de produit */
+    private final TextesNormalises textes;
+
+    /** Mots triés, et positions des produits contenant chaque mot */
+    private final String[] mots;
+    private final int[][] produitsParMot;
+
+    /** Trigramme -> positions croissantes des produits le contenant */
+    private final Map<String, int[]> produitsParTrigramme;
+
+    /**
+     * Construit l'index d'un catalogue.
+     *
+     * @param produits Produits du catalogue
+     */
+    public IndexRechercheProduits(List<Produit> produits) {
+        this.produits = copieImmuable(produits);
+        int nb = this.produits.size();
+        String[] libelles = new String[nb];
+        String[] descriptions = new String[nb];
+        this.textes = new TextesEnMemoire(libelles, descriptions);
+
+        Map<String, ListePositions> parMot = new TreeMap<>();
+        Map<String, ListePositions> parTrigramme = new HashMap<>();
+
+        for (int i = 0; i < nb; i++) {
+            Produit produit = this.produits.get(i);
+            libelles[i] = normaliser(produit.getLibelle());
+            descriptions[i] = normaliser(produit.getDescription());
+
+            for (String texte : new String[]{libelles[i], descriptions[i]}) {
+                if (texte.isEmpty()) {
+                    continue;
+                }
+                for (String mot : texte.split(" ")) {
+                    positions(parMot, mot).ajouter(i);
+                }
+                for (int debut = 0; debut + TAILLE_NGRAMME <= texte.length(); debut++) {
+                    positions(parTrigramme, texte.substring(debut, debut + TAILLE_NGRAMME)).ajouter(i);
+                }
+            }
+        }
+
+        this.mots = parMot.keySet().toArray(new String[0]);
+        this.produitsParMot = new int[mots.length][];
+        for (int i = 0; i < mots.length; i++) {
+            produitsParMot[i] = parMot.get(mots[i]).enTableau();
+        }
+
+        this.produitsParTrigramme = new HashMap<>(parTrigramme.size() * 2);
+        for (Map.Entry<String, ListePositions> entree : parTrigramme.entrySet()) {
+            produitsParTrigramme.put(entree.getKey(), entree.getValue().enTableau());
+        }
+    }
+
+    private IndexRechercheProduits(List<Produit> produits, TextesNormalises textes,
+                                   String[] mots, int[][] produitsParMot,
+                                   Map<String, int[]> produitsParTrigramme) {
+        this.produits = copieImmuable(produits);
+        this.textes = textes;
+        this.mots = mots;
+        this.produitsParMot = produitsParMot;
+        this.produitsParTrigramme = produitsParTrigramme;
+    }
+
+    /**
+     * Copie la liste des produits pour garantir l'immuabilité de l'index.
+     * La vue d'un catalogue projeté, déjà en lecture seule, est conservée telle quelle :
+     * ses produits restent décodés à la demande.
+     */
+    private static List<Produit> copieImmuable(List<Produit> produits) {
+        if (produits instanceof CatalogueProjete.Vue) {
+            return produits;
+        }
+        return Collections.unmodifiableList(new ArrayList<>(produits));
+    }
+
+    /**
+     * Normalise un texte pour la recherche (voir {@link NormaliseurTexte#normaliser(String)}).
+     *
+     * @param texte Texte à normaliser (peut être null)
+     * @return Texte normalisé ("" si null ou vide)
+     */
+    public static String normaliser(String texte) {
+        return NormaliseurTexte.normaliser(texte);
+    }
+
+    /**
+     * Recherche les produits correspondant à une saisie, classés par qualité de correspondance.
+     *
+     * @param requete Saisie de l'utilisateur
+     * @return Produits correspondants ; tout le catalogue (en lecture seule) si la saisie est vide
+     */
+    public List<Produit> rechercher(CharSequence requete) {
+        String q = normaliser(requete == null ? null : requete.toString());
+        if (q.isEmpty()) {
+            return produits;
+        }
+
+        int[] candidats = q.length() >= TAILLE_NGRAMME ? candidatsParTrigrammes(q) : candidatsParMots(q);
+
+        List<int[]> classes = new ArrayList<>();
+        for (int position : candidats) {
+            String libelle = textes.libelle(position);
+            int rang = rang(q, libelle, textes.description(position));
+            if (rang != SANS_CORRESPONDANCE) {
+                classes.add(new int[]{rang, libelle.length(), position});
+            }
+        }
+        Collections.sort(classes, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                int comparaison = Integer.compare(a[i], b[i]);
+                if (comparaison != 0) {
+                    return comparaison;
+                }
+            }
+            return 0;
+        });
+
+        List<Produit> resultats = new ArrayList<>(classes.size());
+        for (int[] classe : classes) {
+            resultats.add(produits.get(classe[2]));
+        }
+        return resultats;
+    }
+
+    /**
+     * Qualité de correspondance d'un produit, de la meilleure (0) à la moins bonne :
+     * libellé identique, libellé commençant par la saisie, mot du libellé commençant par la saisie,
+     * libellé la contenant, mot de la description commençant par la saisie, description la contenant.
+     * Une saisie de moins de 3 caractères ne correspond qu'à des débuts de mots.
+     */
+    private static int rang(String q, String libelle, String description) {
+        boolean debutDeMotSeulement = q.length() < TAILLE_NGRAMME;
+        if (libelle.equals(q)) {
+            return 0;
+        }
+        if (libelle.startsWith(q)) {
+            return 1;
+        }
+        if (libelle.contains(" " + q)) {
+            return 2;
+        }
+        if (!debutDeMotSeulement && libelle.contains(q)) {
+            return 3;
+        }
+        if (description.startsWith(q) || description.contains(" " + q)) {
+            return 4;
+        }
+        if (!debutDeMotSeulement && description.contains(q)) {
+            return 5;
+        }
+        return SANS_CORRESPONDANCE;
+    }
+
+    /**
+     * Intersection des produits contenant chacun des trigrammes de la saisie,
+     * en partant de la liste la plus courte.
+     */
+    private int[] candidatsParTrigrammes(String q) {
+        List<int[]> listes = new ArrayList<>();
+        for (int debut = 0; debut + TAILLE_NGRAMME <= q.length(); debut++) {
+            int[] liste = produitsParTrigramme.get(q.substring(debut, debut + TAILLE_NGRAMME));
+            if (liste == null) {
+                return new int[0];
+            }
+            listes.add(liste);
+        }
+        Collections.sort(listes, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] resultat = listes.get(0);
+        for (int i = 1; i < listes.size() && resultat.length > 0; i++) {
+            resultat = intersection(resultat, listes.get(i));
+        }
+        return resultat;
+    }
+
+    /**
+     * Union des produits dont un mot commence par la saisie.
+     */
+    private int[] candidatsParMots(String q) {
+        boolean[] trouves = new boolean[produits.size()];
+        int nbTrouves = 0;
+        for (int i = premierMotAuMoins(q); i < mots.length && mots[i].startsWith(q); i++) {
+            for (int position : produitsParMot[i]) {
+                if (!trouves[position]) {
+                    trouves[position] = true;
+                    nbTrouves++;
+                }
+            }
+        }
+
+        int[] resultat = new int[nbTrouves];
+        int n = 0;
+        for (int position = 0; position < trouves.length && n < nbTrouves; position++) {
+            if (trouves[position]) {
+                resultat[n++] = position;
+            }
+        }
+        return resultat;
+    }
+
+    /** Position du premier mot supérieur ou égal à la saisie dans la liste triée */
+    private int premierMotAuMoins(String q) {
+        int bas = 0;
+        int haut = mots.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (mots[milieu].compareTo(q) < 0) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    private static int[] intersection(int[] a, int[] b) {
+        int[] resultat = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                resultat[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+
+    /**
+     * @return Produits indexés, dans l'ordre du catalogue
+     */
+    public List<Produit> getProduits() {
+        return produits;
+    }
+
+    /**
+     * @return Nombre de produits indexés
+     */
+    public int taille() {
+        return produits.size();
+    }
+
+    // ==================== PERSISTANCE ====================
+
+    /**
+     * Écrit l'index, associé à la signature du catalogue dont il est issu.
+     * Les textes normalisés sont écrits en premier, avec la table de leurs positions, pour être
+     * relus par projection mémoire ({@link #lire}).
+     *
+     * @param sortie           Flux de sortie
+     * @param signatureSource  Signature du fichier du catalogue indexé
+     * @throws IOException si l'écriture échoue
+     */
+    public void ecrire(DataOutputStream sortie, SignatureFichier signatureSource) throws IOException {
+        sortie.writeInt(VERSION_FORMAT);
+        signatureSource.ecrire(sortie);
+        int nb = produits.size();
+        sortie.writeInt(nb);
+
+        // Textes normalisés : positions de fin cumulées (libellé puis description de chaque produit), puis octets
+        byte[][] octets = new byte[2 * nb][];
+        int fin = 0;
+        for (int i = 0; i < nb; i++) {
+            octets[2 * i] = textes.libelle(i).getBytes(StandardCharsets.UTF_8);
+            octets[2 * i + 1] = textes.description(i).getBytes(StandardCharsets.UTF_8);
+        }
+        for (byte[] texte : octets) {
+            fin += texte.length;
+            sortie.writeInt(fin);
+        }
+        for (byte[] texte : octets) {
+            sortie.write(texte);
+        }
+
+        sortie.writeInt(mots.length);
+        for (int i = 0; i < mots.length; i++) {
+            ecrireTexte(sortie, mots[i]);
+            ecrirePositions(sortie, produitsParMot[i]);
+        }
+
+        sortie.writeInt(produitsParTrigramme.size());
+        for (Map.Entry<String, int[]> entree : produitsParTrigramme.entrySet()) {
+            ecrireTexte(sortie, entree.getKey());
+            ecrirePositions(sortie, entree.getValue());
+        }
+        sortie.flush();
+    }
+
+    /**
+     * Relit un index écrit par {@link #ecrire}, s'il correspond toujours au catalogue.
+     * Le fichier est projeté en mémoire : les textes normalisés y restent et sont lus à la demande.
+     *
+     * @param fichier         Fichier de l'index
+     * @param signatureSource Signature actuelle du fichier du catalogue
+     * @param produits        Produits du catalogue, dans l'ordre du fichier
+     * @return L'index, ou null s'il est d'un autre format ou d'une autre version du catalogue
+     * @throws IOException si le fichier est illisible ou corrompu
+     */
+    public static IndexRechercheProduits lire(File fichier, SignatureFichier signatureSource,
+                                              List<Produit> produits) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier.toPath(), StandardOpenOption.READ)) {
+            // La projection reste valide après la fermeture du canal
+            MappedByteBuffer tampon = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            try {
+                return lire(tampon, signatureSource, produits);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Index de recherche tronqué : " + fichier.getName(), e);
+            }
+        }
+    }
+
+    private static IndexRechercheProduits lire(ByteBuffer tampon, SignatureFichier signatureSource,
+                                               List<Produit> produits) throws IOException {
+        // Flux sans tampon propre : la position du tampon suit exactement ce qui a été lu
+        DataInputStream entree = new DataInputStream(new FluxTampon(tampon));
+        if (entree.readInt() != VERSION_FORMAT) {
+            return null;
+        }
+        if (!SignatureFichier.lire(entree).equals(signatureSource)) {
+            return null;
+        }
+        int nb = entree.readInt();
+        if (nb != produits.size()) {
+            return null;
+        }
+
+        TextesProjetes textes = TextesProjetes.lire(tampon, nb);
+
+        int nbMots = lireTaille(entree);
+        String[] mots = new String[nbMots];
+        int[][] produitsParMot = new int[nbMots][];
+        for (int i = 0; i < nbMots; i++) {
+            mots[i] = lireTexte(entree);
+            produitsParMot[i] = lirePositions(entree, nb);
+        }
+
+        int nbTrigrammes = lireTaille(entree);
+        Map<String, int[]> produitsParTrigramme = new HashMap<>(nbTrigrammes * 2);
+        for (int i = 0; i < nbTrigrammes; i++) {
+            String trigramme = lireTexte(entree);
+            produitsParTrigramme.put(trigramme, lirePositions(entree, nb));
+        }
+
+        return new IndexRechercheProduits(produits, textes, mots, produitsParMot, produitsParTrigramme);
+    }
+
+    /** Positions croissantes, écrites en écarts successifs */
+    private static void ecrirePositions(DataOutputStream sortie, int[] positions) throws IOException {
+        sortie.writeInt(positions.length);
+        int precedente = 0;
+        for (int position : positions) {
+            sortie.writeInt(position - precedente);
+            precedente = position;
+        }
+    }
+
+    private static int[] lirePositions(DataInputStream entree, int nbProduits) throws IOException {
+        int[] positions = new int[lireTaille(entree)];
+        int position = 0;
+        for (int i = 0; i < positions.length; i++) {
+            position += entree.readInt();
+            if (position < 0 || position >= nbProduits) {
+                throw new IOException("Index de recherche corrompu (position " + position + ")");
+            }
+            positions[i] = position;
+        }
+        return positions;
+    }
+
+    /** Texte préfixé de sa longueur en octets (writeUTF est limité à 64 Ko) */
+    private static void ecrireTexte(DataOutputStream sortie, String texte) throws IOException {
+        byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+        sortie.writeInt(octets.length);
+        sortie.write(octets);
+    }
+
+    private static String lireTexte(DataInputStream entree) throws IOException {
+        byte[] octets = new byte[lireTaille(entree)];
+        entree.readFully(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    private static int lireTaille(DataInputStream entree) throws IOException {
+        int taille = entree.readInt();
+        if (taille < 0) {
+            throw new IOException("Index de recherche corrompu (taille " + taille + ")");
+        }
+        return taille;
+    }
+
+    // ==================== TEXTES NORMALISÉS ====================
+
+    /**
+     * Libellé et description normalisés de chaque produit, par position.
+     */
+    private interface TextesNormalises {
+        String libelle(int position);
+
+        String description(int position);
+    }
+
+    /**
+     * Textes normalisés d'un index tout juste construit.
+     */
+    private static final class TextesEnMemoire implements TextesNormalises {
+        private final String[] libelles;
+        private final String[] descriptions;
+
+        TextesEnMemoire(String[] libelles, String[] descriptions) {
+            this.libelles = libelles;
+            this.descriptions = descriptions;
+        }
+
+        @Override
+        public String libelle(int position) {
+            return libelles[position];
+        }
+
+        @Override
+        public String description(int position) {
+            return descriptions[position];
+        }
+    }
+
+    /**
+     * Textes normalisés d'un index relu, décodés à la demande depuis la projection de son fichier.
+     * Les lectures n'utilisent que des positions absolues ou des copies du tampon : la classe peut être
+     * utilisée par plusieurs threads.
+     */
+    private static final class TextesProjetes implements TextesNormalises {
+        private final IntBuffer fins;
+        private final ByteBuffer octets;
+
+        private TextesProjetes(IntBuffer fins, ByteBuffer octets) {
+            this.fins = fins;
+            this.octets = octets;
+        }
+
+        /**
+         * Délimite la section des textes à la position courante du tampon, vérifie sa table,
+         * puis place le tampon juste après la section.
+         */
+        static TextesProjetes lire(ByteBuffer tampon, int nb) throws IOException {
+            int nbTextes = 2 * nb;
+            if ((long) nbTextes * Integer.BYTES > tampon.remaining()) {
+                throw new IOException("Index de recherche corrompu (table des textes tronquée)");
+            }
+            ByteBuffer section = tampon.slice();
+            IntBuffer fins = section.asIntBuffer();
+            fins.limit(nbTextes);
+
+            int precedente = 0;
+            for (int i = 0; i < nbTextes; i++) {
+                int fin = fins.get(i);
+                if (fin < precedente) {
+                    throw new IOException("Index de recherche corrompu (texte " + i + ")");
+                }
+                precedente = fin;
+            }
+            int debutOctets = nbTextes * Integer.BYTES;
+            if (precedente > section.limit() - debutOctets) {
+                throw new IOException("Index de recherche corrompu (textes tronqués)");
+            }
+
+            section.position(debutOctets);
+            ByteBuffer octets = section.slice();
+            octets.limit(precedente);
+            tampon.position(tampon.position() + debutOctets + precedente);
+            return new TextesProjetes(fins, octets);
+        }
+
+        @Override
+        public String libelle(int position) {
+            return texte(2 * position);
+        }
+
+        @Override
+        public String description(int position) {
+            return texte(2 * position + 1);
+        }
+
+        private String texte(int numero) {
+            int debut = numero == 0 ? 0 : fins.get(numero - 1);
+            byte[] texte = new byte[fins.get(numero) - debut];
+            ByteBuffer lecture = octets.duplicate();
+            lecture.position(debut);
+            lecture.get(texte);
+            return new String(texte, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Flux lisant un tampon octet par octet, sans lecture anticipée.
+     */
+    private static final class FluxTampon extends InputStream {
+        private final ByteBuffer tampon;
+
+        FluxTampon(ByteBuffer tampon) {
+            this.tampon = tampon;
+        }
+
+        @Override
+        public int read() {
+            return tampon.hasRemaining() ? tampon.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destination, int debut, int longueur) {
+            if (longueur == 0) {
+                return 0;
+            }
+            if (!tampon.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(longueur, tampon.remaining());
+            tampon.get(destination, debut, n);
+            return n;
+        }
+    }
+
+    // ==================== CONSTRUCTION ====================
+
+    private static ListePositions positions(Map<String, ListePositions> index, String cle) {
+        ListePositions liste = index.get(cle);
+        if (liste == null) {
+            liste = new ListePositions();
+            index.put(cle, liste);
+        }
+        return liste;
+    }
+
+    /**
+     * Liste croissante de positions sans doublon, remplie produit par produit.
+     */
+    private static final class ListePositions {
+        private int[] valeurs = new int[4];
+        private int taille;
+
+        void ajouter(int position) {
+            if (taille > 0 && valeurs[taille - 1] == position) {
+                return;
+            }
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            valeurs[taille++] = position;
+        }
+
+        int[] enTableau() {
+            return Arrays.copyOf(valeurs, taille);
+        }
+    }
+}
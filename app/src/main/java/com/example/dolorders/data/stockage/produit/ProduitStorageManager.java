@@ -3,43 +3,75 @@ package com.example.dolorders.data.stockage.produit;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.dolorders.data.stockage.EcritureAtomique;
+import com.example.dolorders.data.stockage.FluxJson;
+import com.example.dolorders.data.stockage.SignatureFichier;
 import com.example.dolorders.objet.Produit;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 
-import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Gestionnaire de stockage local pour les produits.
- * Utilise un fichier JSON dans le répertoire interne de l'application
- * pour sauvegarder/charger les produits de manière persistante.
+ * Utilise un fichier binaire compact (voir {@link CatalogueBinaire}) dans le répertoire interne
+ * de l'application pour sauvegarder/charger les produits de manière persistante.
  * Le fichier sera automatiquement supprimé si l'application est désinstallée.
+ * <p>
+ * Le format binaire est le seul format de stockage du catalogue, et non une option à côté du JSON :
+ * la vue projetée, l'écriture par pages de la synchronisation et la recherche par identifiant
+ * reposent sur ses tables de positions, qu'un fichier JSON ne fournit pas.
+ * Un ancien catalogue au format JSON est converti au format binaire à sa première lecture, puis
+ * supprimé : il ne serait plus à jour après la synchronisation suivante et occuperait autant de place
+ * que le catalogue. Si la conversion échoue, il est conservé et relu au lancement suivant.
+ * <p>
+ * Le catalogue est lu par une vue projetée en mémoire ({@link CatalogueProjete}) partagée par tout
+ * le processus : les produits sont décodés à la demande, la mémoire occupée ne dépend pas de la taille
+ * du catalogue. La vue est rouverte si le fichier change sur disque.
+ * L'index de recherche du catalogue ({@link IndexRechercheProduits}) est persisté à côté
+ * du catalogue, et n'est reconstruit que si le catalogue a changé.
+ * <p>
+ * Le catalogue est remplacé de façon atomique (voir {@link EcritureAtomique}) ; s'il est absent
+ * ou abîmé à l'ouverture, la génération précédente est remise en place.
  */
 public class ProduitStorageManager {
 
     /** Nom du fichier de stockage pour les produits */
-    private static final String FILE_NAME = "produits_data.json";
+    private static final String FILE_NAME = "produits_data.bin";
+
+    /** Nom de l'ancien fichier JSON des produits, converti au format binaire à la première lecture */
+    private static final String ANCIEN_FICHIER_JSON = "produits_data.json";
+
+    /** Nom du fichier de l'index de recherche des produits */
+    private static final String FICHIER_INDEX = "produits_index.bin";
 
     /** Tag de log pour le gestionnaire de stockage des produits */
     private static final String TAG = "ProduitStorage";
 
+    /** Vue projetée du catalogue, partagée par toutes les instances */
+    private static CatalogueProjete catalogue;
+
+    /** Signature du fichier dont est issue la vue projetée */
+    private static SignatureFichier signatureCatalogue;
+
+    /** Index de recherche en mémoire, partagé par toutes les instances */
+    private static IndexRechercheProduits indexRecherche;
+
+    /** Signature du catalogue dont est issu l'index en mémoire */
+    private static SignatureFichier signatureIndex;
+
     /** Contexte de l'application pour accéder au système de fichiers internes */
     private final Context context;
 
-    /** Instance de Gson configurée avec l'adaptateur personnalisé pour Produit */
+    /** Instance de Gson configurée avec l'adaptateur personnalisé pour Produit (lecture de l'ancien format) */
     private final Gson gson;
 
     /**
@@ -53,12 +85,11 @@ public class ProduitStorageManager {
         // Configuration Gson avec l'adapter personnalisé
         GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(Produit.class, new ProduitTypeAdapter());
-        builder.setPrettyPrinting(); // Pour un JSON lisible
         this.gson = builder.create();
     }
 
     /**
-     * Sauvegarde la liste des produits dans un fichier JSON.
+     * Sauvegarde la liste des produits dans le fichier binaire.
      * Cette opération écrase les données précédentes.
      *
      * @param produits Liste des produits à sauvegarder
@@ -71,68 +102,280 @@ public class ProduitStorageManager {
 
         try {
             File file = new File(context.getFilesDir(), FILE_NAME);
-            FileOutputStream fos = new FileOutputStream(file);
-            try (OutputStreamWriter writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
+            File fichierTemporaire = EcritureAtomique.fichierTemporaire(file);
+            CatalogueBinaire.ecrire(fichierTemporaire, produits);
+            EcritureAtomique.remplacer(fichierTemporaire, file);
 
-                String json = gson.toJson(produits);
-                writer.write(json);
-            }
-            fos.close();
+            // L'index est construit sur la vue projetée du nouveau fichier, pas sur la liste reçue :
+            // il ne garde pas les produits en mémoire
+            SignatureFichier signature = SignatureFichier.de(file);
+            CatalogueProjete nouveauCatalogue = ouvrirProjection(file, signature);
+            enregistrerIndex(new IndexRechercheProduits(nouveauCatalogue.vue()), signature);
 
             Log.d(TAG, "Produits sauvegardés avec succès (" + produits.size() + " produits)");
             return true;
 
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la sauvegarde des produits", e);
+            oublierProjection();
             return false;
         }
     }
 
     /**
-     * Charge la liste des produits depuis le fichier JSON.
+     * Ouvre une écriture du catalogue page par page.
+     * Les produits sont écrits en flux dans un fichier temporaire qui ne remplace le stockage
+     * qu'à l'appel de {@link EcritureParPages#terminer()} : seule la page en cours est en mémoire,
+     * et une synchronisation interrompue laisse l'ancien catalogue intact.
+     *
+     * @return L'écriture ouverte
+     * @throws IOException si le fichier temporaire ne peut pas être créé
+     */
+    public EcritureParPages ouvrirEcritureParPages() throws IOException {
+        return new EcritureParPages(EcritureAtomique.fichierTemporaire(new File(context.getFilesDir(), FILE_NAME)));
+    }
+
+    /**
+     * Écriture en flux du catalogue de produits, page par page.
+     */
+    public class EcritureParPages {
+
+        private final File fichierTemporaire;
+        private final CatalogueBinaire.Ecriture ecriture;
+
+        private EcritureParPages(File fichierTemporaire) throws IOException {
+            this.fichierTemporaire = fichierTemporaire;
+            this.ecriture = new CatalogueBinaire.Ecriture(fichierTemporaire);
+        }
+
+        /**
+         * Ajoute une page de produits à la suite du fichier temporaire.
+         *
+         * @param produits Produits de la page
+         * @throws IOException si l'écriture échoue
+         */
+        public void ecrirePage(List<Produit> produits) throws IOException {
+            for (Produit produit : produits) {
+                ecriture.ajouter(produit);
+            }
+        }
+
+        /**
+         * Ajoute un produit à la suite du fichier temporaire.
+         *
+         * @param produit Produit à écrire
+         * @throws IOException si l'écriture échoue
+         */
+        public void ecrireProduit(Produit produit) throws IOException {
+            ecriture.ajouter(produit);
+        }
+
+        /**
+         * Termine l'écriture et remplace le catalogue stocké par le fichier temporaire.
+         *
+         * @return Nombre de produits écrits
+         * @throws IOException si la finalisation échoue
+         */
+        public int terminer() throws IOException {
+            int nbProduits = ecriture.terminer();
+
+            EcritureAtomique.remplacer(fichierTemporaire, new File(context.getFilesDir(), FILE_NAME));
+
+            // Le catalogue n'est pas gardé en mémoire pendant l'écriture : la vue et l'index
+            // seront reconstruits à la prochaine lecture
+            oublierProjection();
+            supprimerIndex();
+
+            Log.d(TAG, "Produits sauvegardés par pages avec succès (" + nbProduits + " produits)");
+            return nbProduits;
+        }
+
+        /**
+         * Abandonne l'écriture : le fichier temporaire est supprimé, le catalogue stocké est conservé.
+         */
+        public void abandonner() {
+            try {
+                ecriture.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Fermeture du fichier temporaire des produits impossible", e);
+            }
+            try {
+                Files.deleteIfExists(fichierTemporaire.toPath());
+            } catch (IOException e) {
+                Log.w(TAG, "Suppression du fichier temporaire des produits impossible", e);
+            }
+        }
+    }
+
+    /**
+     * Fusionne des produits modifiés dans le catalogue stocké, par ID, sans charger le catalogue en mémoire.
+     * Le catalogue est parcouru dans sa vue projetée (produits décodés un à un) et recopié dans une
+     * {@link EcritureParPages} : un produit existant est remplacé à sa position, un nouveau produit
+     * est ajouté à la fin. Seuls les produits modifiés sont gardés en mémoire.
+     *
+     * @param modifies Produits modifiés ou créés
+     * @return Nombre de produits du catalogue après la fusion
+     * @throws IOException si l'écriture échoue (le catalogue stocké est alors conservé)
+     */
+    public int fusionnerModifications(List<Produit> modifies) throws IOException {
+        Map<String, Produit> aFusionner = new LinkedHashMap<>();
+        for (Produit produit : modifies) {
+            if (produit.getId() != null) {
+                aFusionner.put(produit.getId(), produit);
+            }
+        }
+
+        List<Produit> existants = loadProduits();
+        EcritureParPages ecriture = ouvrirEcritureParPages();
+        try {
+            for (Produit existant : existants) {
+                Produit modifie = existant.getId() != null ? aFusionner.remove(existant.getId()) : null;
+                ecriture.ecrireProduit(modifie != null ? modifie : existant);
+            }
+            ecriture.ecrirePage(new ArrayList<>(aFusionner.values()));
+            return ecriture.terminer();
+        } catch (IOException | RuntimeException e) {
+            ecriture.abandonner();
+            throw e;
+        }
+    }
+
+    /**
+     * Charge la liste des produits depuis le fichier binaire
+     * (après conversion de l'ancien fichier JSON s'il est encore présent).
+     * <p>
+     * La liste retournée est en lecture seule et adossée au fichier : les produits sont décodés
+     * à la demande (voir {@link CatalogueProjete#vue()}).
      *
      * @return Liste des produits sauvegardés, ou une liste vide si aucune donnée
      */
     public List<Produit> loadProduits() {
         File file = new File(context.getFilesDir(), FILE_NAME);
 
+        // Écriture précédente interrompue avant le renommage : la génération précédente est remise en place
+        if (!file.exists() && EcritureAtomique.recuperer(file)) {
+            Log.w(TAG, "Catalogue absent, sauvegarde restaurée");
+        }
+
         if (!file.exists()) {
+            File ancienFichier = new File(context.getFilesDir(), ANCIEN_FICHIER_JSON);
+            if (ancienFichier.exists()) {
+                return migrerDepuisJson(ancienFichier);
+            }
             Log.d(TAG, "Aucun fichier de produits trouvé");
+            oublierProjection();
             return new ArrayList<>();
         }
 
+        CatalogueProjete vue = getCatalogue();
+        return vue != null ? vue.vue() : new ArrayList<>();
+    }
+
+    /**
+     * Retourne la vue projetée du catalogue stocké, rouverte si le fichier a changé sur disque.
+     * Un catalogue écrit dans l'ancien format binaire (sans table de positions) est réécrit au format courant.
+     *
+     * @return La vue du catalogue, ou null si aucun catalogue lisible n'est stocké
+     */
+    public CatalogueProjete getCatalogue() {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+
+        // Fichier inchangé depuis la dernière ouverture : la vue est réutilisée
+        SignatureFichier signature = SignatureFichier.de(file);
+        synchronized (ProduitStorageManager.class) {
+            if (catalogue != null && signature.equals(signatureCatalogue)) {
+                return catalogue;
+            }
+        }
+
+        // Fichier modifié sur disque : sa somme de contrôle est vérifiée avant l'ouverture
+        if (EcritureAtomique.recuperer(file)) {
+            Log.w(TAG, "Catalogue abîmé, sauvegarde restaurée");
+            signature = SignatureFichier.de(file);
+        }
+
         try {
-            StringBuilder jsonBuilder;
-            try (FileInputStream fis = new FileInputStream(file)) {
-                InputStreamReader reader = new InputStreamReader(fis, StandardCharsets.UTF_8);
-                try (BufferedReader bufferedReader = new BufferedReader(reader)) {
-
-                    jsonBuilder = new StringBuilder();
-                    String line;
-                    while ((line = bufferedReader.readLine()) != null) {
-                        jsonBuilder.append(line);
-                    }
+            long debut = System.nanoTime();
+            CatalogueProjete vue = ouvrirProjection(file, signature);
+            Log.d(TAG, "Catalogue ouvert (" + vue.taille() + " produits en "
+                    + (System.nanoTime() - debut) / 1_000_000 + " ms)");
+            return vue;
+        } catch (IOException e) {
+            Log.w(TAG, "Catalogue illisible par projection, tentative de conversion", e);
+        }
+
+        try {
+            List<Produit> produits = CatalogueBinaire.lire(file);
+            if (saveProduits(produits)) {
+                synchronized (ProduitStorageManager.class) {
+                    return catalogue;
                 }
-                reader.close();
             }
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors du chargement des produits", e);
+        }
 
-            // Conversion du JSON en liste d'objets Produit
-            String jsonData = jsonBuilder.toString();
-            Type listType = new TypeToken<List<Produit>>() {
-            }.getType();
-            List<Produit> produits = gson.fromJson(jsonData, listType);
+        // Catalogue illisible malgré une somme correcte : dernière tentative avec la génération précédente
+        if (EcritureAtomique.restaurerSauvegarde(file)) {
+            Log.w(TAG, "Catalogue relu depuis la sauvegarde");
+            return getCatalogue();
+        }
+        return null;
+    }
 
-            if (produits == null) {
-                produits = new ArrayList<>();
-            }
+    /**
+     * Ouvre la vue projetée d'un fichier et la partage avec les autres instances.
+     */
+    private static CatalogueProjete ouvrirProjection(File file, SignatureFichier signature) throws IOException {
+        CatalogueProjete vue = CatalogueProjete.ouvrir(file);
+        synchronized (ProduitStorageManager.class) {
+            catalogue = vue;
+            signatureCatalogue = signature;
+        }
+        return vue;
+    }
 
-            Log.d(TAG, "Produits chargés avec succès (" + produits.size() + " produits)");
-            return produits;
+    private static void oublierProjection() {
+        synchronized (ProduitStorageManager.class) {
+            catalogue = null;
+            signatureCatalogue = null;
+        }
+    }
 
+    /**
+     * Convertit l'ancien catalogue JSON au format binaire, puis le supprime.
+     * Si la conversion échoue, le fichier JSON est conservé et relu au prochain chargement.
+     *
+     * @param ancienFichier Fichier JSON des produits
+     * @return Produits de l'ancien catalogue, ou une liste vide s'il est illisible
+     */
+    private List<Produit> migrerDepuisJson(File ancienFichier) {
+        List<Produit> produits;
+        try {
+            produits = FluxJson.lireListe(gson, new FileInputStream(ancienFichier), Produit.class);
         } catch (Exception e) {
-            Log.e(TAG, "Erreur lors du chargement des produits", e);
+            Log.e(TAG, "Erreur lors de la lecture de l'ancien catalogue JSON", e);
             return new ArrayList<>();
         }
+
+        if (saveProduits(produits)) {
+            try {
+                Files.deleteIfExists(ancienFichier.toPath());
+            } catch (IOException e) {
+                Log.w(TAG, "Suppression de l'ancien catalogue JSON impossible", e);
+            }
+            Log.d(TAG, "Catalogue converti au format binaire (" + produits.size() + " produits)");
+
+            // Les produits lus en JSON sont libérés au profit de la vue projetée
+            CatalogueProjete vue = getCatalogue();
+            if (vue != null) {
+                return vue.vue();
+            }
+        }
+        return produits;
     }
 
     /**
@@ -141,11 +384,11 @@ public class ProduitStorageManager {
      * @return true si la suppression a réussi, false sinon
      */
     public boolean clearProduits() {
-        File file = new File(context.getFilesDir(), FILE_NAME);
-        Path path = file.toPath();
-
         try {
-            Files.deleteIfExists(path);
+            EcritureAtomique.supprimer(new File(context.getFilesDir(), FILE_NAME));
+            Files.deleteIfExists(new File(context.getFilesDir(), ANCIEN_FICHIER_JSON).toPath());
+            oublierProjection();
+            supprimerIndex();
             Log.d(TAG, "Fichier de produits supprimé avec succès");
             return true;
         } catch (IOException e) {
@@ -154,6 +397,118 @@ public class ProduitStorageManager {
         }
     }
 
+    /**
+     * Recherche un produit par son ID dans la table des identifiants du catalogue,
+     * sans décoder les autres produits.
+     *
+     * @param produitId ID du produit recherché
+     * @return Le produit trouvé, ou null si non trouvé
+     */
+    public Produit findProduitById(String produitId) {
+        if (produitId == null || produitId.isEmpty()) {
+            return null;
+        }
+
+        CatalogueProjete vue = getCatalogue();
+        return vue != null ? vue.parId(produitId) : null;
+    }
+
+    /**
+     * Retourne l'index de recherche du catalogue stocké.
+     * L'index est pris en mémoire, sinon relu depuis son fichier s'il correspond toujours au catalogue,
+     * sinon reconstruit puis enregistré.
+     *
+     * @return L'index de recherche (vide si aucun produit n'est stocké)
+     */
+    public IndexRechercheProduits chargerIndexRecherche() {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        List<Produit> produits = loadProduits();
+        SignatureFichier signature = SignatureFichier.de(file);
+
+        synchronized (ProduitStorageManager.class) {
+            if (indexRecherche != null && signature.equals(signatureIndex)) {
+                return indexRecherche;
+            }
+        }
+
+        if (!file.exists()) {
+            return new IndexRechercheProduits(produits);
+        }
+
+        File fichierIndex = new File(context.getFilesDir(), FICHIER_INDEX);
+        if (fichierIndex.exists()) {
+            try {
+                IndexRechercheProduits index = IndexRechercheProduits.lire(fichierIndex, signature, produits);
+                if (index != null) {
+                    synchronized (ProduitStorageManager.class) {
+                        indexRecherche = index;
+                        signatureIndex = signature;
+                    }
+                    Log.d(TAG, "Index de recherche des produits relu (" + index.taille() + " produits)");
+                    return index;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Index de recherche des produits illisible, reconstruction", e);
+            }
+        }
+
+        IndexRechercheProduits index = enregistrerIndex(new IndexRechercheProduits(produits), signature);
+        Log.d(TAG, "Index de recherche des produits construit (" + index.taille() + " produits)");
+        return index;
+    }
+
+    /**
+     * Écrit l'index à côté du catalogue, puis le relit par projection : les textes normalisés quittent
+     * la mémoire pour le fichier. L'index relu (ou, à défaut, l'index construit) est gardé en mémoire.
+     * Le fichier est remplacé de façon atomique (voir {@link EcritureAtomique}) et jamais réécrit
+     * sur place : un index précédent encore projeté en mémoire reste lisible.
+     * Un échec d'écriture n'est pas bloquant : l'index sera reconstruit au prochain lancement.
+     *
+     * @return L'index gardé en mémoire
+     */
+    private IndexRechercheProduits enregistrerIndex(IndexRechercheProduits index, SignatureFichier signature) {
+        File fichierIndex = new File(context.getFilesDir(), FICHIER_INDEX);
+        boolean ecrit;
+        try {
+            IndexRechercheProduits aEcrire = index;
+            EcritureAtomique.ecrire(fichierIndex, sortie -> aEcrire.ecrire(new DataOutputStream(sortie), signature));
+            ecrit = true;
+        } catch (IOException e) {
+            // Le fichier précédent, s'il existe, porte la signature d'un autre catalogue : il sera ignoré
+            Log.w(TAG, "Écriture de l'index de recherche des produits impossible", e);
+            ecrit = false;
+        }
+
+        if (ecrit) {
+            try {
+                IndexRechercheProduits relu = IndexRechercheProduits.lire(fichierIndex, signature, index.getProduits());
+                if (relu != null) {
+                    index = relu;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Index de recherche des produits écrit mais illisible", e);
+            }
+        }
+
+        synchronized (ProduitStorageManager.class) {
+            indexRecherche = index;
+            signatureIndex = signature;
+        }
+        return index;
+    }
+
+    private void supprimerIndex() {
+        synchronized (ProduitStorageManager.class) {
+            indexRecherche = null;
+            signatureIndex = null;
+        }
+        try {
+            EcritureAtomique.supprimer(new File(context.getFilesDir(), FICHIER_INDEX));
+        } catch (IOException e) {
+            Log.w(TAG, "Suppression de l'index de recherche des produits impossible", e);
+        }
+    }
+
     /**
      * Vérifie si des produits sont présents dans le stockage.
      *
@@ -161,7 +516,8 @@ public class ProduitStorageManager {
      */
     public boolean hasProduits() {
         File file = new File(context.getFilesDir(), FILE_NAME);
-        return file.exists() && file.length() > 0;
+        File ancienFichier = new File(context.getFilesDir(), ANCIEN_FICHIER_JSON);
+        return (file.exists() && file.length() > 0) || (ancienFichier.exists() && ancienFichier.length() > 0);
     }
 
     /**
@@ -0,0 +1,112 @@
+package com.example.dolorders.repository;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Chargement d'un jeu de données local, exécuté hors du thread principal et partagé entre les demandes.
+ * <p>
+ * Plusieurs demandes simultanées ({@link #demander()}) ne déclenchent qu'une lecture : celles qui
+ * arrivent pendant un chargement en cours en reçoivent le résultat. Après une écriture,
+ * {@link #rafraichir()} garantit qu'une lecture commencée après l'appel sera publiée ;
+ * plusieurs rafraîchissements pendant un même chargement n'en relancent qu'un seul.
+ * Un chargement en échec est signalé ({@link Echec}) sans interrompre le thread de l'exécuteur,
+ * et n'empêche pas les demandes suivantes.
+ * <p>
+ * Cette classe ne dépend pas d'Android : l'exécuteur, la publication du résultat et le signalement
+ * des échecs sont fournis.
+ *
+ * @param <T> Type des données chargées
+ */
+public class ChargementPartage<T> {
+
+    /**
+     * Lit les données depuis le stockage (appelé sur l'exécuteur).
+     */
+    public interface Chargeur<T> {
+        T charger();
+    }
+
+    /**
+     * Reçoit le résultat d'un chargement (appelé sur l'exécuteur).
+     */
+    public interface Publication<T> {
+        void publier(T resultat);
+    }
+
+    /**
+     * Reçoit l'erreur d'un chargement en échec (appelé sur l'exécuteur).
+     */
+    public interface Echec {
+        void signaler(RuntimeException erreur);
+    }
+
+    private final Executor executeur;
+    private final Chargeur<T> chargeur;
+    private final Publication<T> publication;
+    private final Echec echec;
+
+    private boolean enCours;
+    private boolean aRelancer;
+
+    public ChargementPartage(Executor executeur, Chargeur<T> chargeur, Publication<T> publication, Echec echec) {
+        this.executeur = executeur;
+        this.chargeur = chargeur;
+        this.publication = publication;
+        this.echec = echec;
+    }
+
+    /**
+     * Demande les données : démarre un chargement, ou rejoint celui en cours.
+     */
+    public void demander() {
+        synchronized (this) {
+            if (enCours) {
+                return;
+            }
+            enCours = true;
+        }
+        executeur.execute(this::executer);
+    }
+
+    /**
+     * Demande des données relues après cet appel (le stockage vient d'être modifié).
+     * Si un chargement est en cours, un nouveau chargement le suivra.
+     */
+    public void rafraichir() {
+        synchronized (this) {
+            if (enCours) {
+                aRelancer = true;
+                return;
+            }
+            enCours = true;
+        }
+        executeur.execute(this::executer);
+    }
+
+    /**
+     * @return true si un chargement est en cours ou planifié
+     */
+    public synchronized boolean isEnCours() {
+        return enCours;
+    }
+
+    private void executer() {
+        boolean relancer;
+        do {
+            try {
+                publication.publier(chargeur.charger());
+            } catch (RuntimeException e) {
+                // Signalé sans être relancé : l'exception ne doit pas remonter dans le thread de
+                // l'exécuteur, et un rafraîchissement demandé entre-temps est quand même exécuté
+                echec.signaler(e);
+            }
+            synchronized (this) {
+                relancer = aRelancer;
+                aRelancer = false;
+                if (!relancer) {
+                    enCours = false;
+                }
+            }
+        } while (relancer);
+    }
+}
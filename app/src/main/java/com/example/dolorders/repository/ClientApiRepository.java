@@ -1,51 +1,78 @@
 package com.example.dolorders.repository;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
 
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.JsonArrayRequest;
 import com.android.volley.toolbox.StringRequest;
-import com.android.volley.toolbox.Volley;
 import com.example.dolorders.data.dto.ClientApiReponseDto;
+import com.example.dolorders.data.stockage.client.FichierPagesClients;
+import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
 import com.example.dolorders.mapper.ClientApiMapper;
 import com.example.dolorders.objet.Client;
+import com.example.dolorders.service.ServiceIdentifiants;
 import com.google.gson.Gson;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Repository pour gérer la récupération et l'envoi des clients vers l'API Dolibarr.
  * Ce repository se concentre uniquement sur l'appel API.
- * Le stockage local est géré séparément via GestionnaireStockageClient avec le fichier API_CLIENTS_FILE.
+ * Le stockage local est géré séparément via GestionnaireStockageClient avec le fichier API_CLIENTS_FILE ;
+ * seuls le fichier intermédiaire d'une synchronisation paginée en cours et l'enregistrement
+ * des clients synchronisés (voir {@link #synchroniserDepuisApi(int, ClientCallback)}) sont gérés ici.
  */
 public class ClientApiRepository {
 
     private static final String TAG = "ClientApiRepository";
-    private static final String FICHIER_CRYPTE = "secure_prefs_crypto";
     private static final String CODE_ERREUR = " (Code: ";
     private static final String LIBELLE_ACCEPT = "Accept";
     private static final String JSON_APPLICATION = "application/json";
     private static final String APIKEY = "DOLAPIKEY";
 
+    /** Nombre de clients demandés par page lors de la synchronisation */
+    public static final int TAILLE_PAGE_DEFAUT = 100;
+
+    /** Nombre maximal de pages demandées simultanément */
+    private static final int MAX_PAGES_EN_VOL = 3;
+
+    /** Fichier intermédiaire des clients reçus pendant une synchronisation paginée (un client par ligne) */
+    private static final String FICHIER_SYNC_EN_COURS = "clients_api_sync_en_cours.jsonl";
+
+    /** Ancien fichier intermédiaire, réécrit en entier à chaque page */
+    private static final String ANCIEN_FICHIER_SYNC_EN_COURS = "clients_api_sync_en_cours.json";
+
+    /** Nom du point de reprise de la synchronisation des clients */
+    private static final String REPRISE_CLIENTS = "clients";
+
+    /** Thread unique des écritures du cache API : les synchronisations y sont enregistrées dans l'ordre */
+    private static final ExecutorService EXECUTEUR_STOCKAGE = Executors.newSingleThreadExecutor(
+            tache -> new Thread(tache, "sync-clients"));
+
     private final Context context;
     private final RequestQueue requestQueue;
+    private final PolitiqueReseau politiqueReseau;
     private final Gson gson;
+    private final Handler threadPrincipal = new Handler(Looper.getMainLooper());
 
     /**
      * Interface de callback pour les opérations asynchrones (GET).
@@ -82,20 +109,48 @@ public class ClientApiRepository {
         void onError(String message);
     }
 
+    /**
+     * Interface de suivi de la création du client dans le module natif, avant l'envoi vers l'historique.
+     */
+    public interface SuiviCreationClient {
+        void onClientCree(String dolibarrId);
+    }
+
     public ClientApiRepository(Context context) {
         this.context = context.getApplicationContext();
-        this.requestQueue = Volley.newRequestQueue(context);
+        this.requestQueue = FileRequetesVolley.get(context);
+        this.politiqueReseau = PolitiqueReseau.get(context);
         this.gson = new Gson();
     }
 
     /**
-     * Synchronise les clients avec l'API Dolibarr.
-     * Cette méthode appelle uniquement l'API et retourne les clients via callback.
-     * La sauvegarde dans le cache est gérée par le ViewModel ou le fragment appelant.
+     * Synchronise les clients avec l'API Dolibarr, par pages de {@link #TAILLE_PAGE_DEFAUT} clients.
      *
      * @param callback Callback pour notifier du résultat
+     * @see #synchroniserDepuisApi(int, ClientCallback)
      */
     public void synchroniserDepuisApi(ClientCallback callback) {
+        synchroniserDepuisApi(TAILLE_PAGE_DEFAUT, callback);
+    }
+
+    /**
+     * Synchronise les clients avec l'API Dolibarr en parcourant les pages (page=0..N).
+     * Après une première synchronisation complète, seuls les tiers modifiés depuis la dernière
+     * synchronisation sont demandés (voir {@link SynchronisationDelta}) et le callback reçoit
+     * la liste du cache API fusionnée avec ces modifications.
+     * Les pages sont demandées par {@link #MAX_PAGES_EN_VOL} en parallèle et ajoutées au fil de l'eau
+     * à la fin d'un fichier intermédiaire (voir {@link FichierPagesClients}), relu une seule fois
+     * à la fin de la synchronisation. Si la synchronisation est interrompue, le prochain appel reprend
+     * après la dernière page écrite au lieu de tout recommencer.
+     * La relecture des pages, la fusion et la sauvegarde dans le cache API se font sur le thread
+     * des écritures du cache ; la date de synchronisation n'est enregistrée qu'une fois la sauvegarde
+     * réussie, pour qu'un échec ne fasse pas sauter des modifications au prochain delta.
+     *
+     * @param taillePage Nombre de clients demandés par page
+     * @param callback   Callback pour notifier du résultat (tous les clients, déjà sauvegardés dans le cache API),
+     *                   appelé sur le thread principal
+     */
+    public void synchroniserDepuisApi(int taillePage, ClientCallback callback) {
         String baseUrl = getBaseUrl();
         String apiKey = getApiKey();
 
@@ -105,32 +160,137 @@ public class ClientApiRepository {
             return;
         }
 
-        // Construction de l'URL de l'API pour les thirdparties (clients)
-        // GET /thirdparties?sortfield=t.rowid&sortorder=ASC&limit=100&properties=id,name,phone,email,address,zip,town
-        String url = baseUrl.endsWith("/")
-                ? baseUrl + "api/index.php/thirdparties?sortfield=t.rowid&sortorder=ASC&limit=100&properties=id%2Cname%2Cphone%2Cemail%2Caddress%2Czip%2Ctown"
-                : baseUrl + "/api/index.php/thirdparties?sortfield=t.rowid&sortorder=ASC&limit=100&properties=id%2Cname%2Cphone%2Cemail%2Caddress%2Czip%2Ctown";
+        GestionnaireStockageClient stockageApi = new GestionnaireStockageClient(context, GestionnaireStockageClient.API_CLIENTS_FILE);
+        HorodatageSynchronisation horodatage = new HorodatageSynchronisation(context, REPRISE_CLIENTS, baseUrl);
+
+        // Synchronisation incrémentale : seuls les tiers modifiés depuis la dernière synchronisation
+        long debut = System.currentTimeMillis();
+        long derniereSync = horodatage.getDerniereSync();
+        boolean delta = SynchronisationDelta.estDeltaPossible(
+                derniereSync, horodatage.getDerniereSyncComplete(), !stockageApi.hasStoredClients(), debut);
+
+        // Construction de l'URL de l'API pour les thirdparties (clients), sans pagination
+        // GET /thirdparties?sortfield=t.rowid&sortorder=ASC&properties=id,name,phone,email,address,zip,town[&sqlfilters=(t.tms:>:'...')]
+        String url = (baseUrl.endsWith("/")
+                ? baseUrl + "api/index.php/thirdparties?sortfield=t.rowid&sortorder=ASC&properties=id%2Cname%2Cphone%2Cemail%2Caddress%2Czip%2Ctown"
+                : baseUrl + "/api/index.php/thirdparties?sortfield=t.rowid&sortorder=ASC&properties=id%2Cname%2Cphone%2Cemail%2Caddress%2Czip%2Ctown")
+                + (delta ? "&sqlfilters=" + SynchronisationDelta.construireFiltre(derniereSync, TimeZone.getDefault()) : "");
+
+        FichierPagesClients pagesEnCours = new FichierPagesClients(new File(context.getFilesDir(), FICHIER_SYNC_EN_COURS));
+        // Le nom du fichier intermédiaire fait partie de l'empreinte : une reprise commencée
+        // avec l'ancien fichier n'est pas poursuivie dans le nouveau
+        PointDeRepriseSync pointDeReprise = new PointDeRepriseSync(context, REPRISE_CLIENTS,
+                baseUrl + "|" + taillePage + "|" + FICHIER_SYNC_EN_COURS + (delta ? "|" + derniereSync : ""));
+
+        SynchronisationPaginee<Client> synchronisation = new SynchronisationPaginee<>(
+                (page, taille, retour) -> chargerPageClients(url, apiKey, page, taille, retour),
+                (page, clients) -> pagesEnCours.ajouterPage(clients),
+                pointDeReprise,
+                taillePage,
+                MAX_PAGES_EN_VOL);
+
+        if (synchronisation.estUneReprise()) {
+            Log.d(TAG, "Reprise de la synchronisation des clients après la page " + pointDeReprise.getDernierePageTerminee());
+        } else {
+            // Nouvelle synchronisation : on repart d'un fichier intermédiaire vide
+            supprimerFichierEnCours(pagesEnCours);
+            new GestionnaireStockageClient(context, ANCIEN_FICHIER_SYNC_EN_COURS).clearClients();
+        }
+
+        synchronisation.demarrer(new SynchronisationPaginee.SynchronisationCallback() {
+            @Override
+            public void onTermine(int nbElementsRecus) {
+                EXECUTEUR_STOCKAGE.execute(() -> enregistrerClientsRecus(
+                        pagesEnCours, stockageApi, delta, horodatage, debut, surThreadPrincipal(callback)));
+            }
+
+            @Override
+            public void onErreur(String message) {
+                Log.e(TAG, "Synchronisation des clients interrompue : " + message);
+                callback.onError(message);
+            }
+        });
+    }
+
+    /**
+     * Relit les clients reçus, les fusionne avec le cache API en mode delta et les sauvegarde
+     * (sur le thread des écritures du cache). La date de synchronisation est enregistrée après la sauvegarde.
+     */
+    private void enregistrerClientsRecus(FichierPagesClients pagesEnCours, GestionnaireStockageClient stockageApi,
+                                         boolean delta, HorodatageSynchronisation horodatage, long debut,
+                                         ClientCallback callback) {
+        List<Client> clientsRecus;
+        try {
+            clientsRecus = pagesEnCours.lireClients();
+        } catch (IOException e) {
+            Log.e(TAG, "Lecture du fichier " + FICHIER_SYNC_EN_COURS + " impossible", e);
+            callback.onError("Erreur de lecture des clients reçus : " + e.getMessage());
+            return;
+        }
+        supprimerFichierEnCours(pagesEnCours);
+
+        // En mode delta, les tiers modifiés remplacent ceux du cache (fusion par ID)
+        List<Client> clients = delta
+                ? SynchronisationDelta.fusionner(stockageApi.loadClients(), clientsRecus, Client::getId)
+                : clientsRecus;
+
+        if (!stockageApi.saveClients(clients)) {
+            Log.e(TAG, "Échec de la sauvegarde des clients synchronisés");
+            callback.onError("Erreur de stockage des clients synchronisés");
+            return;
+        }
+        horodatage.enregistrer(debut, !delta);
+
+        Log.d(TAG, "Clients récupérés depuis l'API : " + clientsRecus.size()
+                + (delta ? " modifiés, " + clients.size() + " au total" : ""));
+        callback.onSuccess(clients);
+    }
+
+    /**
+     * Enveloppe un callback pour qu'il soit appelé sur le thread principal.
+     */
+    private ClientCallback surThreadPrincipal(ClientCallback callback) {
+        return new ClientCallback() {
+            @Override
+            public void onSuccess(List<Client> clients) {
+                threadPrincipal.post(() -> callback.onSuccess(clients));
+            }
+
+            @Override
+            public void onError(String message) {
+                threadPrincipal.post(() -> callback.onError(message));
+            }
+        };
+    }
 
-        Log.d(TAG, "Récupération des clients depuis l'API : " + url);
+    /**
+     * Récupère une page de clients.
+     * Une réponse 404 est traitée comme une page vide : selon les versions, Dolibarr répond 404
+     * lorsqu'il n'y a plus de tiers à retourner.
+     */
+    private void chargerPageClients(String url, String apiKey, int page, int taillePage,
+                                    SynchronisationPaginee.RetourPage<Client> retour) {
+        String urlPage = url + "&limit=" + taillePage + "&page=" + page;
+        Log.d(TAG, "Récupération des clients depuis l'API : " + urlPage);
 
-        // Requête Volley
         JsonArrayRequest request = new JsonArrayRequest(
                 Request.Method.GET,
-                url,
+                urlPage,
                 null,
                 response -> {
                     try {
-                        List<Client> clients = parseJsonResponse(response);
-
-                        Log.d(TAG, "Clients récupérés depuis l'API : " + clients.size());
-                        callback.onSuccess(clients);
-
+                        retour.onPage(parseJsonResponse(response));
                     } catch (Exception e) {
                         Log.e(TAG, "Erreur lors du parsing JSON", e);
-                        callback.onError("Erreur de traitement des données : " + e.getMessage());
+                        retour.onErreur("Erreur de traitement des données : " + e.getMessage());
                     }
                 },
                 error -> {
+                    if (error.networkResponse != null && error.networkResponse.statusCode == 404) {
+                        retour.onPage(new ArrayList<>());
+                        return;
+                    }
+
                     String errorMessage = "Erreur API";
                     if (error.networkResponse != null) {
                         errorMessage += CODE_ERREUR + error.networkResponse.statusCode + ")";
@@ -139,8 +299,8 @@ public class ClientApiRepository {
                         errorMessage += " - " + error.getMessage();
                     }
 
-                    Log.e(TAG, "Erreur lors de la requête API", error);
-                    callback.onError(errorMessage);
+                    Log.e(TAG, "Erreur lors de la requête API (page " + page + ")", error);
+                    retour.onErreur(errorMessage);
                 }
         ) {
             @Override
@@ -152,9 +312,22 @@ public class ClientApiRepository {
             }
         };
 
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_LECTURE);
         requestQueue.add(request);
     }
 
+    /**
+     * Supprime le fichier intermédiaire ; un échec est seulement journalisé (le fichier sera
+     * supprimé au début de la prochaine synchronisation).
+     */
+    private void supprimerFichierEnCours(FichierPagesClients pagesEnCours) {
+        try {
+            pagesEnCours.supprimer();
+        } catch (IOException e) {
+            Log.w(TAG, "Suppression du fichier " + FICHIER_SYNC_EN_COURS + " impossible", e);
+        }
+    }
+
     /**
      * Parse la réponse JSON de l'API en liste de Clients.
      */
@@ -180,24 +353,41 @@ public class ClientApiRepository {
     /**
      * Envoie un client local vers Dolibarr.
      * POST /thirdparties
+     * <p>
+     * Reprend une tentative précédente : si le client a déjà été créé dans le module natif
+     * (ID Dolibarr connu), seul l'historique est envoyé. Sinon le client est créé avec sa clé dans
+     * "ref_ext" via {@link EnvoiIdempotent} (vérification avant toute nouvelle création), et son ID
+     * est transmis au suivi avant l'envoi vers l'historique.
      *
-     * @param client   Client local à envoyer (sans ID Dolibarr)
-     * @param callback Callback pour notifier du résultat
+     * @param client          Client local à envoyer
+     * @param dolibarrIdConnu ID Dolibarr obtenu lors d'une tentative précédente, ou null
+     * @param cleIdempotence  Clé du client (voir {@link EnvoiIdempotent})
+     * @param dejaTente       true si une création a déjà pu partir avec cette clé
+     * @param suivi           Suivi de la création dans le module natif
+     * @param callback        Callback pour notifier du résultat
      */
-    public void envoyerClient(Client client, ClientEnvoiCallback callback) {
+    public void envoyerClient(Client client, String dolibarrIdConnu, String cleIdempotence, boolean dejaTente,
+                              SuiviCreationClient suivi, ClientEnvoiCallback callback) {
+        if (dolibarrIdConnu != null) {
+            Log.d(TAG, "Client " + client.getNom() + " déjà créé dans Dolibarr (ID: " + dolibarrIdConnu
+                    + "), envoi de l'historique uniquement");
+            envoyerHistoriqueClientCree(client, dolibarrIdConnu, getUsername(), callback);
+            return;
+        }
+
         // D'abord récupérer l'ID utilisateur
         recupererIdUtilisateur(new UserIdCallback() {
             @Override
             public void onSuccess(String userId) {
                 // Une fois l'ID récupéré, envoyer le client
-                envoyerClientAvecUserId(client, userId, callback);
+                envoyerClientAvecUserId(client, userId, cleIdempotence, dejaTente, suivi, callback);
             }
 
             @Override
             public void onError(String message) {
                 Log.w(TAG, "Impossible de récupérer l'ID utilisateur: " + message);
                 // Utiliser un ID par défaut (-1) si échec
-                envoyerClientAvecUserId(client, "-1", callback);
+                envoyerClientAvecUserId(client, "-1", cleIdempotence, dejaTente, suivi, callback);
             }
         });
     }
@@ -205,7 +395,8 @@ public class ClientApiRepository {
     /**
      * Envoie un client vers Dolibarr avec l'ID utilisateur fourni.
      */
-    private void envoyerClientAvecUserId(Client client, String userId, ClientEnvoiCallback callback) {
+    private void envoyerClientAvecUserId(Client client, String userId, String cleIdempotence, boolean dejaTente,
+                                         SuiviCreationClient suivi, ClientEnvoiCallback callback) {
         String baseUrl = getBaseUrl();
         String apiKey = getApiKey();
 
@@ -221,97 +412,166 @@ public class ClientApiRepository {
 
         Log.d(TAG, "Envoi du client vers Dolibarr : " + client.getNom() + " (userId: " + userId + ")");
 
+        final String jsonBodyString;
         try {
-            final String jsonBodyString = creerJsonClient(client, userId).toString();
-            final String username = getUsername(); // Récupérer le username pour l'historique
+            jsonBodyString = creerJsonClient(client, userId, cleIdempotence).toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur création requête POST", e);
+            callback.onError("Erreur création requête: " + e.getMessage());
+            return;
+        }
+        final String username = getUsername(); // Récupérer le username pour l'historique
 
-            StringRequest request = new StringRequest(
-                    Request.Method.POST,
-                    url,
-                    response -> {
-                        try {
-                            // La réponse de Dolibarr peut être juste un nombre (ex: "4") ou un objet JSON
-                            Log.d(TAG, "Réponse brute de l'API: " + response);
+        EnvoiIdempotent envoi = new EnvoiIdempotent(new EnvoiIdempotent.Transport() {
+            @Override
+            public void creer(String cle, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+                posterClient(url, apiKey, jsonBodyString, reponse);
+            }
 
-                            String dolibarrId;
-                            response = response.trim();
+            @Override
+            public void rechercher(String filtre, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+                Log.d(TAG, "Vérification du client " + client.getNom() + " dans Dolibarr avant nouvel envoi");
+                rechercherClients(url + "?limit=1&sqlfilters=" + filtre, apiKey, reponse);
+            }
+        });
 
-                            // Si la réponse commence par {, c'est un objet JSON
-                            if (response.startsWith("{")) {
-                                JSONObject jsonResponse = new JSONObject(response);
-                                dolibarrId = jsonResponse.getString("id");
-                            } else {
-                                // Sinon c'est juste l'ID (nombre)
-                                dolibarrId = response;
-                            }
+        envoi.envoyer(cleIdempotence, dejaTente, new EnvoiIdempotent.RetourCreation() {
+            @Override
+            public void onCree(String dolibarrId, boolean retrouve) {
+                if (retrouve) {
+                    Log.d(TAG, "✅ Client déjà créé dans Dolibarr (envoi précédent sans réponse). ID Dolibarr: " + dolibarrId);
+                } else {
+                    Log.d(TAG, "✅ Client envoyé avec succès dans le module natif. ID Dolibarr: " + dolibarrId);
+                }
+                suivi.onClientCree(dolibarrId);
 
-                            Log.d(TAG, "✅ Client envoyé avec succès dans le module natif. ID Dolibarr: " + dolibarrId);
-
-                            // Maintenant envoyer vers le module d'historique
-                            envoyerVersHistorique(client, dolibarrId, username, new ClientEnvoiCallback() {
-                                @Override
-                                public void onSuccess(String historiqueId) {
-                                    Log.d(TAG, "✅ Client enregistré dans l'historique. ID: " + historiqueId);
-                                    // ✅ Historique OK → on peut supprimer le client local
-                                    callback.onSuccess(dolibarrId);
-                                }
-
-                                @Override
-                                public void onError(String message) {
-                                    Log.w(TAG, "⚠️ Erreur enregistrement historique: " + message);
-                                    // ❌ Historique échoué → on garde le client en local pour permettre une nouvelle tentative
-                                    callback.onError("Client créé dans Dolibarr mais échec historique: " + message);
-                                }
-                            });
+                // Maintenant envoyer vers le module d'historique
+                envoyerHistoriqueClientCree(client, dolibarrId, username, callback);
+            }
 
-                        } catch (Exception e) {
-                            Log.e(TAG, "Erreur parsing réponse Dolibarr", e);
-                            callback.onError("Erreur parsing réponse: " + e.getMessage());
-                        }
-                    },
-                    error -> {
-                        String errorMsg = "Erreur envoi client";
-                        if (error.networkResponse != null) {
-                            errorMsg += CODE_ERREUR + error.networkResponse.statusCode + ")";
-                            if (error.networkResponse.data != null) {
-                                String body = new String(error.networkResponse.data);
-                                Log.e(TAG, "Réponse serveur: " + body);
-                            }
+            @Override
+            public void onErreur(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+
+    /**
+     * POST /thirdparties. Pas de nouvelle tentative automatique de Volley : un renvoi à l'aveugle
+     * pourrait créer le client en double (voir {@link EnvoiIdempotent}).
+     */
+    private void posterClient(String url, String apiKey, String jsonBodyString,
+                              EnvoiHistoriqueParLot.ReponseHttp reponse) {
+        StringRequest request = new StringRequest(
+                Request.Method.POST,
+                url,
+                response -> {
+                    // La réponse de Dolibarr peut être juste un nombre (ex: "4") ou un objet JSON
+                    Log.d(TAG, "Réponse brute de l'API: " + response);
+                    reponse.onSucces(response);
+                },
+                error -> {
+                    String errorMsg = "Erreur envoi client";
+                    int code = 0;
+                    if (error.networkResponse != null) {
+                        code = error.networkResponse.statusCode;
+                        errorMsg += CODE_ERREUR + code + ")";
+                        if (error.networkResponse.data != null) {
+                            String body = new String(error.networkResponse.data);
+                            Log.e(TAG, "Réponse serveur: " + body);
                         }
-                        Log.e(TAG, errorMsg, error);
-                        callback.onError(errorMsg);
+                    } else {
+                        errorMsg += " - pas de connexion au serveur (" + error.getClass().getSimpleName() + ")";
                     }
-            ) {
-                @Override
-                public Map<String, String> getHeaders() {
-                    Map<String, String> headers = new HashMap<>();
-                    headers.put(APIKEY, apiKey);
-                    headers.put("Content-Type", JSON_APPLICATION);
-                    headers.put(LIBELLE_ACCEPT, JSON_APPLICATION);
-                    return headers;
+                    Log.e(TAG, errorMsg, error);
+                    reponse.onErreur(code, errorMsg);
                 }
+        ) {
+            @Override
+            public Map<String, String> getHeaders() {
+                Map<String, String> headers = new HashMap<>();
+                headers.put(APIKEY, apiKey);
+                headers.put("Content-Type", JSON_APPLICATION);
+                headers.put(LIBELLE_ACCEPT, JSON_APPLICATION);
+                return headers;
+            }
 
-                @Override
-                public byte[] getBody() {
-                    return jsonBodyString.getBytes();
+            @Override
+            public byte[] getBody() {
+                return jsonBodyString.getBytes();
+            }
+        };
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_CREATION);
+        requestQueue.add(request);
+    }
+
+    /**
+     * GET /thirdparties filtré par ref_ext (recherche d'un client par sa clé).
+     * Dolibarr répond 404 quand aucun client ne correspond.
+     */
+    private void rechercherClients(String url, String apiKey, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+        StringRequest request = new StringRequest(
+                Request.Method.GET,
+                url,
+                reponse::onSucces,
+                error -> {
+                    int code = error.networkResponse != null ? error.networkResponse.statusCode : 0;
+                    String errorMsg = "Erreur vérification client"
+                            + (code != 0 ? CODE_ERREUR + code + ")" : " - pas de connexion au serveur ("
+                            + error.getClass().getSimpleName() + ")");
+                    if (code != 404) {
+                        Log.e(TAG, errorMsg, error);
+                    }
+                    reponse.onErreur(code, errorMsg);
                 }
-            };
+        ) {
+            @Override
+            public Map<String, String> getHeaders() {
+                Map<String, String> headers = new HashMap<>();
+                headers.put(APIKEY, apiKey);
+                headers.put(LIBELLE_ACCEPT, JSON_APPLICATION);
+                return headers;
+            }
+        };
+        request.setShouldCache(false);
 
-            requestQueue.add(request);
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_LECTURE);
+        requestQueue.add(request);
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Erreur création requête POST", e);
-            callback.onError("Erreur création requête: " + e.getMessage());
-        }
+    /**
+     * Envoie vers l'historique un client déjà créé dans le module natif.
+     * Le callback reçoit l'ID Dolibarr du client en cas de succès.
+     */
+    private void envoyerHistoriqueClientCree(Client client, String dolibarrId, String username,
+                                             ClientEnvoiCallback callback) {
+        envoyerVersHistorique(client, dolibarrId, username, new ClientEnvoiCallback() {
+            @Override
+            public void onSuccess(String historiqueId) {
+                Log.d(TAG, "✅ Client enregistré dans l'historique. ID: " + historiqueId);
+                // ✅ Historique OK → on peut supprimer le client local
+                callback.onSuccess(dolibarrId);
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.w(TAG, "⚠️ Erreur enregistrement historique: " + message);
+                // ❌ Historique échoué → on garde le client en local pour permettre une nouvelle tentative
+                callback.onError("Client créé dans Dolibarr mais échec historique: " + message);
+            }
+        });
     }
 
     /**
      * Crée le JSON pour envoyer un client vers Dolibarr.
      * NE PAS INCLURE l'ID local - Dolibarr génère son propre ID.
      */
-    private JSONObject creerJsonClient(Client client, String userId) throws JSONException {
+    private JSONObject creerJsonClient(Client client, String userId, String cleIdempotence) throws JSONException {
         JSONObject json = new JSONObject();
 
+        // Clé du client, pour le retrouver si la réponse à la création se perd
+        json.put("ref_ext", cleIdempotence);
+
        json.put("name", client.getNom());
 
 
@@ -344,75 +604,24 @@ public class ClientApiRepository {
     }
 
     /**
-     * Récupère l'URL de base depuis les SharedPreferences cryptées.
+     * Récupère l'URL de base depuis les identifiants de session.
      */
     private String getBaseUrl() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    FICHIER_CRYPTE,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("base_url", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de l'URL", e);
-            return null;
-        }
+        return ServiceIdentifiants.getBaseUrl(context);
     }
 
     /**
-     * Récupère la clé API depuis les SharedPreferences cryptées.
+     * Récupère la clé API depuis les identifiants de session.
      */
     private String getApiKey() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    FICHIER_CRYPTE,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("api_key", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de la clé API", e);
-            return null;
-        }
+        return ServiceIdentifiants.getApiKey(context);
     }
 
     /**
-     * Récupère le nom d'utilisateur depuis les SharedPreferences cryptées.
+     * Récupère le nom d'utilisateur depuis les identifiants de session.
      */
     private String getUsername() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    FICHIER_CRYPTE,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("username", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération du username", e);
-            return null;
-        }
+        return ServiceIdentifiants.getUsername(context);
     }
 
     /**
@@ -488,6 +697,7 @@ public class ClientApiRepository {
                 }
             };
 
+            politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_ENVOI);
             requestQueue.add(request);
 
         } catch (Exception e) {
@@ -670,6 +880,7 @@ public class ClientApiRepository {
                 }
             };
 
+            politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_ENVOI);
             requestQueue.add(request);
 
         } catch (Exception e) {
@@ -734,6 +945,7 @@ public class ClientApiRepository {
             }
         };
 
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_LECTURE);
         requestQueue.add(request);
     }
 }
@@ -3,33 +3,35 @@ package com.example.dolorders.repository;
 import android.content.Context;
 import android.util.Log;
 
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
 
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.StringRequest;
-import com.android.volley.toolbox.Volley;
 import com.example.dolorders.objet.Commande;
 import com.example.dolorders.objet.LigneCommande;
+import com.example.dolorders.service.ServiceIdentifiants;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Repository pour gérer l'envoi des commandes vers Dolibarr.
  * - POST /orders : Module natif Dolibarr (commandes avec lignes)
- * - POST /dolordersapi/fournisseurss : Module d'historique (ligne par ligne)
+ * - POST /dolordersapi/fournisseurss/batch : Module d'historique (toutes les lignes d'une commande)
+ * - POST /dolordersapi/fournisseurss : Module d'historique (ligne par ligne, si le lot est refusé)
  * <p>
  * Flux d'envoi :
  * 1. Envoyer vers le module natif → récupérer l'ID de la commande Dolibarr
- * 2. Envoyer vers l'historique avec l'ID de la commande Dolibarr
+ * 2. Envoyer vers l'historique avec l'ID de la commande Dolibarr (lignes envoyées en parallèle)
  */
 public class CommandeApiRepository {
 
@@ -37,11 +39,15 @@ public class CommandeApiRepository {
 
     private final Context context;
     private final RequestQueue requestQueue;
+    private final PolitiqueReseau politiqueReseau;
+    private final EnvoiHistoriqueParLot envoiParLot;
     private static final String JSON_APPLICATION = "application/json";
 
     private static final String UNKNOWN_LIBELLE = "Unknown";
 
-    private static final String FICHIER_CRYPTE = "secure_prefs_crypto";
+
+    /** Nombre maximal de lignes d'une commande envoyées simultanément vers l'historique */
+    private static final int MAX_LIGNES_EN_PARALLELE = 4;
 
     /**
      * Interface de callback pour l'envoi d'une ligne de commande vers l'historique.
@@ -61,9 +67,26 @@ public class CommandeApiRepository {
         void onError(String message);
     }
 
+    /**
+     * Accusé de réception des lignes acceptées par l'historique, pour qu'une nouvelle tentative
+     * ne renvoie que les lignes restantes.
+     */
+    public interface AccuseLignes {
+        /**
+         * @param positions Positions des lignes acceptées dans la commande
+         */
+        void onLignesEnvoyees(List<Integer> positions);
+    }
+
+    /** Accusé de réception ignoré (envoi sans reprise) */
+    private static final AccuseLignes SANS_ACCUSE = positions -> {
+    };
+
     public CommandeApiRepository(Context context) {
         this.context = context.getApplicationContext();
-        this.requestQueue = Volley.newRequestQueue(context);
+        this.requestQueue = FileRequetesVolley.get(context);
+        this.politiqueReseau = PolitiqueReseau.get(context);
+        this.envoiParLot = new EnvoiHistoriqueParLot(this::posterLotHistorique);
     }
 
     /**
@@ -75,6 +98,7 @@ public class CommandeApiRepository {
      * "socid": id_client,
      * "date": timestamp,
      * "type": 0,
+     * "ref_ext": cle_idempotence,
      * "lines": [
      * {
      * "fk_product": id_produit,
@@ -85,11 +109,17 @@ public class CommandeApiRepository {
      * }
      * ]
      * }
+     * <p>
+     * La commande porte sa clé dans "ref_ext" : la création passe par {@link EnvoiIdempotent},
+     * qui vérifie si une création restée sans réponse a abouti avant de la refaire.
      *
-     * @param commande Commande à envoyer
-     * @param callback Callback pour notifier du résultat (retourne l'ID de la commande Dolibarr)
+     * @param commande       Commande à envoyer
+     * @param cleIdempotence Clé de la commande (voir {@link EnvoiIdempotent})
+     * @param dejaTente      true si une création a déjà pu partir avec cette clé
+     * @param callback       Callback pour notifier du résultat (retourne l'ID de la commande Dolibarr)
      */
-    public void envoyerCommandeVersModuleNatif(Commande commande, CommandeNativeEnvoiCallback callback) {
+    public void envoyerCommandeVersModuleNatif(Commande commande, String cleIdempotence, boolean dejaTente,
+                                               CommandeNativeEnvoiCallback callback) {
         if (commande.getLignesCommande() == null || commande.getLignesCommande().isEmpty()) {
             callback.onError("La commande ne contient aucune ligne");
             return;
@@ -107,73 +137,129 @@ public class CommandeApiRepository {
                 ? baseUrl + "api/index.php/orders"
                 : baseUrl + "/api/index.php/orders";
 
+        final String jsonBodyString;
         try {
-            final String jsonBodyString = creerJsonCommandeNative(commande).toString();
+            jsonBodyString = creerJsonCommandeNative(commande, cleIdempotence).toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur création requête module natif", e);
+            callback.onError("Erreur création requête: " + e.getMessage());
+            return;
+        }
 
-            Log.d(TAG, "Envoi commande vers module natif: " + jsonBodyString);
+        Log.d(TAG, "Envoi commande vers module natif: " + jsonBodyString);
 
-            StringRequest request = new StringRequest(
-                    Request.Method.POST,
-                    url,
-                    response -> {
-                        try {
-                            Log.d(TAG, "Réponse module natif: " + response);
+        EnvoiIdempotent envoi = new EnvoiIdempotent(new EnvoiIdempotent.Transport() {
+            @Override
+            public void creer(String cle, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+                posterCommandeNative(url, apiKey, jsonBodyString, reponse);
+            }
 
-                            // Extraire l'ID de la commande Dolibarr
-                            String dolibarrCommandeId;
-                            response = response.trim();
+            @Override
+            public void rechercher(String filtre, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+                Log.d(TAG, "Vérification de la commande " + cleIdempotence + " dans Dolibarr avant nouvel envoi");
+                rechercherCommandes(url + "?limit=1&sqlfilters=" + filtre, apiKey, reponse);
+            }
+        });
 
-                            if (response.startsWith("{")) {
-                                // Réponse JSON
-                                JSONObject jsonResponse = new JSONObject(response);
-                                dolibarrCommandeId = jsonResponse.has("id") ? jsonResponse.getString("id") : response;
-                            } else {
-                                // Réponse simple (juste l'ID)
-                                dolibarrCommandeId = response;
-                            }
+        envoi.envoyer(cleIdempotence, dejaTente, new EnvoiIdempotent.RetourCreation() {
+            @Override
+            public void onCree(String dolibarrCommandeId, boolean retrouve) {
+                if (retrouve) {
+                    Log.d(TAG, "✅ Commande déjà créée dans Dolibarr (envoi précédent sans réponse). ID: " + dolibarrCommandeId);
+                } else {
+                    Log.d(TAG, "✅ Commande créée dans Dolibarr. ID: " + dolibarrCommandeId);
+                }
+                callback.onSuccess(dolibarrCommandeId);
+            }
 
-                            Log.d(TAG, "✅ Commande créée dans Dolibarr. ID: " + dolibarrCommandeId);
-                            callback.onSuccess(dolibarrCommandeId);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Erreur parsing réponse module natif", e);
-                            callback.onError("Erreur parsing: " + e.getMessage());
-                        }
-                    },
-                    error -> {
-                        String errorMsg = "Erreur envoi module natif";
-                        if (error.networkResponse != null) {
-                            errorMsg += " (Code: " + error.networkResponse.statusCode + ")";
-                            if (error.networkResponse.data != null) {
-                                String body = new String(error.networkResponse.data);
-                                Log.e(TAG, "Réponse serveur module natif: " + body);
-                                errorMsg += " - " + body;
-                            }
+            @Override
+            public void onErreur(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+
+    /**
+     * POST /orders. Pas de nouvelle tentative automatique de Volley : un renvoi à l'aveugle
+     * pourrait créer la commande en double (voir {@link EnvoiIdempotent}).
+     */
+    private void posterCommandeNative(String url, String apiKey, String jsonBodyString,
+                                      EnvoiHistoriqueParLot.ReponseHttp reponse) {
+        StringRequest request = new StringRequest(
+                Request.Method.POST,
+                url,
+                response -> {
+                    Log.d(TAG, "Réponse module natif: " + response);
+                    reponse.onSucces(response);
+                },
+                error -> {
+                    String errorMsg = "Erreur envoi module natif";
+                    int code = 0;
+                    if (error.networkResponse != null) {
+                        code = error.networkResponse.statusCode;
+                        errorMsg += " (Code: " + code + ")";
+                        if (error.networkResponse.data != null) {
+                            String body = new String(error.networkResponse.data);
+                            Log.e(TAG, "Réponse serveur module natif: " + body);
+                            errorMsg += " - " + body;
                         }
-                        Log.e(TAG, errorMsg, error);
-                        callback.onError(errorMsg);
+                    } else {
+                        errorMsg += " - pas de connexion au serveur (" + error.getClass().getSimpleName() + ")";
                     }
-            ) {
-                @Override
-                public Map<String, String> getHeaders() {
-                    Map<String, String> headers = new HashMap<>();
-                    headers.put("DOLAPIKEY", apiKey);
-                    headers.put("Content-Type", JSON_APPLICATION);
-                    headers.put("Accept", JSON_APPLICATION);
-                    return headers;
+                    Log.e(TAG, errorMsg, error);
+                    reponse.onErreur(code, errorMsg);
                 }
+        ) {
+            @Override
+            public Map<String, String> getHeaders() {
+                Map<String, String> headers = new HashMap<>();
+                headers.put("DOLAPIKEY", apiKey);
+                headers.put("Content-Type", JSON_APPLICATION);
+                headers.put("Accept", JSON_APPLICATION);
+                return headers;
+            }
 
-                @Override
-                public byte[] getBody() {
-                    return jsonBodyString.getBytes();
-                }
-            };
+            @Override
+            public byte[] getBody() {
+                return jsonBodyString.getBytes();
+            }
+        };
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_CREATION);
+        requestQueue.add(request);
+    }
 
-            requestQueue.add(request);
+    /**
+     * GET /orders filtré par ref_ext (recherche d'une commande par sa clé).
+     * Dolibarr répond 404 quand aucune commande ne correspond.
+     */
+    private void rechercherCommandes(String url, String apiKey, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+        StringRequest request = new StringRequest(
+                Request.Method.GET,
+                url,
+                reponse::onSucces,
+                error -> {
+                    int code = error.networkResponse != null ? error.networkResponse.statusCode : 0;
+                    String errorMsg = "Erreur vérification commande"
+                            + (code != 0 ? " (Code: " + code + ")" : " - pas de connexion au serveur ("
+                            + error.getClass().getSimpleName() + ")");
+                    if (code != 404) {
+                        Log.e(TAG, errorMsg, error);
+                    }
+                    reponse.onErreur(code, errorMsg);
+                }
+        ) {
+            @Override
+            public Map<String, String> getHeaders() {
+                Map<String, String> headers = new HashMap<>();
+                headers.put("DOLAPIKEY", apiKey);
+                headers.put("Accept", JSON_APPLICATION);
+                return headers;
+            }
+        };
+        request.setShouldCache(false);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Erreur création requête module natif", e);
-            callback.onError("Erreur création requête: " + e.getMessage());
-        }
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_LECTURE);
+        requestQueue.add(request);
     }
 
     /**
@@ -184,6 +270,7 @@ public class CommandeApiRepository {
      * "socid": id_client,
      * "date": timestamp,
      * "type": 0,
+     * "ref_ext": cle_idempotence,
      * "lines": [
      * {
      * "fk_product": id_produit,
@@ -195,9 +282,12 @@ public class CommandeApiRepository {
      * ]
      * }
      */
-    private JSONObject creerJsonCommandeNative(Commande commande) throws JSONException {
+    private JSONObject creerJsonCommandeNative(Commande commande, String cleIdempotence) throws JSONException {
         JSONObject json = new JSONObject();
 
+        // Clé de la commande, pour la retrouver si la réponse à la création se perd
+        json.put("ref_ext", cleIdempotence);
+
         // ID du client (socid)
         String idClient = commande.getClient() != null ? commande.getClient().getId() : null;
         if (idClient == null) {
@@ -255,22 +345,56 @@ public class CommandeApiRepository {
      * @param callback           Callback pour notifier du résultat
      */
     public void envoyerCommandeVersHistoriqueAvecId(Commande commande, String dolibarrCommandeId, CommandeEnvoiCallback callback) {
+        envoyerCommandeVersHistoriqueAvecId(commande, dolibarrCommandeId, Collections.emptySet(), SANS_ACCUSE, callback);
+    }
+
+    /**
+     * Envoie vers l'historique les lignes d'une commande qui n'y sont pas encore, avec l'ID Dolibarr.
+     * Chaque ligne acceptée est signalée à l'accusé de réception ; sans ligne restante, l'envoi réussit
+     * sans requête.
+     *
+     * @param commande           Commande à envoyer
+     * @param dolibarrCommandeId ID de la commande dans Dolibarr
+     * @param lignesDejaEnvoyees Positions des lignes acceptées lors d'une tentative précédente
+     * @param accuse             Accusé de réception des lignes acceptées
+     * @param callback           Callback pour notifier du résultat
+     */
+    public void envoyerCommandeVersHistoriqueAvecId(Commande commande, String dolibarrCommandeId,
+                                                    Set<Integer> lignesDejaEnvoyees, AccuseLignes accuse,
+                                                    CommandeEnvoiCallback callback) {
         if (commande.getLignesCommande() == null || commande.getLignesCommande().isEmpty()) {
             callback.onError("La commande ne contient aucune ligne");
             return;
         }
 
+        List<Integer> restantes = lignesRestantes(commande, lignesDejaEnvoyees);
+        if (restantes.isEmpty()) {
+            Log.d(TAG, "Toutes les lignes sont déjà dans l'historique (ID Dolibarr: " + dolibarrCommandeId + ")");
+            callback.onSuccess("all_lines_sent");
+            return;
+        }
+
         String username = getUsername();
 
         Log.d(TAG, "Début envoi commande vers historique avec ID Dolibarr: " + dolibarrCommandeId +
-                " (" + commande.getLignesCommande().size() + " lignes)");
+                " (" + restantes.size() + "/" + commande.getLignesCommande().size() + " lignes)");
 
-        // ✅ NOUVEAU : Utiliser un compteur d'erreurs pour traquer les échecs
-        final int[] erreurCount = {0};
-        final int totalLignes = commande.getLignesCommande().size();
+        List<String> corpsLignes = new ArrayList<>();
+        try {
+            for (int position : restantes) {
+                LigneCommande ligne = commande.getLignesCommande().get(position);
+                corpsLignes.add(creerJsonLigneCommandeAvecId(commande, ligne, dolibarrCommandeId, username).toString());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur création lot historique commande", e);
+            callback.onError("Erreur création requête: " + e.getMessage());
+            return;
+        }
 
-        // Envoyer chaque ligne de commande séparément avec l'ID Dolibarr
-        envoyerLigneRecursiveAvecIdEtCompteur(commande, dolibarrCommandeId, 0, username, erreurCount, totalLignes, callback);
+        // Envoyer toutes les lignes en un lot, ou chaque ligne séparément si le lot est refusé
+        envoyerLignesParLot(commande, restantes, corpsLignes, "all_lines_sent",
+                (ligne, ligneCallback) -> envoyerLigneVersHistoriqueAvecId(commande, ligne, dolibarrCommandeId, username, ligneCallback),
+                accuse, callback);
     }
 
     /**
@@ -282,110 +406,226 @@ public class CommandeApiRepository {
      * @param callback Callback pour notifier du résultat
      */
     public void envoyerCommandeVersHistoriqueSansId(Commande commande, CommandeEnvoiCallback callback) {
+        envoyerCommandeVersHistoriqueSansId(commande, Collections.emptySet(), SANS_ACCUSE, callback);
+    }
+
+    /**
+     * Envoie vers l'historique, SANS ID Dolibarr, les lignes d'une commande qui n'y sont pas encore
+     * (voir {@link #envoyerCommandeVersHistoriqueAvecId(Commande, String, Set, AccuseLignes, CommandeEnvoiCallback)}).
+     *
+     * @param commande           Commande à enregistrer dans l'historique
+     * @param lignesDejaEnvoyees Positions des lignes acceptées lors d'une tentative précédente
+     * @param accuse             Accusé de réception des lignes acceptées
+     * @param callback           Callback pour notifier du résultat
+     */
+    public void envoyerCommandeVersHistoriqueSansId(Commande commande, Set<Integer> lignesDejaEnvoyees,
+                                                    AccuseLignes accuse, CommandeEnvoiCallback callback) {
         if (commande.getLignesCommande() == null || commande.getLignesCommande().isEmpty()) {
             callback.onError("La commande ne contient aucune ligne");
             return;
         }
 
+        List<Integer> restantes = lignesRestantes(commande, lignesDejaEnvoyees);
+        if (restantes.isEmpty()) {
+            Log.d(TAG, "Toutes les lignes sont déjà dans l'historique (update_date=Non)");
+            callback.onSuccess("all_lines_sent_without_id");
+            return;
+        }
+
         String username = getUsername();
 
         Log.d(TAG, "Envoi commande vers historique SANS ID Dolibarr (update_date=Non) - " +
-                commande.getLignesCommande().size() + " ligne(s)");
+                restantes.size() + "/" + commande.getLignesCommande().size() + " ligne(s)");
 
-        // ✅ NOUVEAU : Utiliser un compteur d'erreurs pour traquer les échecs
-        final int[] erreurCount = {0};
-        final int totalLignes = commande.getLignesCommande().size();
+        List<String> corpsLignes = new ArrayList<>();
+        try {
+            for (int position : restantes) {
+                LigneCommande ligne = commande.getLignesCommande().get(position);
+                corpsLignes.add(creerJsonLigneCommandeSansId(commande, ligne, username).toString());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur création lot historique commande (update_date=Non)", e);
+            callback.onError("Erreur création requête: " + e.getMessage());
+            return;
+        }
 
-        // Envoyer chaque ligne avec idcommande="0" et update_date="Non"
-        envoyerLigneRecursiveSansIdAvecCompteur(commande, 0, username, erreurCount, totalLignes, callback);
+        // Envoyer toutes les lignes avec idcommande="0" et update_date="Non", en lot ou une par une
+        envoyerLignesParLot(commande, restantes, corpsLignes, "all_lines_sent_without_id",
+                (ligne, ligneCallback) -> envoyerLigneVersHistoriqueSansId(commande, ligne, username, ligneCallback),
+                accuse, callback);
     }
 
     /**
-     * Envoie les lignes de commande vers l'historique avec l'ID Dolibarr (avec compteur d'erreurs).
+     * @return Positions des lignes de la commande absentes de {@code lignesDejaEnvoyees}, dans l'ordre
      */
-    private void envoyerLigneRecursiveAvecIdEtCompteur(Commande commande, String dolibarrCommandeId, int index,
-                                                       String username, int[] erreurCount, int totalLignes,
-                                                       CommandeEnvoiCallback callback) {
-        if (index >= commande.getLignesCommande().size()) {
-            // Toutes les lignes ont été traitées
-            if (erreurCount[0] > 0) {
-                // ❌ Au moins une ligne a échoué
-                Log.e(TAG, "❌ Échec envoi historique : " + erreurCount[0] + "/" + totalLignes + " ligne(s) en erreur");
-                callback.onError("Échec envoi historique (" + erreurCount[0] + "/" + totalLignes + " lignes en erreur)");
-            } else {
-                // ✅ Toutes les lignes ont réussi
-                Log.d(TAG, "✅ Toutes les lignes de la commande envoyées vers l'historique");
-                callback.onSuccess("all_lines_sent");
+    private static List<Integer> lignesRestantes(Commande commande, Set<Integer> lignesDejaEnvoyees) {
+        List<Integer> restantes = new ArrayList<>();
+        for (int i = 0; i < commande.getLignesCommande().size(); i++) {
+            if (!lignesDejaEnvoyees.contains(i)) {
+                restantes.add(i);
             }
-            return;
         }
+        return restantes;
+    }
 
-        LigneCommande ligne = commande.getLignesCommande().get(index);
+    /**
+     * Envoi d'une ligne de commande vers l'historique.
+     */
+    private interface EnvoiLigne {
+        void envoyer(LigneCommande ligne, CommandeEnvoiCallback callback);
+    }
 
-        Log.d(TAG, "Envoi ligne " + (index + 1) + "/" + commande.getLignesCommande().size() +
-                " vers l'historique - Produit: " + ligne.getProduit().getLibelle());
+    /**
+     * Envoie les lignes d'une commande vers l'historique en une seule requête.
+     * Si le serveur refuse le lot, les lignes sont envoyées une par une (en parallèle).
+     *
+     * @param positions   Positions des lignes à envoyer dans la commande
+     * @param corpsLignes Corps JSON de ces lignes, dans le même ordre
+     */
+    private void envoyerLignesParLot(Commande commande, List<Integer> positions, List<String> corpsLignes,
+                                     String idSuccesParLigne, EnvoiLigne envoi, AccuseLignes accuse,
+                                     CommandeEnvoiCallback callback) {
+        envoiParLot.envoyer(corpsLignes,
+                retour -> {
+                    Log.w(TAG, "Lot refusé par l'historique, envoi ligne par ligne");
+                    envoyerLignesEnParallele(commande, positions, idSuccesParLigne, envoi, accuse, new CommandeEnvoiCallback() {
+                        @Override
+                        public void onSuccess(String historiqueId) {
+                            retour.onSucces(historiqueId);
+                        }
 
-        envoyerLigneVersHistoriqueAvecId(commande, ligne, dolibarrCommandeId, username, new CommandeEnvoiCallback() {
-            @Override
-            public void onSuccess(String historiqueId) {
-                Log.d(TAG, "✅ Ligne " + (index + 1) + " envoyée vers l'historique. ID: " + historiqueId);
-                // Envoyer la ligne suivante
-                envoyerLigneRecursiveAvecIdEtCompteur(commande, dolibarrCommandeId, index + 1, username, erreurCount, totalLignes, callback);
-            }
+                        @Override
+                        public void onError(String message) {
+                            retour.onErreur(message);
+                        }
+                    });
+                },
+                new EnvoiHistoriqueParLot.RetourEnvoi() {
+                    @Override
+                    public void onSucces(String historiqueId) {
+                        Log.d(TAG, "✅ Lot de " + corpsLignes.size() + " ligne(s) envoyé vers l'historique");
+                        accuse.onLignesEnvoyees(positions);
+                        callback.onSuccess(historiqueId);
+                    }
 
-            @Override
-            public void onError(String message) {
-                Log.e(TAG, "❌ Erreur envoi ligne " + (index + 1) + " vers l'historique: " + message);
-                // ✅ Incrémenter le compteur d'erreurs
-                erreurCount[0]++;
-                // Continuer avec la ligne suivante
-                envoyerLigneRecursiveAvecIdEtCompteur(commande, dolibarrCommandeId, index + 1, username, erreurCount, totalLignes, callback);
-            }
-        });
+                    @Override
+                    public void onErreur(String message) {
+                        callback.onError(message);
+                    }
+                });
     }
 
     /**
-     * Envoie les lignes de commande vers l'historique SANS ID Dolibarr (récursif) avec compteur d'erreurs.
+     * Envoie les lignes d'une commande vers l'historique, au plus {@link #MAX_LIGNES_EN_PARALLELE}
+     * à la fois. Les lignes sont indépendantes entre elles : chaque ligne acceptée est signalée à
+     * l'accusé de réception, et le callback est appelé une seule fois, quand toutes ont répondu,
+     * en erreur si au moins une ligne a échoué.
      */
-    private void envoyerLigneRecursiveSansIdAvecCompteur(Commande commande, int index, String username,
-                                                         int[] erreurCount, int totalLignes,
-                                                         CommandeEnvoiCallback callback) {
-        if (index >= commande.getLignesCommande().size()) {
+    private void envoyerLignesEnParallele(Commande commande, List<Integer> positions, String idSucces,
+                                          EnvoiLigne envoi, AccuseLignes accuse, CommandeEnvoiCallback callback) {
+        List<LigneCommande> lignes = commande.getLignesCommande();
+        final int totalLignes = positions.size();
+        final AtomicInteger erreurCount = new AtomicInteger();
+
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(MAX_LIGNES_EN_PARALLELE);
+
+        for (int i = 0; i < totalLignes; i++) {
+            final int numero = i + 1;
+            final int position = positions.get(i);
+            final LigneCommande ligne = lignes.get(position);
+
+            executeur.soumettre(terminee -> {
+                Log.d(TAG, "Envoi ligne " + numero + "/" + totalLignes +
+                        " vers l'historique - Produit: " + ligne.getProduit().getLibelle());
+
+                envoi.envoyer(ligne, new CommandeEnvoiCallback() {
+                    @Override
+                    public void onSuccess(String historiqueId) {
+                        Log.d(TAG, "✅ Ligne " + numero + " envoyée vers l'historique. ID: " + historiqueId);
+                        accuse.onLignesEnvoyees(Collections.singletonList(position));
+                        terminee.run();
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        Log.e(TAG, "❌ Erreur envoi ligne " + numero + " vers l'historique: " + message);
+                        erreurCount.incrementAndGet();
+                        terminee.run();
+                    }
+                });
+            });
+        }
+
+        executeur.fermer(() -> {
             // Toutes les lignes ont été traitées
-            if (erreurCount[0] > 0) {
+            int nbErreurs = erreurCount.get();
+            if (nbErreurs > 0) {
                 // ❌ Au moins une ligne a échoué
-                Log.e(TAG, "❌ Échec envoi historique : " + erreurCount[0] + "/" + totalLignes + " ligne(s) en erreur");
-                callback.onError("Échec envoi historique (" + erreurCount[0] + "/" + totalLignes + " lignes en erreur)");
+                Log.e(TAG, "❌ Échec envoi historique : " + nbErreurs + "/" + totalLignes + " ligne(s) en erreur");
+                callback.onError("Échec envoi historique (" + nbErreurs + "/" + totalLignes + " lignes en erreur)");
             } else {
                 // ✅ Toutes les lignes ont réussi
-                Log.d(TAG, "✅ Toutes les lignes de la commande envoyées vers l'historique (update_date=Non)");
-                callback.onSuccess("all_lines_sent_without_id");
+                Log.d(TAG, "✅ Toutes les lignes de la commande envoyées vers l'historique");
+                callback.onSuccess(idSucces);
             }
-            return;
-        }
+        });
+    }
 
-        LigneCommande ligne = commande.getLignesCommande().get(index);
+    /**
+     * Envoie un lot de lignes vers le module d'historique.
+     * POST /dolordersapi/fournisseurss/batch
+     */
+    private void posterLotHistorique(String corpsJson, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+        String baseUrl = getBaseUrl();
+        String apiKey = getApiKey();
 
-        Log.d(TAG, "Envoi ligne " + (index + 1) + "/" + commande.getLignesCommande().size() +
-                " vers l'historique (update_date=Non) - Produit: " + ligne.getProduit().getLibelle());
+        if (baseUrl == null || apiKey == null) {
+            reponse.onErreur(0, "Configuration manquante");
+            return;
+        }
 
-        envoyerLigneVersHistoriqueSansId(commande, ligne, username, new CommandeEnvoiCallback() {
+        String url = baseUrl.endsWith("/")
+                ? baseUrl + "api/index.php/dolordersapi/fournisseurss/batch"
+                : baseUrl + "/api/index.php/dolordersapi/fournisseurss/batch";
+
+        StringRequest request = new StringRequest(
+                Request.Method.POST,
+                url,
+                response -> {
+                    Log.d(TAG, "Réponse historique lot: " + response);
+                    reponse.onSucces(response);
+                },
+                error -> {
+                    String errorMsg = "Erreur envoi historique commande";
+                    int code = 0;
+                    if (error.networkResponse != null) {
+                        code = error.networkResponse.statusCode;
+                        errorMsg += " (Code: " + code + ")";
+                        if (error.networkResponse.data != null) {
+                            Log.e(TAG, "Réponse serveur historique lot: " + new String(error.networkResponse.data));
+                        }
+                    }
+                    Log.e(TAG, errorMsg, error);
+                    reponse.onErreur(code, errorMsg);
+                }
+        ) {
             @Override
-            public void onSuccess(String historiqueId) {
-                Log.d(TAG, "✅ Ligne " + (index + 1) + " envoyée vers l'historique (update_date=Non). ID: " + historiqueId);
-                // Envoyer la ligne suivante
-                envoyerLigneRecursiveSansIdAvecCompteur(commande, index + 1, username, erreurCount, totalLignes, callback);
+            public Map<String, String> getHeaders() {
+                Map<String, String> headers = new HashMap<>();
+                headers.put("DOLAPIKEY", apiKey);
+                headers.put("Content-Type", JSON_APPLICATION);
+                headers.put("Accept", JSON_APPLICATION);
+                return headers;
             }
 
             @Override
-            public void onError(String message) {
-                Log.e(TAG, "❌ Erreur envoi ligne " + (index + 1) + " vers l'historique: " + message);
-                // ✅ Incrémenter le compteur d'erreurs
-                erreurCount[0]++;
-                // Continuer avec la ligne suivante
-                envoyerLigneRecursiveSansIdAvecCompteur(commande, index + 1, username, erreurCount, totalLignes, callback);
+            public byte[] getBody() {
+                return corpsJson.getBytes();
             }
-        });
+        };
+
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_ENVOI);
+        requestQueue.add(request);
     }
 
     /**
@@ -459,6 +699,7 @@ public class CommandeApiRepository {
                 }
             };
 
+            politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_ENVOI);
             requestQueue.add(request);
 
         } catch (Exception e) {
@@ -538,6 +779,7 @@ public class CommandeApiRepository {
                 }
             };
 
+            politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_ENVOI);
             requestQueue.add(request);
 
         } catch (Exception e) {
@@ -682,74 +924,23 @@ public class CommandeApiRepository {
     }
 
     /**
-     * Récupère l'URL de base depuis les SharedPreferences cryptées.
+     * Récupère l'URL de base depuis les identifiants de session.
      */
     private String getBaseUrl() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    FICHIER_CRYPTE,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("base_url", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de l'URL", e);
-            return null;
-        }
+        return ServiceIdentifiants.getBaseUrl(context);
     }
 
     /**
-     * Récupère la clé API depuis les SharedPreferences cryptées.
+     * Récupère la clé API depuis les identifiants de session.
      */
     private String getApiKey() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    FICHIER_CRYPTE,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("api_key", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de la clé API", e);
-            return null;
-        }
+        return ServiceIdentifiants.getApiKey(context);
     }
 
     /**
-     * Récupère le nom d'utilisateur depuis les SharedPreferences cryptées.
+     * Récupère le nom d'utilisateur depuis les identifiants de session.
      */
     private String getUsername() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    FICHIER_CRYPTE,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("username", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération du username", e);
-            return null;
-        }
+        return ServiceIdentifiants.getUsername(context);
     }
 }
@@ -0,0 +1,372 @@
+package com.example.dolorders.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.dolorders.data.stockage.MetadonneesStockage;
+import com.example.dolorders.data.stockage.TamponEcriture;
+import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
+import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
+import com.example.dolorders.data.stockage.produit.IndexRechercheProduits;
+import com.example.dolorders.data.stockage.produit.ProduitStorageManager;
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.example.dolorders.service.ServiceClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Accès aux données locales (clients, commandes, catalogue) hors du thread principal.
+ * <p>
+ * Toutes les lectures et écritures passent par un thread dédié ; les résultats sont exposés en LiveData,
+ * et le résultat d'une écriture est rendu sur le thread principal (voir {@link ResultatEcriture}).
+ * Chaque jeu de données a un {@link ChargementPartage} : plusieurs écrans qui demandent les mêmes
+ * données en même temps partagent une seule lecture. Après une écriture, le jeu concerné est relu
+ * et tous les écrans qui l'observent sont mis à jour.
+ * <p>
+ * Les compteurs (clients et commandes en attente) sont publiés à part, à partir des résumés
+ * des fichiers (voir {@link MetadonneesStockage}), sans lire les listes.
+ * <p>
+ * Le dépôt est unique pour l'application (voir {@link #get(Context)}), comme {@link FileRequetesVolley}.
+ */
+public final class DepotDonneesLocales {
+
+    private static final String TAG = "DepotDonneesLocales";
+
+    private static volatile DepotDonneesLocales instance;
+
+    /** Thread unique des accès au stockage : les écritures et relectures restent ordonnées */
+    private final ExecutorService executeur = Executors.newSingleThreadExecutor(
+            tache -> new Thread(tache, "stockage-local"));
+
+    /** Thread principal, sur lequel sont rendus les résultats des écritures */
+    private final Handler threadPrincipal = new Handler(Looper.getMainLooper());
+
+    private final GestionnaireStockageClient stockageClients;
+    private final GestionnaireStockageClient stockageClientsApi;
+    private final GestionnaireStockageCommande stockageCommandes;
+    private final ProduitStorageManager stockageProduits;
+    private final ServiceClient serviceClient;
+
+    private final MutableLiveData<List<Client>> clientsLocaux = new MutableLiveData<>();
+    private final MutableLiveData<List<Client>> tousLesClients = new MutableLiveData<>();
+    private final MutableLiveData<List<Commande>> commandes = new MutableLiveData<>();
+    private final MutableLiveData<IndexRechercheProduits> indexProduits = new MutableLiveData<>();
+    private final MutableLiveData<MetadonneesStockage> resumeClientsLocaux = new MutableLiveData<>();
+    private final MutableLiveData<MetadonneesStockage> resumeCommandes = new MutableLiveData<>();
+
+    private final ChargementPartage<ClientsLus> chargementClients;
+    private final ChargementPartage<List<Commande>> chargementCommandes;
+    private final ChargementPartage<IndexRechercheProduits> chargementProduits;
+    private final ChargementPartage<MetadonneesStockage> chargementResumeClients;
+    private final ChargementPartage<MetadonneesStockage> chargementResumeCommandes;
+
+    private DepotDonneesLocales(Context appContext) {
+        stockageClients = new GestionnaireStockageClient(appContext);
+        stockageClientsApi = new GestionnaireStockageClient(appContext, GestionnaireStockageClient.API_CLIENTS_FILE);
+        stockageCommandes = new GestionnaireStockageCommande(appContext);
+        stockageProduits = new ProduitStorageManager(appContext);
+        serviceClient = new ServiceClient(appContext);
+
+        ChargementPartage.Echec journaliser = e -> Log.e(TAG, "Erreur lors de la lecture du stockage local", e);
+        chargementClients = new ChargementPartage<>(executeur, this::lireClients, this::publierClients, journaliser);
+        chargementCommandes = new ChargementPartage<>(executeur,
+                stockageCommandes::loadCommandes, commandes::postValue, journaliser);
+        chargementProduits = new ChargementPartage<>(executeur,
+                stockageProduits::chargerIndexRecherche, indexProduits::postValue, journaliser);
+        chargementResumeClients = new ChargementPartage<>(executeur,
+                stockageClients::getMetadonnees, resumeClientsLocaux::postValue, journaliser);
+        chargementResumeCommandes = new ChargementPartage<>(executeur,
+                stockageCommandes::getMetadonnees, resumeCommandes::postValue, journaliser);
+    }
+
+    /**
+     * Reçoit le résultat d'une écriture (appelé sur le thread principal).
+     */
+    public interface ResultatEcriture {
+        /**
+         * @param succes true si la modification est enregistrée sur disque
+         */
+        void onTermine(boolean succes);
+    }
+
+    /**
+     * Écriture dans le stockage (appelée sur le thread du stockage).
+     */
+    private interface Ecriture {
+        boolean executer();
+    }
+
+    /**
+     * Retourne le dépôt de l'application, créé au premier appel.
+     *
+     * @param context Contexte (seul le contexte de l'application est conservé)
+     * @return Dépôt partagé
+     */
+    public static DepotDonneesLocales get(Context context) {
+        DepotDonneesLocales depot = instance;
+        if (depot == null) {
+            synchronized (DepotDonneesLocales.class) {
+                depot = instance;
+                if (depot == null) {
+                    depot = new DepotDonneesLocales(context.getApplicationContext());
+                    instance = depot;
+                }
+            }
+        }
+        return depot;
+    }
+
+    /**
+     * Écrit sur disque les mutations encore en attente de regroupement, pour tous les stockages
+     * (voir {@link TamponEcriture}). Appelée quand l'application passe en arrière-plan.
+     */
+    public void ecrireModificationsEnAttente() {
+        executeur.execute(() -> {
+            if (!TamponEcriture.viderTous()) {
+                Log.e(TAG, "Échec de l'écriture des modifications en attente");
+            }
+        });
+    }
+
+    /**
+     * Exécute une écriture sur le thread du stockage, relit les jeux concernés si elle a réussi,
+     * puis rend le résultat sur le thread principal.
+     */
+    private void ecrire(String description, Ecriture ecriture, Runnable rafraichissement, ResultatEcriture resultat) {
+        executeur.execute(() -> {
+            boolean succes;
+            try {
+                succes = ecriture.executer();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Erreur lors de l'écriture : " + description, e);
+                succes = false;
+            }
+            if (succes) {
+                rafraichissement.run();
+            } else {
+                Log.w(TAG, "Écriture non effectuée : " + description);
+            }
+            boolean enregistre = succes;
+            threadPrincipal.post(() -> resultat.onTermine(enregistre));
+        });
+    }
+
+    // ==================== CLIENTS ====================
+
+    /**
+     * @return Clients créés localement (en attente d'envoi)
+     */
+    public LiveData<List<Client>> getClientsLocaux() {
+        return clientsLocaux;
+    }
+
+    /**
+     * @return Clients locaux suivis des clients synchronisés depuis Dolibarr
+     */
+    public LiveData<List<Client>> getTousLesClients() {
+        return tousLesClients;
+    }
+
+    /**
+     * Demande la lecture des clients (locaux et API), partagée avec une lecture déjà en cours.
+     */
+    public void chargerClients() {
+        chargementClients.demander();
+    }
+
+    /**
+     * Relit les clients après une modification du stockage.
+     */
+    public void rafraichirClients() {
+        chargementClients.rafraichir();
+        chargementResumeClients.rafraichir();
+    }
+
+    /**
+     * Ajoute un client créé localement, puis relit les clients.
+     *
+     * @param client   Client à ajouter
+     * @param resultat Résultat de l'écriture
+     */
+    public void ajouterClient(Client client, ResultatEcriture resultat) {
+        ecrire("ajout du client " + client.getId(), () -> stockageClients.addClient(client),
+                this::rafraichirClients, resultat);
+    }
+
+    /**
+     * Modifie un client local et reporte ses nouvelles coordonnées dans ses commandes,
+     * puis relit les clients et les commandes.
+     *
+     * @param client   Client modifié (même ID que le client existant)
+     * @param resultat Résultat de l'écriture (false si le client n'a pas pu être enregistré)
+     */
+    public void modifierClient(Client client, ResultatEcriture resultat) {
+        ecrire("modification du client " + client.getId(), () -> {
+            if (!stockageClients.modifierClient(client)) {
+                return false;
+            }
+            if (!client.isFromApi() && !stockageCommandes.updateClientInCommandes(client)) {
+                Log.w(TAG, "Commandes du client " + client.getId() + " non mises à jour");
+            }
+            return true;
+        }, () -> {
+            rafraichirClients();
+            rafraichirCommandes();
+        }, resultat);
+    }
+
+    /**
+     * Supprime un client local et toutes ses commandes, puis relit les clients et les commandes.
+     *
+     * @param client   Client à supprimer
+     * @param resultat Résultat de l'écriture
+     */
+    public void supprimerClient(Client client, ResultatEcriture resultat) {
+        ecrire("suppression du client " + client.getId(), () -> serviceClient.deleteClient(client), () -> {
+            rafraichirClients();
+            rafraichirCommandes();
+        }, resultat);
+    }
+
+    /**
+     * Clients lus ensemble, pour publier des listes cohérentes entre elles.
+     */
+    private static final class ClientsLus {
+        final List<Client> locaux;
+        final List<Client> api;
+
+        ClientsLus(List<Client> locaux, List<Client> api) {
+            this.locaux = locaux;
+            this.api = api;
+        }
+    }
+
+    private ClientsLus lireClients() {
+        return new ClientsLus(stockageClients.loadClients(), stockageClientsApi.loadClients());
+    }
+
+    private void publierClients(ClientsLus clients) {
+        List<Client> tous = new ArrayList<>(clients.locaux.size() + clients.api.size());
+        tous.addAll(clients.locaux);
+        tous.addAll(clients.api);
+
+        Log.d(TAG, "Clients chargés : " + clients.locaux.size() + " locaux + " +
+                clients.api.size() + " API = " + tous.size() + " total");
+
+        clientsLocaux.postValue(clients.locaux);
+        tousLesClients.postValue(tous);
+    }
+
+    // ==================== COMMANDES ====================
+
+    /**
+     * @return Commandes en attente d'envoi
+     */
+    public LiveData<List<Commande>> getCommandes() {
+        return commandes;
+    }
+
+    /**
+     * Demande la lecture des commandes, partagée avec une lecture déjà en cours.
+     */
+    public void chargerCommandes() {
+        chargementCommandes.demander();
+    }
+
+    /**
+     * Relit les commandes après une modification du stockage.
+     */
+    public void rafraichirCommandes() {
+        chargementCommandes.rafraichir();
+        chargementResumeCommandes.rafraichir();
+    }
+
+    /**
+     * Ajoute une commande, puis relit les commandes.
+     *
+     * @param commande Commande à ajouter
+     * @param resultat Résultat de l'écriture (true une fois la commande écrite sur disque)
+     */
+    public void ajouterCommande(Commande commande, ResultatEcriture resultat) {
+        ecrire("ajout de la commande " + commande.getId(), () -> stockageCommandes.addCommande(commande),
+                this::rafraichirCommandes, resultat);
+    }
+
+    /**
+     * Remplace une commande existante, puis relit les commandes.
+     *
+     * @param commande Commande modifiée (même ID que la commande existante)
+     * @param resultat Résultat de l'écriture
+     */
+    public void modifierCommande(Commande commande, ResultatEcriture resultat) {
+        ecrire("modification de la commande " + commande.getId(), () -> stockageCommandes.modifierCommande(commande),
+                this::rafraichirCommandes, resultat);
+    }
+
+    /**
+     * Supprime une commande, puis relit les commandes.
+     *
+     * @param commandeId ID de la commande à supprimer
+     * @param resultat   Résultat de l'écriture
+     */
+    public void supprimerCommande(String commandeId, ResultatEcriture resultat) {
+        ecrire("suppression de la commande " + commandeId, () -> stockageCommandes.deleteCommande(commandeId),
+                this::rafraichirCommandes, resultat);
+    }
+
+    // ==================== RÉSUMÉS ====================
+
+    /**
+     * @return Résumé des clients créés localement (nombre en attente d'envoi)
+     */
+    public LiveData<MetadonneesStockage> getResumeClientsLocaux() {
+        return resumeClientsLocaux;
+    }
+
+    /**
+     * @return Résumé des commandes en attente (nombre, montant total)
+     */
+    public LiveData<MetadonneesStockage> getResumeCommandes() {
+        return resumeCommandes;
+    }
+
+    /**
+     * Demande la lecture des résumés des clients locaux et des commandes, sans lire les listes.
+     */
+    public void chargerResumes() {
+        chargementResumeClients.demander();
+        chargementResumeCommandes.demander();
+    }
+
+    // ==================== PRODUITS ====================
+
+    /**
+     * @return Index de recherche du catalogue (qui donne aussi la liste des produits)
+     */
+    public LiveData<IndexRechercheProduits> getIndexProduits() {
+        return indexProduits;
+    }
+
+    /**
+     * Demande la lecture du catalogue et de son index, partagée avec une lecture déjà en cours.
+     */
+    public void chargerProduits() {
+        chargementProduits.demander();
+    }
+
+    /**
+     * Relit le catalogue après une synchronisation.
+     */
+    public void rafraichirProduits() {
+        chargementProduits.rafraichir();
+    }
+}
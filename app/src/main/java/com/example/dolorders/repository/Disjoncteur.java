@@ -0,0 +1,101 @@
+package com.example.dolorders.repository;
+
+/**
+ * Disjoncteur des échecs systémiques vers Dolibarr : serveur arrêté ou en erreur, clé API refusée.
+ * <p>
+ * Chaque réponse ou absence de réponse du serveur lui est signalée ({@link PolitiqueReseau}).
+ * Le disjoncteur s'ouvre quand les échecs qui ne dépendent pas de l'élément envoyé se suivent :
+ * <ul>
+ *     <li>un 401/403 (clé API révoquée ou sans droits) : ouvert aussitôt ;</li>
+ *     <li>des erreurs 5xx : ouvert après {@link #SEUIL_ERREURS_SERVEUR} de suite ;</li>
+ *     <li>des connexions refusées ou sans réponse : ouvert après {@link #SEUIL_ERREURS_CONNEXION} de suite.</li>
+ * </ul>
+ * Toute autre réponse (2xx, mais aussi 400 ou 404, propres à l'élément envoyé) remet le compte à zéro.
+ * Une fois ouvert, il le reste jusqu'à {@link #reinitialiser()} : l'envoi en cours n'essaie plus
+ * les éléments restants.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public class Disjoncteur {
+
+    /** Nombre d'erreurs 5xx consécutives qui ouvrent le disjoncteur */
+    public static final int SEUIL_ERREURS_SERVEUR = 3;
+
+    /** Nombre de connexions refusées ou sans réponse consécutives qui ouvrent le disjoncteur */
+    public static final int SEUIL_ERREURS_CONNEXION = 2;
+
+    /**
+     * Cause de l'ouverture du disjoncteur.
+     */
+    public enum Cause {
+        /** Clé API refusée (401/403) : une nouvelle tentative ne changera rien sans reconnexion */
+        AUTORISATION,
+        /** Erreurs 5xx répétées : serveur Dolibarr en panne */
+        SERVEUR,
+        /** Connexions refusées ou sans réponse : serveur injoignable */
+        CONNEXION
+    }
+
+    private int erreursServeur;
+    private int erreursConnexion;
+    private Cause cause;
+
+    /**
+     * Signale une réponse HTTP du serveur (succès ou erreur).
+     *
+     * @param codeHttp Code de la réponse
+     */
+    public synchronized void enregistrerReponse(int codeHttp) {
+        if (codeHttp == 401 || codeHttp == 403) {
+            ouvrir(Cause.AUTORISATION);
+        } else if (codeHttp >= 500) {
+            erreursConnexion = 0;
+            if (++erreursServeur >= SEUIL_ERREURS_SERVEUR) {
+                ouvrir(Cause.SERVEUR);
+            }
+        } else {
+            erreursServeur = 0;
+            erreursConnexion = 0;
+        }
+    }
+
+    /**
+     * Signale une requête restée sans réponse (connexion refusée, serveur injoignable, délai dépassé).
+     */
+    public synchronized void enregistrerEchecConnexion() {
+        erreursServeur = 0;
+        if (++erreursConnexion >= SEUIL_ERREURS_CONNEXION) {
+            ouvrir(Cause.CONNEXION);
+        }
+    }
+
+    /**
+     * @return true si un échec systémique a été détecté depuis la dernière réinitialisation
+     */
+    public synchronized boolean estOuvert() {
+        return cause != null;
+    }
+
+    /**
+     * @return Cause de l'ouverture, ou null si le disjoncteur est fermé
+     */
+    public synchronized Cause getCause() {
+        return cause;
+    }
+
+    /**
+     * Referme le disjoncteur et oublie les échecs passés (ex : au début d'un envoi).
+     */
+    public synchronized void reinitialiser() {
+        erreursServeur = 0;
+        erreursConnexion = 0;
+        cause = null;
+    }
+
+    private void ouvrir(Cause nouvelleCause) {
+        // La première cause est conservée : c'est elle qui est expliquée à l'utilisateur
+        if (cause == null) {
+            cause = nouvelleCause;
+        }
+    }
+}
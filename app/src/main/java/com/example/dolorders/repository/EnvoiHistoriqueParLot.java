@@ -0,0 +1,133 @@
+package com.example.dolorders.repository;
+
+import java.util.List;
+
+/**
+ * Envoi groupé des lignes d'une commande vers le module d'historique (dolordersapi).
+ * <p>
+ * Toutes les lignes de la commande partent dans une seule requête
+ * (POST /dolordersapi/fournisseurss/batch, corps {@code {"lines":[...]}}) au lieu d'une requête par ligne.
+ * Si le serveur refuse le lot ({@link #estRejetDuLot}), l'envoi ligne par ligne prend le relais.
+ * Quand le refus montre que l'endpoint n'existe pas (module d'historique plus ancien),
+ * les commandes suivantes passent directement par l'envoi ligne par ligne.
+ * <p>
+ * Cette classe ne dépend pas d'Android : le transport HTTP est fourni par le {@link Transport}.
+ */
+public class EnvoiHistoriqueParLot {
+
+    /** Identifiant retourné quand le lot entier a été accepté */
+    public static final String ID_LOT_ENVOYE = "batch_sent";
+
+    /**
+     * Envoie le corps JSON d'un lot au serveur.
+     */
+    public interface Transport {
+        void poster(String corpsJson, ReponseHttp reponse);
+    }
+
+    /**
+     * Réponse HTTP du serveur.
+     */
+    public interface ReponseHttp {
+        void onSucces(String corps);
+
+        /**
+         * @param codeHttp Code HTTP, ou 0 si aucune réponse (erreur réseau, configuration manquante)
+         * @param message  Message d'erreur
+         */
+        void onErreur(int codeHttp, String message);
+    }
+
+    /**
+     * Envoi ligne par ligne de la même commande, utilisé en repli.
+     */
+    public interface EnvoiParLigne {
+        void envoyer(RetourEnvoi retour);
+    }
+
+    /**
+     * Résultat de l'envoi d'une commande vers l'historique.
+     */
+    public interface RetourEnvoi {
+        void onSucces(String historiqueId);
+
+        void onErreur(String message);
+    }
+
+    private final Transport transport;
+    private volatile boolean lotNonSupporte;
+
+    public EnvoiHistoriqueParLot(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Envoie les lignes d'une commande en un seul lot, ou ligne par ligne si le lot est refusé.
+     *
+     * @param corpsLignes Corps JSON de chaque ligne, identiques à ceux de l'envoi ligne par ligne
+     * @param repli       Envoi ligne par ligne de la même commande
+     * @param retour      Résultat de l'envoi
+     */
+    public void envoyer(List<String> corpsLignes, EnvoiParLigne repli, RetourEnvoi retour) {
+        if (lotNonSupporte) {
+            repli.envoyer(retour);
+            return;
+        }
+
+        transport.poster(construireCorps(corpsLignes), new ReponseHttp() {
+            @Override
+            public void onSucces(String corps) {
+                retour.onSucces(ID_LOT_ENVOYE);
+            }
+
+            @Override
+            public void onErreur(int codeHttp, String message) {
+                if (!estRejetDuLot(codeHttp)) {
+                    // Erreur serveur ou réseau : un envoi ligne par ligne échouerait de la même façon
+                    retour.onErreur(message);
+                    return;
+                }
+                if (estEndpointAbsent(codeHttp)) {
+                    lotNonSupporte = true;
+                }
+                repli.envoyer(retour);
+            }
+        });
+    }
+
+    /**
+     * @return true si le serveur a refusé les lots (les envois passent ligne par ligne)
+     */
+    public boolean isLotNonSupporte() {
+        return lotNonSupporte;
+    }
+
+    /**
+     * Construit le corps JSON du lot à partir des corps JSON des lignes.
+     *
+     * @param corpsLignes Corps JSON de chaque ligne
+     * @return {"lines":[ligne1,ligne2,...]}
+     */
+    public static String construireCorps(List<String> corpsLignes) {
+        StringBuilder corps = new StringBuilder("{\"lines\":[");
+        for (int i = 0; i < corpsLignes.size(); i++) {
+            if (i > 0) {
+                corps.append(',');
+            }
+            corps.append(corpsLignes.get(i));
+        }
+        return corps.append("]}").toString();
+    }
+
+    /**
+     * Indique si un code HTTP signifie que le lot a été refusé sans être traité :
+     * endpoint absent (404, 405, 501), corps refusé (400) ou trop volumineux (413).
+     */
+    public static boolean estRejetDuLot(int codeHttp) {
+        return codeHttp == 400 || codeHttp == 413 || estEndpointAbsent(codeHttp);
+    }
+
+    private static boolean estEndpointAbsent(int codeHttp) {
+        return codeHttp == 404 || codeHttp == 405 || codeHttp == 501;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.dolorders.repository;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.UUID;
+
+/**
+ * Création sans doublon d'un élément dans Dolibarr (POST /orders, POST /thirdparties).
+ * <p>
+ * Chaque élément reçoit une clé générée par l'application ({@link #genererCle()}), conservée avec
+ * son état d'envoi et envoyée dans le champ {@code ref_ext}. Une création dont la réponse n'est pas
+ * arrivée (délai dépassé, connexion coupée) a pu aboutir côté serveur : avant de la refaire, l'élément
+ * est recherché par sa clé ({@code sqlfilters=(t.ref_ext:=:'clé')}) et, s'il existe, son ID est repris.
+ * Les requêtes de création ne sont donc jamais renvoyées à l'aveugle (pas de nouvelle tentative
+ * automatique de Volley) : seule cette classe décide d'une nouvelle tentative, après vérification.
+ * <p>
+ * Cette classe ne dépend pas d'Android : le transport HTTP est fourni par le {@link Transport}.
+ */
+public class EnvoiIdempotent {
+
+    /** Préfixe des clés générées, pour les reconnaître dans Dolibarr */
+    public static final String PREFIXE_CLE = "dolorders-";
+
+    /** Nombre de nouvelles tentatives (après vérification) quand une création reste sans réponse */
+    public static final int MAX_NOUVELLES_TENTATIVES = 1;
+
+    /**
+     * Requêtes HTTP de création et de recherche d'un élément.
+     */
+    public interface Transport {
+        /**
+         * POST de l'élément, avec la clé dans {@code ref_ext}.
+         */
+        void creer(String cle, EnvoiHistoriqueParLot.ReponseHttp reponse);
+
+        /**
+         * GET des éléments dont {@code ref_ext} vaut la clé.
+         *
+         * @param filtre Paramètre sqlfilters déjà encodé ({@link #construireFiltre(String)})
+         */
+        void rechercher(String filtre, EnvoiHistoriqueParLot.ReponseHttp reponse);
+    }
+
+    /**
+     * Résultat de la création.
+     */
+    public interface RetourCreation {
+        /**
+         * @param idDolibarr ID de l'élément créé (ou retrouvé par sa clé)
+         * @param retrouve   true si l'élément existait déjà (création précédente sans réponse)
+         */
+        void onCree(String idDolibarr, boolean retrouve);
+
+        void onErreur(String message);
+    }
+
+    private final Transport transport;
+
+    public EnvoiIdempotent(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Crée l'élément dans Dolibarr, sans doublon.
+     *
+     * @param cle       Clé de l'élément
+     * @param dejaTente true si une création a déjà pu partir avec cette clé (tentative précédente) :
+     *                  l'élément est alors d'abord recherché
+     * @param retour    Résultat
+     */
+    public void envoyer(String cle, boolean dejaTente, RetourCreation retour) {
+        if (dejaTente) {
+            verifierPuisCreer(cle, 0, retour);
+        } else {
+            creer(cle, 0, retour);
+        }
+    }
+
+    private void creer(String cle, int tentative, RetourCreation retour) {
+        transport.creer(cle, new EnvoiHistoriqueParLot.ReponseHttp() {
+            @Override
+            public void onSucces(String corps) {
+                String id = extraireIdCree(corps);
+                if (id == null) {
+                    retour.onErreur("Réponse de création illisible: " + corps);
+                } else {
+                    retour.onCree(id, false);
+                }
+            }
+
+            @Override
+            public void onErreur(int codeHttp, String message) {
+                if (codeHttp == 0 && tentative < MAX_NOUVELLES_TENTATIVES) {
+                    // Sans réponse, la création a pu aboutir : vérifier avant de la refaire
+                    verifierPuisCreer(cle, tentative + 1, retour);
+                } else {
+                    retour.onErreur(message);
+                }
+            }
+        });
+    }
+
+    private void verifierPuisCreer(String cle, int tentative, RetourCreation retour) {
+        transport.rechercher(construireFiltre(cle), new EnvoiHistoriqueParLot.ReponseHttp() {
+            @Override
+            public void onSucces(String corps) {
+                String id = extraireIdExistant(corps);
+                if (id != null) {
+                    retour.onCree(id, true);
+                } else {
+                    creer(cle, tentative, retour);
+                }
+            }
+
+            @Override
+            public void onErreur(int codeHttp, String message) {
+                if (codeHttp == 404) {
+                    // Dolibarr répond 404 quand aucun élément ne correspond au filtre
+                    creer(cle, tentative, retour);
+                } else {
+                    // Impossible de savoir si l'élément existe : ne pas risquer un doublon
+                    retour.onErreur(message);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Nouvelle clé d'élément, unique
+     */
+    public static String genererCle() {
+        return PREFIXE_CLE + UUID.randomUUID();
+    }
+
+    /**
+     * Construit le paramètre sqlfilters (déjà encodé pour l'URL) recherchant un élément par sa clé.
+     *
+     * @param cle Clé de l'élément
+     * @return Valeur encodée, ex : (t.ref_ext%3A%3D%3A%27dolorders-...%27)
+     */
+    public static String construireFiltre(String cle) {
+        try {
+            return URLEncoder.encode("(t.ref_ext:=:'" + cle.replace("'", "") + "')", "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 est toujours supporté
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Extrait l'ID de la réponse d'une création : un nombre seul (ex : "154") ou un objet JSON avec un "id".
+     *
+     * @return ID, ou null si la réponse ne contient pas d'ID
+     */
+    public static String extraireIdCree(String corps) {
+        if (corps == null || corps.trim().isEmpty()) {
+            return null;
+        }
+        String reponse = corps.trim();
+        if (!reponse.startsWith("{")) {
+            return reponse.replace("\"", "");
+        }
+        try {
+            return lireId(JsonParser.parseString(reponse));
+        } catch (JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Extrait l'ID du premier élément de la réponse d'une recherche (tableau JSON).
+     *
+     * @return ID, ou null si aucun élément ne correspond
+     */
+    public static String extraireIdExistant(String corps) {
+        if (corps == null || corps.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            JsonElement reponse = JsonParser.parseString(corps);
+            if (!reponse.isJsonArray()) {
+                return null;
+            }
+            JsonArray elements = reponse.getAsJsonArray();
+            return elements.size() == 0 ? null : lireId(elements.get(0));
+        } catch (JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static String lireId(JsonElement element) {
+        if (!element.isJsonObject()) {
+            return null;
+        }
+        JsonObject objet = element.getAsJsonObject();
+        JsonElement id = objet.get("id");
+        return id == null || id.isJsonNull() ? null : id.getAsString();
+    }
+}
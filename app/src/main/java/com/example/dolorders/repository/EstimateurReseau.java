@@ -0,0 +1,229 @@
+package com.example.dolorders.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Estimation des performances du réseau vers Dolibarr, utilisée pour fixer le délai d'attente
+ * de chaque requête au lieu du délai fixe de Volley (2,5 s).
+ * <p>
+ * Pour chaque point d'accès (méthode + chemin de l'API, ex : « GET products »), la latence est lissée
+ * comme le RTT de TCP (moyenne et écart lissés, RFC 6298), ainsi que la taille habituelle de la réponse.
+ * Le débit, propre à la connexion, est estimé globalement à partir des réponses volumineuses.
+ * Le délai d'une requête = latence lissée + 4 écarts + temps de transfert de la requête et de sa réponse
+ * habituelle, avec une marge, borné entre {@link #DELAI_MIN_MS} et {@link #DELAI_MAX_MS}.
+ * <p>
+ * Les estimations sont encodées en texte ({@link #encoder()}) pour être conservées d'une session à l'autre.
+ * Cette classe ne dépend pas d'Android.
+ */
+public class EstimateurReseau {
+
+    /** Délai minimal d'une requête */
+    public static final int DELAI_MIN_MS = 3_000;
+
+    /** Délai maximal d'une requête */
+    public static final int DELAI_MAX_MS = 120_000;
+
+    /** Délai d'un point d'accès encore jamais mesuré (hors transfert de la requête) */
+    public static final int DELAI_SANS_MESURE_MS = 15_000;
+
+    /** Débit supposé tant qu'aucune réponse volumineuse n'a été mesurée (octets/ms, 3G lente) */
+    static final double DEBIT_INITIAL = 20;
+
+    /** Taille à partir de laquelle une réponse sert à mesurer le débit */
+    static final long SEUIL_MESURE_DEBIT = 16 * 1024;
+
+    /** Marge appliquée au temps de transfert estimé */
+    private static final double MARGE_TRANSFERT = 2;
+
+    /** Poids d'une nouvelle mesure dans la latence lissée (RFC 6298) */
+    private static final double ALPHA = 1.0 / 8;
+
+    /** Poids d'une nouvelle mesure dans l'écart, la taille et le débit lissés */
+    private static final double BETA = 1.0 / 4;
+
+    /** Attente de base avant la première nouvelle tentative */
+    static final long ATTENTE_BASE_MS = 500;
+
+    /** Attente maximale avant une nouvelle tentative */
+    static final long ATTENTE_MAX_MS = 8_000;
+
+    private static final String MARQUEUR_API = "/api/index.php/";
+    private static final String SEPARATEUR = "|";
+    private static final String SEPARATEUR_LIGNES = "\n";
+
+    private final Map<String, Mesure> mesures = new LinkedHashMap<>();
+    private double debit = DEBIT_INITIAL;
+
+    /**
+     * Estimations lissées d'un point d'accès.
+     */
+    private static final class Mesure {
+        private double latence;
+        private double ecart;
+        private double tailleReponse;
+    }
+
+    /**
+     * Identifie le point d'accès d'une requête : méthode et chemin de l'API, sans paramètres,
+     * les segments numériques (IDs) étant remplacés par « {id} ».
+     *
+     * @param methode Méthode HTTP (ex : "GET")
+     * @param url     URL complète de la requête
+     * @return Clé du point d'accès (ex : « GET orders/{id}/lines »)
+     */
+    public static String cleEndpoint(String methode, String url) {
+        String chemin = url == null ? "" : url;
+        int parametres = chemin.indexOf('?');
+        if (parametres >= 0) {
+            chemin = chemin.substring(0, parametres);
+        }
+        int api = chemin.indexOf(MARQUEUR_API);
+        if (api >= 0) {
+            chemin = chemin.substring(api + MARQUEUR_API.length());
+        }
+
+        StringBuilder cle = new StringBuilder(methode).append(' ');
+        boolean premier = true;
+        for (String segment : chemin.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (!premier) {
+                cle.append('/');
+            }
+            cle.append(segment.matches("\\d+") ? "{id}" : segment);
+            premier = false;
+        }
+        return cle.toString();
+    }
+
+    /**
+     * Enregistre la mesure d'une requête aboutie.
+     *
+     * @param cle           Point d'accès ({@link #cleEndpoint(String, String)})
+     * @param dureeMs       Durée de la requête, de l'envoi à la fin de la réponse
+     * @param octetsEnvoyes Taille du corps envoyé
+     * @param octetsRecus   Taille de la réponse
+     */
+    public synchronized void enregistrer(String cle, long dureeMs, long octetsEnvoyes, long octetsRecus) {
+        if (dureeMs <= 0) {
+            return;
+        }
+        long octets = octetsEnvoyes + octetsRecus;
+        if (octets >= SEUIL_MESURE_DEBIT) {
+            debit += BETA * ((double) octets / dureeMs - debit);
+        }
+
+        // La latence mesurée exclut le transfert : elle ne dépend plus de la taille de la réponse
+        double latence = Math.max(0, dureeMs - octets / debit);
+        Mesure mesure = mesures.get(cle);
+        if (mesure == null) {
+            mesure = new Mesure();
+            mesure.latence = latence;
+            mesure.ecart = latence / 2;
+            mesure.tailleReponse = octetsRecus;
+            mesures.put(cle, mesure);
+            return;
+        }
+        mesure.ecart += BETA * (Math.abs(mesure.latence - latence) - mesure.ecart);
+        mesure.latence += ALPHA * (latence - mesure.latence);
+        mesure.tailleReponse += BETA * (octetsRecus - mesure.tailleReponse);
+    }
+
+    /**
+     * Calcule le délai d'attente d'une requête.
+     *
+     * @param cle           Point d'accès ({@link #cleEndpoint(String, String)})
+     * @param octetsEnvoyes Taille du corps envoyé
+     * @return Délai d'attente en millisecondes
+     */
+    public synchronized int delai(String cle, long octetsEnvoyes) {
+        Mesure mesure = mesures.get(cle);
+        double delai;
+        if (mesure == null) {
+            delai = DELAI_SANS_MESURE_MS + MARGE_TRANSFERT * octetsEnvoyes / debit;
+        } else {
+            delai = mesure.latence + 4 * mesure.ecart
+                    + MARGE_TRANSFERT * (octetsEnvoyes + mesure.tailleReponse) / debit;
+        }
+        return (int) Math.min(DELAI_MAX_MS, Math.max(DELAI_MIN_MS, Math.round(delai)));
+    }
+
+    /**
+     * @return Débit estimé de la connexion (octets/ms)
+     */
+    public synchronized double getDebit() {
+        return debit;
+    }
+
+    /**
+     * Calcule l'attente avant une nouvelle tentative : exponentielle (base × 2^(tentative-1), bornée),
+     * dont la moitié est tirée au hasard pour que les requêtes en échec ne repartent pas ensemble.
+     *
+     * @param tentative Numéro de la nouvelle tentative (1 pour la première)
+     * @param aleatoire Valeur aléatoire dans [0, 1)
+     * @return Attente en millisecondes
+     */
+    public static long attenteAvantTentative(int tentative, double aleatoire) {
+        long plafond = ATTENTE_MAX_MS;
+        if (tentative < 32) {
+            plafond = Math.min(ATTENTE_MAX_MS, ATTENTE_BASE_MS << Math.max(0, tentative - 1));
+        }
+        return plafond / 2 + Math.round(plafond / 2.0 * aleatoire);
+    }
+
+    /**
+     * Encode les estimations : débit sur la première ligne, puis une ligne par point d'accès
+     * (« clé|latence|écart|taille »).
+     */
+    public synchronized String encoder() {
+        StringBuilder texte = new StringBuilder(String.format(Locale.ROOT, "%.3f", debit));
+        for (Map.Entry<String, Mesure> entree : mesures.entrySet()) {
+            Mesure mesure = entree.getValue();
+            texte.append(SEPARATEUR_LIGNES)
+                    .append(entree.getKey()).append(SEPARATEUR)
+                    .append(Math.round(mesure.latence)).append(SEPARATEUR)
+                    .append(Math.round(mesure.ecart)).append(SEPARATEUR)
+                    .append(Math.round(mesure.tailleReponse));
+        }
+        return texte.toString();
+    }
+
+    /**
+     * Reconstruit des estimations encodées par {@link #encoder()}.
+     * Une forme absente ou illisible donne des estimations vides ; une ligne illisible est ignorée.
+     */
+    public static EstimateurReseau decoder(String texte) {
+        EstimateurReseau estimateur = new EstimateurReseau();
+        if (texte == null || texte.isEmpty()) {
+            return estimateur;
+        }
+        String[] lignes = texte.split(SEPARATEUR_LIGNES);
+        try {
+            double debit = Double.parseDouble(lignes[0]);
+            if (debit > 0) {
+                estimateur.debit = debit;
+            }
+        } catch (NumberFormatException e) {
+            return estimateur;
+        }
+        for (int i = 1; i < lignes.length; i++) {
+            String[] champs = lignes[i].split("\\" + SEPARATEUR);
+            if (champs.length != 4) {
+                continue;
+            }
+            try {
+                Mesure mesure = new Mesure();
+                mesure.latence = Long.parseLong(champs[1]);
+                mesure.ecart = Long.parseLong(champs[2]);
+                mesure.tailleReponse = Long.parseLong(champs[3]);
+                estimateur.mesures.put(champs[0], mesure);
+            } catch (NumberFormatException e) {
+                // Ligne ignorée : le point d'accès repart sans mesure
+            }
+        }
+        return estimateur;
+    }
+}
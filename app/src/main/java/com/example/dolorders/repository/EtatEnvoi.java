@@ -0,0 +1,162 @@
+package com.example.dolorders.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * État d'envoi d'un élément de la liste d'attente (commande ou client), persisté entre deux envois
+ * pour qu'une nouvelle tentative reprenne là où la précédente s'est arrêtée :
+ * <ul>
+ *     <li>la clé de l'élément ({@link EnvoiIdempotent}), attribuée avant sa première création ;</li>
+ *     <li>l'ID Dolibarr, dès que l'élément a été créé dans le module natif
+ *     (il n'est alors plus jamais recréé, ce qui évite les doublons dans Dolibarr) ;</li>
+ *     <li>les positions des lignes déjà acceptées par le module d'historique
+ *     (seules les lignes restantes sont renvoyées).</li>
+ * </ul>
+ * Les lignes acceptées avant la création dans le module natif l'ont été sans ID Dolibarr
+ * (update_date = "Non") : elles sont oubliées quand l'ID est enregistré, pour être renvoyées avec l'ID.
+ * <p>
+ * Les instances sont immuables. Cette classe ne dépend pas d'Android.
+ */
+public final class EtatEnvoi {
+
+    /** État d'un élément dont aucune étape n'a encore abouti */
+    public static final EtatEnvoi INITIAL = new EtatEnvoi(null, null, Collections.emptySet());
+
+    /** Séparateur des champs (ID Dolibarr, lignes, clé) dans la forme encodée */
+    private static final char SEPARATEUR = '|';
+
+    private final String cleIdempotence;
+    private final String idDolibarr;
+    private final Set<Integer> lignesEnvoyees;
+
+    private EtatEnvoi(String cleIdempotence, String idDolibarr, Set<Integer> lignesEnvoyees) {
+        this.cleIdempotence = cleIdempotence;
+        this.idDolibarr = idDolibarr;
+        this.lignesEnvoyees = Collections.unmodifiableSet(lignesEnvoyees);
+    }
+
+    /**
+     * @return Clé de l'élément envoyée dans ref_ext, ou null si aucune création n'a encore été tentée
+     */
+    public String getCleIdempotence() {
+        return cleIdempotence;
+    }
+
+    /**
+     * @return ID Dolibarr de l'élément, ou null s'il n'a pas encore été créé
+     */
+    public String getIdDolibarr() {
+        return idDolibarr;
+    }
+
+    /**
+     * @return true si l'élément a déjà été créé dans le module natif
+     */
+    public boolean estCree() {
+        return idDolibarr != null;
+    }
+
+    /**
+     * @return Positions des lignes déjà acceptées par l'historique, triées
+     */
+    public Set<Integer> getLignesEnvoyees() {
+        return lignesEnvoyees;
+    }
+
+    /**
+     * @param nbLignes Nombre de lignes de l'élément
+     * @return Positions des lignes restant à envoyer, dans l'ordre
+     */
+    public List<Integer> lignesRestantes(int nbLignes) {
+        List<Integer> restantes = new ArrayList<>();
+        for (int i = 0; i < nbLignes; i++) {
+            if (!lignesEnvoyees.contains(i)) {
+                restantes.add(i);
+            }
+        }
+        return restantes;
+    }
+
+    /**
+     * @param id ID Dolibarr attribué par le module natif
+     * @return Nouvel état ; les lignes envoyées sans ID sont oubliées si l'ID change
+     */
+    public EtatEnvoi avecIdDolibarr(String id) {
+        if (id.equals(idDolibarr)) {
+            return this;
+        }
+        return new EtatEnvoi(cleIdempotence, id, new TreeSet<>());
+    }
+
+    /**
+     * @param cle Clé attribuée à l'élément avant sa création
+     * @return Nouvel état
+     */
+    public EtatEnvoi avecCleIdempotence(String cle) {
+        return new EtatEnvoi(cle, idDolibarr, new TreeSet<>(lignesEnvoyees));
+    }
+
+    /**
+     * @param positions Positions des lignes acceptées par l'historique
+     * @return Nouvel état
+     */
+    public EtatEnvoi avecLignesEnvoyees(Collection<Integer> positions) {
+        Set<Integer> lignes = new TreeSet<>(lignesEnvoyees);
+        lignes.addAll(positions);
+        return new EtatEnvoi(cleIdempotence, idDolibarr, lignes);
+    }
+
+    /**
+     * @return Forme textuelle de l'état, relue par {@link #decoder(String)}
+     * (ex : "154|0,1,3" ou, avec une clé, "154|0,1,3|dolorders-…")
+     */
+    public String encoder() {
+        StringBuilder texte = new StringBuilder(idDolibarr != null ? idDolibarr : "");
+        texte.append(SEPARATEUR);
+        boolean premiere = true;
+        for (Integer position : lignesEnvoyees) {
+            if (!premiere) {
+                texte.append(',');
+            }
+            texte.append(position);
+            premiere = false;
+        }
+        if (cleIdempotence != null) {
+            texte.append(SEPARATEUR).append(cleIdempotence);
+        }
+        return texte.toString();
+    }
+
+    /**
+     * @param texte Forme produite par {@link #encoder()}, ou null
+     * @return État décodé ; {@link #INITIAL} si le texte est absent ou illisible
+     */
+    public static EtatEnvoi decoder(String texte) {
+        if (texte == null) {
+            return INITIAL;
+        }
+        String[] champs = texte.split("\\" + SEPARATEUR, -1);
+        if (champs.length < 2) {
+            return INITIAL;
+        }
+        String id = champs[0];
+        String cleLue = champs.length > 2 && !champs[2].isEmpty() ? champs[2] : null;
+        Set<Integer> lignes = new TreeSet<>();
+        try {
+            for (String position : champs[1].split(",")) {
+                if (!position.isEmpty()) {
+                    lignes.add(Integer.parseInt(position));
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Lignes illisibles : elles seront renvoyées, l'ID Dolibarr reste connu
+            lignes.clear();
+        }
+        return new EtatEnvoi(cleLue, id.isEmpty() ? null : id, lignes);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.dolorders.repository;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exécute des tâches asynchrones (requêtes Volley enchaînées) avec un nombre borné de tâches en cours.
+ * <p>
+ * Les tâches démarrent dans leur ordre de soumission, dès qu'une place se libère. Une tâche se déclare
+ * terminée en appelant le {@link Runnable} reçu, éventuellement de façon synchrone ou depuis un autre
+ * thread. Une fois l'exécuteur {@link #fermer(Runnable) fermé}, le callback final est appelé une seule
+ * fois, quand toutes les tâches soumises sont terminées.
+ * <p>
+ * Utilisé pour l'envoi de la liste d'attente : les clients (indépendants entre eux) sont traités
+ * en parallèle, chaque tâche client enchaînant elle-même ses commandes dans l'ordre.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public class ExecuteurConcurrentBorne {
+
+    /**
+     * Tâche asynchrone. Elle ne doit pas lever d'exception : tout échec passe par son propre callback,
+     * et {@code terminee} doit être appelé exactement une fois.
+     */
+    public interface TacheAsynchrone {
+        void executer(Runnable terminee);
+    }
+
+    private final int maxEnCours;
+    private final Deque<TacheAsynchrone> enAttente = new ArrayDeque<>();
+    private int nbEnCours;
+    private boolean enDistribution;
+    private boolean ferme;
+    private Runnable onToutTermine;
+
+    /**
+     * @param maxEnCours Nombre maximal de tâches en cours simultanément (au moins 1)
+     */
+    public ExecuteurConcurrentBorne(int maxEnCours) {
+        if (maxEnCours < 1) {
+            throw new IllegalArgumentException("maxEnCours doit être au moins 1");
+        }
+        this.maxEnCours = maxEnCours;
+    }
+
+    /**
+     * Soumet une tâche. Elle démarre immédiatement si une place est libre.
+     *
+     * @throws IllegalStateException si l'exécuteur est déjà fermé
+     */
+    public void soumettre(TacheAsynchrone tache) {
+        synchronized (this) {
+            if (ferme) {
+                throw new IllegalStateException("Exécuteur fermé");
+            }
+            enAttente.add(tache);
+        }
+        distribuer();
+    }
+
+    /**
+     * Indique qu'aucune tâche ne sera plus soumise.
+     *
+     * @param onToutTermine Appelé une fois toutes les tâches terminées (immédiatement s'il n'y en a aucune)
+     */
+    public void fermer(Runnable onToutTermine) {
+        synchronized (this) {
+            ferme = true;
+            this.onToutTermine = onToutTermine;
+        }
+        distribuer();
+    }
+
+    /**
+     * @return Nombre de tâches démarrées et pas encore terminées
+     */
+    public synchronized int getNbEnCours() {
+        return nbEnCours;
+    }
+
+    /**
+     * Démarre les tâches en attente tant qu'il reste des places.
+     * Une tâche terminée de façon synchrone ne provoque pas de récursion : la boucle déjà
+     * active reprend la main, ce qui évite un débordement de pile sur une longue file d'échecs immédiats.
+     */
+    private void distribuer() {
+        synchronized (this) {
+            if (enDistribution) {
+                return;
+            }
+            enDistribution = true;
+        }
+
+        while (true) {
+            TacheAsynchrone tache = null;
+            Runnable fin = null;
+
+            synchronized (this) {
+                if (nbEnCours < maxEnCours && !enAttente.isEmpty()) {
+                    tache = enAttente.poll();
+                    nbEnCours++;
+                } else {
+                    enDistribution = false;
+                    if (ferme && nbEnCours == 0 && enAttente.isEmpty() && onToutTermine != null) {
+                        fin = onToutTermine;
+                        onToutTermine = null;
+                    }
+                }
+            }
+
+            if (tache == null) {
+                if (fin != null) {
+                    fin.run();
+                }
+                return;
+            }
+
+            tache.executer(creerSignalFin());
+        }
+    }
+
+    private Runnable creerSignalFin() {
+        AtomicBoolean dejaTerminee = new AtomicBoolean(false);
+        return () -> {
+            if (!dejaTerminee.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                nbEnCours--;
+            }
+            distribuer();
+        };
+    }
+}
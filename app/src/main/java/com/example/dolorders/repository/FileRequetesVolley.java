@@ -0,0 +1,96 @@
+package com.example.dolorders.repository;
+
+import android.content.Context;
+
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.DiskBasedCache;
+import com.android.volley.toolbox.HurlStack;
+
+import java.io.File;
+
+/**
+ * File de requêtes Volley unique pour toute l'application.
+ * <p>
+ * Les repositories et services sont créés à chaque action (ViewModels, envoi de la liste d'attente) :
+ * avec une file par instance, chaque synchronisation recréait ses threads réseau et son cache disque.
+ * Ici une seule file est démarrée, liée au contexte de l'application, avec un seul pool de threads.
+ * HurlStack s'appuie sur HttpURLConnection, qui réutilise les connexions (keep-alive) d'une requête
+ * à l'autre et négocie la compression gzip de façon transparente.
+ * Les réponses reçues sont mesurées pour adapter les délais d'attente ({@link PolitiqueReseau}).
+ */
+public final class FileRequetesVolley {
+
+    /** Nombre de threads réseau (valeur par défaut de Volley) */
+    private static final int NB_THREADS_RESEAU = 4;
+
+    /** Taille maximale du cache disque des réponses */
+    private static final int TAILLE_CACHE_DISQUE = 5 * 1024 * 1024;
+
+    /** Dossier du cache disque, dans le cache de l'application */
+    private static final String DOSSIER_CACHE = "volley";
+
+    private static volatile RequestQueue instance;
+
+    private FileRequetesVolley() {
+        // Classe utilitaire : ne doit pas être instanciée
+    }
+
+    /**
+     * Retourne la file de requêtes de l'application, créée et démarrée au premier appel.
+     *
+     * @param context Contexte (seul le contexte de l'application est conservé)
+     * @return File de requêtes partagée
+     */
+    public static RequestQueue get(Context context) {
+        RequestQueue file = instance;
+        if (file == null) {
+            synchronized (FileRequetesVolley.class) {
+                file = instance;
+                if (file == null) {
+                    Context appContext = context.getApplicationContext();
+                    File dossierCache = new File(appContext.getCacheDir(), DOSSIER_CACHE);
+
+                    file = new RequestQueue(
+                            new DiskBasedCache(dossierCache, TAILLE_CACHE_DISQUE),
+                            new ReseauMesure(new BasicNetwork(new HurlStack()), PolitiqueReseau.get(appContext)),
+                            NB_THREADS_RESEAU);
+                    file.start();
+                    instance = file;
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Réseau qui transmet chaque réponse reçue (durée, taille, code) et chaque échec à la politique réseau.
+     */
+    private static final class ReseauMesure implements Network {
+
+        private final Network reseau;
+        private final PolitiqueReseau politique;
+
+        ReseauMesure(Network reseau, PolitiqueReseau politique) {
+            this.reseau = reseau;
+            this.politique = politique;
+        }
+
+        @Override
+        public NetworkResponse performRequest(Request<?> request) throws VolleyError {
+            NetworkResponse reponse;
+            try {
+                reponse = reseau.performRequest(request);
+            } catch (VolleyError e) {
+                politique.enregistrerEchec(e);
+                throw e;
+            }
+            politique.enregistrer(request, reponse);
+            return reponse;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.dolorders.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Marqueurs de synchronisation (high-water mark) d'un jeu de données, persistés dans les SharedPreferences.
+ * Conserve la date de la dernière synchronisation réussie et celle de la dernière synchronisation complète,
+ * pour un serveur donné : changer d'URL Dolibarr remet les marqueurs à zéro.
+ */
+public class HorodatageSynchronisation {
+
+    /** Fichier des SharedPreferences des marqueurs */
+    private static final String PREFS = "sync_delta";
+
+    private static final String SUFFIXE_DERNIERE_SYNC = "_derniere_sync";
+    private static final String SUFFIXE_DERNIERE_SYNC_COMPLETE = "_derniere_sync_complete";
+    private static final String SUFFIXE_SERVEUR = "_serveur";
+
+    private final SharedPreferences prefs;
+    private final String nom;
+    private final String serveur;
+
+    /**
+     * Constructeur.
+     *
+     * @param context Contexte de l'application
+     * @param nom     Nom du jeu de données (ex : "clients", "produits")
+     * @param serveur URL du serveur Dolibarr
+     */
+    public HorodatageSynchronisation(Context context, String nom, String serveur) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.nom = nom;
+        this.serveur = serveur;
+    }
+
+    /**
+     * @return Date de la dernière synchronisation réussie (ms), ou -1
+     */
+    public long getDerniereSync() {
+        return estPourCeServeur() ? prefs.getLong(nom + SUFFIXE_DERNIERE_SYNC, -1) : -1;
+    }
+
+    /**
+     * @return Date de la dernière synchronisation complète réussie (ms), ou -1
+     */
+    public long getDerniereSyncComplete() {
+        return estPourCeServeur() ? prefs.getLong(nom + SUFFIXE_DERNIERE_SYNC_COMPLETE, -1) : -1;
+    }
+
+    /**
+     * Enregistre une synchronisation réussie.
+     *
+     * @param debut    Date de début de la synchronisation (ms) : les modifications faites
+     *                 pendant la synchronisation seront revues au prochain delta
+     * @param complete true si tout le jeu de données a été téléchargé
+     */
+    public void enregistrer(long debut, boolean complete) {
+        SharedPreferences.Editor editor = prefs.edit()
+                .putString(nom + SUFFIXE_SERVEUR, serveur)
+                .putLong(nom + SUFFIXE_DERNIERE_SYNC, debut);
+        if (complete) {
+            editor.putLong(nom + SUFFIXE_DERNIERE_SYNC_COMPLETE, debut);
+        }
+        editor.apply();
+    }
+
+    /**
+     * Efface les marqueurs : la prochaine synchronisation sera complète.
+     */
+    public void effacer() {
+        prefs.edit()
+                .remove(nom + SUFFIXE_SERVEUR)
+                .remove(nom + SUFFIXE_DERNIERE_SYNC)
+                .remove(nom + SUFFIXE_DERNIERE_SYNC_COMPLETE)
+                .apply();
+    }
+
+    private boolean estPourCeServeur() {
+        return serveur.equals(prefs.getString(nom + SUFFIXE_SERVEUR, null));
+    }
+}
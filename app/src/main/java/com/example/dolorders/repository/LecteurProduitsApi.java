@@ -0,0 +1,68 @@
+package com.example.dolorders.repository;
+
+import com.example.dolorders.data.dto.ProduitApiReponseDto;
+import com.example.dolorders.mapper.ProduitMapper;
+import com.example.dolorders.objet.Produit;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture en flux d'une réponse GET /products de l'API Dolibarr.
+ * Chaque objet du tableau JSON est lu directement en DTO puis converti en Produit,
+ * sans passer par une String, un JSONArray ou un JSONObject intermédiaires.
+ */
+public class LecteurProduitsApi {
+
+    private final Gson gson;
+
+    /**
+     * Constructeur.
+     *
+     * @param gson Instance de Gson utilisée pour lire les DTO
+     */
+    public LecteurProduitsApi(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * Lit un tableau JSON de produits depuis un flux.
+     *
+     * @param flux Flux de la réponse (UTF-8)
+     * @return Liste des produits lus
+     * @throws IOException si le flux n'est pas un tableau JSON de produits valide
+     */
+    public List<Produit> lire(InputStream flux) throws IOException {
+        List<Produit> produits = new ArrayList<>();
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(flux, StandardCharsets.UTF_8))) {
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                throw new IOException("Réponse inattendue : tableau de produits attendu, " + reader.peek() + " reçu");
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                // Conversion JSON → DTO
+                ProduitApiReponseDto dto = gson.fromJson(reader, ProduitApiReponseDto.class);
+
+                // Conversion DTO → Modèle métier
+                if (dto != null) {
+                    produits.add(ProduitMapper.fromDto(dto));
+                }
+            }
+            reader.endArray();
+        } catch (IllegalStateException | JsonParseException e) {
+            throw new IOException("Réponse JSON des produits invalide : " + e.getMessage(), e);
+        }
+
+        return produits;
+    }
+}
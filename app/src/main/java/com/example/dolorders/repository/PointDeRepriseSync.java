@@ -0,0 +1,61 @@
+package com.example.dolorders.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Point de reprise d'une synchronisation paginée, persisté dans les SharedPreferences.
+ * <p>
+ * Le point de reprise est associé à une empreinte de configuration (URL du serveur, taille de page…) :
+ * si la configuration change entre deux synchronisations, la reprise est ignorée et la
+ * synchronisation repart de la première page.
+ */
+public class PointDeRepriseSync implements SynchronisationPaginee.PointDeReprise {
+
+    /** Fichier des SharedPreferences des points de reprise */
+    private static final String PREFS = "sync_reprise";
+
+    private static final String SUFFIXE_PAGE = "_derniere_page";
+    private static final String SUFFIXE_EMPREINTE = "_empreinte";
+
+    private final SharedPreferences prefs;
+    private final String nom;
+    private final String empreinte;
+
+    /**
+     * Constructeur.
+     *
+     * @param context   Contexte de l'application
+     * @param nom       Nom du jeu de données synchronisé (ex : "clients", "produits")
+     * @param empreinte Empreinte de la configuration de la synchronisation
+     */
+    public PointDeRepriseSync(Context context, String nom, String empreinte) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.nom = nom;
+        this.empreinte = empreinte;
+    }
+
+    @Override
+    public int getDernierePageTerminee() {
+        if (!empreinte.equals(prefs.getString(nom + SUFFIXE_EMPREINTE, null))) {
+            return -1;
+        }
+        return prefs.getInt(nom + SUFFIXE_PAGE, -1);
+    }
+
+    @Override
+    public void enregistrer(int page) {
+        prefs.edit()
+                .putString(nom + SUFFIXE_EMPREINTE, empreinte)
+                .putInt(nom + SUFFIXE_PAGE, page)
+                .apply();
+    }
+
+    @Override
+    public void effacer() {
+        prefs.edit()
+                .remove(nom + SUFFIXE_EMPREINTE)
+                .remove(nom + SUFFIXE_PAGE)
+                .apply();
+    }
+}
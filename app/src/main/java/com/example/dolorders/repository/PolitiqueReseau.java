@@ -0,0 +1,208 @@
+package com.example.dolorders.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.NetworkError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RetryPolicy;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import java.util.Random;
+
+/**
+ * Délais d'attente et nouvelles tentatives des requêtes vers Dolibarr, adaptés au réseau observé.
+ * <p>
+ * Chaque réponse reçue par la file Volley ({@link FileRequetesVolley}) est mesurée et alimente
+ * l'{@link EstimateurReseau} ; chaque requête reçoit ensuite un délai calculé pour son point d'accès
+ * et la taille de son corps. Après un délai dépassé, la nouvelle tentative attend un délai exponentiel
+ * en partie aléatoire, avec un délai d'attente doublé.
+ * Les réponses et les échecs de connexion alimentent aussi le {@link Disjoncteur} des échecs systémiques.
+ * <p>
+ * Les estimations sont conservées dans les SharedPreferences, d'une session à l'autre.
+ */
+public final class PolitiqueReseau {
+
+    /** Nouvelles tentatives d'une lecture (GET) */
+    public static final int NOUVELLES_TENTATIVES_LECTURE = 2;
+
+    /** Nouvelles tentatives d'un envoi vers l'historique (repris ligne par ligne en cas de doublon) */
+    public static final int NOUVELLES_TENTATIVES_ENVOI = 1;
+
+    /** Nouvelles tentatives d'une création : aucune, voir {@link EnvoiIdempotent} */
+    public static final int NOUVELLES_TENTATIVES_CREATION = 0;
+
+    /** Fichier des SharedPreferences des estimations */
+    private static final String PREFS = "sync_reseau";
+
+    private static final String CLE_ESTIMATIONS = "estimations";
+
+    /** Intervalle minimal entre deux sauvegardes des estimations */
+    private static final long INTERVALLE_SAUVEGARDE_MS = 30_000;
+
+    private static volatile PolitiqueReseau instance;
+
+    private final SharedPreferences prefs;
+    private final EstimateurReseau estimateur;
+    private final Disjoncteur disjoncteur = new Disjoncteur();
+    private final Random aleatoire = new Random();
+    private long derniereSauvegarde;
+
+    private PolitiqueReseau(Context appContext) {
+        this.prefs = appContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.estimateur = EstimateurReseau.decoder(prefs.getString(CLE_ESTIMATIONS, null));
+    }
+
+    /**
+     * Retourne la politique de l'application, créée au premier appel avec les estimations enregistrées.
+     *
+     * @param context Contexte (seul le contexte de l'application est conservé)
+     */
+    public static PolitiqueReseau get(Context context) {
+        PolitiqueReseau politique = instance;
+        if (politique == null) {
+            synchronized (PolitiqueReseau.class) {
+                politique = instance;
+                if (politique == null) {
+                    politique = new PolitiqueReseau(context.getApplicationContext());
+                    instance = politique;
+                }
+            }
+        }
+        return politique;
+    }
+
+    /**
+     * Applique à la requête un délai adapté à son point d'accès et à son corps.
+     *
+     * @param request                Requête à configurer (URL et corps déjà fixés)
+     * @param maxNouvellesTentatives Nombre de nouvelles tentatives après un délai dépassé
+     */
+    public void appliquer(Request<?> request, int maxNouvellesTentatives) {
+        String cle = EstimateurReseau.cleEndpoint(nomMethode(request.getMethod()), request.getUrl());
+        int delai = estimateur.delai(cle, tailleCorps(request));
+        request.setRetryPolicy(new NouvellesTentatives(delai, maxNouvellesTentatives));
+    }
+
+    /**
+     * @return Disjoncteur des échecs systémiques, alimenté par toutes les requêtes de l'application
+     */
+    public Disjoncteur getDisjoncteur() {
+        return disjoncteur;
+    }
+
+    /**
+     * Enregistre la mesure d'une réponse reçue du serveur.
+     *
+     * @param request Requête exécutée
+     * @param reponse Réponse (sa durée est celle de la dernière tentative)
+     */
+    void enregistrer(Request<?> request, NetworkResponse reponse) {
+        if (reponse == null) {
+            return;
+        }
+        disjoncteur.enregistrerReponse(reponse.statusCode);
+        if (reponse.networkTimeMs <= 0) {
+            return;
+        }
+        String cle = EstimateurReseau.cleEndpoint(nomMethode(request.getMethod()), request.getUrl());
+        estimateur.enregistrer(cle, reponse.networkTimeMs, tailleCorps(request),
+                reponse.data == null ? 0 : reponse.data.length);
+        sauvegarderSiNecessaire();
+    }
+
+    /**
+     * Enregistre l'échec d'une requête, après ses nouvelles tentatives.
+     *
+     * @param erreur Erreur de Volley (avec la réponse du serveur s'il a répondu)
+     */
+    void enregistrerEchec(VolleyError erreur) {
+        if (erreur.networkResponse != null) {
+            disjoncteur.enregistrerReponse(erreur.networkResponse.statusCode);
+        } else if (erreur instanceof NetworkError || erreur instanceof TimeoutError) {
+            disjoncteur.enregistrerEchecConnexion();
+        }
+    }
+
+    private void sauvegarderSiNecessaire() {
+        long maintenant = System.currentTimeMillis();
+        synchronized (this) {
+            if (maintenant - derniereSauvegarde < INTERVALLE_SAUVEGARDE_MS) {
+                return;
+            }
+            derniereSauvegarde = maintenant;
+        }
+        prefs.edit().putString(CLE_ESTIMATIONS, estimateur.encoder()).apply();
+    }
+
+    private static int tailleCorps(Request<?> request) {
+        try {
+            byte[] corps = request.getBody();
+            return corps == null ? 0 : corps.length;
+        } catch (AuthFailureError e) {
+            return 0;
+        }
+    }
+
+    private static String nomMethode(int methode) {
+        switch (methode) {
+            case Request.Method.GET:
+                return "GET";
+            case Request.Method.POST:
+                return "POST";
+            case Request.Method.PUT:
+                return "PUT";
+            case Request.Method.DELETE:
+                return "DELETE";
+            default:
+                return "HTTP" + methode;
+        }
+    }
+
+    /**
+     * Nouvelles tentatives d'une requête. Volley appelle {@link #retry(VolleyError)} dans son thread
+     * réseau, juste avant de renvoyer la requête : l'attente y est donc faite (bornée à quelques secondes).
+     */
+    private final class NouvellesTentatives implements RetryPolicy {
+
+        private final int maxNouvellesTentatives;
+        private int delai;
+        private int tentatives;
+
+        NouvellesTentatives(int delai, int maxNouvellesTentatives) {
+            this.delai = delai;
+            this.maxNouvellesTentatives = maxNouvellesTentatives;
+        }
+
+        @Override
+        public int getCurrentTimeout() {
+            return delai;
+        }
+
+        @Override
+        public int getCurrentRetryCount() {
+            return tentatives;
+        }
+
+        @Override
+        public void retry(VolleyError error) throws VolleyError {
+            // Une clé refusée (401/403) le sera aussi à la tentative suivante
+            if (error instanceof AuthFailureError || tentatives >= maxNouvellesTentatives) {
+                throw error;
+            }
+            tentatives++;
+            delai = Math.min(EstimateurReseau.DELAI_MAX_MS, delai * 2);
+
+            long attente = EstimateurReseau.attenteAvantTentative(tentatives, aleatoire.nextDouble());
+            try {
+                Thread.sleep(attente);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw error;
+            }
+        }
+    }
+}
@@ -1,43 +1,56 @@
 package com.example.dolorders.repository;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
 
-import com.android.volley.Request;
+import com.android.volley.ParseError;
 import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.JsonArrayRequest;
-import com.android.volley.toolbox.Volley;
-import com.example.dolorders.data.dto.ProduitApiReponseDto;
-import com.example.dolorders.mapper.ProduitMapper;
+import com.example.dolorders.data.stockage.produit.ProduitStorageManager;
 import com.example.dolorders.objet.Produit;
+import com.example.dolorders.service.ServiceIdentifiants;
 import com.google.gson.Gson;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Repository pour gérer la récupération des produits depuis l'API Dolibarr.
- * Ce repository se concentre uniquement sur l'appel API.
- * Le cache local est géré directement par le ViewModel via ProduitStorageManager.
+ * Les pages reçues sont écrites au fil de l'eau dans ProduitStorageManager,
+ * la lecture du cache local restant gérée par le ViewModel.
+ * <p>
+ * Les pages sont décodées dans le thread réseau de Volley, puis écrites (et le catalogue finalisé
+ * ou fusionné) sur un thread dédié : le thread principal ne reçoit que le résultat de la synchronisation.
  */
 public class ProduitRepository {
 
     private static final String TAG = "ProduitRepository";
 
+    /** Nombre de produits demandés par page : borne la mémoire utilisée pendant la synchronisation */
+    public static final int TAILLE_PAGE = 500;
+
+    /** Nombre maximal de pages demandées simultanément */
+    private static final int MAX_PAGES_EN_VOL = 2;
+
+    /** Nom du jeu de données pour les marqueurs de synchronisation incrémentale */
+    private static final String SYNC_PRODUITS = "produits";
+
+    /** Thread unique des écritures du catalogue : les pages y sont écrites dans l'ordre */
+    private static final ExecutorService EXECUTEUR_STOCKAGE = Executors.newSingleThreadExecutor(
+            tache -> new Thread(tache, "sync-produits"));
+
     private final Context context;
     private final RequestQueue requestQueue;
-    private final Gson gson;
+    private final PolitiqueReseau politiqueReseau;
+    private final LecteurProduitsApi lecteur;
+    private final ProduitStorageManager storageManager;
+    private final Handler threadPrincipal = new Handler(Looper.getMainLooper());
 
     /**
      * Interface de callback pour les opérations asynchrones.
@@ -50,18 +63,32 @@ public class ProduitRepository {
 
     public ProduitRepository(Context context) {
         this.context = context.getApplicationContext();
-        this.requestQueue = Volley.newRequestQueue(context);
-        this.gson = new Gson();
+        this.requestQueue = FileRequetesVolley.get(context);
+        this.politiqueReseau = PolitiqueReseau.get(context);
+        this.lecteur = new LecteurProduitsApi(new Gson());
+        this.storageManager = new ProduitStorageManager(context);
     }
 
     /**
-     * Synchronise les produits avec l'API Dolibarr.
-     * Cette méthode appelle uniquement l'API et retourne les produits via callback.
-     * La sauvegarde dans le cache est gérée par le ViewModel.
+     * Synchronise les produits avec l'API Dolibarr, page par page (page=0..N).
+     * Chaque page est lue en flux dans le thread réseau puis écrite directement dans
+     * ProduitStorageManager : la mémoire utilisée pendant le téléchargement est bornée par
+     * {@link #TAILLE_PAGE} et non par la taille du catalogue.
+     * Après une première synchronisation complète, seuls les produits modifiés depuis la dernière
+     * synchronisation sont demandés puis fusionnés par ID dans le catalogue (voir {@link SynchronisationDelta}).
      *
-     * @param callback Callback pour notifier du résultat
+     * @param callback Callback pour notifier du résultat (produits déjà sauvegardés dans le cache),
+     *                 appelé sur le thread principal
      */
     public void synchroniserDepuisApi(ProduitCallback callback) {
+        ProduitCallback resultat = surThreadPrincipal(callback);
+        EXECUTEUR_STOCKAGE.execute(() -> demarrerSynchronisation(resultat));
+    }
+
+    /**
+     * Démarre la synchronisation (sur le thread des écritures du catalogue).
+     */
+    private void demarrerSynchronisation(ProduitCallback callback) {
         String baseUrl = getBaseUrl();
         String apiKey = getApiKey();
 
@@ -70,34 +97,156 @@ public class ProduitRepository {
             callback.onError("Configuration manquante (URL ou clé API)");
             return;
         }
-        //TODO a vérifier
-        String url = baseUrl.endsWith("/")
-               ? baseUrl + "api/index.php/products?sortfield=t.ref&sortorder=ASC&limit=99999&properties=id%2Clabel%2Cdescription%2Cprice%2Ctva_tx%2Cref%2Cstatus"
-               : baseUrl + "/api/index.php/products?sortfield=t.ref&sortorder=ASC&limit=99999&properties=id%2Clabel%2Cdescription%2Cprice%2Ctva_tx%2Cref%2Cstatus";
 
+        HorodatageSynchronisation horodatage = new HorodatageSynchronisation(context, SYNC_PRODUITS, baseUrl);
+        long debut = System.currentTimeMillis();
+        long derniereSync = horodatage.getDerniereSync();
+        boolean delta = SynchronisationDelta.estDeltaPossible(
+                derniereSync, horodatage.getDerniereSyncComplete(), !storageManager.hasProduits(), debut);
+
+        String url = (baseUrl.endsWith("/")
+                ? baseUrl + "api/index.php/products?sortfield=t.ref&sortorder=ASC&properties=id%2Clabel%2Cdescription%2Cprice%2Ctva_tx%2Cref%2Cstatus"
+                : baseUrl + "/api/index.php/products?sortfield=t.ref&sortorder=ASC&properties=id%2Clabel%2Cdescription%2Cprice%2Ctva_tx%2Cref%2Cstatus")
+                + (delta ? "&sqlfilters=" + SynchronisationDelta.construireFiltre(derniereSync, TimeZone.getDefault()) : "");
+
+        if (delta) {
+            synchroniserModifications(url, apiKey, debut, horodatage, callback);
+        } else {
+            synchroniserCatalogueComplet(url, apiKey, debut, horodatage, callback);
+        }
+    }
 
-        Log.d(TAG, "Récupération des produits depuis l'API : " + url);
+    /**
+     * Télécharge tout le catalogue. Le catalogue stocké n'est remplacé qu'une fois la dernière page reçue.
+     */
+    private void synchroniserCatalogueComplet(String url, String apiKey, long debut,
+                                              HorodatageSynchronisation horodatage, ProduitCallback callback) {
+        ProduitStorageManager.EcritureParPages ecriture;
+        try {
+            ecriture = storageManager.ouvrirEcritureParPages();
+        } catch (IOException e) {
+            Log.e(TAG, "Impossible d'ouvrir l'écriture des produits", e);
+            callback.onError("Erreur de stockage des produits : " + e.getMessage());
+            return;
+        }
 
-        // Requête Volley
-        JsonArrayRequest request = new JsonArrayRequest(
-                Request.Method.GET,
-                url,
-                null,
-                response -> {
-                    try {
-                        List<Produit> produits = parseJsonResponse(response);
+        SynchronisationPaginee<Produit> synchronisation = new SynchronisationPaginee<>(
+                (page, taille, retour) -> chargerPageProduits(url, apiKey, page, taille, retour),
+                (page, produits) -> ecriture.ecrirePage(produits),
+                new SynchronisationPaginee.PointDeRepriseMemoire(),
+                TAILLE_PAGE,
+                MAX_PAGES_EN_VOL);
 
-                        // La sauvegarde dans le cache est gérée par le ViewModel
-                        Log.d(TAG, "Produits récupérés depuis l'API : " + produits.size());
-                        callback.onSuccess(produits);
+        synchronisation.demarrer(new SynchronisationPaginee.SynchronisationCallback() {
+            @Override
+            public void onTermine(int nbElementsRecus) {
+                try {
+                    ecriture.terminer();
+                } catch (IOException e) {
+                    Log.e(TAG, "Erreur lors de la finalisation des produits", e);
+                    ecriture.abandonner();
+                    callback.onError("Erreur de stockage des produits : " + e.getMessage());
+                    return;
+                }
+                horodatage.enregistrer(debut, true);
 
-                    } catch (Exception e) {
-                        Log.e(TAG, "Erreur lors du parsing JSON", e);
-                        callback.onError("Erreur de traitement des données : " + e.getMessage());
+                Log.d(TAG, "Produits récupérés depuis l'API : " + nbElementsRecus);
+                callback.onSuccess(storageManager.loadProduits());
+            }
+
+            @Override
+            public void onErreur(String message) {
+                ecriture.abandonner();
+                callback.onError(message);
+            }
+        });
+    }
+
+    /**
+     * Télécharge uniquement les produits modifiés et les fusionne par ID dans le catalogue stocké.
+     * Le delta étant petit, les pages reçues sont gardées en mémoire jusqu'à la fusion ; le catalogue,
+     * lui, est recopié en flux (voir {@link ProduitStorageManager#fusionnerModifications(List)}).
+     */
+    private void synchroniserModifications(String url, String apiKey, long debut,
+                                           HorodatageSynchronisation horodatage, ProduitCallback callback) {
+        List<Produit> produitsModifies = new ArrayList<>();
+
+        SynchronisationPaginee<Produit> synchronisation = new SynchronisationPaginee<>(
+                (page, taille, retour) -> chargerPageProduits(url, apiKey, page, taille, retour),
+                (page, produits) -> produitsModifies.addAll(produits),
+                new SynchronisationPaginee.PointDeRepriseMemoire(),
+                TAILLE_PAGE,
+                MAX_PAGES_EN_VOL);
+
+        synchronisation.demarrer(new SynchronisationPaginee.SynchronisationCallback() {
+            @Override
+            public void onTermine(int nbElementsRecus) {
+                if (!produitsModifies.isEmpty()) {
+                    try {
+                        int nbProduits = storageManager.fusionnerModifications(produitsModifies);
+                        Log.d(TAG, "Produits modifiés récupérés depuis l'API : " + nbElementsRecus
+                                + ", " + nbProduits + " au total");
+                    } catch (IOException e) {
+                        Log.e(TAG, "Erreur lors de la fusion des produits modifiés", e);
+                        callback.onError("Erreur de stockage des produits : " + e.getMessage());
+                        return;
                     }
-                },
+                }
+                horodatage.enregistrer(debut, false);
+
+                callback.onSuccess(storageManager.loadProduits());
+            }
+
+            @Override
+            public void onErreur(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+
+    /**
+     * Rend le résultat de la synchronisation sur le thread principal.
+     */
+    private ProduitCallback surThreadPrincipal(ProduitCallback callback) {
+        return new ProduitCallback() {
+            @Override
+            public void onSuccess(List<Produit> produits) {
+                threadPrincipal.post(() -> callback.onSuccess(produits));
+            }
+
+            @Override
+            public void onError(String message) {
+                threadPrincipal.post(() -> callback.onError(message));
+            }
+        };
+    }
+
+    /**
+     * Récupère une page de produits.
+     * Une réponse 404 est traitée comme une page vide (fin de liste sur certaines versions de Dolibarr).
+     * La page, décodée dans le thread réseau, est transmise au thread des écritures du catalogue :
+     * le thread principal ne fait que la relayer.
+     */
+    private void chargerPageProduits(String url, String apiKey, int page, int taillePage,
+                                     SynchronisationPaginee.RetourPage<Produit> retour) {
+        String urlPage = url + "&limit=" + taillePage + "&page=" + page;
+        Log.d(TAG, "Récupération des produits depuis l'API : " + urlPage);
+
+        RequeteProduitsPage request = new RequeteProduitsPage(
+                urlPage,
+                apiKey,
+                lecteur,
+                produits -> EXECUTEUR_STOCKAGE.execute(() -> retour.onPage(produits)),
                 error -> {
+                    if (error.networkResponse != null && error.networkResponse.statusCode == 404) {
+                        EXECUTEUR_STOCKAGE.execute(() -> retour.onPage(new ArrayList<>()));
+                        return;
+                    }
+
                     String errorMessage = "Erreur API";
+                    if (error instanceof ParseError) {
+                        errorMessage = "Erreur de traitement des données";
+                    }
                     if (error.networkResponse != null) {
                         errorMessage += " (Code: " + error.networkResponse.statusCode + ")";
                     }
@@ -105,88 +254,28 @@ public class ProduitRepository {
                         errorMessage += " - " + error.getMessage();
                     }
 
-                    Log.e(TAG, "Erreur lors de la requête API", error);
-                    callback.onError(errorMessage);
+                    Log.e(TAG, "Erreur lors de la requête API (page " + page + ")", error);
+                    String message = errorMessage;
+                    EXECUTEUR_STOCKAGE.execute(() -> retour.onErreur(message));
                 }
-        ) {
-            @Override
-            public Map<String, String> getHeaders() {
-                Map<String, String> headers = new HashMap<>();
-                headers.put("DOLAPIKEY", apiKey);
-                headers.put("Accept", "application/json");
-                return headers;
-            }
-        };
+        );
 
+        politiqueReseau.appliquer(request, PolitiqueReseau.NOUVELLES_TENTATIVES_LECTURE);
         requestQueue.add(request);
     }
 
     /**
-     * Parse la réponse JSON de l'API en liste de Produits.
-     */
-    private List<Produit> parseJsonResponse(JSONArray jsonArray) throws JSONException {
-        List<Produit> produits = new ArrayList<>();
-
-        for (int i = 0; i < jsonArray.length(); i++) {
-            JSONObject jsonObject = jsonArray.getJSONObject(i);
-
-            // Conversion JSON → DTO
-            ProduitApiReponseDto dto = gson.fromJson(jsonObject.toString(), ProduitApiReponseDto.class);
-
-            // Conversion DTO → Modèle métier
-            Produit produit = ProduitMapper.fromDto(dto);
-            produits.add(produit);
-        }
-
-        return produits;
-    }
-
-    /**
-     * Récupère l'URL de base depuis les SharedPreferences cryptées.
+     * Récupère l'URL de base depuis les identifiants de session.
      */
     private String getBaseUrl() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    "secure_prefs_crypto",
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("base_url", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de l'URL", e);
-            return null;
-        }
+        return ServiceIdentifiants.getBaseUrl(context);
     }
 
     /**
-     * Récupère la clé API depuis les SharedPreferences cryptées.
+     * Récupère la clé API depuis les identifiants de session.
      */
     private String getApiKey() {
-        try {
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            android.content.SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    context,
-                    "secure_prefs_crypto",
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-
-            return securePrefs.getString("api_key", null);
-        } catch (GeneralSecurityException | IOException e) {
-            Log.e(TAG, "Erreur lors de la récupération de la clé API", e);
-            return null;
-        }
+        return ServiceIdentifiants.getApiKey(context);
     }
 }
 
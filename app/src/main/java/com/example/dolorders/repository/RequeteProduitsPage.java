@@ -0,0 +1,68 @@
+package com.example.dolorders.repository;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.example.dolorders.objet.Produit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Requête Volley pour une page de produits.
+ * La réponse est lue en flux par {@link LecteurProduitsApi} dans le thread réseau de Volley :
+ * seule la liste de produits de la page est livrée au listener, qui la transmet au thread
+ * des écritures du catalogue (voir {@link ProduitRepository}).
+ */
+public class RequeteProduitsPage extends Request<List<Produit>> {
+
+    private final Response.Listener<List<Produit>> listener;
+    private final LecteurProduitsApi lecteur;
+    private final String apiKey;
+
+    /**
+     * Constructeur.
+     *
+     * @param url           URL de la page (limit et page inclus)
+     * @param apiKey        Clé API Dolibarr
+     * @param lecteur       Lecteur en flux de la réponse
+     * @param listener      Listener appelé avec les produits de la page
+     * @param errorListener Listener appelé en cas d'erreur
+     */
+    public RequeteProduitsPage(String url, String apiKey, LecteurProduitsApi lecteur,
+                               Response.Listener<List<Produit>> listener,
+                               Response.ErrorListener errorListener) {
+        super(Method.GET, url, errorListener);
+        this.apiKey = apiKey;
+        this.lecteur = lecteur;
+        this.listener = listener;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("DOLAPIKEY", apiKey);
+        headers.put("Accept", "application/json");
+        return headers;
+    }
+
+    @Override
+    protected Response<List<Produit>> parseNetworkResponse(NetworkResponse response) {
+        try {
+            List<Produit> produits = lecteur.lire(new ByteArrayInputStream(response.data));
+            return Response.success(produits, HttpHeaderParser.parseCacheHeaders(response));
+        } catch (IOException e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    @Override
+    protected void deliverResponse(List<Produit> produits) {
+        listener.onResponse(produits);
+    }
+}
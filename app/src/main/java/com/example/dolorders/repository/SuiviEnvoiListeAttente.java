@@ -0,0 +1,136 @@
+package com.example.dolorders.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collection;
+
+/**
+ * États d'envoi des commandes et des clients de la liste d'attente ({@link EtatEnvoi}),
+ * persistés dans les SharedPreferences.
+ * <p>
+ * La clé d'un élément et son ID Dolibarr sont écrits de façon synchrone, avant de passer à l'étape
+ * suivante : la clé avant la première création (voir {@link EnvoiIdempotent}), l'ID dès qu'il est connu. Les lignes acceptées par l'historique
+ * sont écrites en arrière-plan (une ligne perdue est seulement renvoyée).
+ * <p>
+ * L'état d'un élément est effacé quand l'élément quitte la liste d'attente.
+ */
+public class SuiviEnvoiListeAttente {
+
+    /** Fichier des SharedPreferences des états d'envoi */
+    private static final String PREFS = "sync_envoi";
+
+    private static final String PREFIXE_COMMANDE = "commande_";
+    private static final String PREFIXE_CLIENT = "client_";
+
+    private final SharedPreferences prefs;
+
+    public SuiviEnvoiListeAttente(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @param idCommande ID local de la commande
+     * @return État d'envoi de la commande ({@link EtatEnvoi#INITIAL} si aucun)
+     */
+    public EtatEnvoi lireCommande(String idCommande) {
+        return EtatEnvoi.decoder(prefs.getString(cleCommande(idCommande), null));
+    }
+
+    /**
+     * Attribue une clé à la commande avant sa première création dans le module natif.
+     *
+     * @return État de la commande avec sa clé
+     */
+    public synchronized EtatEnvoi attribuerCleCommande(String idCommande) {
+        return attribuerCle(cleCommande(idCommande));
+    }
+
+    /**
+     * Enregistre l'ID de la commande créée dans le module natif.
+     *
+     * @return false si l'écriture a échoué
+     */
+    public synchronized boolean enregistrerIdCommande(String idCommande, String idDolibarr) {
+        String cle = cleCommande(idCommande);
+        EtatEnvoi etat = EtatEnvoi.decoder(prefs.getString(cle, null)).avecIdDolibarr(idDolibarr);
+        return prefs.edit().putString(cle, etat.encoder()).commit();
+    }
+
+    /**
+     * Enregistre des lignes de la commande acceptées par l'historique.
+     *
+     * @param positions Positions des lignes dans la commande
+     */
+    public synchronized void marquerLignesCommande(String idCommande, Collection<Integer> positions) {
+        String cle = cleCommande(idCommande);
+        EtatEnvoi etat = EtatEnvoi.decoder(prefs.getString(cle, null)).avecLignesEnvoyees(positions);
+        prefs.edit().putString(cle, etat.encoder()).apply();
+    }
+
+    /**
+     * Oublie l'état d'une commande (commande envoyée et supprimée de la liste d'attente).
+     */
+    public synchronized void effacerCommande(String idCommande) {
+        prefs.edit().remove(cleCommande(idCommande)).apply();
+    }
+
+    /**
+     * @param idClient  ID local du client
+     * @param nomClient Nom du client
+     * @return État d'envoi du client ({@link EtatEnvoi#INITIAL} si aucun)
+     */
+    public EtatEnvoi lireClient(String idClient, String nomClient) {
+        return EtatEnvoi.decoder(prefs.getString(cleClient(idClient, nomClient), null));
+    }
+
+    /**
+     * Attribue une clé au client avant sa première création dans le module natif.
+     *
+     * @return État du client avec sa clé
+     */
+    public synchronized EtatEnvoi attribuerCleClient(String idClient, String nomClient) {
+        return attribuerCle(cleClient(idClient, nomClient));
+    }
+
+    /**
+     * Enregistre l'ID du client créé dans le module natif.
+     *
+     * @return false si l'écriture a échoué
+     */
+    public synchronized boolean enregistrerIdClient(String idClient, String nomClient, String idDolibarr) {
+        String cle = cleClient(idClient, nomClient);
+        EtatEnvoi etat = EtatEnvoi.decoder(prefs.getString(cle, null)).avecIdDolibarr(idDolibarr);
+        return prefs.edit().putString(cle, etat.encoder()).commit();
+    }
+
+    /**
+     * Oublie l'état d'un client (client envoyé et supprimé du stockage local).
+     */
+    public synchronized void effacerClient(String idClient, String nomClient) {
+        prefs.edit().remove(cleClient(idClient, nomClient)).apply();
+    }
+
+    /**
+     * Attribue une nouvelle clé à l'élément. Si l'écriture échoue, la clé est quand même utilisée :
+     * seule la vérification avant une tentative suivante est perdue.
+     */
+    private EtatEnvoi attribuerCle(String cle) {
+        EtatEnvoi etat = EtatEnvoi.decoder(prefs.getString(cle, null))
+                .avecCleIdempotence(EnvoiIdempotent.genererCle());
+        prefs.edit().putString(cle, etat.encoder()).commit();
+        return etat;
+    }
+
+    private static String cleCommande(String idCommande) {
+        return PREFIXE_COMMANDE + idCommande;
+    }
+
+    /**
+     * Les ID locaux des clients sont réattribués après suppression : le nom complète la clé
+     * pour qu'un nouveau client ne reprenne pas l'état d'un ancien.
+     */
+    private static String cleClient(String idClient, String nomClient) {
+        return PREFIXE_CLIENT + idClient + "_" + nomClient;
+    }
+}
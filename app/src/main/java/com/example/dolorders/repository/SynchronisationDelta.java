@@ -0,0 +1,114 @@
+package com.example.dolorders.repository;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Règles de la synchronisation incrémentale (delta) basée sur la date de modification Dolibarr (t.tms).
+ * <p>
+ * Après une première synchronisation complète, seuls les enregistrements modifiés depuis la dernière
+ * synchronisation sont demandés, puis fusionnés par ID dans le cache existant. Une synchronisation
+ * complète reste faite périodiquement ({@link #INTERVALLE_SYNC_COMPLETE_MS}) car un delta ne voit pas
+ * les suppressions côté Dolibarr.
+ */
+public final class SynchronisationDelta {
+
+    /** Marge retirée à la date de dernière synchronisation (décalage d'horloge, fuseau du serveur) */
+    public static final long MARGE_MS = 60L * 60L * 1000L;
+
+    /** Au-delà de ce délai depuis la dernière synchronisation complète, on refait tout */
+    public static final long INTERVALLE_SYNC_COMPLETE_MS = 7L * 24L * 60L * 60L * 1000L;
+
+    /**
+     * Extrait l'identifiant d'un élément pour la fusion.
+     */
+    public interface ExtracteurId<T> {
+        String getId(T element);
+    }
+
+    private SynchronisationDelta() {
+        // Classe utilitaire : ne doit pas être instanciée
+    }
+
+    /**
+     * Indique si une synchronisation incrémentale est possible.
+     *
+     * @param derniereSync         Date de la dernière synchronisation réussie (ms), ou -1
+     * @param derniereSyncComplete Date de la dernière synchronisation complète (ms), ou -1
+     * @param cacheVide            true si aucun élément n'est en cache
+     * @param maintenant           Date courante (ms)
+     * @return true si seul le delta doit être demandé
+     */
+    public static boolean estDeltaPossible(long derniereSync, long derniereSyncComplete,
+                                           boolean cacheVide, long maintenant) {
+        if (cacheVide || derniereSync <= 0 || derniereSyncComplete <= 0) {
+            return false;
+        }
+        if (derniereSync > maintenant) {
+            // Horloge de l'appareil modifiée : le marqueur n'est plus fiable
+            return false;
+        }
+        return maintenant - derniereSyncComplete < INTERVALLE_SYNC_COMPLETE_MS;
+    }
+
+    /**
+     * Construit le paramètre sqlfilters (déjà encodé pour l'URL) limitant la réponse aux
+     * enregistrements modifiés depuis la date donnée, moins {@link #MARGE_MS}.
+     *
+     * @param depuis Date de la dernière synchronisation (ms)
+     * @param fuseau Fuseau horaire dans lequel Dolibarr stocke t.tms
+     * @return Valeur encodée, ex : (t.tms%3A%3E%3A%272024-01-31+10%3A00%3A00%27)
+     */
+    public static String construireFiltre(long depuis, TimeZone fuseau) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+        format.setTimeZone(fuseau);
+        String filtre = "(t.tms:>:'" + format.format(new Date(depuis - MARGE_MS)) + "')";
+        try {
+            return URLEncoder.encode(filtre, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 est toujours supporté
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Fusionne les éléments modifiés dans la liste existante, par ID.
+     * Un élément existant est remplacé à sa position, un nouvel élément est ajouté à la fin.
+     *
+     * @param existants  Éléments en cache
+     * @param modifies   Éléments reçus du delta
+     * @param extracteur Extracteur d'ID
+     * @return Nouvelle liste fusionnée
+     */
+    public static <T> List<T> fusionner(List<T> existants, List<T> modifies, ExtracteurId<T> extracteur) {
+        Map<String, T> parId = new LinkedHashMap<>();
+        List<T> sansId = new ArrayList<>();
+
+        for (T element : existants) {
+            String id = extracteur.getId(element);
+            if (id == null) {
+                sansId.add(element);
+            } else {
+                parId.put(id, element);
+            }
+        }
+        for (T element : modifies) {
+            String id = extracteur.getId(element);
+            if (id != null) {
+                parId.put(id, element);
+            }
+        }
+
+        List<T> resultat = new ArrayList<>(parId.values());
+        resultat.addAll(sansId);
+        return resultat;
+    }
+}
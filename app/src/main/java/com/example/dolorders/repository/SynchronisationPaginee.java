@@ -0,0 +1,245 @@
+package com.example.dolorders.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orchestration d'une synchronisation paginée et reprenable (page=0..N de l'API Dolibarr).
+ * <p>
+ * Jusqu'à {@code maxPagesEnVol} pages sont demandées en parallèle. Les pages reçues sont transmises
+ * au {@link ConsommateurPage} dans l'ordre, dès que toutes les pages précédentes sont arrivées,
+ * puis le point de reprise est avancé. Une page plus courte que la taille demandée marque la fin.
+ * <p>
+ * En cas d'erreur, la synchronisation s'arrête et le point de reprise conserve la dernière page
+ * écrite : le prochain appel à {@link #demarrer} repart de la page suivante.
+ * <p>
+ * Cette classe ne dépend pas d'Android : le transport des pages est fourni par le {@link ChargeurPage}.
+ *
+ * @param <T> Type des éléments synchronisés
+ */
+public class SynchronisationPaginee<T> {
+
+    /**
+     * Charge une page depuis l'API.
+     */
+    public interface ChargeurPage<T> {
+        void charger(int page, int taillePage, RetourPage<T> retour);
+    }
+
+    /**
+     * Retour asynchrone d'une page.
+     */
+    public interface RetourPage<T> {
+        void onPage(List<T> elements);
+
+        void onErreur(String message);
+    }
+
+    /**
+     * Écrit une page dans le stockage local (appelé dans l'ordre des pages).
+     */
+    public interface ConsommateurPage<T> {
+        void consommer(int page, List<T> elements) throws Exception;
+    }
+
+    /**
+     * Point de reprise persistant : index de la dernière page entièrement écrite.
+     */
+    public interface PointDeReprise {
+        /**
+         * @return Index de la dernière page écrite, ou -1 si aucune
+         */
+        int getDernierePageTerminee();
+
+        void enregistrer(int page);
+
+        void effacer();
+    }
+
+    /**
+     * Point de reprise non persistant, pour les synchronisations qui repartent de zéro à chaque appel.
+     */
+    public static class PointDeRepriseMemoire implements PointDeReprise {
+        private int dernierePage = -1;
+
+        @Override
+        public int getDernierePageTerminee() {
+            return dernierePage;
+        }
+
+        @Override
+        public void enregistrer(int page) {
+            dernierePage = page;
+        }
+
+        @Override
+        public void effacer() {
+            dernierePage = -1;
+        }
+    }
+
+    /**
+     * Callback de fin de synchronisation.
+     */
+    public interface SynchronisationCallback {
+        void onTermine(int nbElementsRecus);
+
+        void onErreur(String message);
+    }
+
+    private final ChargeurPage<T> chargeur;
+    private final ConsommateurPage<T> consommateur;
+    private final PointDeReprise pointDeReprise;
+    private final int taillePage;
+    private final int maxPagesEnVol;
+
+    /** Pages reçues en avance, en attente des pages précédentes */
+    private final Map<Integer, List<T>> pagesEnAttente = new HashMap<>();
+
+    private SynchronisationCallback callback;
+    private int prochainePageADemander;
+    private int prochainePageAEcrire;
+    private int pagesEnVol;
+    private int nbElementsRecus;
+
+    /** Index de la dernière page (connue dès qu'une page incomplète est reçue), -1 sinon */
+    private int dernierePage;
+    private boolean termine;
+
+    /**
+     * Constructeur.
+     *
+     * @param chargeur       Chargement d'une page depuis l'API
+     * @param consommateur   Écriture d'une page dans le stockage local
+     * @param pointDeReprise Point de reprise persistant
+     * @param taillePage     Nombre d'éléments demandés par page
+     * @param maxPagesEnVol  Nombre maximal de pages demandées simultanément
+     */
+    public SynchronisationPaginee(ChargeurPage<T> chargeur, ConsommateurPage<T> consommateur,
+                                  PointDeReprise pointDeReprise, int taillePage, int maxPagesEnVol) {
+        if (taillePage <= 0) {
+            throw new IllegalArgumentException("La taille de page doit être positive.");
+        }
+        if (maxPagesEnVol <= 0) {
+            throw new IllegalArgumentException("Le nombre de pages en vol doit être positif.");
+        }
+        this.chargeur = chargeur;
+        this.consommateur = consommateur;
+        this.pointDeReprise = pointDeReprise;
+        this.taillePage = taillePage;
+        this.maxPagesEnVol = maxPagesEnVol;
+    }
+
+    /**
+     * Indique si une synchronisation précédente a été interrompue après au moins une page.
+     * Si ce n'est pas le cas, l'appelant doit repartir d'un stockage intermédiaire vide.
+     *
+     * @return true si la synchronisation reprendra après la première page
+     */
+    public boolean estUneReprise() {
+        return pointDeReprise.getDernierePageTerminee() >= 0;
+    }
+
+    /**
+     * Démarre (ou reprend) la synchronisation.
+     *
+     * @param callback Callback de fin
+     */
+    public synchronized void demarrer(SynchronisationCallback callback) {
+        this.callback = callback;
+        this.prochainePageAEcrire = pointDeReprise.getDernierePageTerminee() + 1;
+        this.prochainePageADemander = prochainePageAEcrire;
+        this.pagesEnVol = 0;
+        this.nbElementsRecus = 0;
+        this.dernierePage = -1;
+        this.termine = false;
+        this.pagesEnAttente.clear();
+
+        lancerPages();
+    }
+
+    /**
+     * Interrompt la synchronisation : les pages encore attendues sont ignorées.
+     * Le point de reprise est conservé.
+     */
+    public synchronized void annuler() {
+        termine = true;
+        pagesEnAttente.clear();
+    }
+
+    /**
+     * Demande de nouvelles pages tant que la fenêtre le permet.
+     */
+    private void lancerPages() {
+        while (!termine && pagesEnVol < maxPagesEnVol
+                && (dernierePage < 0 || prochainePageADemander <= dernierePage)) {
+            final int page = prochainePageADemander++;
+            pagesEnVol++;
+            chargeur.charger(page, taillePage, new RetourPage<T>() {
+                @Override
+                public void onPage(List<T> elements) {
+                    pageRecue(page, elements);
+                }
+
+                @Override
+                public void onErreur(String message) {
+                    erreur(message);
+                }
+            });
+        }
+    }
+
+    private synchronized void pageRecue(int page, List<T> elements) {
+        pagesEnVol--;
+        if (termine) {
+            return;
+        }
+
+        if (elements.size() < taillePage && (dernierePage < 0 || page < dernierePage)) {
+            dernierePage = page;
+        }
+        // Les pages au-delà de la fin (demandées en avance) sont vides et ignorées
+        if (dernierePage < 0 || page <= dernierePage) {
+            pagesEnAttente.put(page, elements);
+        }
+
+        // Écriture dans l'ordre des pages contiguës déjà reçues
+        while (pagesEnAttente.containsKey(prochainePageAEcrire)) {
+            List<T> pageAEcrire = pagesEnAttente.remove(prochainePageAEcrire);
+            try {
+                consommateur.consommer(prochainePageAEcrire, pageAEcrire);
+            } catch (Exception e) {
+                echouer("Erreur d'écriture de la page " + prochainePageAEcrire + " : " + e.getMessage());
+                return;
+            }
+            nbElementsRecus += pageAEcrire.size();
+            pointDeReprise.enregistrer(prochainePageAEcrire);
+            prochainePageAEcrire++;
+        }
+
+        if (dernierePage >= 0 && prochainePageAEcrire > dernierePage) {
+            termine = true;
+            // Effacé avant la notification : un arrêt pendant la finalisation fait repartir de zéro
+            pointDeReprise.effacer();
+            callback.onTermine(nbElementsRecus);
+            return;
+        }
+
+        lancerPages();
+    }
+
+    private synchronized void erreur(String message) {
+        pagesEnVol--;
+        echouer(message);
+    }
+
+    private void echouer(String message) {
+        if (termine) {
+            return;
+        }
+        termine = true;
+        pagesEnAttente.clear();
+        callback.onErreur(message);
+    }
+}
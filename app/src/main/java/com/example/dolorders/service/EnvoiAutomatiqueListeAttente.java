@@ -0,0 +1,69 @@
+package com.example.dolorders.service;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Planificateur de l'envoi automatique de la liste d'attente ({@link PlanificateurSyncAuto}),
+ * partagé par toute l'application.
+ * <p>
+ * Il ne dépend pas du cycle de vie de l'écran : l'heure du dernier envoi automatique est conservée
+ * quand l'activité est recréée (rotation, retour à l'application), et l'intervalle minimal entre
+ * deux envois reste respecté. Les tâches sont exécutées sur le thread principal ; la liste d'attente
+ * n'y est pas lue, seuls les résumés des fichiers sont consultés
+ * ({@link ServiceEnvoiListeAttente#aDesElementsAEnvoyer()}).
+ */
+public final class EnvoiAutomatiqueListeAttente {
+
+    private static final String TAG = "EnvoiAutomatique";
+
+    private static volatile PlanificateurSyncAuto instance;
+
+    private EnvoiAutomatiqueListeAttente() {
+        // Classe utilitaire : ne doit pas être instanciée
+    }
+
+    /**
+     * Retourne le planificateur de l'application, créé au premier appel.
+     *
+     * @param context Contexte (seul le contexte de l'application est conservé)
+     */
+    public static PlanificateurSyncAuto get(Context context) {
+        PlanificateurSyncAuto planificateur = instance;
+        if (planificateur == null) {
+            synchronized (EnvoiAutomatiqueListeAttente.class) {
+                planificateur = instance;
+                if (planificateur == null) {
+                    planificateur = creer(context.getApplicationContext());
+                    instance = planificateur;
+                }
+            }
+        }
+        return planificateur;
+    }
+
+    private static PlanificateurSyncAuto creer(Context appContext) {
+        Handler handler = new Handler(Looper.getMainLooper());
+        ServiceEnvoiListeAttente serviceEnvoi = new ServiceEnvoiListeAttente(appContext);
+        return new PlanificateurSyncAuto(
+                new PlanificateurSyncAuto.Minuteur() {
+                    @Override
+                    public void planifier(Runnable tache, long delaiMs) {
+                        handler.postDelayed(tache, delaiMs);
+                    }
+
+                    @Override
+                    public void annuler(Runnable tache) {
+                        handler.removeCallbacks(tache);
+                    }
+                },
+                System::currentTimeMillis,
+                serviceEnvoi::aDesElementsAEnvoyer,
+                () -> {
+                    Log.d(TAG, "📤 Envoi automatique de la liste d'attente");
+                    EnvoiListeAttenteWorker.planifierAutomatique(appContext);
+                });
+    }
+}
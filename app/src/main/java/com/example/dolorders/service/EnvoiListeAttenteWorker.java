@@ -0,0 +1,248 @@
+package com.example.dolorders.service;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.dolorders.ui.util.RapportSynchronisation;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Travail en arrière-plan (WorkManager) qui envoie la liste d'attente vers Dolibarr.
+ * <p>
+ * Le travail est persisté par WorkManager : il survit à la rotation de l'écran, à la mise en arrière-plan
+ * et à l'arrêt du processus. La file de travail elle-même est le stockage local : chaque client ou
+ * commande envoyé en est retiré, une nouvelle exécution ne traite donc que ce qui reste.
+ * En cas d'échec de connexion, le travail est relancé avec un délai exponentiel
+ * (voir {@link PlanEnvoiListeAttente#doitReessayer}).
+ * Si l'envoi dépasse la durée permise ou si le travail est arrêté, l'envoi est annulé
+ * ({@link ServiceEnvoiListeAttente#annuler()}) : les éléments pas encore commencés attendent la prochaine exécution.
+ * <p>
+ * La progression et le rapport final sont exposés par {@link #observer(Context)}.
+ */
+public class EnvoiListeAttenteWorker extends Worker {
+
+    private static final String TAG = "EnvoiListeAttenteWorker";
+
+    /** Nom unique du travail : un seul envoi de la liste d'attente à la fois */
+    public static final String NOM_TRAVAIL = "envoi_liste_attente";
+
+    /** Clés de progression */
+    public static final String CLE_CLIENTS_TRAITES = "clients_traites";
+    public static final String CLE_CLIENTS_TOTAL = "clients_total";
+
+    /** Clés du résultat */
+    public static final String CLE_RAPPORT = "rapport";
+    public static final String CLE_TOUT_REUSSI = "tout_reussi";
+    public static final String CLE_A_DES_ERREURS = "a_des_erreurs";
+    public static final String CLE_ERREUR_RESYNC = "erreur_resync";
+
+    /** Délai initial avant une nouvelle tentative, doublé à chaque échec */
+    private static final long DELAI_INITIAL_SECONDES = 30;
+
+    /** WorkManager interrompt un travail après 10 minutes : on rend la main avant */
+    private static final long DUREE_MAX_MINUTES = 9;
+
+    /** Attente de la fin de l'élément en cours après l'annulation d'un envoi trop long */
+    private static final long DELAI_FIN_ANNULATION_SECONDES = 30;
+
+    /** Taille maximale du rapport transmis (les Data de WorkManager sont limitées à 10 Ko) */
+    private static final int TAILLE_MAX_RAPPORT = 4000;
+
+    /** Lecture de l'état du travail avant une planification manuelle, hors du thread principal */
+    private static final ExecutorService EXECUTEUR_PLANIFICATION = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "planification-envoi");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Envoi en cours, annulé si le travail est arrêté */
+    private volatile ServiceEnvoiListeAttente service;
+
+    public EnvoiListeAttenteWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Planifie l'envoi de la liste d'attente, dès qu'une connexion est disponible.
+     * Un envoi en cours est conservé ; un envoi seulement planifié (envoi automatique qui attend
+     * le Wi-Fi, nouvelle tentative différée) est remplacé, pour ne pas retarder l'envoi demandé.
+     *
+     * @param context Contexte
+     */
+    public static void planifier(Context context) {
+        Context appContext = context.getApplicationContext();
+        EXECUTEUR_PLANIFICATION.execute(() -> {
+            ExistingWorkPolicy politique = estEnCours(appContext)
+                    ? ExistingWorkPolicy.KEEP
+                    : ExistingWorkPolicy.REPLACE;
+            planifier(appContext, NetworkType.CONNECTED, politique);
+        });
+    }
+
+    /**
+     * Planifie un envoi automatique (voir {@link PlanificateurSyncAuto}), limité au réseau non facturé.
+     * Si un envoi est déjà planifié ou en cours, il est conservé.
+     *
+     * @param context Contexte
+     */
+    public static void planifierAutomatique(Context context) {
+        planifier(context, NetworkType.UNMETERED, ExistingWorkPolicy.KEEP);
+    }
+
+    /**
+     * Le manuel et l'automatique partagent le même nom unique : deux envois ne doivent jamais
+     * traiter la liste d'attente en même temps.
+     */
+    private static void planifier(Context context, NetworkType reseau, ExistingWorkPolicy politique) {
+        Constraints contraintes = new Constraints.Builder()
+                .setRequiredNetworkType(reseau)
+                .build();
+
+        OneTimeWorkRequest requete = new OneTimeWorkRequest.Builder(EnvoiListeAttenteWorker.class)
+                .setConstraints(contraintes)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, DELAI_INITIAL_SECONDES, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(NOM_TRAVAIL, politique, requete);
+    }
+
+    /**
+     * À appeler hors du thread principal (lecture de la base de WorkManager).
+     *
+     * @return true si un envoi de la liste d'attente est en cours d'exécution
+     */
+    private static boolean estEnCours(Context context) {
+        try {
+            for (WorkInfo travail : WorkManager.getInstance(context)
+                    .getWorkInfosForUniqueWork(NOM_TRAVAIL).get()) {
+                if (travail.getState() == WorkInfo.State.RUNNING) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (ExecutionException e) {
+            // État inconnu : l'envoi éventuellement en cours est conservé
+            Log.e(TAG, "Lecture de l'état de l'envoi impossible", e);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * @param context Contexte
+     * @return État du travail d'envoi (progression, puis rapport une fois terminé)
+     */
+    public static LiveData<List<WorkInfo>> observer(Context context) {
+        return WorkManager.getInstance(context.getApplicationContext())
+                .getWorkInfosForUniqueWorkLiveData(NOM_TRAVAIL);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Log.d(TAG, "Début de l'envoi de la liste d'attente (tentative " + (getRunAttemptCount() + 1) + ")");
+
+        CountDownLatch fin = new CountDownLatch(1);
+        Data[] sortie = new Data[1];
+        boolean[] echecConnexion = {false};
+
+        ServiceEnvoiListeAttente envoi = new ServiceEnvoiListeAttente(getApplicationContext());
+        service = envoi;
+
+        // La liste d'attente est lue sur le thread du travail, pas sur le thread principal
+        ServiceEnvoiListeAttente.ListeAttente liste = envoi.chargerListeAttente();
+
+        // Les réponses Volley arrivent sur le thread principal : l'envoi est démarré sur ce même thread
+        // (les écritures du stockage local sont faites par le service, hors de ce thread)
+        new Handler(Looper.getMainLooper()).post(() -> envoi.envoyer(liste, new ServiceEnvoiListeAttente.EnvoiCallback() {
+            @Override
+            public void onProgression(int nbClientsTraites, int nbClientsTotal) {
+                setProgressAsync(new Data.Builder()
+                        .putInt(CLE_CLIENTS_TRAITES, nbClientsTraites)
+                        .putInt(CLE_CLIENTS_TOTAL, nbClientsTotal)
+                        .build());
+            }
+
+            @Override
+            public void onTermine(RapportSynchronisation rapport, String erreurResync, boolean echec) {
+                sortie[0] = creerResultat(rapport, erreurResync);
+                echecConnexion[0] = echec;
+                fin.countDown();
+            }
+        }));
+
+        try {
+            if (!fin.await(DUREE_MAX_MINUTES, TimeUnit.MINUTES)) {
+                // L'envoi est arrêté avant de rendre la main : il ne doit pas continuer en parallèle
+                // de la nouvelle tentative. Les éléments en cours sont terminés (dans la limite du délai),
+                // ceux pas encore commencés sont toujours en attente
+                envoi.annuler();
+                if (!fin.await(DELAI_FIN_ANNULATION_SECONDES, TimeUnit.SECONDS)) {
+                    Log.w(TAG, "⚠️ Éléments en cours non terminés après l'annulation");
+                }
+                Log.w(TAG, "⚠️ Envoi trop long, nouvelle tentative planifiée");
+                return Result.retry();
+            }
+        } catch (InterruptedException e) {
+            envoi.annuler();
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        if (PlanEnvoiListeAttente.doitReessayer(echecConnexion[0], getRunAttemptCount())) {
+            Log.w(TAG, "⚠️ Éléments conservés faute de connexion, nouvelle tentative planifiée");
+            return Result.retry();
+        }
+
+        Log.d(TAG, "✅ Envoi de la liste d'attente terminé");
+        return Result.success(sortie[0]);
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        // Travail arrêté par WorkManager (contraintes perdues, annulation) : l'envoi s'arrête aussi
+        ServiceEnvoiListeAttente envoi = service;
+        if (envoi != null) {
+            envoi.annuler();
+        }
+    }
+
+    private static Data creerResultat(RapportSynchronisation rapport, String erreurResync) {
+        String texte = rapport.genererRapportDetaille();
+        if (texte.length() > TAILLE_MAX_RAPPORT) {
+            texte = texte.substring(0, TAILLE_MAX_RAPPORT) + "\n…";
+        }
+
+        return new Data.Builder()
+                .putString(CLE_RAPPORT, texte)
+                .putBoolean(CLE_TOUT_REUSSI, rapport.aToutReussi())
+                .putBoolean(CLE_A_DES_ERREURS, rapport.aDesErreurs())
+                .putString(CLE_ERREUR_RESYNC, erreurResync)
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.dolorders.service;
+
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index des commandes en attente, regroupées par client.
+ * <p>
+ * Construit en un seul passage sur les commandes, il remplace les parcours complets de la liste
+ * faits pour chaque client : les commandes d'un client sont obtenues directement
+ * ({@link #commandesDe(String)}), et l'index est tenu à jour au fil des envois
+ * ({@link #ajouter(Commande)} / {@link #retirer(Commande)}).
+ * <p>
+ * Les commandes sont rattachées à leur client par le nom : l'ID enregistré dans une commande
+ * ne suffit pas (les clients locaux sont numérotés localement, dans la même plage que les
+ * ID Dolibarr, et l'origine du client n'est pas enregistrée avec la commande).
+ * <p>
+ * Les groupes gardent l'ordre de la première commande de chaque client, et les commandes
+ * d'un client gardent leur ordre d'origine.
+ * <p>
+ * Cette classe ne dépend pas d'Android.
+ */
+public final class IndexListeAttente {
+
+    /** Commandes par nom de client, dans l'ordre de la première commande de chaque client */
+    private final Map<String, List<Commande>> parClient = new LinkedHashMap<>();
+
+    /**
+     * @param commandes Commandes en attente (null accepté : index vide)
+     */
+    public IndexListeAttente(List<Commande> commandes) {
+        if (commandes != null) {
+            for (Commande commande : commandes) {
+                ajouter(commande);
+            }
+        }
+    }
+
+    /**
+     * Ajoute une commande à l'index. Une commande sans client est ignorée (elle ne peut pas être envoyée).
+     */
+    public synchronized void ajouter(Commande commande) {
+        if (commande == null || commande.getClient() == null) {
+            return;
+        }
+        List<Commande> groupe = parClient.get(commande.getClient().getNom());
+        if (groupe == null) {
+            groupe = new ArrayList<>();
+            parClient.put(commande.getClient().getNom(), groupe);
+        }
+        groupe.add(commande);
+    }
+
+    /**
+     * Retire une commande de l'index (ex : commande envoyée puis supprimée du stockage local).
+     *
+     * @return true si la commande était dans l'index
+     */
+    public synchronized boolean retirer(Commande commande) {
+        if (commande == null || commande.getClient() == null) {
+            return false;
+        }
+        String nom = commande.getClient().getNom();
+        List<Commande> groupe = parClient.get(nom);
+        if (groupe == null) {
+            return false;
+        }
+        for (int i = 0; i < groupe.size(); i++) {
+            if (memeId(groupe.get(i), commande)) {
+                groupe.remove(i);
+                if (groupe.isEmpty()) {
+                    parClient.remove(nom);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param nomClient Nom du client
+     * @return Copie des commandes en attente du client, dans leur ordre d'origine (liste vide si aucune)
+     */
+    public synchronized List<Commande> commandesDe(String nomClient) {
+        List<Commande> groupe = parClient.get(nomClient);
+        return groupe == null ? new ArrayList<>() : new ArrayList<>(groupe);
+    }
+
+    /**
+     * @param client Client
+     * @return Copie des commandes en attente du client (liste vide si aucune)
+     */
+    public List<Commande> commandesDe(Client client) {
+        return commandesDe(client.getNom());
+    }
+
+    /**
+     * @return Noms des clients ayant au moins une commande en attente, dans l'ordre de leur première commande
+     */
+    public synchronized Set<String> nomsClients() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(parClient.keySet()));
+    }
+
+    /**
+     * @return true si aucune commande n'est en attente
+     */
+    public synchronized boolean estVide() {
+        return parClient.isEmpty();
+    }
+
+    private static boolean memeId(Commande a, Commande b) {
+        return a.getId() == null ? b.getId() == null : a.getId().equals(b.getId());
+    }
+}
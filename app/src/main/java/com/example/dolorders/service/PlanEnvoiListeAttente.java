@@ -0,0 +1,143 @@
+package com.example.dolorders.service;
+
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Règles de l'envoi de la liste d'attente, indépendantes d'Android :
+ * choix des clients à envoyer et décision de nouvelle tentative du travail en arrière-plan.
+ */
+public final class PlanEnvoiListeAttente {
+
+    /** Nombre maximal d'exécutions du travail d'envoi avant abandon (la liste d'attente est conservée) */
+    public static final int MAX_TENTATIVES = 5;
+
+    private PlanEnvoiListeAttente() {
+        // Classe utilitaire : ne doit pas être instanciée
+    }
+
+    /**
+     * Construit la liste des clients à traiter :
+     * 1. Tous les clients locaux (fromApi=false), avec ou sans commandes
+     * 2. Puis les clients (principalement API) qui ont des commandes en attente
+     * Les commandes sont rattachées à leur client par le nom.
+     *
+     * @param clientsLocaux Clients du stockage local
+     * @param clientsApi    Clients du cache API
+     * @param commandes     Commandes en attente
+     * @return Clients à traiter, sans doublon, dans l'ordre d'envoi
+     */
+    public static List<Client> clientsAEnvoyer(List<Client> clientsLocaux, List<Client> clientsApi,
+                                               List<Commande> commandes) {
+        return clientsAEnvoyerDepuisIndex(clientsLocaux, clientsApi, new IndexListeAttente(commandes));
+    }
+
+    /**
+     * Construit la liste des clients à traiter à partir de l'index des commandes en attente
+     * (voir {@link #clientsAEnvoyer(List, List, List)}). Chaque liste n'est parcourue qu'une fois.
+     *
+     * @param clientsLocaux Clients du stockage local
+     * @param clientsApi    Clients du cache API
+     * @param index         Commandes en attente, regroupées par client
+     * @return Clients à traiter, sans doublon, dans l'ordre d'envoi
+     */
+    public static List<Client> clientsAEnvoyerDepuisIndex(List<Client> clientsLocaux, List<Client> clientsApi,
+                                                          IndexListeAttente index) {
+        List<Client> clientsAEnvoyer = new ArrayList<>();
+        // Client n'a pas d'equals : les doublons sont les mêmes instances
+        Set<Client> dejaAjoutes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // 1. D'abord tous les clients LOCAUX (fromApi=false)
+        if (clientsLocaux != null) {
+            for (Client clientLocal : clientsLocaux) {
+                if (!clientLocal.isFromApi() && dejaAjoutes.add(clientLocal)) {
+                    clientsAEnvoyer.add(clientLocal);
+                }
+            }
+        }
+
+        // 2. Ensuite les clients avec commandes qui ne sont pas encore dans la liste
+        if (index.estVide()) {
+            return clientsAEnvoyer;
+        }
+        Map<String, Client> locauxParNom = indexerParNom(clientsLocaux);
+        Map<String, Client> apiParNom = indexerParNom(clientsApi);
+        for (String nomClient : index.nomsClients()) {
+            // D'abord chercher dans les clients locaux, puis dans les clients API
+            Client clientComplet = locauxParNom.get(nomClient);
+            if (clientComplet == null) {
+                clientComplet = apiParNom.get(nomClient);
+            }
+
+            if (clientComplet != null && dejaAjoutes.add(clientComplet)) {
+                clientsAEnvoyer.add(clientComplet);
+            }
+        }
+
+        return clientsAEnvoyer;
+    }
+
+    /**
+     * Indique si le travail d'envoi doit être relancé plus tard.
+     * Seuls les échecs de connexion (ou un serveur indisponible) justifient une nouvelle tentative :
+     * les éléments refusés par Dolibarr sont enregistrés dans l'historique pour correction et ne
+     * repasseraient pas mieux.
+     *
+     * @param echecConnexion true si au moins un élément n'a pas pu partir faute de connexion ou de serveur
+     * @param tentative      Nombre d'exécutions déjà faites avant celle-ci (0 pour la première)
+     * @return true s'il faut replanifier le travail
+     */
+    public static boolean doitReessayer(boolean echecConnexion, int tentative) {
+        return echecConnexion && tentative + 1 < MAX_TENTATIVES;
+    }
+
+    /**
+     * Suppression locale d'un élément envoyé.
+     */
+    public interface SuppressionLocale {
+        /**
+         * @return true si la suppression est écrite sur disque (elle survit à un arrêt de l'application)
+         */
+        boolean supprimer();
+    }
+
+    /**
+     * Termine un élément envoyé : il est supprimé du stockage local, puis son état d'envoi
+     * (clé d'idempotence, ID Dolibarr) est effacé.
+     * L'état n'est effacé qu'une fois la suppression écrite : si l'application s'arrête avant,
+     * l'élément encore présent en local garde son état, et la tentative suivante reprend sans le recréer
+     * dans Dolibarr.
+     *
+     * @param suppression     Suppression locale, écrite sur disque avant son retour
+     * @param effacerEtatEnvoi Effacement de l'état d'envoi de l'élément
+     * @return true si l'élément a été supprimé et son état effacé
+     */
+    public static boolean supprimerPuisOublier(SuppressionLocale suppression, Runnable effacerEtatEnvoi) {
+        if (!suppression.supprimer()) {
+            return false;
+        }
+        effacerEtatEnvoi.run();
+        return true;
+    }
+
+    /**
+     * Indexe les clients par nom ; en cas d'homonymes, le premier de la liste est retenu.
+     */
+    private static Map<String, Client> indexerParNom(List<Client> clients) {
+        Map<String, Client> parNom = new HashMap<>();
+        if (clients != null) {
+            for (Client c : clients) {
+                parNom.putIfAbsent(c.getNom(), c);
+            }
+        }
+        return parNom;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.dolorders.service;
+
+/**
+ * Planifie l'envoi automatique de la liste d'attente quand un réseau validé et non facturé
+ * (Wi-Fi) devient disponible.
+ * <p>
+ * - Anti-rebond : l'envoi ne part qu'après {@link #DELAI_STABILISATION_MS} de réseau stable ;
+ * une perte du réseau pendant ce délai l'annule.
+ * - Limitation : deux envois automatiques sont espacés d'au moins {@link #INTERVALLE_MIN_MS} ;
+ * un réseau retrouvé plus tôt décale l'envoi à la fin de l'intervalle.
+ * - Rien n'est envoyé si la liste d'attente est vide.
+ * <p>
+ * Cette classe ne dépend pas d'Android : le minuteur, l'horloge, la liste d'attente et
+ * le déclenchement de l'envoi sont fournis par l'appelant.
+ */
+public class PlanificateurSyncAuto {
+
+    /** Durée pendant laquelle le réseau doit rester disponible avant l'envoi */
+    public static final long DELAI_STABILISATION_MS = 30L * 1000L;
+
+    /** Intervalle minimal entre deux envois automatiques */
+    public static final long INTERVALLE_MIN_MS = 15L * 60L * 1000L;
+
+    /**
+     * Exécute une tâche après un délai (ex : Handler du thread principal).
+     */
+    public interface Minuteur {
+        void planifier(Runnable tache, long delaiMs);
+
+        void annuler(Runnable tache);
+    }
+
+    /**
+     * Source de l'heure courante (ms).
+     */
+    public interface Horloge {
+        long maintenant();
+    }
+
+    /**
+     * Indique si des clients ou commandes attendent d'être envoyés.
+     */
+    public interface ListeAttente {
+        boolean aDesElements();
+    }
+
+    /**
+     * Lance l'envoi de la liste d'attente.
+     */
+    public interface Declencheur {
+        void declencher();
+    }
+
+    private final Minuteur minuteur;
+    private final Horloge horloge;
+    private final ListeAttente listeAttente;
+    private final Declencheur declencheur;
+    private final Runnable tacheEnvoi = this::envoyerSiNecessaire;
+
+    private boolean envoiPlanifie;
+    private long dernierEnvoi = -1;
+
+    public PlanificateurSyncAuto(Minuteur minuteur, Horloge horloge,
+                                 ListeAttente listeAttente, Declencheur declencheur) {
+        this.minuteur = minuteur;
+        this.horloge = horloge;
+        this.listeAttente = listeAttente;
+        this.declencheur = declencheur;
+    }
+
+    /**
+     * Un réseau validé et non facturé vient d'apparaître : (re)lance le délai de stabilisation.
+     */
+    public synchronized void onReseauDisponible() {
+        planifier(DELAI_STABILISATION_MS);
+    }
+
+    /**
+     * Le réseau non facturé a été perdu : annule l'envoi en attente de stabilisation.
+     */
+    public synchronized void onReseauPerdu() {
+        if (envoiPlanifie) {
+            minuteur.annuler(tacheEnvoi);
+            envoiPlanifie = false;
+        }
+    }
+
+    /**
+     * @return true si un envoi automatique est planifié
+     */
+    public synchronized boolean isEnvoiPlanifie() {
+        return envoiPlanifie;
+    }
+
+    private void planifier(long delaiMs) {
+        if (envoiPlanifie) {
+            minuteur.annuler(tacheEnvoi);
+        }
+        minuteur.planifier(tacheEnvoi, delaiMs);
+        envoiPlanifie = true;
+    }
+
+    private void envoyerSiNecessaire() {
+        synchronized (this) {
+            envoiPlanifie = false;
+
+            long maintenant = horloge.maintenant();
+            if (dernierEnvoi >= 0 && maintenant - dernierEnvoi < INTERVALLE_MIN_MS) {
+                // Trop tôt : décalé à la fin de l'intervalle
+                planifier(dernierEnvoi + INTERVALLE_MIN_MS - maintenant);
+                return;
+            }
+            if (!listeAttente.aDesElements()) {
+                return;
+            }
+            dernierEnvoi = maintenant;
+        }
+        declencheur.declencher();
+    }
+}
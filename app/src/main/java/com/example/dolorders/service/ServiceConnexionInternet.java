@@ -20,6 +20,8 @@ public class ServiceConnexionInternet {
     private ConnectivityManager.NetworkCallback networkCallback;
     private ConnectionStatusListener listener;
     private boolean isConnected = false;
+    private volatile ReseauNonFactureListener reseauNonFactureListener;
+    private boolean reseauNonFacture = false;
 
     /**
      * Interface pour être notifié des changements de connexion
@@ -28,6 +30,16 @@ public class ServiceConnexionInternet {
         void onConnectionStatusChanged(boolean isConnected);
     }
 
+    /**
+     * Interface pour être notifié de l'apparition et de la perte d'un réseau validé et non facturé (Wi-Fi).
+     * Utilisé pour déclencher l'envoi automatique de la liste d'attente.
+     */
+    public interface ReseauNonFactureListener {
+        void onReseauNonFactureDisponible();
+
+        void onReseauNonFacturePerdu();
+    }
+
     public ServiceConnexionInternet(Context context) {
         connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         // Vérifier l'état initial
@@ -60,6 +72,7 @@ public class ServiceConnexionInternet {
                     if (ServiceConnexionInternet.this.listener != null) {
                         ServiceConnexionInternet.this.listener.onConnectionStatusChanged(false);
                     }
+                    mettreAJourReseauNonFacture(false);
                 }
 
                 @Override
@@ -73,6 +86,8 @@ public class ServiceConnexionInternet {
                             ServiceConnexionInternet.this.listener.onConnectionStatusChanged(hasInternet);
                         }
                     }
+                    mettreAJourReseauNonFacture(hasInternet &&
+                            networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED));
                 }
             };
             connectivityManager.registerDefaultNetworkCallback(networkCallback);
@@ -119,6 +134,34 @@ public class ServiceConnexionInternet {
             networkCallback = null;
         }
         listener = null;
+        reseauNonFactureListener = null;
+    }
+
+    /**
+     * Définit le listener notifié des changements de réseau non facturé.
+     * Seules les transitions sont notifiées (les changements de débit ou de signal sont ignorés).
+     *
+     * @param listener Listener, ou null pour ne plus être notifié
+     */
+    public void setReseauNonFactureListener(ReseauNonFactureListener listener) {
+        this.reseauNonFactureListener = listener;
+    }
+
+    private void mettreAJourReseauNonFacture(boolean nonFacture) {
+        if (reseauNonFacture == nonFacture) {
+            return;
+        }
+        reseauNonFacture = nonFacture;
+        Log.d(TAG, "📶 Réseau non facturé : " + (nonFacture ? "disponible" : "perdu"));
+
+        ReseauNonFactureListener l = reseauNonFactureListener;
+        if (l != null) {
+            if (nonFacture) {
+                l.onReseauNonFactureDisponible();
+            } else {
+                l.onReseauNonFacturePerdu();
+            }
+        }
     }
 
     /**
@@ -0,0 +1,896 @@
+package com.example.dolorders.service;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
+import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.example.dolorders.repository.ClientApiRepository;
+import com.example.dolorders.repository.CommandeApiRepository;
+import com.example.dolorders.repository.Disjoncteur;
+import com.example.dolorders.repository.EtatEnvoi;
+import com.example.dolorders.repository.ExecuteurConcurrentBorne;
+import com.example.dolorders.repository.PolitiqueReseau;
+import com.example.dolorders.repository.SuiviEnvoiListeAttente;
+import com.example.dolorders.ui.util.RapportSynchronisation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service d'envoi de la liste d'attente (clients locaux + commandes) vers Dolibarr.
+ * - Clients locaux : envoyés vers Dolibarr puis leurs commandes
+ * - Clients API : seulement leurs commandes (client existe déjà)
+ * Flux: Client (si local) → Commandes du client → Historique commandes → Re-synchronisation des clients
+ * <p>
+ * Les clients sont indépendants : jusqu'à {@link #MAX_CLIENTS_EN_PARALLELE} sont traités en même temps,
+ * les commandes d'un même client restent envoyées l'une après l'autre.
+ * Le service ne dépend que du contexte de l'application : il est exécuté par
+ * {@link EnvoiListeAttenteWorker}, indépendamment du cycle de vie de l'écran.
+ * Les éléments envoyés sont supprimés du stockage local au fil de l'eau : un envoi interrompu
+ * reprend avec ce qui reste en attente. Les suppressions de commandes rapprochées sont écrites
+ * ensemble par le stockage, et toutes sont écrites avant la re-synchronisation. Ces écritures sont
+ * faites sur un thread dédié : les réponses Volley, reçues sur le thread principal, n'attendent pas le disque.
+ * L'avancement de chaque élément (ID Dolibarr, lignes acceptées par l'historique) est persisté
+ * ({@link SuiviEnvoiListeAttente}) : une nouvelle tentative ne recrée pas dans Dolibarr un élément
+ * déjà créé et ne renvoie que les lignes d'historique manquantes.
+ * Dès qu'un échec systémique est détecté ({@link Disjoncteur} : serveur injoignable ou en erreur,
+ * clé API refusée), les éléments restants ne sont plus tentés : ils restent en local et sont
+ * indiqués comme non tentés dans le rapport. Il en va de même après {@link #annuler()}.
+ * <p>
+ * La liste d'attente est lue par {@link #chargerListeAttente()}, à appeler hors du thread principal,
+ * avant d'être envoyée par {@link #envoyer(ListeAttente, EnvoiCallback)}.
+ */
+public class ServiceEnvoiListeAttente {
+
+    private static final String TAG = "EnvoiListeAttente";
+    private static final String VALIDE_CLIENT = "✅ Client ";
+    private static final String VALIDE_COMMANDE = "✅ Commande ";
+
+    /** Nombre maximal de clients (avec leurs commandes) envoyés simultanément */
+    private static final int MAX_CLIENTS_EN_PARALLELE = 3;
+
+    /** Thread unique des écritures du stockage local pendant l'envoi : elles sont faites dans l'ordre */
+    private static final ExecutorService EXECUTEUR_STOCKAGE = Executors.newSingleThreadExecutor(
+            tache -> new Thread(tache, "envoi-stockage"));
+
+    /**
+     * Interface de callback pour suivre l'envoi.
+     */
+    public interface EnvoiCallback {
+        void onProgression(int nbClientsTraites, int nbClientsTotal);
+
+        /**
+         * @param rapport        Résultat de chaque client et commande
+         * @param erreurResync   Message convivial si la re-synchronisation des clients a échoué, sinon null
+         * @param echecConnexion true si des éléments sont restés en local faute de connexion
+         *                       ou de serveur disponible (une nouvelle tentative plus tard peut aboutir)
+         */
+        void onTermine(RapportSynchronisation rapport, String erreurResync, boolean echecConnexion);
+    }
+
+    /**
+     * Écriture du stockage local, exécutée sur le thread des écritures.
+     */
+    private interface EcritureLocale {
+        boolean executer();
+    }
+
+    /**
+     * Suite de l'envoi après une écriture, appelée sur le thread principal.
+     */
+    private interface SuiteEcriture {
+        void onTermine(boolean succes);
+    }
+
+    private final Context context;
+    private final SuiviEnvoiListeAttente suivi;
+    private final Disjoncteur disjoncteur;
+    private final AtomicBoolean echecConnexion = new AtomicBoolean(false);
+    private final AtomicBoolean annule = new AtomicBoolean(false);
+    private final Handler threadPrincipal = new Handler(Looper.getMainLooper());
+
+    /**
+     * Liste d'attente lue depuis le stockage local : commandes regroupées par client et clients à traiter.
+     */
+    public static final class ListeAttente {
+        private final IndexListeAttente index;
+        private final List<Client> clients;
+
+        private ListeAttente(IndexListeAttente index, List<Client> clients) {
+            this.index = index;
+            this.clients = clients;
+        }
+
+        /**
+         * @return true si aucun client ni commande n'est à envoyer
+         */
+        public boolean estVide() {
+            return clients.isEmpty();
+        }
+    }
+
+    public ServiceEnvoiListeAttente(Context context) {
+        this.context = context.getApplicationContext();
+        this.suivi = new SuiviEnvoiListeAttente(context);
+        this.disjoncteur = PolitiqueReseau.get(context).getDisjoncteur();
+    }
+
+    /**
+     * Indique si la liste d'attente contient au moins un client local ou une commande à envoyer.
+     * Seuls les résumés des fichiers sont lus (voir {@link GestionnaireStockageClient#getMetadonnees()}) :
+     * peut être appelé sur le thread principal. Une commande dont le client est introuvable compte aussi ;
+     * l'envoi, lui, ne traite que les clients retrouvés ({@link #chargerListeAttente()}).
+     */
+    public boolean aDesElementsAEnvoyer() {
+        return new GestionnaireStockageCommande(context).getMetadonnees().getNbEnregistrements() > 0
+                || new GestionnaireStockageClient(context).getMetadonnees().getNbEnregistrements() > 0;
+    }
+
+    /**
+     * Lit la liste d'attente depuis le stockage local. Les commandes ne sont lues et regroupées
+     * par client qu'une fois pour tout l'envoi.
+     * À appeler hors du thread principal (le stockage peut devoir être relu et rejoué).
+     *
+     * @return La liste d'attente à passer à {@link #envoyer(ListeAttente, EnvoiCallback)}
+     */
+    public ListeAttente chargerListeAttente() {
+        IndexListeAttente index = chargerIndexCommandes();
+        return new ListeAttente(index, chargerClientsAEnvoyer(index));
+    }
+
+    /**
+     * Interrompt l'envoi en cours : les clients et commandes pas encore commencés ne sont plus tentés
+     * et restent en local. L'élément en cours d'envoi est terminé normalement.
+     */
+    public void annuler() {
+        annule.set(true);
+    }
+
+    /**
+     * Envoie tous les clients et leurs commandes vers Dolibarr + historique, puis re-synchronise les clients.
+     * Les callbacks sont appelés sur le thread principal (réponses Volley).
+     *
+     * @param liste    Liste d'attente lue par {@link #chargerListeAttente()}
+     * @param callback Callback de progression et de fin
+     */
+    public void envoyer(ListeAttente liste, EnvoiCallback callback) {
+        RapportSynchronisation rapport = new RapportSynchronisation();
+        GestionnaireStockageCommande commandeStorage = new GestionnaireStockageCommande(context);
+
+        IndexListeAttente index = liste.index;
+        List<Client> clientsAEnvoyer = liste.clients;
+        if (clientsAEnvoyer.isEmpty()) {
+            Log.d(TAG, "Aucun client ni commande à envoyer");
+            callback.onTermine(rapport, null, false);
+            return;
+        }
+
+        Log.d(TAG, "Nombre total de clients à envoyer: " + clientsAEnvoyer.size());
+
+        // Les échecs d'un envoi précédent ne doivent pas empêcher celui-ci de commencer
+        disjoncteur.reinitialiser();
+
+        // Envoi des clients en parallèle (bornés), chacun suivi de ses commandes dans l'ordre
+        ClientApiRepository clientRepo = new ClientApiRepository(context);
+        CommandeApiRepository commandeRepo = new CommandeApiRepository(context);
+
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(MAX_CLIENTS_EN_PARALLELE);
+        int totalClients = clientsAEnvoyer.size();
+        AtomicInteger nbClientsTraites = new AtomicInteger();
+        callback.onProgression(0, totalClients);
+
+        for (Client client : clientsAEnvoyer) {
+            executeur.soumettre(terminee ->
+                    envoyerClientEtCommandes(client, index, clientRepo, commandeRepo, commandeStorage, rapport, () -> {
+                        callback.onProgression(nbClientsTraites.incrementAndGet(), totalClients);
+                        terminee.run();
+                    }));
+        }
+
+        // Les suppressions locales ont été regroupées : elles sont écrites avant la fin de l'envoi
+        executeur.fermer(() -> ecrireHorsThreadPrincipal("suppressions de commandes en attente",
+                commandeStorage::ecrireModificationsEnAttente, ecrit -> {
+            if (!ecrit) {
+                Log.w(TAG, "⚠️ Écriture des suppressions de commandes reportée");
+            }
+            if (rapport.aEteInterrompu() || annule.get()) {
+                // La re-synchronisation échouerait aussi (ou n'est plus attendue) : le rapport est rendu sans attendre
+                Log.d(TAG, "Envoi interrompu, pas de re-synchronisation des clients");
+                callback.onTermine(rapport, null, echecConnexion.get());
+                return;
+            }
+            Log.d(TAG, "Tous les clients et commandes traités. Re-synchronisation...");
+            resynchroniserClients(rapport, callback);
+        }));
+    }
+
+    /**
+     * Exécute une écriture du stockage local sur le thread des écritures, puis reprend l'envoi
+     * sur le thread principal. Une exception pendant l'écriture est traitée comme un échec.
+     *
+     * @param description Description de l'écriture (journal)
+     * @param ecriture    Écriture à exécuter
+     * @param suite       Suite de l'envoi, avec le résultat de l'écriture
+     */
+    private void ecrireHorsThreadPrincipal(String description, EcritureLocale ecriture, SuiteEcriture suite) {
+        EXECUTEUR_STOCKAGE.execute(() -> {
+            boolean succes;
+            try {
+                succes = ecriture.executer();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Erreur lors de l'écriture : " + description, e);
+                succes = false;
+            }
+            boolean resultat = succes;
+            threadPrincipal.post(() -> suite.onTermine(resultat));
+        });
+    }
+
+    /**
+     * Charge les commandes en attente et les regroupe par client.
+     */
+    private IndexListeAttente chargerIndexCommandes() {
+        return new IndexListeAttente(new GestionnaireStockageCommande(context).loadCommandes());
+    }
+
+    /**
+     * Charge les clients locaux et le cache API, puis détermine les clients à traiter.
+     *
+     * @param index Commandes en attente, regroupées par client
+     */
+    private List<Client> chargerClientsAEnvoyer(IndexListeAttente index) {
+        GestionnaireStockageClient storageLocal = new GestionnaireStockageClient(context);
+        GestionnaireStockageClient storageApi = new GestionnaireStockageClient(
+                context,
+                GestionnaireStockageClient.API_CLIENTS_FILE
+        );
+
+        return PlanEnvoiListeAttente.clientsAEnvoyerDepuisIndex(
+                storageLocal.loadClients(), storageApi.loadClients(), index);
+    }
+
+    /**
+     * Envoie un client puis ses commandes.
+     * Les clients provenant de l'API ne sont pas envoyés (ils existent déjà dans Dolibarr),
+     * seules leurs commandes sont envoyées. Les commandes ne partent qu'une fois le client créé,
+     * car elles ont besoin de son ID Dolibarr.
+     *
+     * @param client          Le client à traiter (local ou API)
+     * @param index           Les commandes en attente, regroupées par client
+     * @param clientRepo      Le repository pour envoyer les clients
+     * @param commandeRepo    Le repository pour envoyer les commandes
+     * @param commandeStorage Le gestionnaire de stockage pour les commandes locales
+     * @param rapport         Le rapport de synchronisation à mettre à jour avec les résultats
+     * @param onTermine       Appelé une fois le client et ses commandes traités, en succès comme en échec
+     */
+    private void envoyerClientEtCommandes(Client client,
+                                          IndexListeAttente index,
+                                          ClientApiRepository clientRepo,
+                                          CommandeApiRepository commandeRepo,
+                                          GestionnaireStockageCommande commandeStorage,
+                                          RapportSynchronisation rapport,
+                                          Runnable onTermine) {
+        if (envoiInterrompu(rapport)) {
+            // Ni le client ni ses commandes ne sont tentés : ils restent en local
+            if (!client.isFromApi()) {
+                rapport.ajouterClientNonTente(client.getNom());
+            }
+            for (Commande cmd : index.commandesDe(client)) {
+                rapport.ajouterCommandeNonTentee(cmd.getId());
+            }
+            onTermine.run();
+            return;
+        }
+
+        Log.d(TAG, "Traitement du client : " + client.getNom());
+
+        // Vérifier si le client provient de l'API (existe déjà dans Dolibarr)
+        if (client.isFromApi()) {
+            Log.d(TAG, VALIDE_CLIENT + client.getNom() + " provient de l'API (ID: " + client.getId() + ") - Pas d'envoi nécessaire");
+
+            // Le client existe déjà dans Dolibarr, on utilise directement son ID
+            // 1. Envoye les commandes de ce client
+            envoyerCommandesDuClient(client, index, commandeRepo, commandeStorage, rapport, () -> {
+                // 2. Pas de suppression du client car il provient de l'API (on le garde)
+                Log.d(TAG, "✅ Commandes du client API " + client.getNom() + " traitées (client conservé)");
+
+                // 3. Client terminé : libère sa place
+                onTermine.run();
+            });
+        } else {
+            // Client local : il faut l'envoyer vers Dolibarr
+            Log.d(TAG, "Envoi du client local " + client.getNom() + " vers Dolibarr...");
+
+            // 1. Envoye le client vers Dolibarr + historique (sans le recréer s'il l'a déjà été)
+            EtatEnvoi etatClient = suivi.lireClient(client.getId(), client.getNom());
+            boolean clientDejaTente = etatClient.getCleIdempotence() != null;
+            if (!clientDejaTente) {
+                etatClient = suivi.attribuerCleClient(client.getId(), client.getNom());
+            }
+            ClientApiRepository.SuiviCreationClient suiviCreation = dolibarrId -> {
+                if (!suivi.enregistrerIdClient(client.getId(), client.getNom(), dolibarrId)) {
+                    Log.w(TAG, "⚠️ ID Dolibarr du client " + client.getNom() + " non enregistré");
+                }
+            };
+            clientRepo.envoyerClient(client, etatClient.getIdDolibarr(), etatClient.getCleIdempotence(), clientDejaTente,
+                    suiviCreation, new ClientApiRepository.ClientEnvoiCallback() {
+                @Override
+                public void onSuccess(String dolibarrId) {
+                    Log.d(TAG, VALIDE_CLIENT + client.getNom() + " envoyé ! ID Dolibarr: " + dolibarrId);
+
+                    rapport.ajouterClientReussi(client.getNom());
+
+                    Client clientAvecId = new Client.Builder()
+                            .setId(dolibarrId)
+                            .setNom(client.getNom())
+                            .setAdresse(client.getAdresse())
+                            .setCodePostal(client.getCodePostal())
+                            .setVille(client.getVille())
+                            .setAdresseMail(client.getAdresseMail())
+                            .setTelephone(client.getTelephone())
+                            .setUtilisateur(client.getUtilisateur())
+                            .setDateSaisie(client.getDateSaisie())
+                            .setFromApi(false)
+                            .build();
+
+                    // 2. Envoye les commandes de ce client
+                    envoyerCommandesDuClient(clientAvecId, index, commandeRepo, commandeStorage, rapport, () -> {
+                        // 3. Supprime le client du stockage local après tout (avec ses commandes)
+                        supprimerClientLocal(client, supprime -> {
+                            if (supprime) {
+                                Log.d(TAG, VALIDE_CLIENT + client.getNom() + " supprimé du stockage local");
+                            } else {
+                                Log.w(TAG, "⚠️ Erreur suppression du client local: " + client.getNom());
+                            }
+
+                            // 4. Client terminé : libère sa place
+                            onTermine.run();
+                        });
+                    });
+                }
+
+                @Override
+                public void onError(String message) {
+                    Log.e(TAG, "❌ Erreur envoi module natif " + client.getNom() + ": " + message);
+
+                    // Vérifier si c'est une erreur de connexion, si l'appareil n'est pas connecté
+                    // ou si le serveur est en échec systémique
+                    String raisonSansHistorique = raisonConservationEnLocal(message);
+
+                    if (raisonSansHistorique != null) {
+                        // Pas de tentative d'envoi vers l'historique, qui échouerait de la même façon
+                        Log.w(TAG, "⚠️ " + raisonSansHistorique + " - Pas d'envoi vers l'historique");
+
+                        rapport.ajouterClientEchoue(client.getNom(),
+                                raisonSansHistorique + " (historique non enregistré)");
+
+                        // Le client reste en local
+                        Log.d(TAG, "⚠️ Client " + client.getNom() + " conservé en local");
+
+                        // Client terminé : libère sa place
+                        onTermine.run();
+                    } else {
+                        // Erreur de validation : tenter d'envoyer vers l'historique avec update_date = "Non"
+                        Log.d(TAG, "📤 Envoi dans l'historique malgré l'échec du module natif...");
+
+                        clientRepo.envoyerClientVersHistorique(client, "Non", new ClientApiRepository.ClientHistoriqueCallback() {
+                            @Override
+                            public void onSuccess(String historiqueId) {
+                                Log.d(TAG, "✅ Client " + client.getNom() + " enregistré dans l'historique (update_date=Non)");
+
+                                rapport.ajouterClientEchoue(client.getNom(),
+                                    simplifierMessageErreur(message) + " (enregistré dans l'historique pour correction)");
+
+                                supprimerClientLocal(client, supprime -> {
+                                    if (supprime) {
+                                        Log.d(TAG, "✅ Client " + client.getNom() + " supprimé du stockage local (historique OK)");
+                                    } else {
+                                        Log.w(TAG, "⚠️ Erreur suppression du client local: " + client.getNom());
+                                    }
+
+                                    // Client terminé : libère sa place
+                                    onTermine.run();
+                                });
+                            }
+
+                            @Override
+                            public void onError(String historiqueError) {
+                                Log.e(TAG, "❌ Erreur envoi historique " + client.getNom() + ": " + historiqueError);
+
+                                // Double échec : module natif + historique
+                                // Vérifier si c'est aussi une erreur de connexion pour l'historique
+                                if (estErreurConnexion(historiqueError)) {
+                                    rapport.ajouterClientEchoue(client.getNom(),
+                                        "Pas de connexion internet (historique non enregistré)");
+                                    echecConnexion.set(true);
+                                } else {
+                                    rapport.ajouterClientEchoue(client.getNom(),
+                                        simplifierMessageErreur(message) + " (historique non enregistré)");
+                                }
+                                noterEchecSystemique();
+
+                                // Le client reste en local
+                                Log.d(TAG, "⚠️ Client " + client.getNom() + " conservé en local");
+
+                                // Client terminé même en cas d'erreur : libère sa place
+                                onTermine.run();
+                            }
+                        });
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Envoie toutes les commandes d'un client vers Dolibarr (module natif + historique).
+     * Flux :
+     * 1. Envoyer la commande vers le module natif → récupérer l'ID Dolibarr
+     * 2. Envoyer vers l'historique avec l'ID Dolibarr
+     * 3. Supprimer la commande locale
+     */
+    private void envoyerCommandesDuClient(Client client,
+                                          IndexListeAttente index,
+                                          CommandeApiRepository commandeRepo,
+                                          GestionnaireStockageCommande commandeStorage,
+                                          RapportSynchronisation rapport,
+                                          Runnable onTermine) {
+        // Commandes de ce client (rattachées par le nom), sans relire ni reparcourir le stockage
+        List<Commande> commandesDuClient = new ArrayList<>();
+        for (Commande cmd : index.commandesDe(client)) {
+            // Mettre à jour la commande avec le client qui a l'ID Dolibarr
+            Commande commandeAvecClientId = new Commande.Builder()
+                    .setId(cmd.getId())
+                    .setClient(client)  // Client avec ID Dolibarr
+                    .setDateCommande(cmd.getDateCommande())
+                    .setLignesCommande(cmd.getLignesCommande())
+                    .setUtilisateur(cmd.getUtilisateur())
+                    .build();
+            commandesDuClient.add(commandeAvecClientId);
+        }
+
+        if (commandesDuClient.isEmpty()) {
+            Log.d(TAG, "Aucune commande pour le client " + client.getNom());
+            onTermine.run();
+            return;
+        }
+
+        Log.d(TAG, "Envoi de " + commandesDuClient.size() + " commande(s) pour " + client.getNom());
+
+        // Envoye les commandes une par une (module natif + historique)
+        envoyerCommandesRecursif(commandesDuClient, 0, index, commandeRepo, commandeStorage, rapport, onTermine);
+    }
+
+    /**
+     * Envoie les commandes une par une de manière récursive.
+     * Flux pour chaque commande :
+     * 1. Envoyer vers le module natif Dolibarr → récupérer l'ID
+     * 2. Envoyer vers l'historique avec l'ID Dolibarr
+     * 3. Supprimer du stockage local
+     */
+    private void envoyerCommandesRecursif(List<Commande> commandes, int position,
+                                          IndexListeAttente index,
+                                          CommandeApiRepository repo,
+                                          GestionnaireStockageCommande storage,
+                                          RapportSynchronisation rapport,
+                                          Runnable onTermine) {
+        if (position >= commandes.size()) {
+            Log.d(TAG, "Toutes les commandes du client envoyées");
+            onTermine.run();
+            return;
+        }
+
+        if (envoiInterrompu(rapport)) {
+            // Les commandes restantes du client ne sont pas tentées : elles restent en local
+            for (int i = position; i < commandes.size(); i++) {
+                rapport.ajouterCommandeNonTentee(commandes.get(i).getId());
+            }
+            onTermine.run();
+            return;
+        }
+
+        Commande commande = commandes.get(position);
+        Log.d(TAG, "Envoi commande " + (position + 1) + "/" + commandes.size() +
+                " - " + commande.getLignesCommande().size() + " ligne(s)");
+
+        EtatEnvoi etat = suivi.lireCommande(commande.getId());
+        if (etat.estCree()) {
+            // Commande déjà créée lors d'une tentative précédente : ne pas la recréer
+            Log.d(TAG, "Commande " + commande.getId() + " déjà créée dans Dolibarr (ID: " + etat.getIdDolibarr()
+                    + "), reprise à l'historique");
+            envoyerCommandeVersHistorique(commandes, position, etat.getIdDolibarr(), etat,
+                    index, repo, storage, rapport, onTermine);
+            return;
+        }
+
+        // Étape 1 : Envoye vers le module natif Dolibarr, avec la clé de la commande (attribuée au premier essai)
+        Log.d(TAG, "📤 Étape 1/2 : Envoi vers le module natif Dolibarr...");
+        boolean dejaTente = etat.getCleIdempotence() != null;
+        String cleIdempotence = dejaTente
+                ? etat.getCleIdempotence()
+                : suivi.attribuerCleCommande(commande.getId()).getCleIdempotence();
+
+        repo.envoyerCommandeVersModuleNatif(commande, cleIdempotence, dejaTente, new CommandeApiRepository.CommandeNativeEnvoiCallback() {
+            @Override
+            public void onSuccess(String dolibarrCommandeId) {
+                Log.d(TAG, VALIDE_COMMANDE + commande.getId() + " créée dans Dolibarr ! ID: " + dolibarrCommandeId);
+
+                // L'ID est enregistré avant la suite : une nouvelle tentative ne recréera pas la commande
+                if (!suivi.enregistrerIdCommande(commande.getId(), dolibarrCommandeId)) {
+                    Log.w(TAG, "⚠️ ID Dolibarr de la commande " + commande.getId() + " non enregistré");
+                }
+
+                envoyerCommandeVersHistorique(commandes, position, dolibarrCommandeId, EtatEnvoi.INITIAL,
+                        index, repo, storage, rapport, onTermine);
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "❌ Erreur envoi module natif commande " + commande.getId() + ": " + message);
+
+                // Vérifier si c'est une erreur de connexion, si l'appareil n'est pas connecté
+                // ou si le serveur est en échec systémique
+                String raisonSansHistorique = raisonConservationEnLocal(message);
+
+                if (raisonSansHistorique != null) {
+                    // Pas de tentative d'envoi vers l'historique, qui échouerait de la même façon
+                    Log.w(TAG, "⚠️ " + raisonSansHistorique + " - Pas d'envoi vers l'historique");
+
+                    rapport.ajouterCommandeEchouee(commande.getId(),
+                            raisonSansHistorique + " (historique non enregistré)");
+
+                    // La commande reste en local
+                    Log.d(TAG, "⚠️ Commande " + commande.getId() + " conservée en local");
+
+                    // Continuer avec la commande suivante
+                    envoyerCommandesRecursif(commandes, position + 1, index, repo, storage, rapport, onTermine);
+                } else {
+                    // Erreur de validation : tenter d'envoyer vers l'historique avec update_date = "Non"
+                    Log.d(TAG, "📤 Envoi dans l'historique malgré l'échec du module natif (update_date=Non)...");
+
+                    repo.envoyerCommandeVersHistoriqueSansId(commande, etat.getLignesEnvoyees(),
+                            positions -> suivi.marquerLignesCommande(commande.getId(), positions),
+                            new CommandeApiRepository.CommandeEnvoiCallback() {
+                        @Override
+                        public void onSuccess(String historiqueId) {
+                            Log.d(TAG, "✅ Commande " + commande.getId() + " enregistrée dans l'historique (update_date=Non)");
+
+                            rapport.ajouterCommandeEchouee(commande.getId(),
+                                    simplifierMessageErreur(message) + " (lignes enregistrées dans l'historique pour correction)");
+
+                            supprimerCommandeLocale(commande, index, storage, supprime -> {
+                                if (supprime) {
+                                    Log.d(TAG, "✅ Commande " + commande.getId() + " supprimée du stockage local (historique OK)");
+                                } else {
+                                    Log.w(TAG, "⚠️ Erreur suppression de la commande locale: " + commande.getId());
+                                }
+
+                                // Continuer avec la commande suivante
+                                envoyerCommandesRecursif(commandes, position + 1, index, repo, storage, rapport, onTermine);
+                            });
+                        }
+
+                        @Override
+                        public void onError(String historiqueError) {
+                            Log.e(TAG, "❌ Erreur envoi historique commande " + commande.getId() + ": " + historiqueError);
+
+                            // Double échec : module natif + historique
+                            // Vérifier si c'est aussi une erreur de connexion pour l'historique
+                            if (estErreurConnexion(historiqueError)) {
+                                rapport.ajouterCommandeEchouee(commande.getId(),
+                                        "Pas de connexion internet (historique non enregistré)");
+                                echecConnexion.set(true);
+                            } else {
+                                rapport.ajouterCommandeEchouee(commande.getId(),
+                                        simplifierMessageErreur(message) + " (historique non enregistré)");
+                            }
+                            noterEchecSystemique();
+
+                            // La commande reste en local
+                            Log.d(TAG, "⚠️ Commande " + commande.getId() + " conservée en local");
+
+                            // Continuer avec la commande suivante
+                            envoyerCommandesRecursif(commandes, position + 1, index, repo, storage, rapport, onTermine);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Étape 2 de l'envoi d'une commande créée dans Dolibarr : envoie vers l'historique les lignes
+     * qui n'y sont pas encore, puis supprime la commande locale et passe à la suivante.
+     *
+     * @param dolibarrCommandeId ID de la commande dans Dolibarr
+     * @param etat               État d'envoi de la commande (lignes déjà acceptées par l'historique)
+     */
+    private void envoyerCommandeVersHistorique(List<Commande> commandes, int position,
+                                               String dolibarrCommandeId, EtatEnvoi etat,
+                                               IndexListeAttente index,
+                                               CommandeApiRepository repo,
+                                               GestionnaireStockageCommande storage,
+                                               RapportSynchronisation rapport,
+                                               Runnable onTermine) {
+        Commande commande = commandes.get(position);
+
+        // Étape 2 : Envoye vers l'historique avec l'ID Dolibarr
+        Log.d(TAG, "📤 Étape 2/2 : Envoi vers l'historique avec ID Dolibarr...");
+
+        repo.envoyerCommandeVersHistoriqueAvecId(commande, dolibarrCommandeId, etat.getLignesEnvoyees(),
+                positions -> suivi.marquerLignesCommande(commande.getId(), positions),
+                new CommandeApiRepository.CommandeEnvoiCallback() {
+                    @Override
+                    public void onSuccess(String historiqueId) {
+                        Log.d(TAG, VALIDE_COMMANDE + commande.getId() + " envoyée vers l'historique !");
+
+                        rapport.ajouterCommandeReussie(commande.getId());
+
+                        // Étape 3 : Supprime la commande du stockage local
+                        supprimerCommandeLocale(commande, index, storage, supprime -> {
+                            if (supprime) {
+                                Log.d(TAG, VALIDE_COMMANDE + commande.getId() + " supprimée du stockage local");
+                            } else {
+                                Log.w(TAG, "⚠️ Erreur suppression de la commande locale: " + commande.getId());
+                            }
+
+                            // Envoi la commande suivante
+                            envoyerCommandesRecursif(commandes, position + 1, index, repo, storage, rapport, onTermine);
+                        });
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        Log.e(TAG, "❌ Erreur envoi historique commande " + commande.getId() + ": " + message);
+
+                        // La commande reste en local : la prochaine tentative reprendra à l'historique
+                        rapport.ajouterCommandeEchouee(commande.getId(), simplifierMessageErreur(message));
+                        if (estErreurConnexion(message)) {
+                            echecConnexion.set(true);
+                        }
+                        noterEchecSystemique();
+
+                        // Continue avec la commande suivante même en cas d'erreur
+                        envoyerCommandesRecursif(commandes, position + 1, index, repo, storage, rapport, onTermine);
+                    }
+                });
+    }
+
+    /**
+     * Supprime du stockage local un client traité (avec ses commandes), puis oublie son état d'envoi.
+     *
+     * @param suite Suite de l'envoi, sur le thread principal (true si le client a été supprimé)
+     */
+    private void supprimerClientLocal(Client client, SuiteEcriture suite) {
+        ServiceClient serviceClient = new ServiceClient(context);
+        ecrireHorsThreadPrincipal("suppression du client " + client.getNom(),
+                () -> PlanEnvoiListeAttente.supprimerPuisOublier(
+                        () -> serviceClient.deleteClient(client),
+                        () -> suivi.effacerClient(client.getId(), client.getNom())),
+                suite);
+    }
+
+    /**
+     * Supprime du stockage local une commande traitée, puis oublie son état d'envoi.
+     * La suppression est écrite avant l'effacement de l'état d'envoi : pas de doublon après un arrêt.
+     *
+     * @param suite Suite de l'envoi, sur le thread principal (true si la commande a été supprimée)
+     */
+    private void supprimerCommandeLocale(Commande commande, IndexListeAttente index,
+                                         GestionnaireStockageCommande storage, SuiteEcriture suite) {
+        ecrireHorsThreadPrincipal("suppression de la commande " + commande.getId(),
+                () -> PlanEnvoiListeAttente.supprimerPuisOublier(
+                        () -> storage.deleteCommande(commande.getId(), true),
+                        () -> suivi.effacerCommande(commande.getId())),
+                supprime -> {
+                    index.retirer(commande);
+                    suite.onTermine(supprime);
+                });
+    }
+
+    /**
+     * Vérifie si l'envoi doit s'arrêter (envoi annulé ou disjoncteur ouvert) ; l'interruption
+     * est alors indiquée dans le rapport.
+     *
+     * @return true si les éléments restants ne doivent pas être tentés
+     */
+    private boolean envoiInterrompu(RapportSynchronisation rapport) {
+        if (annule.get()) {
+            Log.w(TAG, "⛔ Envoi interrompu : envoi annulé");
+            return true;
+        }
+        Disjoncteur.Cause cause = disjoncteur.getCause();
+        if (cause == null) {
+            return false;
+        }
+        Log.w(TAG, "⛔ Envoi interrompu : " + libelleEchecSystemique(cause));
+        rapport.signalerInterruption(libelleEchecSystemique(cause));
+        noterEchecSystemique();
+        return true;
+    }
+
+    /**
+     * Détermine si un élément refusé par le module natif doit rester en local sans passer par l'historique :
+     * pas de connexion, ou échec systémique du serveur (l'historique échouerait de la même façon).
+     * Note alors qu'une nouvelle tentative de l'envoi pourra aboutir.
+     *
+     * @param message Message d'erreur du module natif
+     * @return Raison à indiquer dans le rapport, ou null si l'échec est propre à l'élément
+     */
+    private String raisonConservationEnLocal(String message) {
+        if (estErreurConnexion(message) || !estConnecteAInternet()) {
+            echecConnexion.set(true);
+            return "Pas de connexion internet";
+        }
+        Disjoncteur.Cause cause = disjoncteur.getCause();
+        if (cause == null) {
+            return null;
+        }
+        noterEchecSystemique();
+        return libelleEchecSystemique(cause);
+    }
+
+    /**
+     * Un serveur injoignable ou en erreur peut revenir : l'envoi sera retenté plus tard.
+     * Une clé API refusée ne le sera pas sans reconnexion de l'utilisateur.
+     */
+    private void noterEchecSystemique() {
+        Disjoncteur.Cause cause = disjoncteur.getCause();
+        if (cause != null && cause != Disjoncteur.Cause.AUTORISATION) {
+            echecConnexion.set(true);
+        }
+    }
+
+    private static String libelleEchecSystemique(Disjoncteur.Cause cause) {
+        switch (cause) {
+            case AUTORISATION:
+                return "Clé API refusée par Dolibarr, reconnectez-vous";
+            case SERVEUR:
+                return "Serveur Dolibarr en erreur";
+            default:
+                return "Serveur Dolibarr injoignable";
+        }
+    }
+
+    /**
+     * Re-synchronise les clients depuis l'API Dolibarr après l'envoi.
+     */
+    private void resynchroniserClients(RapportSynchronisation rapport, EnvoiCallback callback) {
+        ClientApiRepository repo = new ClientApiRepository(context);
+
+        // Les clients reçus sont sauvegardés dans le fichier API par le repository
+        repo.synchroniserDepuisApi(new ClientApiRepository.ClientCallback() {
+            @Override
+            public void onSuccess(List<Client> clients) {
+                Log.d(TAG, "✅ " + clients.size() + " clients récupérés depuis l'API");
+
+                callback.onTermine(rapport, null, echecConnexion.get());
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "❌ Erreur synchronisation: " + message);
+
+                // Converti le message d'erreur technique en message convivial
+                callback.onTermine(rapport, convertirErreurEnMessageConvivial(message), echecConnexion.get());
+            }
+        });
+    }
+
+    /**
+     * Simplifie un message d'erreur technique pour le rendre plus lisible.
+     */
+    private String simplifierMessageErreur(String message) {
+        if (message == null) return "Erreur inconnue";
+
+        // Extraire uniquement le message principal sans les détails techniques
+        if (message.contains(":")) {
+            String[] parties = message.split(":");
+            return parties[parties.length - 1].trim();
+        }
+
+        return message.length() > 100 ? message.substring(0, 100) + "..." : message;
+    }
+
+    /**
+     * Vérifie si un message d'erreur correspond à une erreur de connexion réseau.
+     *
+     * @param message Message d'erreur à analyser
+     * @return true si c'est une erreur de connexion, false sinon
+     */
+    private boolean estErreurConnexion(String message) {
+        if (message == null) {
+            return false;
+        }
+
+        // Convertir en minuscules pour une comparaison plus souple
+        String messageLower = message.toLowerCase();
+
+        // Détection des erreurs de connexion courantes
+        return messageLower.contains("unknownhostexception") ||
+               messageLower.contains("unable to resolve host") ||
+               messageLower.contains("sockettimeoutexception") ||
+               messageLower.contains("timeout") ||
+               messageLower.contains("no address associated with hostname") ||
+               messageLower.contains("network is unreachable") ||
+               messageLower.contains("connection refused") ||
+               messageLower.contains("failed to connect") ||
+               messageLower.contains("no internet") ||
+               messageLower.contains("pas de connexion") ||
+               messageLower.contains("connectexception") ||
+               messageLower.contains("econnrefused") ||
+               messageLower.contains("enetunreach") ||
+               messageLower.contains("ehostunreach") ||
+               messageLower.contains("network error") ||
+               messageLower.contains("erreur réseau") ||
+               messageLower.contains("no network") ||
+               messageLower.contains("offline");
+    }
+
+    /**
+     * Vérifie si l'appareil est connecté à Internet.
+     *
+     * @return true si connecté, false sinon
+     */
+    private boolean estConnecteAInternet() {
+        if (context == null) {
+            return false;
+        }
+
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) {
+            return false;
+        }
+
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        return activeNetwork != null && activeNetwork.isConnected();
+    }
+
+    /**
+     * Convertit un message d'erreur technique en message convivial pour l'utilisateur.
+     * Détecte les types d'erreurs courants et fournit des explications de base.
+     */
+    private String convertirErreurEnMessageConvivial(String message) {
+        if (message == null) {
+            return "Une erreur inconnue s'est produite lors de la synchronisation.";
+        }
+
+        // Erreur de connexion réseau
+        if (message.contains("UnknownHostException") || message.contains("Unable to resolve host")) {
+            return "❌ Pas de connexion internet\n\n" +
+                   "Vérifiez votre connexion réseau et réessayez.";
+        }
+
+        // Timeout
+        if (message.contains("SocketTimeoutException") || message.contains("timeout")) {
+            return "⏱️ Délai d'attente dépassé\n\n" +
+                   "Le serveur met trop de temps à répondre. Vérifiez votre connexion ou réessayez plus tard.";
+        }
+
+        // Erreur d'authentification
+        if (message.contains("401") || message.contains("Unauthorized")) {
+            return "🔒 Erreur d'authentification\n\n" +
+                   "Vos identifiants sont peut-être expirés. Reconnectez-vous.";
+        }
+
+        // Erreur serveur
+        if (message.contains("500") || message.contains("Internal Server Error")) {
+            return "🔧 Erreur du serveur Dolibarr\n\n" +
+                   "Le serveur a rencontré une erreur. Contactez votre administrateur.";
+        }
+
+        // Message par défaut avec simplification
+        return "❌ Erreur de synchronisation\n\n" + simplifierMessageErreur(message);
+    }
+}
@@ -6,15 +6,13 @@ import android.content.SharedPreferences;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
 
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.Volley;
 import com.example.dolorders.activity.LoginActivity;
+import com.example.dolorders.repository.FileRequetesVolley;
 
 import org.json.JSONObject;
 
@@ -28,7 +26,7 @@ public class ServiceGestionSession {
     private static final String LOGOUT_DEBUG = "LOGOUT_DEBUG";
 
     public ServiceGestionSession(Context context) {
-        requestQueue = Volley.newRequestQueue(context.getApplicationContext());
+        requestQueue = FileRequetesVolley.get(context);
     }
 
     /**
@@ -40,26 +38,15 @@ public class ServiceGestionSession {
      */
     public static void logout(AppCompatActivity activity) {
         try {
-            // Clé maître pour le cryptage
-            MasterKey masterKey = new MasterKey.Builder(activity)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-
-            // SharedPreferences cryptées
-            SharedPreferences securePrefs = EncryptedSharedPreferences.create(
-                    activity,
-                    "secure_prefs_crypto",
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
+            SharedPreferences securePrefs = ServiceIdentifiants.getPreferencesCryptees(activity);
 
             // Sauvegarde l'URL avant effacement
-            String lastUrl = securePrefs.getString("base_url", null);
+            String lastUrl = securePrefs.getString(ServiceIdentifiants.CLE_BASE_URL, null);
             android.util.Log.d(LOGOUT_DEBUG, "URL sauvegardée avant effacement: " + lastUrl);
 
             // Efface toutes les données cryptées
             securePrefs.edit().clear().apply();
+            ServiceIdentifiants.invalider();
 
             // Restaure l'URL dans les SharedPreferences normales
             if (lastUrl != null && !lastUrl.isEmpty()) {
@@ -0,0 +1,138 @@
+package com.example.dolorders.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * Accès aux identifiants de session (URL Dolibarr, clé API, nom d'utilisateur).
+ * <p>
+ * Les identifiants restent chiffrés sur le disque (EncryptedSharedPreferences), mais la clé maître
+ * n'est obtenue du Keystore et les valeurs ne sont déchiffrées qu'une fois : elles sont ensuite
+ * gardées en mémoire pour la durée de la session. Toute écriture (connexion, déconnexion) doit
+ * appeler {@link #invalider()} pour que la valeur suivante soit relue.
+ */
+public final class ServiceIdentifiants {
+
+    private static final String TAG = "ServiceIdentifiants";
+
+    /** Nom du fichier des SharedPreferences cryptées */
+    public static final String FICHIER_CRYPTE = "secure_prefs_crypto";
+
+    public static final String CLE_BASE_URL = "base_url";
+    public static final String CLE_API_KEY = "api_key";
+    public static final String CLE_USERNAME = "username";
+
+    /**
+     * Identifiants déchiffrés, lus ensemble.
+     */
+    private static final class Identifiants {
+        final String baseUrl;
+        final String apiKey;
+        final String username;
+
+        Identifiants(String baseUrl, String apiKey, String username) {
+            this.baseUrl = baseUrl;
+            this.apiKey = apiKey;
+            this.username = username;
+        }
+    }
+
+    private static volatile SharedPreferences prefsCryptees;
+    private static volatile Identifiants identifiants;
+
+    private ServiceIdentifiants() {
+        // Classe utilitaire : ne doit pas être instanciée
+    }
+
+    /**
+     * Ouvre les SharedPreferences cryptées une seule fois pour toute l'application.
+     *
+     * @param context Contexte
+     * @return SharedPreferences cryptées
+     * @throws GeneralSecurityException si la clé maître est inaccessible
+     * @throws IOException              si le fichier ne peut être lu
+     */
+    public static SharedPreferences getPreferencesCryptees(Context context)
+            throws GeneralSecurityException, IOException {
+        SharedPreferences prefs = prefsCryptees;
+        if (prefs == null) {
+            synchronized (ServiceIdentifiants.class) {
+                prefs = prefsCryptees;
+                if (prefs == null) {
+                    Context appContext = context.getApplicationContext();
+                    MasterKey masterKey = new MasterKey.Builder(appContext)
+                            .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                            .build();
+
+                    prefs = EncryptedSharedPreferences.create(
+                            appContext,
+                            FICHIER_CRYPTE,
+                            masterKey,
+                            EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                            EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
+                    );
+                    prefsCryptees = prefs;
+                }
+            }
+        }
+        return prefs;
+    }
+
+    /**
+     * @return URL de base Dolibarr, ou null si absente ou illisible
+     */
+    public static String getBaseUrl(Context context) {
+        Identifiants id = charger(context);
+        return id != null ? id.baseUrl : null;
+    }
+
+    /**
+     * @return Clé API, ou null si absente ou illisible
+     */
+    public static String getApiKey(Context context) {
+        Identifiants id = charger(context);
+        return id != null ? id.apiKey : null;
+    }
+
+    /**
+     * @return Nom d'utilisateur, ou null si absent ou illisible
+     */
+    public static String getUsername(Context context) {
+        Identifiants id = charger(context);
+        return id != null ? id.username : null;
+    }
+
+    /**
+     * Oublie les identifiants gardés en mémoire (déconnexion, nouvelle connexion).
+     * La prochaine lecture les déchiffre à nouveau depuis le disque.
+     */
+    public static void invalider() {
+        identifiants = null;
+    }
+
+    private static Identifiants charger(Context context) {
+        Identifiants id = identifiants;
+        if (id != null) {
+            return id;
+        }
+        try {
+            SharedPreferences prefs = getPreferencesCryptees(context);
+            id = new Identifiants(
+                    prefs.getString(CLE_BASE_URL, null),
+                    prefs.getString(CLE_API_KEY, null),
+                    prefs.getString(CLE_USERNAME, null));
+            identifiants = id;
+            return id;
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "Erreur lors de la lecture des identifiants", e);
+            return null;
+        }
+    }
+}
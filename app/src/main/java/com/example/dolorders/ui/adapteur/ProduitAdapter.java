@@ -13,25 +13,36 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.example.dolorders.R;
+import com.example.dolorders.data.stockage.produit.IndexRechercheProduits;
 import com.example.dolorders.objet.Produit;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
 /**
  * Adapter personnalisé pour afficher les produits dans un AutoCompleteTextView.
- * Supporte le filtrage par nom et description.
+ * Supporte le filtrage par nom et description, via l'index de recherche du catalogue
+ * (sans accents ni casse, résultats classés par pertinence).
  */
 public class ProduitAdapter extends ArrayAdapter<Produit> implements Filterable {
 
-    private final List<Produit> produitsComplet;  // Liste originale complète
-    private List<Produit> produitsFiltres;        // Liste filtrée affichée
+    private volatile IndexRechercheProduits index;  // Index du catalogue complet
+    private List<Produit> produitsFiltres;         // Liste filtrée affichée (en lecture seule)
 
     public ProduitAdapter(@NonNull Context context, @NonNull List<Produit> produits) {
-        super(context, 0, produits);
-        this.produitsComplet = new ArrayList<>(produits);
-        this.produitsFiltres = new ArrayList<>(produits);
+        this(context, new IndexRechercheProduits(produits));
+    }
+
+    /**
+     * Constructeur à partir d'un index déjà construit (voir ProduitStorageManager#chargerIndexRecherche).
+     */
+    public ProduitAdapter(@NonNull Context context, @NonNull IndexRechercheProduits index) {
+        super(context, 0);
+        this.index = index;
+        // Pas de copie : le catalogue peut être une vue projetée dont les produits sont lus à la demande
+        this.produitsFiltres = index.getProduits();
     }
 
     @Override
@@ -81,27 +92,8 @@ public class ProduitAdapter extends ArrayAdapter<Produit> implements Filterable
         return new Filter() {
             @Override
             protected FilterResults performFiltering(CharSequence constraint) {
-                List<Produit> suggestions = new ArrayList<>();
-
-                if (constraint == null || constraint.length() == 0) {
-                    // Pas de filtre, afficher tous les produits
-                    suggestions.addAll(produitsComplet);
-                } else {
-                    String filterPattern = constraint.toString().toLowerCase().trim();
-
-                    // Filtrer par libellé ou description
-                    for (Produit produit : produitsComplet) {
-                        boolean matchLibelle = produit.getLibelle() != null &&
-                                produit.getLibelle().toLowerCase().contains(filterPattern);
-
-                        boolean matchDescription = produit.getDescription() != null &&
-                                produit.getDescription().toLowerCase().contains(filterPattern);
-
-                        if (matchLibelle || matchDescription) {
-                            suggestions.add(produit);
-                        }
-                    }
-                }
+                // Exécuté hors du thread principal : l'index est immuable
+                List<Produit> suggestions = index.rechercher(constraint);
 
                 FilterResults results = new FilterResults();
                 results.values = suggestions;
@@ -112,10 +104,9 @@ public class ProduitAdapter extends ArrayAdapter<Produit> implements Filterable
             @Override
             @SuppressWarnings("unchecked")
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                produitsFiltres.clear();
-                if (results.values != null) {
-                    produitsFiltres.addAll((List<Produit>) results.values);
-                }
+                produitsFiltres = results.values != null
+                        ? (List<Produit>) results.values
+                        : Collections.emptyList();
                 notifyDataSetChanged();
             }
 
@@ -133,15 +124,17 @@ public class ProduitAdapter extends ArrayAdapter<Produit> implements Filterable
      * Met à jour la liste complète des produits et rafraîchit l'affichage.
      */
     public void updateProduits(List<Produit> nouveauxProduits) {
-        produitsComplet.clear();
-        produitsFiltres.clear();
+        updateIndex(new IndexRechercheProduits(
+                nouveauxProduits != null ? nouveauxProduits : new ArrayList<>()));
+    }
 
-        if (nouveauxProduits != null) {
-            produitsComplet.addAll(nouveauxProduits);
-            produitsFiltres.addAll(nouveauxProduits);
-        }
+    /**
+     * Remplace l'index du catalogue et rafraîchit l'affichage.
+     */
+    public void updateIndex(IndexRechercheProduits nouvelIndex) {
+        index = nouvelIndex;
+        produitsFiltres = nouvelIndex.getProduits();
 
         notifyDataSetChanged();
     }
 }
-
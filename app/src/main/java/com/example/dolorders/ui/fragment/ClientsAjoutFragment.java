@@ -19,6 +19,7 @@ import com.example.dolorders.R;
 import com.example.dolorders.activity.LoginActivity;
 import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
 import com.example.dolorders.objet.Client;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.ui.viewModel.ClientsAjoutFragmentViewModel;
 import com.example.dolorders.ui.viewModel.ClientsFragmentViewModel;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -154,26 +155,32 @@ public class ClientsAjoutFragment extends Fragment {
                         .setFromApi(false) // Client créé localement, pas depuis l'API
                         .build();
 
-                // Enregistrement du client en local
-                boolean sauvegarde = storageManager.addClient(nouveauClient);
-
-                if (sauvegarde) {
-                    Toast.makeText(getContext(), "Client '" + nouveauClient.getNom() + "' ajouté !", Toast.LENGTH_SHORT)
-                            .show();
-
-                    ClientsFragmentViewModel clientsVM = new ViewModelProvider(requireActivity())
-                            .get(ClientsFragmentViewModel.class);
-
-                    clientsVM.publierClientCree(nouveauClient);
-                } else {
-                    Toast.makeText(getContext(),
-                            "Client '" + nouveauClient.getNom() + "' ajouté et enregistré localement a échoué",
-                            Toast.LENGTH_SHORT).show();
-                }
-
-                // Vide le ViewModel et retourne à l'accueil
-                viewModel.clear();
-                navigateToHome();
+                // Enregistrement du client en local (hors du thread principal) ; le bouton reste
+                // désactivé jusqu'au résultat pour qu'un second appui n'ajoute pas le client deux fois
+                btnValider.setEnabled(false);
+                DepotDonneesLocales.get(requireContext()).ajouterClient(nouveauClient, sauvegarde -> {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    btnValider.setEnabled(true);
+                    if (sauvegarde) {
+                        Toast.makeText(getContext(), "Client '" + nouveauClient.getNom() + "' ajouté !", Toast.LENGTH_SHORT)
+                                .show();
+
+                        ClientsFragmentViewModel clientsVM = new ViewModelProvider(requireActivity())
+                                .get(ClientsFragmentViewModel.class);
+
+                        clientsVM.publierClientCree(nouveauClient);
+                    } else {
+                        Toast.makeText(getContext(),
+                                "Client '" + nouveauClient.getNom() + "' ajouté et enregistré localement a échoué",
+                                Toast.LENGTH_SHORT).show();
+                    }
+
+                    // Vide le ViewModel et retourne à l'accueil
+                    viewModel.clear();
+                    navigateToHome();
+                });
 
             } catch (IllegalStateException e) {
                 new AlertDialog.Builder(requireContext())
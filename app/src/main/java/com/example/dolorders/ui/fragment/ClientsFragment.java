@@ -17,9 +17,9 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dolorders.R;
-import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
-import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
+import com.example.dolorders.data.stockage.client.IndexRechercheClients;
 import com.example.dolorders.objet.Client;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.ui.adapteur.ClientAdapteur;
 import com.example.dolorders.ui.util.NavigationUtils;
 import com.example.dolorders.ui.viewModel.ClientsFragmentViewModel;
@@ -41,6 +41,9 @@ public class ClientsFragment extends Fragment {
     private final List<Client> clientsSource = new ArrayList<>();
     private final List<Client> clientsDisplayed = new ArrayList<>();
 
+    // Index de recherche de clientsSource, mis à jour à chaque rechargement de la liste
+    private final IndexRechercheClients indexClients = new IndexRechercheClients();
+
     private RecyclerView listeClients;
     private ClientAdapteur clientAdapteur;
 
@@ -156,28 +159,24 @@ public class ClientsFragment extends Fragment {
                                 .setFromApi(false) // Client local, pas de l'API
                                 .build();
 
-                        // 2) Modifier dans le gestionnaire de stockage
-                        GestionnaireStockageClient storageManager = new GestionnaireStockageClient(requireContext());
-                        boolean modiffier = storageManager.modifierClient(updated);
-
-                        // ✅ NOUVEAU : Propager les modifications du client dans ses commandes
-                        if (modiffier && !updated.isFromApi()) {
-                            GestionnaireStockageCommande commandeStorage = new GestionnaireStockageCommande(requireContext());
-                            commandeStorage.updateClientInCommandes(updated);
-                        }
-
-                        if (modiffier) {
-                            Toast.makeText(getContext(), "Client '" + updated.getNom() + "' modifié et enregistré localement !", Toast.LENGTH_SHORT)
-                                    .show();
-
-                            // 3) Recharger tous les clients via le ViewModel
-                            viewModel.chargerTousLesClients(requireContext());
-                            viewModel.publierClientCree(updated);
-                        } else {
-                            Toast.makeText(getContext(),
-                                    "Client '" + updated.getNom() + "' modifié et enregistré localement a échoué",
-                                    Toast.LENGTH_SHORT).show();
-                        }
+                        // 2) Modifier dans le stockage et propager les modifications du client
+                        // dans ses commandes (hors du thread principal, via le dépôt local)
+                        DepotDonneesLocales.get(requireContext()).modifierClient(updated, modiffier -> {
+                            if (!isAdded()) {
+                                return;
+                            }
+                            if (modiffier) {
+                                Toast.makeText(getContext(), "Client '" + updated.getNom() + "' modifié et enregistré localement !", Toast.LENGTH_SHORT)
+                                        .show();
+
+                                // 3) Les clients sont relus par le dépôt ; on signale la modification
+                                viewModel.publierClientCree(updated);
+                            } else {
+                                Toast.makeText(getContext(),
+                                        "Client '" + updated.getNom() + "' modifié et enregistré localement a échoué",
+                                        Toast.LENGTH_SHORT).show();
+                            }
+                        });
 
                     } catch (IllegalStateException ex) {
                         android.widget.Toast.makeText(requireContext(),
@@ -257,15 +256,9 @@ public class ClientsFragment extends Fragment {
     private void applyFilter(String nom, String adresse, String cp, String ville, String tel) {
         clientsDisplayed.clear();
 
-        // Filtrer sur clientsSource (qui contient locaux + API)
-        List<Client> filtered = clientsSource.stream()
-                .filter(c -> (nom == null || nom.isEmpty() || c.getNom().toLowerCase().contains(nom.toLowerCase())))
-                .filter(c -> (adresse == null || adresse.isEmpty() || c.getAdresse().toLowerCase().contains(adresse.toLowerCase())))
-                .filter(c -> (cp == null || cp.isEmpty() || c.getCodePostal().toLowerCase().contains(cp.toLowerCase())))
-                .filter(c -> (ville == null || ville.isEmpty() || c.getVille().toLowerCase().contains(ville.toLowerCase())))
-                .filter(c -> (tel == null || tel.isEmpty() || c.getTelephone().toLowerCase().contains(tel.toLowerCase())))
-                .sorted((c1, c2) -> c1.getNom().compareToIgnoreCase(c2.getNom())) // Tri alphabétique par nom
-                .collect(java.util.stream.Collectors.toList());
+        // Filtrer sur clientsSource (qui contient locaux + API) via l'index de recherche
+        List<Client> filtered = indexClients.rechercher(nom, adresse, cp, ville, tel);
+        filtered.sort((c1, c2) -> c1.getNom().compareToIgnoreCase(c2.getNom())); // Tri alphabétique par nom
 
         clientsDisplayed.addAll(filtered);
         clientAdapteur.notifyDataSetChanged();
@@ -367,6 +360,8 @@ public class ClientsFragment extends Fragment {
             if (clients != null) {
                 clientsSource.clear();
                 clientsSource.addAll(clients);
+                // Seuls les clients nouveaux ou modifiés sont réindexés
+                indexClients.synchroniser(clients);
 
                 clientsDisplayed.clear();
 
@@ -386,8 +381,8 @@ public class ClientsFragment extends Fragment {
         // Observer la création d'un nouveau client pour recharger la liste
         viewModel.getClientCree().observe(getViewLifecycleOwner(), client -> {
             if (client != null) {
-                // Recharger tous les clients quand un nouveau client est créé
-                viewModel.chargerTousLesClients(requireContext());
+                // Relire tous les clients quand un nouveau client est créé
+                viewModel.rafraichirClients(requireContext());
                 viewModel.consommerClientCree(); // Consommer l'événement
             }
         });
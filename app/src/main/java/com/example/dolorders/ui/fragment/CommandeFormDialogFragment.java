@@ -20,6 +20,7 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.DialogFragment;
 
 import com.example.dolorders.R;
+import com.example.dolorders.data.stockage.produit.IndexRechercheProduits;
 import com.example.dolorders.objet.Commande;
 import com.example.dolorders.objet.LigneCommande;
 import com.example.dolorders.objet.Produit;
@@ -37,7 +38,7 @@ public class CommandeFormDialogFragment extends DialogFragment {
 
     private Commande commandeInitiale;
     private List<LigneCommande> lignesEditees;
-    private List<Produit> tousLesProduits;
+    private IndexRechercheProduits indexProduits;
     private Date dateModifiee;
 
     private static final String REGEX_PRIX = "%.2f €";
@@ -63,8 +64,8 @@ public class CommandeFormDialogFragment extends DialogFragment {
         }
     }
 
-    public void setListeProduits(List<Produit> produits) {
-        this.tousLesProduits = produits;
+    public void setIndexProduits(IndexRechercheProduits index) {
+        this.indexProduits = index;
     }
 
     public static CommandeFormDialogFragment newInstance() {
@@ -93,8 +94,8 @@ public class CommandeFormDialogFragment extends DialogFragment {
         edtClientNom.setEnabled(false);
         edtDateCommande.setEnabled(false);  // Date non modifiable
 
-        if (tousLesProduits != null) {
-            ProduitAdapter adapter = new ProduitAdapter(requireContext(), tousLesProduits);
+        if (indexProduits != null) {
+            ProduitAdapter adapter = new ProduitAdapter(requireContext(), indexProduits);
             autoCompleteAjoutArticle.setAdapter(adapter);
             autoCompleteAjoutArticle.setThreshold(1);
 
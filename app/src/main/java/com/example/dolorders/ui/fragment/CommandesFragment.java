@@ -23,11 +23,11 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.dolorders.R;
 import com.example.dolorders.activity.LoginActivity;
-import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
 import com.example.dolorders.objet.Client;
 import com.example.dolorders.objet.Commande;
 import com.example.dolorders.objet.LigneCommande;
 import com.example.dolorders.objet.Produit;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.ui.adapteur.ProduitAdapter;
 import com.example.dolorders.ui.viewModel.CommandesFragmentViewModel;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -44,7 +44,7 @@ public class CommandesFragment extends Fragment {
     private static final String REGEX_MONTANT = "%.2f €";
 
     private CommandesFragmentViewModel viewModel;
-    private GestionnaireStockageCommande commandeStorage;
+    private DepotDonneesLocales depot;
     private ProduitAdapter produitAdapter;
 
     // Vues
@@ -66,7 +66,7 @@ public class CommandesFragment extends Fragment {
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         viewModel = new ViewModelProvider(requireActivity()).get(CommandesFragmentViewModel.class);
-        commandeStorage = new GestionnaireStockageCommande(requireContext());
+        depot = DepotDonneesLocales.get(requireContext());
         nomUtilisateur = LoginActivity.getUsername(requireContext());
     }
 
@@ -111,14 +111,15 @@ public class CommandesFragment extends Fragment {
             autoCompleteClient.setAdapter(adapter);
         });
 
-        viewModel.getListeProduits().observe(getViewLifecycleOwner(), produits -> {
-            if (produits != null) {
+        viewModel.getIndexProduits().observe(getViewLifecycleOwner(), index -> {
+            if (index != null) {
                 if (produitAdapter == null) {
-                    produitAdapter = new ProduitAdapter(requireContext(), new ArrayList<>());
+                    produitAdapter = new ProduitAdapter(requireContext(), index);
                     autoCompleteArticle.setAdapter(produitAdapter);
                     autoCompleteArticle.setThreshold(1);
+                } else {
+                    produitAdapter.updateIndex(index);
                 }
-                produitAdapter.updateProduits(produits);
             }
         });
 
@@ -437,15 +438,22 @@ public class CommandesFragment extends Fragment {
                     .setUtilisateur(nomUtilisateur)
                     .build();
 
-            boolean saved = commandeStorage.addCommande(cmd);
-
-            if (saved) {
-                Toast.makeText(getContext(), "Commande enregistrée : " + String.format(REGEX_MONTANT, cmd.getMontantTotal()), Toast.LENGTH_LONG).show();
-                viewModel.clear();
-                navigateToOriginFragment();
-            } else {
-                Toast.makeText(getContext(), "Erreur enregistrement", Toast.LENGTH_LONG).show();
-            }
+            // Écriture hors du thread principal ; le bouton reste désactivé jusqu'au résultat
+            // pour qu'un second appui n'enregistre pas la commande deux fois
+            btnValider.setEnabled(false);
+            depot.ajouterCommande(cmd, saved -> {
+                if (!isAdded()) {
+                    return;
+                }
+                btnValider.setEnabled(true);
+                if (saved) {
+                    Toast.makeText(getContext(), "Commande enregistrée : " + String.format(REGEX_MONTANT, cmd.getMontantTotal()), Toast.LENGTH_LONG).show();
+                    viewModel.clear();
+                    navigateToOriginFragment();
+                } else {
+                    Toast.makeText(getContext(), "Erreur enregistrement", Toast.LENGTH_LONG).show();
+                }
+            });
         } catch (Exception e) {
             new AlertDialog.Builder(requireContext()).setMessage(e.getMessage()).setPositiveButton("OK", null).show();
         }
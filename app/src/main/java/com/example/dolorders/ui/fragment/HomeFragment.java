@@ -13,8 +13,7 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.dolorders.R;
-import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
-import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.ui.util.NavigationUtils;
 import com.example.dolorders.ui.viewModel.ClientsFragmentViewModel;
 import com.example.dolorders.ui.viewModel.CommandesFragmentViewModel;
@@ -29,6 +28,10 @@ public class HomeFragment extends Fragment {
 
     private TextView textTotal;
 
+    private int nbClientsEnAttente;
+
+    private int nbCommandesEnAttente;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -47,17 +50,6 @@ public class HomeFragment extends Fragment {
         CommandesFragmentViewModel commandesViewModel = new ViewModelProvider(requireActivity()).get(CommandesFragmentViewModel.class);
         ClientsFragmentViewModel clientsViewModel = new ViewModelProvider(requireActivity()).get(ClientsFragmentViewModel.class);
 
-        // Récupération réelle des données
-        // Charge UNIQUEMENT les clients EN ATTENTE (locaux, pas encore envoyés à Dolibarr)
-        GestionnaireStockageClient gestionnaireClientLocal = new GestionnaireStockageClient(requireContext());
-        int nbClientsEnAttente = gestionnaireClientLocal.loadClients().size();
-
-        // Charge UNIQUEMENT les commandes EN ATTENTE (locales, pas encore envoyées)
-        GestionnaireStockageCommande gestionnaireCommande = new GestionnaireStockageCommande(requireContext());
-        final int nbCommandesEnAttente = gestionnaireCommande.loadCommandes().size();
-
-        updateStats(nbClientsEnAttente, nbCommandesEnAttente);
-
         // Bouton de synchronisation des clients
         btnSyncClients.setOnClickListener(v -> {
             btnSyncClients.setEnabled(false);
@@ -285,6 +277,30 @@ public class HomeFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        updateStats(nbClientsEnAttente, nbCommandesEnAttente);
+
+        // Les compteurs sont lus dans les résumés des fichiers, hors du thread principal,
+        // et mis à jour à l'arrivée de chaque résumé
+        DepotDonneesLocales depot = DepotDonneesLocales.get(requireContext());
+
+        // UNIQUEMENT les clients EN ATTENTE (locaux, pas encore envoyés à Dolibarr)
+        depot.getResumeClientsLocaux().observe(getViewLifecycleOwner(), resume -> {
+            nbClientsEnAttente = resume.getNbEnregistrements();
+            updateStats(nbClientsEnAttente, nbCommandesEnAttente);
+        });
+
+        // UNIQUEMENT les commandes EN ATTENTE (locales, pas encore envoyées)
+        depot.getResumeCommandes().observe(getViewLifecycleOwner(), resume -> {
+            nbCommandesEnAttente = resume.getNbEnregistrements();
+            updateStats(nbClientsEnAttente, nbCommandesEnAttente);
+        });
+
+        depot.chargerResumes();
+    }
+
     private void updateStats(int nbClients, int nbCommandes) {
         int total = nbClients + nbCommandes;
         textClients.setText(String.valueOf(nbClients));
@@ -15,10 +15,8 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dolorders.R;
-import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
-import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
 import com.example.dolorders.objet.Client;
-import com.example.dolorders.service.ServiceClient;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.ui.adapteur.ClientsAttenteAdapteur;
 import com.example.dolorders.ui.viewModel.ClientsFragmentViewModel;
 
@@ -29,8 +27,7 @@ public class TableauClientsFragment extends Fragment {
 
     private ClientsAttenteAdapteur adapter;
     private List<Client> listeClients;
-    private ServiceClient serviceClient;
-    private GestionnaireStockageClient gestionnaireStockageClient;
+    private DepotDonneesLocales depot;
     private ClientFormulaireFragment dialog;
 
     @Nullable
@@ -46,13 +43,11 @@ public class TableauClientsFragment extends Fragment {
         RecyclerView recyclerView = view.findViewById(R.id.recycler_clients_attente);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
 
-        serviceClient = new ServiceClient(requireContext());
-        gestionnaireStockageClient = new GestionnaireStockageClient(requireContext());
+        depot = DepotDonneesLocales.get(requireContext());
         dialog = new ClientFormulaireFragment();
 
-        // --- Données factices ---
+        // Remplie à la fin de la lecture du stockage (hors du thread principal)
         listeClients = new ArrayList<>();
-        listeClients = gestionnaireStockageClient.loadClients();
 
         // Initialisation de l'adapter avec le Listener
         adapter = new ClientsAttenteAdapteur(listeClients, new ClientsAttenteAdapteur.OnClientActionListener() {
@@ -68,6 +63,13 @@ public class TableauClientsFragment extends Fragment {
         });
 
         recyclerView.setAdapter(adapter);
+
+        depot.getClientsLocaux().observe(getViewLifecycleOwner(), clients -> {
+            listeClients.clear();
+            listeClients.addAll(clients);
+            adapter.notifyDataSetChanged();
+        });
+        depot.chargerClients();
     }
 
     private void supprimerClient(Client client) {
@@ -76,18 +78,22 @@ public class TableauClientsFragment extends Fragment {
                 .setMessage("Voulez-vous vraiment supprimer " + client.getNom() + " de la liste d'attente ?\nCela supprimera aussi les commandes associées.")
                 .setPositiveButton("Supprimer", (dialog, which) -> {
 
-                    // 1. On essaie d'abord de supprimer du fichier (client + commandes associées)
-                    boolean success = serviceClient.deleteClient(client);
-
-                    if (success) {
-                        // 2. Si ça a marché dans le fichier, on met à jour l'écran
-                        listeClients.remove(client);
-                        adapter.notifyDataSetChanged();
-                        Toast.makeText(getContext(), "Client supprimé définitivement", Toast.LENGTH_SHORT).show();
-                    } else {
-                        // 3. Sinon, on avertit l'utilisateur (probablement que le client n'était pas dans le fichier)
-                        Toast.makeText(getContext(), "Erreur : Client introuvable dans le fichier (ID: " + client.getId() + ")", Toast.LENGTH_LONG).show();
-                    }
+                    // 1. On essaie d'abord de supprimer du fichier (client + commandes associées),
+                    // hors du thread principal
+                    depot.supprimerClient(client, success -> {
+                        if (!isAdded()) {
+                            return;
+                        }
+                        if (success) {
+                            // 2. Si ça a marché dans le fichier, on met à jour l'écran
+                            listeClients.remove(client);
+                            adapter.notifyDataSetChanged();
+                            Toast.makeText(getContext(), "Client supprimé définitivement", Toast.LENGTH_SHORT).show();
+                        } else {
+                            // 3. Sinon, on avertit l'utilisateur (probablement que le client n'était pas dans le fichier)
+                            Toast.makeText(getContext(), "Erreur : Client introuvable dans le fichier (ID: " + client.getId() + ")", Toast.LENGTH_LONG).show();
+                        }
+                    });
                 })
                 .setNegativeButton("Annuler", null)
                 .show();
@@ -121,28 +127,26 @@ public class TableauClientsFragment extends Fragment {
                 //notifier l'adaptateur
                 adapter.notifyItemChanged(index);
 
-                // Sauvegarder le client modifié
-                boolean modiffier = gestionnaireStockageClient.modifierClient(updated);
-
-                // ✅ NOUVEAU : Propager les modifications du client dans ses commandes
-                if (modiffier && !updated.isFromApi()) {
-                    GestionnaireStockageCommande commandeStorage = new GestionnaireStockageCommande(requireContext());
-                    commandeStorage.updateClientInCommandes(updated);
-                }
-
-                if (modiffier) {
-                    Toast.makeText(getContext(), "Client '" + updated.getNom() + "' modifié et enregistré localement !", Toast.LENGTH_SHORT)
-                            .show();
+                // Sauvegarder le client modifié et propager ses modifications dans ses commandes
+                // (hors du thread principal ; le dépôt relit ensuite les clients et les commandes)
+                depot.modifierClient(updated, modiffier -> {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    if (modiffier) {
+                        Toast.makeText(getContext(), "Client '" + updated.getNom() + "' modifié et enregistré localement !", Toast.LENGTH_SHORT)
+                                .show();
 
-                    ClientsFragmentViewModel clientsVM = new ViewModelProvider(requireActivity())
-                            .get(ClientsFragmentViewModel.class);
+                        ClientsFragmentViewModel clientsVM = new ViewModelProvider(requireActivity())
+                                .get(ClientsFragmentViewModel.class);
 
-                    clientsVM.publierClientCree(updated);
-                } else {
-                    Toast.makeText(getContext(),
-                            "Client '" + updated.getNom() + "' modifié et enregistré localement a échoué",
-                            Toast.LENGTH_SHORT).show();
-                }
+                        clientsVM.publierClientCree(updated);
+                    } else {
+                        Toast.makeText(getContext(),
+                                "Client '" + updated.getNom() + "' modifié et enregistré localement a échoué",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
 
             } catch (IllegalStateException ex) {
                 android.widget.Toast.makeText(requireContext(),
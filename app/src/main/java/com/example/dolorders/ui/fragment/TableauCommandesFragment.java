@@ -14,10 +14,9 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dolorders.R;
-import com.example.dolorders.data.stockage.commande.GestionnaireStockageCommande;
-import com.example.dolorders.data.stockage.produit.ProduitStorageManager;
+import com.example.dolorders.data.stockage.produit.IndexRechercheProduits;
 import com.example.dolorders.objet.Commande;
-import com.example.dolorders.objet.Produit;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.ui.fragment.CommandeFormDialogFragment;
 import com.example.dolorders.ui.adapteur.CommandesAttenteAdapteur;
 
@@ -26,8 +25,8 @@ import java.util.List;
 
 public class TableauCommandesFragment extends Fragment {
 
-    private GestionnaireStockageCommande commandeStorage;
-    private ProduitStorageManager produitStorage;
+    private DepotDonneesLocales depot;
+    private IndexRechercheProduits indexProduits;
     private CommandesAttenteAdapteur adapter;
     private List<Commande> listeCommandes;
     private CommandeFormDialogFragment dialog;
@@ -42,8 +41,7 @@ public class TableauCommandesFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        commandeStorage = new GestionnaireStockageCommande(requireContext());
-        produitStorage = new ProduitStorageManager(requireContext());
+        depot = DepotDonneesLocales.get(requireContext());
 
         RecyclerView recyclerView = view.findViewById(R.id.recycler_commandes_attente);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
@@ -67,16 +65,20 @@ public class TableauCommandesFragment extends Fragment {
         });
 
         recyclerView.setAdapter(adapter);
+
+        // Les commandes et le catalogue sont lus hors du thread principal
+        depot.getCommandes().observe(getViewLifecycleOwner(), this::afficherCommandes);
+        depot.getIndexProduits().observe(getViewLifecycleOwner(), index -> indexProduits = index);
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        chargerCommandes();
+        depot.chargerCommandes();
+        depot.chargerProduits();
     }
 
-    private void chargerCommandes() {
-        List<Commande> chargement = commandeStorage.loadCommandes();
+    private void afficherCommandes(List<Commande> chargement) {
         listeCommandes.clear();
         if (chargement != null) {
             listeCommandes.addAll(chargement);
@@ -92,21 +94,24 @@ public class TableauCommandesFragment extends Fragment {
                 .setTitle("Confirmation de suppression")
                 .setMessage("Supprimer la commande de " + commande.getClient().getNom() + " ?")
                 .setPositiveButton("Supprimer", (dialog, which) -> {
-                    // On essaie de supprimer du fichier
-                    boolean success = commandeStorage.deleteCommande(commande.getId());
-
-                    if (success) {
-                        // Si la suppression a réussi, on met à jour la liste et l'UI
-                        int index = trouverIndexCommandeParId(commande.getId());
-                        if (index != -1) {
-                            listeCommandes.remove(index);
-                            // Notifie l'adapter que l'élément à cette position a été retiré
-                            adapter.notifyItemRemoved(index);
+                    // On supprime du fichier (hors du thread principal), puis on met à jour l'UI
+                    depot.supprimerCommande(commande.getId(), success -> {
+                        if (!isAdded()) {
+                            return;
                         }
-                        Toast.makeText(getContext(), "Commande supprimée", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(getContext(), "Erreur lors de la suppression de la commande", Toast.LENGTH_SHORT).show();
-                    }
+                        if (success) {
+                            // Si la suppression a réussi, on met à jour la liste et l'UI
+                            int index = trouverIndexCommandeParId(commande.getId());
+                            if (index != -1) {
+                                listeCommandes.remove(index);
+                                // Notifie l'adapter que l'élément à cette position a été retiré
+                                adapter.notifyItemRemoved(index);
+                            }
+                            Toast.makeText(getContext(), "Commande supprimée", Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(getContext(), "Erreur lors de la suppression de la commande", Toast.LENGTH_SHORT).show();
+                        }
+                    });
                 })
                 .setNegativeButton("Annuler", null)
                 .show();
@@ -116,7 +121,7 @@ public class TableauCommandesFragment extends Fragment {
         // Crée une instance du dialogue en lui passant la commande à modifier
         dialog = CommandeFormDialogFragment.newInstance();
         dialog.setCommandeInitiale(commande); // Passe la commande initiale pour le pré-remplissage
-        dialog.setListeProduits(getListeProduitsDisponibles()); // On fournit la liste des produits
+        dialog.setIndexProduits(getIndexProduitsDisponibles()); // On fournit l'index des produits
 
         int index = trouverIndexCommandeParId(commande.getId());
         if (index == -1) {
@@ -136,18 +141,25 @@ public class TableauCommandesFragment extends Fragment {
                         .setUtilisateur(commande.getUtilisateur())
                         .build();
 
-                // Sauvegarde la commande modifiée dans le fichier
-                boolean success = commandeStorage.modifierCommande(updatedCommande);
-
-                if (success) {
-                    // Si la sauvegarde a réussi, met à jour la liste et l'UI
-                    listeCommandes.set(index, updatedCommande);
-                    // Notifie l'adapter que juste cet item a changé (plus performant)
-                    adapter.notifyItemChanged(index);
-                    Toast.makeText(getContext(), "Commande mise à jour !", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(getContext(), "Erreur lors de la sauvegarde de la commande", Toast.LENGTH_SHORT).show();
-                }
+                // Sauvegarde la commande modifiée dans le fichier (hors du thread principal)
+                depot.modifierCommande(updatedCommande, success -> {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    if (success) {
+                        // Si la sauvegarde a réussi, met à jour la liste et l'UI
+                        // (la liste a pu être relue entre-temps : l'index est recherché à nouveau)
+                        int indexActuel = trouverIndexCommandeParId(updatedCommande.getId());
+                        if (indexActuel != -1) {
+                            listeCommandes.set(indexActuel, updatedCommande);
+                            // Notifie l'adapter que juste cet item a changé (plus performant)
+                            adapter.notifyItemChanged(indexActuel);
+                        }
+                        Toast.makeText(getContext(), "Commande mise à jour !", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(getContext(), "Erreur lors de la sauvegarde de la commande", Toast.LENGTH_SHORT).show();
+                    }
+                });
 
             } catch (IllegalStateException ex) {
                 // Attrape les erreurs du Commande.Builder (ex: panier vide)
@@ -169,19 +181,21 @@ public class TableauCommandesFragment extends Fragment {
         return -1;
     }
 
-    // Méthode utilitaire pour fournir la liste des produits disponibles au dialogue.
-    // Charge les produits depuis le ProduitStorageManager.
-    private List<Produit> getListeProduitsDisponibles() {
-        List<Produit> produits = produitStorage.loadProduits();
+    // Méthode utilitaire pour fournir l'index des produits disponibles au dialogue.
+    // Utilise le dernier index publié par le dépôt local (chargé dans onResume).
+    private IndexRechercheProduits getIndexProduitsDisponibles() {
+        IndexRechercheProduits index = indexProduits;
+        if (index == null) {
+            index = new IndexRechercheProduits(new ArrayList<>());
+        }
 
-        // Si aucun produit n'est disponible, retourner une liste vide
-        if (produits == null || produits.isEmpty()) {
+        // Si aucun produit n'est disponible (ou pas encore lu), l'index est vide
+        if (index.taille() == 0) {
             Toast.makeText(requireContext(),
                 "Aucun produit disponible. Synchronisez les produits depuis l'accueil.",
                 Toast.LENGTH_LONG).show();
-            return new ArrayList<>();
         }
 
-        return produits;
+        return index;
     }
 }
@@ -6,6 +6,9 @@ import java.util.List;
 /**
  * Classe pour gérer le rapport de synchronisation des clients et commandes vers Dolibarr.
  * Collecte les résultats d'envoi (succès et échecs) et génère un rapport détaillé.
+ * Si l'envoi est interrompu (serveur en panne, clé API refusée), les éléments restants sont
+ * comptés comme non tentés, avec la raison de l'interruption.
+ * Les méthodes sont synchronisées : plusieurs clients peuvent être envoyés en parallèle.
  */
 public class RapportSynchronisation {
 
@@ -13,13 +16,16 @@ public class RapportSynchronisation {
     private final List<String> clientsEchoues = new ArrayList<>();
     private final List<String> commandesReussies = new ArrayList<>();
     private final List<String> commandesEchouees = new ArrayList<>();
+    private final List<String> clientsNonTentes = new ArrayList<>();
+    private final List<String> commandesNonTentees = new ArrayList<>();
+    private String raisonInterruption;
 
     /**
      * Ajoute un client envoyé avec succès au rapport.
      *
      * @param nomClient Nom du client envoyé
      */
-    public void ajouterClientReussi(String nomClient) {
+    public synchronized void ajouterClientReussi(String nomClient) {
         clientsReussis.add(nomClient);
     }
 
@@ -29,7 +35,7 @@ public class RapportSynchronisation {
      * @param nomClient Nom du client
      * @param raison    Raison de l'échec
      */
-    public void ajouterClientEchoue(String nomClient, String raison) {
+    public synchronized void ajouterClientEchoue(String nomClient, String raison) {
         clientsEchoues.add(nomClient + " : " + raison);
     }
 
@@ -38,7 +44,7 @@ public class RapportSynchronisation {
      *
      * @param idCommande ID de la commande envoyée
      */
-    public void ajouterCommandeReussie(String idCommande) {
+    public synchronized void ajouterCommandeReussie(String idCommande) {
         commandesReussies.add(idCommande);
     }
 
@@ -48,16 +54,45 @@ public class RapportSynchronisation {
      * @param idCommande ID de la commande
      * @param raison     Raison de l'échec
      */
-    public void ajouterCommandeEchouee(String idCommande, String raison) {
+    public synchronized void ajouterCommandeEchouee(String idCommande, String raison) {
         commandesEchouees.add(idCommande + " : " + raison);
     }
 
+    /**
+     * Ajoute un client qui n'a pas été tenté (envoi interrompu).
+     *
+     * @param nomClient Nom du client
+     */
+    public synchronized void ajouterClientNonTente(String nomClient) {
+        clientsNonTentes.add(nomClient);
+    }
+
+    /**
+     * Ajoute une commande qui n'a pas été tentée (envoi interrompu).
+     *
+     * @param idCommande ID de la commande
+     */
+    public synchronized void ajouterCommandeNonTentee(String idCommande) {
+        commandesNonTentees.add(idCommande);
+    }
+
+    /**
+     * Indique que l'envoi a été interrompu ; seule la première raison est conservée.
+     *
+     * @param raison Raison de l'interruption
+     */
+    public synchronized void signalerInterruption(String raison) {
+        if (raisonInterruption == null) {
+            raisonInterruption = raison;
+        }
+    }
+
     /**
      * Génère un rapport détaillé de la synchronisation avec des sections.
      *
      * @return Rapport formaté sous forme de String
      */
-    public String genererRapportDetaille() {
+    public synchronized String genererRapportDetaille() {
         StringBuilder rapport = new StringBuilder();
 
         // Résumé global
@@ -67,12 +102,26 @@ public class RapportSynchronisation {
         // Clients
         rapport.append("👥 CLIENTS :\n");
         rapport.append("✅ Envoyés avec succès : ").append(clientsReussis.size()).append("\n");
-        rapport.append("❌ Échecs : ").append(clientsEchoues.size()).append("\n\n");
+        rapport.append("❌ Échecs : ").append(clientsEchoues.size()).append("\n");
+        if (!clientsNonTentes.isEmpty()) {
+            rapport.append("⏸️ Non tentés : ").append(clientsNonTentes.size()).append("\n");
+        }
+        rapport.append("\n");
 
         // Commandes
         rapport.append("📦 COMMANDES :\n");
         rapport.append("✅ Envoyées avec succès : ").append(commandesReussies.size()).append("\n");
-        rapport.append("❌ Échecs : ").append(commandesEchouees.size()).append("\n\n");
+        rapport.append("❌ Échecs : ").append(commandesEchouees.size()).append("\n");
+        if (!commandesNonTentees.isEmpty()) {
+            rapport.append("⏸️ Non tentées : ").append(commandesNonTentees.size()).append("\n");
+        }
+        rapport.append("\n");
+
+        // Interruption de l'envoi
+        if (raisonInterruption != null) {
+            rapport.append("⛔ ENVOI INTERROMPU : ").append(raisonInterruption).append("\n");
+            rapport.append("Les éléments non tentés restent dans la liste d'attente.\n\n");
+        }
 
         // Détails des échecs
         if (!clientsEchoues.isEmpty() || !commandesEchouees.isEmpty()) {
@@ -95,25 +144,53 @@ public class RapportSynchronisation {
             }
         }
 
+        // Détails des éléments non tentés
+        if (!clientsNonTentes.isEmpty() || !commandesNonTentees.isEmpty()) {
+            rapport.append("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n");
+            rapport.append("📋 NON TENTÉS :\n\n");
+
+            if (!clientsNonTentes.isEmpty()) {
+                rapport.append("⏸️ Clients :\n");
+                for (String nom : clientsNonTentes) {
+                    rapport.append("  • ").append(nom).append("\n");
+                }
+                rapport.append("\n");
+            }
+
+            if (!commandesNonTentees.isEmpty()) {
+                rapport.append("⏸️ Commandes :\n");
+                for (String id : commandesNonTentees) {
+                    rapport.append("  • ").append(id).append("\n");
+                }
+            }
+        }
+
         return rapport.toString();
     }
 
     /**
-     * Vérifie si toutes les opérations ont réussi (aucun échec).
+     * Vérifie si toutes les opérations ont réussi (aucun échec, envoi non interrompu).
      *
      * @return true si aucun échec, false sinon
      */
-    public boolean aToutReussi() {
-        return clientsEchoues.isEmpty() && commandesEchouees.isEmpty();
+    public synchronized boolean aToutReussi() {
+        return !aDesErreurs();
     }
 
     /**
-     * Vérifie si des erreurs ont été enregistrées.
+     * Vérifie si des erreurs ont été enregistrées ou si l'envoi a été interrompu.
      *
      * @return true si au moins un échec existe, false sinon
      */
-    public boolean aDesErreurs() {
-        return !clientsEchoues.isEmpty() || !commandesEchouees.isEmpty();
+    public synchronized boolean aDesErreurs() {
+        return !clientsEchoues.isEmpty() || !commandesEchouees.isEmpty() || raisonInterruption != null;
+    }
+
+    /**
+     * @return true si l'envoi a été interrompu avant d'essayer tous les éléments
+     */
+    public synchronized boolean aEteInterrompu() {
+        return raisonInterruption != null;
     }
 
     /**
@@ -121,7 +198,7 @@ public class RapportSynchronisation {
      *
      * @return Nombre de clients réussis
      */
-    public int getNombreClientsReussis() {
+    public synchronized int getNombreClientsReussis() {
         return clientsReussis.size();
     }
 
@@ -130,7 +207,7 @@ public class RapportSynchronisation {
      *
      * @return Nombre de clients échoués
      */
-    public int getNombreClientsEchoues() {
+    public synchronized int getNombreClientsEchoues() {
         return clientsEchoues.size();
     }
 
@@ -139,7 +216,7 @@ public class RapportSynchronisation {
      *
      * @return Nombre de commandes réussies
      */
-    public int getNombreCommandesReussies() {
+    public synchronized int getNombreCommandesReussies() {
         return commandesReussies.size();
     }
 
@@ -148,8 +225,26 @@ public class RapportSynchronisation {
      *
      * @return Nombre de commandes échouées
      */
-    public int getNombreCommandesEchouees() {
+    public synchronized int getNombreCommandesEchouees() {
         return commandesEchouees.size();
     }
+
+    /**
+     * Retourne le nombre de clients non tentés.
+     *
+     * @return Nombre de clients non tentés
+     */
+    public synchronized int getNombreClientsNonTentes() {
+        return clientsNonTentes.size();
+    }
+
+    /**
+     * Retourne le nombre de commandes non tentées.
+     *
+     * @return Nombre de commandes non tentées
+     */
+    public synchronized int getNombreCommandesNonTentees() {
+        return commandesNonTentees.size();
+    }
 }
 
@@ -4,14 +4,14 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
-import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
 import com.example.dolorders.objet.Client;
 import com.example.dolorders.repository.ClientApiRepository;
+import com.example.dolorders.repository.DepotDonneesLocales;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class ClientsFragmentViewModel extends ViewModel {
@@ -19,14 +19,13 @@ public class ClientsFragmentViewModel extends ViewModel {
     private static final String TAG = "ClientsFragmentVM";
 
     private final MutableLiveData<Client> clientCree = new MutableLiveData<>();
-    private final MutableLiveData<List<Client>> listeClients = new MutableLiveData<>();
+    private final MediatorLiveData<List<Client>> listeClients = new MediatorLiveData<>();
     private final MutableLiveData<String> erreurSynchronisation = new MutableLiveData<>();
     private final MutableLiveData<Boolean> synchronisationReussie = new MutableLiveData<>();
     private final MutableLiveData<Integer> nombreClientsSynchronises = new MutableLiveData<>();
 
     private ClientApiRepository clientApiRepository;
-    private GestionnaireStockageClient clientApiStorageManager;
-    private GestionnaireStockageClient clientStorageManager;
+    private DepotDonneesLocales depot;
 
     public LiveData<Client> getClientCree() {
         return clientCree;
@@ -66,34 +65,34 @@ public class ClientsFragmentViewModel extends ViewModel {
     }
 
     /**
-     * Charge tous les clients (locaux + API) fusionnés.
+     * Relie la liste des clients au dépôt local (une seule fois, depuis le thread principal).
+     */
+    private DepotDonneesLocales getDepot(Context context) {
+        if (depot == null) {
+            depot = DepotDonneesLocales.get(context);
+            listeClients.addSource(depot.getTousLesClients(), listeClients::setValue);
+        }
+        return depot;
+    }
+
+    /**
+     * Charge tous les clients (locaux + API) fusionnés, hors du thread principal.
      * Utilisé pour afficher la liste complète dans le tableau des clients.
+     * La liste est publiée dans {@link #getListeClients()} à la fin de la lecture.
      *
-     * @param context Le contexte nécessaire pour initialiser les storage managers
+     * @param context Le contexte nécessaire pour accéder au dépôt local
      */
     public void chargerTousLesClients(Context context) {
-        if (clientStorageManager == null) {
-            clientStorageManager = new GestionnaireStockageClient(context);
-        }
-        if (clientApiStorageManager == null) {
-            clientApiStorageManager = new GestionnaireStockageClient(context, GestionnaireStockageClient.API_CLIENTS_FILE);
-        }
-
-        // Charger les clients locaux
-        List<Client> clientsLocaux = clientStorageManager.loadClients();
-
-        // Charger les clients de l'API
-        List<Client> clientsApi = clientApiStorageManager.loadClients();
-
-        // Fusionner les deux listes
-        List<Client> tousLesClients = new ArrayList<>();
-        tousLesClients.addAll(clientsLocaux);
-        tousLesClients.addAll(clientsApi);
-
-        Log.d(TAG, "Clients chargés : " + clientsLocaux.size() + " locaux + " +
-                clientsApi.size() + " API = " + tousLesClients.size() + " total");
+        getDepot(context).chargerClients();
+    }
 
-        listeClients.postValue(tousLesClients);
+    /**
+     * Relit tous les clients après une création ou une modification.
+     *
+     * @param context Le contexte nécessaire pour accéder au dépôt local
+     */
+    public void rafraichirClients(Context context) {
+        getDepot(context).rafraichirClients();
     }
 
     /**
@@ -106,9 +105,7 @@ public class ClientsFragmentViewModel extends ViewModel {
         if (clientApiRepository == null) {
             clientApiRepository = new ClientApiRepository(context);
         }
-        if (clientApiStorageManager == null) {
-            clientApiStorageManager = new GestionnaireStockageClient(context, GestionnaireStockageClient.API_CLIENTS_FILE);
-        }
+        DepotDonneesLocales depotLocal = getDepot(context);
 
         // Appeler l'API via le Repository
         clientApiRepository.synchroniserDepuisApi(new ClientApiRepository.ClientCallback() {
@@ -116,17 +113,14 @@ public class ClientsFragmentViewModel extends ViewModel {
             public void onSuccess(List<Client> clients) {
                 Log.d(TAG, "Clients synchronisés depuis l'API : " + clients.size());
 
-                // Sauvegarder dans le cache API
-                clientApiStorageManager.saveClients(clients);
+                // Les clients sont déjà sauvegardés dans le cache API : relire tous les clients
+                depotLocal.rafraichirClients();
 
                 // Stocker le nombre de clients synchronisés
                 nombreClientsSynchronises.postValue(clients.size());
 
-                // Notifier le succès AVANT de recharger les clients
+                // Notifier le succès AVANT que la liste rechargée ne soit publiée
                 synchronisationReussie.postValue(true);
-
-                // Recharger tous les clients pour mettre à jour l'affichage
-                chargerTousLesClients(context);
             }
 
             @Override
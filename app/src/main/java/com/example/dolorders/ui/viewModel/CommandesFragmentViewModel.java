@@ -4,14 +4,15 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
-import com.example.dolorders.data.stockage.client.GestionnaireStockageClient;
-import com.example.dolorders.data.stockage.produit.ProduitStorageManager;
+import com.example.dolorders.data.stockage.produit.IndexRechercheProduits;
 import com.example.dolorders.objet.Client;
 import com.example.dolorders.objet.LigneCommande;
 import com.example.dolorders.objet.Produit;
+import com.example.dolorders.repository.DepotDonneesLocales;
 import com.example.dolorders.repository.ProduitRepository;
 
 import java.text.SimpleDateFormat;
@@ -27,8 +28,9 @@ public class CommandesFragmentViewModel extends ViewModel {
     private final MutableLiveData<List<LigneCommande>> lignesCommande = new MutableLiveData<>(new ArrayList<>());
     private final MutableLiveData<Client> clientSelectionne = new MutableLiveData<>();
     private final MutableLiveData<String> date = new MutableLiveData<>();
-    private final MutableLiveData<List<Client>> listeClients = new MutableLiveData<>();
-    private final MutableLiveData<List<Produit>> listeProduits = new MutableLiveData<>();
+    private final MediatorLiveData<List<Client>> listeClients = new MediatorLiveData<>();
+    private final MediatorLiveData<List<Produit>> listeProduits = new MediatorLiveData<>();
+    private final MediatorLiveData<IndexRechercheProduits> indexProduits = new MediatorLiveData<>();
     private final MutableLiveData<Boolean> fromAccueil = new MutableLiveData<>(false);
     private final MutableLiveData<Boolean> fromListeClients = new MutableLiveData<>(false);
     private final MutableLiveData<String> erreurSynchronisation = new MutableLiveData<>();
@@ -39,9 +41,7 @@ public class CommandesFragmentViewModel extends ViewModel {
     private final MutableLiveData<String> fragmentOrigine = new MutableLiveData<>("commandes");
 
     private ProduitRepository produitRepository;
-    private ProduitStorageManager produitStorageManager;
-    private GestionnaireStockageClient clientStorageManager;
-    private GestionnaireStockageClient clientApiStorageManager;
+    private DepotDonneesLocales depot;
 
     // --- Getters ---
     public LiveData<List<LigneCommande>> getLignesCommande() {
@@ -64,6 +64,10 @@ public class CommandesFragmentViewModel extends ViewModel {
         return listeProduits;
     }
 
+    public LiveData<IndexRechercheProduits> getIndexProduits() {
+        return indexProduits;
+    }
+
     public LiveData<Boolean> getFromAccueil() {
         return fromAccueil;
     }
@@ -164,22 +168,32 @@ public class CommandesFragmentViewModel extends ViewModel {
         lignesCommande.setValue(new java.util.ArrayList<>());
     }
 
+    /**
+     * Relie les clients et le catalogue au dépôt local (une seule fois, depuis le thread principal).
+     */
+    private DepotDonneesLocales getDepot(Context context) {
+        if (depot == null) {
+            depot = DepotDonneesLocales.get(context);
+            listeClients.addSource(depot.getTousLesClients(), listeClients::setValue);
+            indexProduits.addSource(depot.getIndexProduits(), indexProduits::setValue);
+            listeProduits.addSource(depot.getIndexProduits(), index -> listeProduits.setValue(index.getProduits()));
+        }
+        return depot;
+    }
+
     public void chargerProduits(Context context) {
         if (produitRepository == null) {
             produitRepository = new ProduitRepository(context);
         }
-        if (produitStorageManager == null) {
-            produitStorageManager = new ProduitStorageManager(context);
-        }
+        DepotDonneesLocales depotLocal = getDepot(context);
 
-        // Appeler l'API via le Repository (qui s'occupe uniquement de l'API)
+        // Appeler l'API via le Repository (qui écrit les pages reçues dans le cache)
         produitRepository.synchroniserDepuisApi(new ProduitRepository.ProduitCallback() {
             @Override
             public void onSuccess(List<Produit> produits) {
                 Log.d(TAG, "Produits synchronisés depuis l'API : " + produits.size());
 
-                // Sauvegarder dans le cache
-                produitStorageManager.saveProduits(produits);
+                // Les produits ont déjà été écrits dans le cache, page par page, par le Repository
 
                 // Stocker le nombre de produits synchronisés
                 nombreProduitsSynchronises.postValue(produits.size());
@@ -187,8 +201,8 @@ public class CommandesFragmentViewModel extends ViewModel {
                 // Notifier le succès AVANT de mettre à jour le LiveData
                 synchronisationReussie.postValue(true);
 
-                // Mettre à jour le LiveData
-                listeProduits.postValue(produits);
+                // Relire le catalogue et son index hors du thread principal
+                depotLocal.rafraichirProduits();
             }
 
             @Override
@@ -241,31 +255,18 @@ public class CommandesFragmentViewModel extends ViewModel {
         lignesCommande.setValue(new ArrayList<>());
     }
 
+    /**
+     * Charge le catalogue et son index depuis le cache, hors du thread principal.
+     * L'index est relu depuis le disque s'il correspond au catalogue, sans reconstruction.
+     */
     public void chargerProduitsDepuisCache(Context context) {
-        if (produitStorageManager == null) {
-            produitStorageManager = new ProduitStorageManager(context);
-        }
-        List<Produit> produitsCache = produitStorageManager.loadProduits();
-        if (produitsCache != null && !produitsCache.isEmpty()) {
-            Log.d(TAG, "Produits chargés depuis le cache : " + produitsCache.size());
-            listeProduits.postValue(produitsCache);
-        } else {
-            listeProduits.postValue(new ArrayList<>());
-        }
+        getDepot(context).chargerProduits();
     }
 
+    /**
+     * Charge tous les clients (locaux + API), hors du thread principal.
+     */
     public void chargerTousLesClients(Context context) {
-        if (clientStorageManager == null) {
-            clientStorageManager = new GestionnaireStockageClient(context);
-        }
-        if (clientApiStorageManager == null) {
-            clientApiStorageManager = new GestionnaireStockageClient(context, GestionnaireStockageClient.API_CLIENTS_FILE);
-        }
-        List<Client> clientsLocaux = clientStorageManager.loadClients();
-        List<Client> clientsApi = clientApiStorageManager.loadClients();
-        List<Client> tousLesClients = new ArrayList<>();
-        tousLesClients.addAll(clientsLocaux);
-        tousLesClients.addAll(clientsApi);
-        listeClients.setValue(tousLesClients);
+        getDepot(context).chargerClients();
     }
 }
\ No newline at end of file
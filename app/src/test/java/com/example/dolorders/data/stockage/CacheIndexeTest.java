@@ -0,0 +1,385 @@
+package com.example.dolorders.data.stockage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.example.dolorders.objet.LigneCommande;
+import com.example.dolorders.objet.Produit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests unitaires du cache mémoire indexé et de la signature de fichier.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class CacheIndexeTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private CacheIndexe<Commande> cache;
+    private SignatureFichier signature;
+    private Client client1;
+    private Client client2;
+    private Produit produit1;
+    private Produit produit2;
+    private Date dateReference;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new CacheIndexe<Commande>(commande -> Collections.singletonList(commande.getId()))
+                .ajouterIndex("client", commande -> Collections.singletonList(commande.getClient().getId()))
+                .ajouterIndex("produit", commande -> {
+                    List<String> ids = new ArrayList<>();
+                    for (LigneCommande ligne : commande.getLignesCommande()) {
+                        ids.add(ligne.getProduit().getId());
+                    }
+                    return ids;
+                });
+
+        File fichier = dossier.newFile("commandes_data.json");
+        signature = SignatureFichier.de(fichier);
+
+        dateReference = new Date(1700000000000L);
+        client1 = creerClient("CLI-001", "Dupont");
+        client2 = creerClient("CLI-002", "Martin");
+        produit1 = new Produit("1", "Evian 1.5L", "Eau minérale naturelle", 1.50, 20.0);
+        produit2 = new Produit("2", "Contrex 1L", "Eau riche en minéraux", 2.00, 20.0);
+    }
+
+    private Client creerClient(String id, String nom) {
+        return new Client.Builder()
+                .setId(id)
+                .setNom(nom)
+                .setAdresse("10 rue de la Paix")
+                .setCodePostal("75002")
+                .setVille("Paris")
+                .setAdresseMail("test@example.com")
+                .setTelephone("0123456789")
+                .setUtilisateur("userTest")
+                .setDateSaisie(dateReference)
+                .build();
+    }
+
+    private Commande creerCommande(String id, Client client, Produit... produits) {
+        List<LigneCommande> lignes = new ArrayList<>();
+        for (Produit produit : produits) {
+            lignes.add(new LigneCommande(produit, 1, 0.0, true, dateReference));
+        }
+        return new Commande.Builder()
+                .setId(id)
+                .setClient(client)
+                .setDateCommande(dateReference)
+                .setLignesCommande(lignes)
+                .setUtilisateur("userTest")
+                .build();
+    }
+
+    // ==================== TESTS DE VALIDITÉ ====================
+
+    /**
+     * Test : Un cache jamais rempli est invalide
+     */
+    @Test
+    public void lire_CacheVide_RetourneNull() {
+        assertFalse(cache.estValide(signature));
+        assertNull(cache.lire(signature));
+    }
+
+    /**
+     * Test : Le cache est utilisé tant que la signature ne change pas
+     */
+    @Test
+    public void lire_MemeSignature_RetourneLesElements() {
+        Commande commande = creerCommande("CMD-001", client1, produit1);
+        cache.remplacer(Collections.singletonList(commande), signature);
+
+        List<Commande> resultat = cache.lire(signature);
+
+        assertEquals(1, resultat.size());
+        assertSame(commande, resultat.get(0));
+    }
+
+    /**
+     * Test : Une modification du fichier sur disque rend le cache périmé
+     */
+    @Test
+    public void lire_FichierModifie_RetourneNull() throws Exception {
+        File fichier = new File(dossier.getRoot(), "commandes_data.json");
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-001", client1, produit1)), signature);
+
+        try (FileOutputStream fos = new FileOutputStream(fichier, true)) {
+            fos.write("[]".getBytes(StandardCharsets.UTF_8));
+        }
+        SignatureFichier nouvelleSignature = SignatureFichier.de(fichier);
+
+        assertNotEquals(signature, nouvelleSignature);
+        assertNull(cache.lire(nouvelleSignature));
+    }
+
+    /**
+     * Test : La liste retournée est une copie, la modifier ne change pas le cache
+     */
+    @Test
+    public void lire_ModificationDeLaCopie_NAffectePasLeCache() {
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-001", client1, produit1)), signature);
+
+        cache.lire(signature).clear();
+
+        assertEquals(1, cache.lire(signature).size());
+        assertEquals(1, cache.taille());
+    }
+
+    /**
+     * Test : invalider() force une relecture
+     */
+    @Test
+    public void invalider_VideLeCache() {
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-001", client1, produit1)), signature);
+
+        cache.invalider();
+
+        assertNull(cache.lire(signature));
+        assertNull(cache.parId("CMD-001"));
+        assertEquals(0, cache.taille());
+    }
+
+    // ==================== TESTS DES INDEX ====================
+
+    /**
+     * Test : Recherche par ID via l'index principal
+     */
+    @Test
+    public void parId_RetourneLaCommande() {
+        Commande commande2 = creerCommande("CMD-002", client2, produit2);
+        cache.remplacer(Arrays.asList(creerCommande("CMD-001", client1, produit1), commande2), signature);
+
+        assertSame(commande2, cache.parId("CMD-002"));
+        assertNull(cache.parId("CMD-404"));
+        assertNull(cache.parId(null));
+    }
+
+    /**
+     * Test : Index secondaire par client
+     */
+    @Test
+    public void parIndex_Client_RetourneLesCommandesDuClient() {
+        cache.remplacer(Arrays.asList(
+                creerCommande("CMD-001", client1, produit1),
+                creerCommande("CMD-002", client2, produit1),
+                creerCommande("CMD-003", client1, produit2)), signature);
+
+        List<Commande> commandesClient1 = cache.parIndex("client", "CLI-001");
+
+        assertEquals(2, commandesClient1.size());
+        assertEquals("CMD-001", commandesClient1.get(0).getId());
+        assertEquals("CMD-003", commandesClient1.get(1).getId());
+        assertTrue(cache.parIndex("client", "CLI-999").isEmpty());
+    }
+
+    /**
+     * Test : Une commande contenant deux lignes du même produit n'apparaît qu'une fois
+     */
+    @Test
+    public void parIndex_Produit_SansDoublon() {
+        cache.remplacer(Arrays.asList(
+                creerCommande("CMD-001", client1, produit1, produit1, produit2),
+                creerCommande("CMD-002", client2, produit2)), signature);
+
+        assertEquals(1, cache.parIndex("produit", "1").size());
+        assertEquals(2, cache.parIndex("produit", "2").size());
+    }
+
+    /**
+     * Test : remplacer() reconstruit les index
+     */
+    @Test
+    public void remplacer_ReconstruitLesIndex() {
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-001", client1, produit1)), signature);
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-002", client2, produit2)), signature);
+
+        assertNull(cache.parId("CMD-001"));
+        assertTrue(cache.parIndex("client", "CLI-001").isEmpty());
+        assertEquals(1, cache.parIndex("client", "CLI-002").size());
+    }
+
+    // ==================== TESTS DES MUTATIONS SUR PLACE ====================
+
+    /**
+     * Test : ajouter() indexe le nouvel élément et remplace sur place un élément de même ID
+     */
+    @Test
+    public void ajouter_NouvelleEtMemeId_IndexMisAJour() {
+        cache.remplacer(Arrays.asList(
+                creerCommande("CMD-001", client1, produit1),
+                creerCommande("CMD-002", client1, produit2)), signature);
+
+        cache.ajouter(creerCommande("CMD-003", client2, produit1));
+        Commande modifiee = creerCommande("CMD-001", client1, produit2);
+        cache.ajouter(modifiee);
+
+        List<Commande> resultat = cache.lire(signature);
+        assertEquals(3, resultat.size());
+        assertSame(modifiee, resultat.get(0));
+        assertSame(modifiee, cache.parId("CMD-001"));
+        assertEquals(1, cache.parIndex("client", "CLI-002").size());
+        assertEquals("CMD-001", cache.parIndex("client", "CLI-001").get(0).getId());
+        assertEquals("CMD-003", cache.parIndex("produit", "1").get(0).getId());
+        assertEquals(2, cache.parIndex("produit", "2").size());
+    }
+
+    /**
+     * Test : modifier() ne fait rien si l'ID est inconnu ; un changement de client déplace l'élément
+     */
+    @Test
+    public void modifier_ChangementDeClient_IndexDeplace() {
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-001", client1, produit1)), signature);
+
+        assertFalse(cache.modifier(creerCommande("CMD-404", client1, produit1)));
+        assertTrue(cache.modifier(creerCommande("CMD-001", client2, produit1)));
+
+        assertEquals(1, cache.taille());
+        assertTrue(cache.parIndex("client", "CLI-001").isEmpty());
+        assertEquals(1, cache.parIndex("client", "CLI-002").size());
+    }
+
+    /**
+     * Test : retirer() et retirerParIndex() retirent les éléments de la liste et de tous les index
+     */
+    @Test
+    public void retirer_ParIdEtParClient_IndexMisAJour() {
+        cache.remplacer(Arrays.asList(
+                creerCommande("CMD-001", client1, produit1),
+                creerCommande("CMD-002", client2, produit1),
+                creerCommande("CMD-003", client1, produit2)), signature);
+
+        assertEquals(1, cache.retirer("CMD-002"));
+        assertEquals(0, cache.retirer("CMD-404"));
+        assertNull(cache.parId("CMD-002"));
+        assertEquals(1, cache.parIndex("produit", "1").size());
+
+        assertEquals(2, cache.retirerParIndex("client", "CLI-001"));
+        assertEquals(0, cache.taille());
+        assertNull(cache.parId("CMD-001"));
+        assertTrue(cache.parIndex("produit", "1").isEmpty());
+        assertTrue(cache.parIndex("produit", "2").isEmpty());
+        assertTrue(cache.estValide(signature));
+    }
+
+    /**
+     * Test : Les mutations sur place donnent les mêmes index qu'une reconstruction complète
+     */
+    @Test
+    public void mutations_IdentiquesAUneReconstruction() {
+        List<Commande> attendu = new ArrayList<>();
+        cache.remplacer(attendu, signature);
+        for (int i = 0; i < 20; i++) {
+            Commande commande = creerCommande("CMD-" + (i % 7), i % 3 == 0 ? client1 : client2,
+                    i % 2 == 0 ? produit1 : produit2);
+            cache.ajouter(commande);
+            int position = -1;
+            for (int j = 0; j < attendu.size(); j++) {
+                if (attendu.get(j).getId().equals(commande.getId())) {
+                    position = j;
+                    break;
+                }
+            }
+            if (position >= 0) {
+                attendu.set(position, commande);
+            } else {
+                attendu.add(commande);
+            }
+        }
+        cache.retirer("CMD-3");
+        attendu.removeIf(c -> "CMD-3".equals(c.getId()));
+
+        CacheIndexe<Commande> reconstruit = new CacheIndexe<Commande>(c -> Collections.singletonList(c.getId()))
+                .ajouterIndex("client", c -> Collections.singletonList(c.getClient().getId()));
+        reconstruit.remplacer(attendu, signature);
+
+        assertEquals(attendu, cache.lire(signature));
+        for (String client : Arrays.asList("CLI-001", "CLI-002")) {
+            assertEquals(new HashSet<>(reconstruit.parIndex("client", client)),
+                    new HashSet<>(cache.parIndex("client", client)));
+        }
+    }
+
+    /**
+     * Test : Une mutation sur un cache vide est refusée (le stockage doit être relu)
+     */
+    @Test(expected = IllegalStateException.class)
+    public void ajouter_CacheVide_LeveUneException() {
+        cache.ajouter(creerCommande("CMD-001", client1, produit1));
+    }
+
+    /**
+     * Test : mettreAJourSignature() garde les éléments valides pour la nouvelle signature
+     */
+    @Test
+    public void mettreAJourSignature_ElementsConserves() throws Exception {
+        cache.remplacer(Collections.singletonList(creerCommande("CMD-001", client1, produit1)), signature);
+        File journal = dossier.newFile("commandes_data.json.journal");
+        SignatureFichier nouvelleSignature = SignatureFichier.de(
+                new File(dossier.getRoot(), "commandes_data.json"), journal);
+
+        cache.mettreAJourSignature(nouvelleSignature);
+
+        assertTrue(cache.estValide(nouvelleSignature));
+        assertEquals(1, cache.lire(nouvelleSignature).size());
+    }
+
+    /**
+     * Test : Un index non déclaré est refusé
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void parIndex_IndexInconnu_LeveUneException() {
+        cache.remplacer(new ArrayList<>(), signature);
+        cache.parIndex("inconnu", "x");
+    }
+
+    // ==================== TESTS DE SIGNATURE ====================
+
+    /**
+     * Test : Deux signatures d'un fichier inchangé sont égales
+     */
+    @Test
+    public void signature_FichierInchange_Egale() {
+        File fichier = new File(dossier.getRoot(), "commandes_data.json");
+        assertEquals(SignatureFichier.de(fichier), SignatureFichier.de(fichier));
+    }
+
+    /**
+     * Test : L'apparition d'un fichier compagnon (journal) change la signature
+     */
+    @Test
+    public void signature_JournalCree_Differente() throws Exception {
+        File fichier = new File(dossier.getRoot(), "commandes_data.json");
+        File journal = new File(dossier.getRoot(), "commandes_data.json.journal");
+        SignatureFichier avant = SignatureFichier.de(fichier, journal);
+
+        try (FileOutputStream fos = new FileOutputStream(journal)) {
+            fos.write("{}\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertNotEquals(avant, SignatureFichier.de(fichier, journal));
+    }
+}
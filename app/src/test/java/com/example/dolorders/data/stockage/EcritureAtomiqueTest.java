@@ -0,0 +1,145 @@
+package com.example.dolorders.data.stockage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests unitaires du remplacement atomique des fichiers de stockage.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class EcritureAtomiqueTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private File stockage;
+
+    @Before
+    public void setUp() {
+        stockage = new File(dossier.getRoot(), "commandes_data.json");
+    }
+
+    private void ecrire(String contenu) throws IOException {
+        EcritureAtomique.ecrire(stockage, sortie -> {
+            sortie.write(contenu.getBytes(StandardCharsets.UTF_8));
+            sortie.close();
+        });
+    }
+
+    private static String lire(File fichier) throws IOException {
+        return new String(Files.readAllBytes(fichier.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test : Chaque écriture remplace le fichier et garde la génération précédente, sans temporaire restant
+     */
+    @Test
+    public void ecrire_GardeLaGenerationPrecedente() throws IOException {
+        ecrire("[1]");
+        ecrire("[1,2]");
+
+        assertEquals("[1,2]", lire(stockage));
+        assertEquals("[1]", lire(EcritureAtomique.fichierSauvegarde(stockage)));
+        assertFalse(EcritureAtomique.fichierTemporaire(stockage).exists());
+        assertFalse(EcritureAtomique.recuperer(stockage));
+    }
+
+    /**
+     * Test : Une écriture en échec laisse le fichier précédent intact
+     */
+    @Test
+    public void ecrire_Echec_FichierConserve() throws IOException {
+        ecrire("[1]");
+
+        try {
+            EcritureAtomique.ecrire(stockage, sortie -> {
+                sortie.write("[1,".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("Coupure simulée");
+            });
+            fail("L'erreur d'écriture aurait dû être propagée");
+        } catch (IOException attendue) {
+            // Le gestionnaire journalise l'erreur et retourne false
+        }
+
+        assertEquals("[1]", lire(stockage));
+        assertFalse(EcritureAtomique.fichierTemporaire(stockage).exists());
+    }
+
+    /**
+     * Test : Un fichier abîmé (somme incorrecte) est remplacé par la sauvegarde
+     */
+    @Test
+    public void recuperer_FichierAbime_SauvegardeRestauree() throws IOException {
+        ecrire("[1]");
+        ecrire("[1,2]");
+        try (RandomAccessFile acces = new RandomAccessFile(stockage, "rw")) {
+            acces.seek(1);
+            acces.write('9');
+        }
+
+        assertTrue(EcritureAtomique.recuperer(stockage));
+        assertEquals("[1]", lire(stockage));
+        assertFalse(EcritureAtomique.recuperer(stockage));
+    }
+
+    /**
+     * Test : Une coupure entre la mise de côté de l'ancien fichier et le renommage du nouveau
+     * laisse une sauvegarde restaurable
+     */
+    @Test
+    public void recuperer_FichierAbsent_SauvegardeRestauree() throws IOException {
+        ecrire("[1]");
+        ecrire("[1,2]");
+        Files.delete(stockage.toPath());
+
+        assertTrue(EcritureAtomique.recuperer(stockage));
+        assertEquals("[1]", lire(stockage));
+    }
+
+    /**
+     * Test : Un fichier écrit avant l'introduction des sommes de contrôle est accepté tel quel
+     */
+    @Test
+    public void recuperer_FichierSansSomme_Accepte() throws IOException {
+        try (FileOutputStream sortie = new FileOutputStream(stockage)) {
+            sortie.write("[1]".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertFalse(EcritureAtomique.recuperer(stockage));
+        assertEquals("[1]", lire(stockage));
+
+        ecrire("[1,2]");
+        Files.delete(stockage.toPath());
+        assertTrue(EcritureAtomique.recuperer(stockage));
+        assertEquals("[1]", lire(stockage));
+    }
+
+    /**
+     * Test : La suppression retire le fichier, sa sauvegarde et leurs sommes de contrôle
+     */
+    @Test
+    public void supprimer_RetireToutesLesGenerations() throws IOException {
+        ecrire("[1]");
+        ecrire("[1,2]");
+
+        EcritureAtomique.supprimer(stockage);
+
+        String[] restants = dossier.getRoot().list();
+        assertEquals(0, restants == null ? 0 : restants.length);
+        assertFalse(EcritureAtomique.recuperer(stockage));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.dolorders.data.stockage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.dolorders.data.stockage.produit.ProduitTypeAdapter;
+import com.example.dolorders.objet.Produit;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests unitaires de la lecture et de l'écriture en flux des fichiers JSON.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class FluxJsonTest {
+
+    private Gson gson;
+
+    @Before
+    public void setUp() {
+        gson = new GsonBuilder()
+                .registerTypeAdapter(Produit.class, new ProduitTypeAdapter())
+                .create();
+    }
+
+    private static ByteArrayInputStream flux(String contenu) {
+        return new ByteArrayInputStream(contenu.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test : Une liste écrite en flux est relue à l'identique, y compris les valeurs sur plusieurs lignes
+     */
+    @Test
+    public void ecrireLire_ConserveLesElements() throws IOException {
+        List<Produit> produits = Arrays.asList(
+                new Produit("1", "Café moulu 250g", "Torréfaction\nartisanale", 4.90, 5.5),
+                new Produit("2", "Thé vert", "", 3.20, 5.5));
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+
+        FluxJson.ecrireListe(gson, sortie, produits, Produit.class);
+        List<Produit> relus = FluxJson.lireListe(gson, new ByteArrayInputStream(sortie.toByteArray()), Produit.class);
+
+        assertEquals(2, relus.size());
+        assertEquals("Café moulu 250g", relus.get(0).getLibelle());
+        assertEquals("Torréfaction\nartisanale", relus.get(0).getDescription());
+        assertEquals(3.20, relus.get(1).getPrixUnitaire(), 0.0);
+    }
+
+    /**
+     * Test : Le JSON écrit reste lisible par Gson (compatibilité avec les fichiers existants)
+     */
+    @Test
+    public void ecrire_CompatibleAvecGson() throws IOException {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        FluxJson.ecrireListe(gson, sortie,
+                Arrays.asList(new Produit("1", "Sucre", "", 1.10, 20.0)), Produit.class);
+
+        Produit[] relus = gson.fromJson(sortie.toString("UTF-8"), Produit[].class);
+
+        assertEquals(1, relus.length);
+        assertEquals("Sucre", relus[0].getLibelle());
+    }
+
+    /**
+     * Test : Un fichier vide ou contenant null donne une liste vide et modifiable
+     */
+    @Test
+    public void lire_VideOuNull_ListeVide() throws IOException {
+        List<Produit> vide = FluxJson.lireListe(gson, flux(""), Produit.class);
+        assertTrue(vide.isEmpty());
+        vide.add(new Produit("1", "Sucre", "", 1.10, 20.0));
+
+        assertTrue(FluxJson.lireListe(gson, flux("null"), Produit.class).isEmpty());
+        assertTrue(FluxJson.lireListe(gson, flux("[]"), Produit.class).isEmpty());
+    }
+
+    /**
+     * Test : Un contenu qui n'est pas un tableau, ou tronqué, est rejeté par une IOException
+     */
+    @Test
+    public void lire_ContenuInvalide_Rejete() {
+        for (String contenu : Arrays.asList("{\"id\":\"1\"}", "[{\"id\":\"1\",\"label\":\"Su")) {
+            try {
+                FluxJson.lireListe(gson, flux(contenu), Produit.class);
+                fail("Le contenu aurait dû être rejeté : " + contenu);
+            } catch (IOException attendue) {
+                // Le gestionnaire journalise l'erreur et retourne une liste vide
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.dolorders.data.stockage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests unitaires du résumé « .meta » des fichiers de stockage.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class MetadonneesStockageTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private File stockage;
+    private File annexe;
+
+    @Before
+    public void setUp() throws IOException {
+        stockage = dossier.newFile("commandes_data.json");
+        ecrireStockage("[{\"id\":\"1\"}]");
+        annexe = MetadonneesStockage.fichierAnnexe(stockage);
+    }
+
+    private void ecrireStockage(String contenu) throws IOException {
+        try (FileOutputStream sortie = new FileOutputStream(stockage)) {
+            sortie.write(contenu.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test : Le fichier annexe est placé à côté du stockage, avec le suffixe .meta
+     */
+    @Test
+    public void fichierAnnexe_SuffixeMeta() {
+        assertEquals(stockage.getParentFile(), annexe.getParentFile());
+        assertEquals("commandes_data.json.meta", annexe.getName());
+    }
+
+    /**
+     * Test : Un résumé écrit est relu à l'identique tant que le stockage n'a pas changé
+     */
+    @Test
+    public void ecrireLire_StockageInchange_ResumeIdentique() throws IOException {
+        new MetadonneesStockage(3, 125.5, 1_700_000_000_000L).ecrire(annexe, SignatureFichier.de(stockage));
+
+        MetadonneesStockage relu = MetadonneesStockage.lire(annexe, SignatureFichier.de(stockage));
+
+        assertNotNull(relu);
+        assertEquals(3, relu.getNbEnregistrements());
+        assertEquals(125.5, relu.getMontantTotal(), 0.0001);
+        assertEquals(1_700_000_000_000L, relu.getDateModification());
+        assertFalse(new File(annexe.getParentFile(), annexe.getName() + ".tmp").exists());
+    }
+
+    /**
+     * Test : Un résumé dont la signature ne correspond plus au stockage est rejeté
+     */
+    @Test
+    public void lire_StockageModifie_RetourneNull() throws IOException {
+        new MetadonneesStockage(1, 0.0, 0L).ecrire(annexe, SignatureFichier.de(stockage));
+
+        ecrireStockage("[{\"id\":\"1\"},{\"id\":\"2\"}]");
+
+        assertNull(MetadonneesStockage.lire(annexe, SignatureFichier.de(stockage)));
+    }
+
+    /**
+     * Test : Un résumé absent ou illisible est rejeté sans exception
+     */
+    @Test
+    public void lire_AbsentOuTronque_RetourneNull() throws IOException {
+        assertNull(MetadonneesStockage.lire(annexe, SignatureFichier.de(stockage)));
+
+        try (FileOutputStream sortie = new FileOutputStream(annexe)) {
+            sortie.write(new byte[]{0, 0, 0, 1, 0});
+        }
+        assertNull(MetadonneesStockage.lire(annexe, SignatureFichier.de(stockage)));
+    }
+
+    /**
+     * Test : La suppression du résumé est sans effet si le fichier n'existe pas
+     */
+    @Test
+    public void supprimer_FichierAbsentOuPresent() throws IOException {
+        MetadonneesStockage.supprimer(annexe);
+
+        MetadonneesStockage.vide().ecrire(annexe, SignatureFichier.de(stockage));
+        MetadonneesStockage.supprimer(annexe);
+
+        assertFalse(annexe.exists());
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.dolorders.data.stockage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests unitaires du regroupement des écritures d'un stockage.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class TamponEcritureTest {
+
+    /** Délai assez long pour qu'aucune écriture planifiée ne parte pendant un test */
+    private static final long DELAI_LONG_MS = 60_000;
+
+    private ScheduledExecutorService planificateur;
+    private AtomicInteger nbEcritures;
+    private AtomicBoolean echec;
+
+    @Before
+    public void setUp() {
+        planificateur = Executors.newSingleThreadScheduledExecutor();
+        nbEcritures = new AtomicInteger();
+        echec = new AtomicBoolean(false);
+    }
+
+    @After
+    public void tearDown() {
+        planificateur.shutdownNow();
+    }
+
+    private TamponEcriture creerTampon(long delaiMs) {
+        return new TamponEcriture(() -> {
+            nbEcritures.incrementAndGet();
+            return !echec.get();
+        }, delaiMs, planificateur);
+    }
+
+    /**
+     * Test : Les mutations signalées pendant le délai donnent une seule écriture
+     */
+    @Test
+    public void signaler_MutationsRapprochees_UneSeuleEcriture() throws InterruptedException {
+        CountDownLatch ecrit = new CountDownLatch(1);
+        TamponEcriture tampon = new TamponEcriture(() -> {
+            nbEcritures.incrementAndGet();
+            ecrit.countDown();
+            return true;
+        }, 50, planificateur);
+
+        for (int i = 0; i < 50; i++) {
+            tampon.signaler();
+        }
+
+        assertTrue(ecrit.await(5, TimeUnit.SECONDS));
+        planificateur.shutdown();
+        assertTrue(planificateur.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, nbEcritures.get());
+        assertFalse(tampon.aDesModificationsEnAttente());
+    }
+
+    /**
+     * Test : Dans une transaction, l'écriture n'a lieu qu'à la fin de la transaction la plus externe
+     */
+    @Test
+    public void transaction_EcritureALaFinDeLaPlusExterne() {
+        TamponEcriture tampon = creerTampon(DELAI_LONG_MS);
+
+        tampon.commencerTransaction();
+        tampon.signaler();
+        tampon.commencerTransaction();
+        tampon.signaler();
+        assertTrue(tampon.terminerTransaction());
+        assertEquals(0, nbEcritures.get());
+
+        assertTrue(tampon.terminerTransaction());
+
+        assertEquals(1, nbEcritures.get());
+        assertFalse(tampon.aDesModificationsEnAttente());
+    }
+
+    /**
+     * Test : Une mutation à écrire sans délai est écrite avant le retour, avec celles en attente,
+     * sauf dans une transaction
+     */
+    @Test
+    public void signalerEtEcrire_EcritAussitotHorsTransaction() {
+        TamponEcriture tampon = creerTampon(DELAI_LONG_MS);
+        tampon.signaler();
+
+        assertTrue(tampon.signalerEtEcrire());
+        assertEquals(1, nbEcritures.get());
+        assertFalse(tampon.aDesModificationsEnAttente());
+
+        tampon.commencerTransaction();
+        assertTrue(tampon.signalerEtEcrire());
+        assertEquals(1, nbEcritures.get());
+        assertTrue(tampon.terminerTransaction());
+        assertEquals(2, nbEcritures.get());
+    }
+
+    /**
+     * Test : Un vidage sans mutation en attente n'écrit rien
+     */
+    @Test
+    public void vider_SansMutation_AucuneEcriture() {
+        TamponEcriture tampon = creerTampon(DELAI_LONG_MS);
+
+        assertTrue(tampon.vider());
+
+        assertEquals(0, nbEcritures.get());
+    }
+
+    /**
+     * Test : Une écriture en échec laisse les mutations en attente, réécrites au vidage suivant
+     */
+    @Test
+    public void vider_Echec_MutationsGardeesEnAttente() {
+        TamponEcriture tampon = creerTampon(DELAI_LONG_MS);
+        tampon.signaler();
+        echec.set(true);
+
+        assertFalse(tampon.vider());
+        assertTrue(tampon.aDesModificationsEnAttente());
+
+        echec.set(false);
+        assertTrue(tampon.vider());
+        assertEquals(2, nbEcritures.get());
+        assertFalse(tampon.aDesModificationsEnAttente());
+    }
+
+    /**
+     * Test : Le vidage global écrit les mutations en attente de tous les tampons
+     */
+    @Test
+    public void viderTous_EcritTousLesTampons() {
+        TamponEcriture premier = creerTampon(DELAI_LONG_MS);
+        TamponEcriture second = creerTampon(DELAI_LONG_MS);
+        premier.signaler();
+        second.signaler();
+
+        assertTrue(TamponEcriture.viderTous());
+
+        assertEquals(2, nbEcritures.get());
+        assertFalse(premier.aDesModificationsEnAttente());
+        assertFalse(second.aDesModificationsEnAttente());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.dolorders.data.stockage.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests unitaires du fichier intermédiaire des pages de clients (ajout seul).
+ * Le fichier ne dépend que de java.io : il est testé sur un dossier temporaire.
+ */
+public class FichierPagesClientsTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private File fichier;
+    private FichierPagesClients pages;
+
+    @Before
+    public void setUp() {
+        fichier = new File(dossier.getRoot(), "clients_api_sync_en_cours.jsonl");
+        pages = new FichierPagesClients(fichier);
+    }
+
+    private Client creerClient(String id, String nom) {
+        return new Client.Builder()
+                .setId(id)
+                .setNom(nom)
+                .setAdresse("10 rue de la Paix")
+                .setCodePostal("75002")
+                .setVille("Paris")
+                .setAdresseMail("test@example.com")
+                .setTelephone("0123456789")
+                .setUtilisateur("userTest")
+                .setDateSaisie(new Date(1700000000000L))
+                .build();
+    }
+
+    /**
+     * Test : Les pages ajoutées sont relues dans l'ordre de réception
+     */
+    @Test
+    public void ajouterPage_PlusieursPages_ReluesDansLOrdre() throws Exception {
+        pages.ajouterPage(Arrays.asList(creerClient("1", "Dupont"), creerClient("2", "Martin")));
+        pages.ajouterPage(Collections.singletonList(creerClient("3", "Durand")));
+
+        List<Client> clients = pages.lireClients();
+
+        assertEquals(3, clients.size());
+        assertEquals("1", clients.get(0).getId());
+        assertEquals("Durand", clients.get(2).getNom());
+    }
+
+    /**
+     * Test : Une page réécrite après une reprise ne crée pas de doublon ; la dernière version est gardée
+     */
+    @Test
+    public void ajouterPage_PageReecrite_SansDoublon() throws Exception {
+        pages.ajouterPage(Arrays.asList(creerClient("1", "Dupont"), creerClient("2", "Martin")));
+        pages.ajouterPage(Collections.singletonList(creerClient("1", "Dupont SARL")));
+
+        List<Client> clients = pages.lireClients();
+
+        assertEquals(2, clients.size());
+        assertEquals("Dupont SARL", clients.get(0).getNom());
+    }
+
+    /**
+     * Test : Une ligne tronquée est ignorée à la lecture et retirée avant la page suivante
+     */
+    @Test
+    public void ajouterPage_ApresLigneTronquee_PageSuivanteConservee() throws Exception {
+        pages.ajouterPage(Collections.singletonList(creerClient("1", "Dupont")));
+        try (FileOutputStream sortie = new FileOutputStream(fichier, true)) {
+            sortie.write("{\"id\":\"2\",\"nom\":\"Mar".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(1, pages.lireClients().size());
+
+        new FichierPagesClients(fichier).ajouterPage(Collections.singletonList(creerClient("3", "Durand")));
+        List<Client> clients = pages.lireClients();
+
+        assertEquals(2, clients.size());
+        assertEquals("3", clients.get(1).getId());
+    }
+
+    /**
+     * Test : Sans fichier, aucun client n'est relu ; la suppression retire le fichier
+     */
+    @Test
+    public void supprimer_FichierRetire() throws Exception {
+        assertTrue(pages.lireClients().isEmpty());
+
+        pages.ajouterPage(Collections.singletonList(creerClient("1", "Dupont")));
+        pages.supprimer();
+
+        assertFalse(fichier.exists());
+        assertTrue(pages.lireClients().isEmpty());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dolorders.data.stockage.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests unitaires de l'index de recherche multi-critères des clients.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class IndexRechercheClientsTest {
+
+    private Client dupont;
+    private Client martin;
+    private Client lefevre;
+    private IndexRechercheClients index;
+
+    @Before
+    public void setUp() {
+        dupont = client("1", "Boulangerie Dupont", "12 rue de la Paix", "75002", "Paris", "0145678901");
+        martin = client("2", "Épicerie Martin", "3 avenue Jean Jaurès", "69007", "Lyon", "0478123456");
+        lefevre = client("3", "Café Lefèvre", "8 place de la Comédie", "34000", "Montpellier", "0467001122");
+        index = new IndexRechercheClients(Arrays.asList(dupont, martin, lefevre));
+    }
+
+    private static Client client(String id, String nom, String adresse, String cp, String ville, String tel) {
+        return new Client.Builder()
+                .setId(id)
+                .setNom(nom)
+                .setAdresse(adresse)
+                .setCodePostal(cp)
+                .setVille(ville)
+                .setAdresseMail("contact" + id + "@exemple.fr")
+                .setTelephone(tel)
+                .setUtilisateur("commercial")
+                .setDateSaisie(new Date())
+                .build();
+    }
+
+    private static List<String> ids(List<Client> clients) {
+        List<String> ids = new ArrayList<>();
+        for (Client client : clients) {
+            ids.add(client.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Test : Un critère trouve les clients dont le champ le contient, sans tenir compte de la casse
+     */
+    @Test
+    public void rechercher_ParNom_Contient() {
+        assertEquals(Arrays.asList("1"), ids(index.rechercher("DUPONT", null, null, null, null)));
+        assertEquals(Arrays.asList("2"), ids(index.rechercher("cerie", "", "", "", "")));
+    }
+
+    /**
+     * Test : Les accents sont ignorés, dans la saisie comme dans les données
+     */
+    @Test
+    public void rechercher_SansAccents() {
+        assertEquals(Arrays.asList("2"), ids(index.rechercher("epicerie", null, null, null, null)));
+        assertEquals(Arrays.asList("3"), ids(index.rechercher(null, "comédie", null, null, null)));
+        assertEquals(Arrays.asList("2"), ids(index.rechercher(null, "jaures", null, null, null)));
+    }
+
+    /**
+     * Test : Plusieurs critères sont combinés (tous doivent correspondre)
+     */
+    @Test
+    public void rechercher_PlusieursCriteres_Intersection() {
+        assertEquals(Arrays.asList("1", "3"), ids(index.rechercher(null, "de la", null, null, null)));
+        assertEquals(Arrays.asList("3"), ids(index.rechercher(null, "de la", "34", null, null)));
+        assertTrue(index.rechercher("dupont", null, null, "lyon", null).isEmpty());
+    }
+
+    /**
+     * Test : Le téléphone et le code postal ignorent les séparateurs saisis
+     */
+    @Test
+    public void rechercher_TelephoneAvecSeparateurs() {
+        assertEquals(Arrays.asList("2"), ids(index.rechercher(null, null, null, null, "04 78 12")));
+        assertEquals(Arrays.asList("1"), ids(index.rechercher(null, null, "75 002", null, null)));
+    }
+
+    /**
+     * Test : Sans critère, tous les clients sont retournés
+     */
+    @Test
+    public void rechercher_SansCritere_TousLesClients() {
+        assertEquals(Arrays.asList("1", "2", "3"), ids(index.rechercher(null, "", " ", null, null)));
+    }
+
+    /**
+     * Test : Un client modifié est réindexé, les autres restent en place
+     */
+    @Test
+    public void synchroniser_ClientModifie_Reindexe() {
+        Client martinDemenage = client("2", "Épicerie Martin", "1 quai Rambaud", "69002", "Lyon", "0478123456");
+
+        index.synchroniser(Arrays.asList(dupont, martinDemenage, lefevre));
+
+        assertTrue(index.rechercher(null, "jaures", null, null, null).isEmpty());
+        assertEquals(Arrays.asList("2"), ids(index.rechercher(null, "rambaud", null, null, null)));
+        assertEquals(3, index.taille());
+    }
+
+    /**
+     * Test : Un client absent de la nouvelle liste est retiré, un nouveau client est ajouté
+     */
+    @Test
+    public void synchroniser_AjoutEtSuppression() {
+        Client nouveau = client("4", "Fromagerie Dupuis", "2 rue Neuve", "75011", "Paris", "0143000000");
+
+        index.synchroniser(Arrays.asList(martin, lefevre, nouveau));
+
+        assertEquals(Arrays.asList("4"), ids(index.rechercher("dup", null, null, "paris", null)));
+        assertEquals(3, index.taille());
+    }
+
+    /**
+     * Test : Après de nombreuses modifications, l'index compacté donne les mêmes résultats
+     */
+    @Test
+    public void retirer_NombreuxClients_CompacteSansPerte() {
+        for (int i = 0; i < 200; i++) {
+            Client temporaire = client("t" + i, "Temporaire " + i, "rue " + i, "75000", "Paris", "0100000000");
+            index.ajouter(temporaire);
+            index.retirer(temporaire);
+        }
+
+        assertEquals(3, index.taille());
+        assertEquals(Arrays.asList("1", "2", "3"), ids(index.rechercher(null, null, null, null, null)));
+        assertEquals(Arrays.asList("3"), ids(index.rechercher("lefevre", null, null, null, null)));
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.dolorders.data.stockage.commande;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.example.dolorders.objet.LigneCommande;
+import com.example.dolorders.objet.Produit;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests unitaires du journal des commandes (ajout seul + rejeu).
+ * Le journal ne dépend que de java.io : il est testé sur un dossier temporaire.
+ */
+public class JournalCommandesTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private JournalCommandes journal;
+    private File fichierJournal;
+    private Client client1;
+    private Client client2;
+    private Produit produit;
+    private Date dateReference;
+
+    @Before
+    public void setUp() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Commande.class, new AdapteurStockageCommande())
+                .create();
+
+        fichierJournal = new File(dossier.getRoot(), "commandes_data.json.journal");
+        journal = new JournalCommandes(fichierJournal, gson);
+
+        dateReference = new Date(1700000000000L);
+
+        client1 = creerClient("CLI-001", "Dupont");
+        client2 = creerClient("CLI-002", "Martin");
+        produit = new Produit("1", "Evian 1.5L", "Eau minérale naturelle", 1.50, 20.0);
+    }
+
+    private Client creerClient(String id, String nom) {
+        return new Client.Builder()
+                .setId(id)
+                .setNom(nom)
+                .setAdresse("10 rue de la Paix")
+                .setCodePostal("75002")
+                .setVille("Paris")
+                .setAdresseMail("test@example.com")
+                .setTelephone("0123456789")
+                .setUtilisateur("userTest")
+                .setDateSaisie(dateReference)
+                .build();
+    }
+
+    private Commande creerCommande(String id, Client client, int quantite) {
+        List<LigneCommande> lignes = new ArrayList<>();
+        lignes.add(new LigneCommande(produit, quantite, 0.0, true, dateReference));
+        return new Commande.Builder()
+                .setId(id)
+                .setClient(client)
+                .setDateCommande(dateReference)
+                .setLignesCommande(lignes)
+                .setUtilisateur("userTest")
+                .build();
+    }
+
+    // ==================== TESTS DE REJEU ====================
+
+    /**
+     * Test : Un journal inexistant ne modifie pas l'instantané
+     */
+    @Test
+    public void rejouer_JournalInexistant_NeModifieRien() throws Exception {
+        List<Commande> commandes = new ArrayList<>();
+        commandes.add(creerCommande("CMD-001", client1, 1));
+
+        assertEquals(0, journal.rejouer(commandes));
+        assertEquals(1, commandes.size());
+        assertFalse(journal.contientDesEntrees());
+    }
+
+    /**
+     * Test : Les ajouts sont rejoués dans l'ordre
+     */
+    @Test
+    public void rejouer_Ajouts_AjouteLesCommandesDansLOrdre() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        journal.enregistrerAjout(creerCommande("CMD-002", client2, 2));
+
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(2, journal.rejouer(commandes));
+
+        assertEquals(2, commandes.size());
+        assertEquals("CMD-001", commandes.get(0).getId());
+        assertEquals("CMD-002", commandes.get(1).getId());
+        assertEquals(2, commandes.get(1).getLignesCommande().get(0).getQuantite());
+    }
+
+    /**
+     * Test : Une modification remplace la commande existante
+     */
+    @Test
+    public void rejouer_Modification_RemplaceLaCommande() throws Exception {
+        List<Commande> commandes = new ArrayList<>();
+        commandes.add(creerCommande("CMD-001", client1, 1));
+
+        journal.enregistrerModification(creerCommande("CMD-001", client1, 7));
+        journal.rejouer(commandes);
+
+        assertEquals(1, commandes.size());
+        assertEquals(7, commandes.get(0).getLignesCommande().get(0).getQuantite());
+    }
+
+    /**
+     * Test : Une modification d'une commande absente est ignorée
+     */
+    @Test
+    public void rejouer_ModificationCommandeAbsente_EstIgnoree() throws Exception {
+        journal.enregistrerModification(creerCommande("CMD-404", client1, 7));
+
+        List<Commande> commandes = new ArrayList<>();
+        journal.rejouer(commandes);
+
+        assertTrue(commandes.isEmpty());
+    }
+
+    /**
+     * Test : Suppression par ID et par client
+     */
+    @Test
+    public void rejouer_Suppressions_RetirentLesCommandes() throws Exception {
+        List<Commande> commandes = new ArrayList<>();
+        commandes.add(creerCommande("CMD-001", client1, 1));
+        commandes.add(creerCommande("CMD-002", client1, 1));
+        commandes.add(creerCommande("CMD-003", client2, 1));
+        commandes.add(creerCommande("CMD-004", client2, 1));
+
+        journal.enregistrerSuppression("CMD-001");
+        journal.enregistrerSuppressionClient("CLI-002");
+        journal.rejouer(commandes);
+
+        assertEquals(1, commandes.size());
+        assertEquals("CMD-002", commandes.get(0).getId());
+    }
+
+    /**
+     * Test : Rejouer deux fois le même journal ne crée pas de doublon
+     * (arrêt entre l'écriture de l'instantané et la purge du journal)
+     */
+    @Test
+    public void rejouer_DeuxFois_EstIdempotent() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        journal.enregistrerAjout(creerCommande("CMD-002", client2, 1));
+        journal.enregistrerSuppression("CMD-002");
+
+        List<Commande> commandes = new ArrayList<>();
+        journal.rejouer(commandes);
+        journal.rejouer(commandes);
+
+        assertEquals(1, commandes.size());
+        assertEquals("CMD-001", commandes.get(0).getId());
+    }
+
+    /**
+     * Test : Une dernière ligne tronquée (coupure pendant l'écriture) est ignorée
+     */
+    @Test
+    public void rejouer_DerniereLigneTronquee_EstIgnoree() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+
+        try (FileOutputStream fos = new FileOutputStream(fichierJournal, true)) {
+            fos.write("{\"op\":\"ajout\",\"commande\":{\"id\":\"CMD-0".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(1, journal.rejouer(commandes));
+        assertEquals(1, commandes.size());
+    }
+
+    /**
+     * Test : Une ligne tronquée par une coupure ne fait perdre ni les entrées précédentes
+     * ni celles ajoutées après la réouverture du journal
+     */
+    @Test
+    public void enregistrer_ApresLigneTronquee_EntreesSuivantesConservees() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        try (FileOutputStream fos = new FileOutputStream(fichierJournal, true)) {
+            fos.write("{\"op\":\"ajout\",\"commande\":{\"id\":\"CMD-0".getBytes(StandardCharsets.UTF_8));
+        }
+
+        JournalCommandes rouvert = new JournalCommandes(fichierJournal, new GsonBuilder()
+                .registerTypeAdapter(Commande.class, new AdapteurStockageCommande())
+                .create());
+        rouvert.enregistrerAjout(creerCommande("CMD-002", client2, 2));
+        rouvert.enregistrerAjout(creerCommande("CMD-003", client2, 3));
+
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(3, rouvert.rejouer(commandes));
+        assertEquals(3, commandes.size());
+        assertEquals("CMD-003", commandes.get(2).getId());
+        List<String> lignes = java.nio.file.Files.readAllLines(fichierJournal.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lignes.size());
+    }
+
+    /**
+     * Test : Une ligne illisible au milieu du journal n'empêche pas le rejeu des suivantes
+     */
+    @Test
+    public void rejouer_LigneIllisibleAuMilieu_SuivantesRejouees() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        try (FileOutputStream fos = new FileOutputStream(fichierJournal, true)) {
+            fos.write("{\"op\":\"ajout\",\"comm\n".getBytes(StandardCharsets.UTF_8));
+        }
+        journal.enregistrerAjout(creerCommande("CMD-002", client2, 2));
+
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(2, journal.rejouer(commandes));
+        assertEquals("CMD-002", commandes.get(1).getId());
+    }
+
+    // ==================== TESTS DE GESTION DU FICHIER ====================
+
+    /**
+     * Test : Chaque mutation ajoute une ligne sans réécrire les précédentes
+     */
+    @Test
+    public void enregistrer_AjouteUneLigneParMutation() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        long tailleApresPremier = journal.getTaille();
+
+        journal.enregistrerSuppression("CMD-001");
+
+        assertTrue(journal.getTaille() > tailleApresPremier);
+        List<String> lignes = java.nio.file.Files.readAllLines(fichierJournal.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lignes.size());
+    }
+
+    /**
+     * Test : vider() supprime le journal
+     */
+    @Test
+    public void vider_SupprimeLeJournal() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        assertTrue(journal.contientDesEntrees());
+
+        journal.vider();
+
+        assertFalse(journal.contientDesEntrees());
+        assertEquals(0, journal.getTaille());
+        List<Commande> commandes = new ArrayList<>(Collections.emptyList());
+        assertEquals(0, journal.rejouer(commandes));
+    }
+
+    /**
+     * Test : Après une compaction, l'instantané précédent (sauvegarde) + l'archive + le journal
+     * courant redonnent l'état complet si le nouvel instantané est perdu
+     */
+    @Test
+    public void reprendreArchive_SauvegardeRestauree_MutationsCompacteesConservees() throws Exception {
+        List<Commande> instantanePrecedent = new ArrayList<>();
+        instantanePrecedent.add(creerCommande("CMD-001", client1, 1));
+
+        // Mutations compactées dans le nouvel instantané
+        journal.enregistrerAjout(creerCommande("CMD-002", client2, 2));
+        journal.enregistrerSuppression("CMD-001");
+        List<Commande> nouvelInstantane = new ArrayList<>(instantanePrecedent);
+        journal.rejouer(nouvelInstantane);
+        journal.archiver();
+
+        assertFalse(journal.contientDesEntrees());
+        assertTrue(journal.getFichierArchive().exists());
+
+        // Mutation suivante, journalisée par rapport au nouvel instantané
+        journal.enregistrerAjout(creerCommande("CMD-003", client1, 3));
+
+        // Nouvel instantané perdu : la sauvegarde est remise en place et l'archive reprise
+        assertTrue(journal.reprendreArchive());
+        assertFalse(journal.getFichierArchive().exists());
+
+        List<Commande> commandes = new ArrayList<>(instantanePrecedent);
+        assertEquals(3, journal.rejouer(commandes));
+        assertEquals(2, commandes.size());
+        assertEquals("CMD-002", commandes.get(0).getId());
+        assertEquals("CMD-003", commandes.get(1).getId());
+    }
+
+    /**
+     * Test : Une ligne tronquée à la fin de l'archive n'est pas collée à la première ligne du journal
+     */
+    @Test
+    public void reprendreArchive_ArchiveTronquee_JournalCourantRejoue() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        java.nio.file.Files.write(fichierJournal.toPath(), "{\"op\":\"ajout\",\"comm".getBytes(StandardCharsets.UTF_8),
+                java.nio.file.StandardOpenOption.APPEND);
+        journal.archiver();
+        journal.enregistrerSuppression("CMD-001");
+        journal.enregistrerAjout(creerCommande("CMD-002", client2, 2));
+
+        journal.reprendreArchive();
+
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(3, journal.rejouer(commandes));
+        assertEquals(1, commandes.size());
+        assertEquals("CMD-002", commandes.get(0).getId());
+    }
+
+    /**
+     * Test : Sans archive, le journal n'est pas modifié ; vider() supprime aussi l'archive
+     */
+    @Test
+    public void reprendreArchive_SansArchive_RetourneFalse() throws Exception {
+        journal.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        long taille = journal.getTaille();
+
+        assertFalse(journal.reprendreArchive());
+        assertEquals(taille, journal.getTaille());
+
+        journal.archiver();
+        journal.vider();
+        assertFalse(journal.getFichierArchive().exists());
+        assertFalse(journal.reprendreArchive());
+    }
+
+    /**
+     * Test : En mode différé, les lignes sont rejouées avant d'être écrites, puis écrites en une fois
+     */
+    @Test
+    public void differe_LignesRejoueesPuisEcritesEnUneFois() throws Exception {
+        JournalCommandes differe = new JournalCommandes(fichierJournal, new GsonBuilder()
+                .registerTypeAdapter(Commande.class, new AdapteurStockageCommande())
+                .create(), true);
+        differe.enregistrerAjout(creerCommande("CMD-001", client1, 1));
+        differe.enregistrerAjout(creerCommande("CMD-002", client2, 2));
+        differe.enregistrerSuppression("CMD-001");
+
+        assertFalse(fichierJournal.exists());
+        assertTrue(differe.contientDesEntrees());
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(3, differe.rejouer(commandes));
+        assertEquals(1, commandes.size());
+        assertEquals("CMD-002", commandes.get(0).getId());
+
+        differe.ecrireEnAttente();
+
+        assertFalse(differe.aDesLignesEnAttente());
+        List<String> lignes = java.nio.file.Files.readAllLines(fichierJournal.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lignes.size());
+        List<Commande> relues = new ArrayList<>();
+        assertEquals(3, differe.rejouer(relues));
+        assertEquals(1, relues.size());
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.dolorders.data.stockage.produit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.dolorders.objet.Produit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests unitaires du format binaire du catalogue de produits.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class CatalogueBinaireTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    /**
+     * Test : Un catalogue écrit est relu à l'identique (textes accentués, prix, TVA)
+     */
+    @Test
+    public void ecrireLire_ConserveLesProduits() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+        List<Produit> produits = Arrays.asList(
+                new Produit("1", "Café moulu 250g", "Torréfaction artisanale", 4.90, 5.5),
+                new Produit("2", "Thé vert", "", 3.20, 5.5),
+                new Produit(null, "Sucre", null, 1.10, 20.0));
+
+        CatalogueBinaire.ecrire(fichier, produits);
+        List<Produit> relus = CatalogueBinaire.lire(fichier);
+
+        assertEquals(3, relus.size());
+        assertEquals("1", relus.get(0).getId());
+        assertEquals("Café moulu 250g", relus.get(0).getLibelle());
+        assertEquals("Torréfaction artisanale", relus.get(0).getDescription());
+        assertEquals(4.90, relus.get(0).getPrixUnitaire(), 0.0);
+        assertEquals(5.5, relus.get(0).getTauxTva(), 0.0);
+        assertNull(relus.get(2).getId());
+        assertEquals("", relus.get(2).getDescription());
+    }
+
+    /**
+     * Test : Une écriture en flux renseigne le nombre de produits à la fin
+     */
+    @Test
+    public void ecriture_ParPages_NombreRenseigneALaFin() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin.tmp");
+
+        try (CatalogueBinaire.Ecriture ecriture = new CatalogueBinaire.Ecriture(fichier)) {
+            for (int page = 0; page < 3; page++) {
+                for (int i = 0; i < 100; i++) {
+                    ecriture.ajouter(new Produit(page + "-" + i, "Produit " + i, "Page " + page, i, 20.0));
+                }
+            }
+            assertEquals(300, ecriture.terminer());
+        }
+
+        List<Produit> relus = CatalogueBinaire.lire(fichier);
+        assertEquals(300, relus.size());
+        assertEquals("2-99", relus.get(299).getId());
+    }
+
+    /**
+     * Test : Un fichier dont l'écriture n'a pas été terminée est rejeté
+     */
+    @Test
+    public void lire_EcritureNonTerminee_Rejete() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin.tmp");
+        try (CatalogueBinaire.Ecriture ecriture = new CatalogueBinaire.Ecriture(fichier)) {
+            ecriture.ajouter(new Produit("1", "Sucre", "", 1.10, 20.0));
+        }
+
+        assertLectureRejetee(fichier);
+    }
+
+    /**
+     * Test : Un fichier tronqué ou d'un autre format est rejeté par une IOException
+     */
+    @Test
+    public void lire_FichierTronqueOuInconnu_Rejete() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+        CatalogueBinaire.ecrire(fichier, Arrays.asList(
+                new Produit("1", "Café moulu 250g", "Torréfaction artisanale", 4.90, 5.5)));
+        try (RandomAccessFile acces = new RandomAccessFile(fichier, "rw")) {
+            acces.setLength(acces.length() - 10);
+        }
+        assertLectureRejetee(fichier);
+
+        File json = dossier.newFile("produits_data.json");
+        try (RandomAccessFile acces = new RandomAccessFile(json, "rw")) {
+            acces.writeBytes("[{\"id\":\"1\"}]");
+        }
+        assertLectureRejetee(json);
+    }
+
+    /**
+     * Test : Un catalogue vide est relu comme une liste vide
+     */
+    @Test
+    public void ecrireLire_CatalogueVide() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+
+        CatalogueBinaire.ecrire(fichier, new ArrayList<>());
+
+        assertTrue(CatalogueBinaire.lire(fichier).isEmpty());
+    }
+
+    /**
+     * Test : Un fichier de la première version du format (sans tables) reste lisible
+     */
+    @Test
+    public void lire_Version1_SansTables() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+        try (DataOutputStream sortie = new DataOutputStream(new FileOutputStream(fichier))) {
+            sortie.writeInt(CatalogueBinaire.MARQUEUR);
+            sortie.writeInt(CatalogueBinaire.VERSION_SANS_TABLES);
+            sortie.writeInt(1);
+            byte[] libelle = "Thé vert".getBytes(StandardCharsets.UTF_8);
+            sortie.writeInt(1);
+            sortie.writeByte('7');
+            sortie.writeInt(libelle.length);
+            sortie.write(libelle);
+            sortie.writeInt(-1);
+            sortie.writeDouble(3.20);
+            sortie.writeDouble(5.5);
+        }
+
+        List<Produit> relus = CatalogueBinaire.lire(fichier);
+
+        assertEquals(1, relus.size());
+        assertEquals("7", relus.get(0).getId());
+        assertEquals("Thé vert", relus.get(0).getLibelle());
+        assertEquals(3.20, relus.get(0).getPrixUnitaire(), 0.0);
+    }
+
+    private static void assertLectureRejetee(File fichier) {
+        try {
+            CatalogueBinaire.lire(fichier);
+            fail("Le fichier aurait dû être rejeté");
+        } catch (IOException attendue) {
+            // Le gestionnaire journalise l'erreur et retourne un catalogue vide
+        }
+    }
+}
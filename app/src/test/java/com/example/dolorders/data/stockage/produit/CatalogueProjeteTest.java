@@ -0,0 +1,123 @@
+package com.example.dolorders.data.stockage.produit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.dolorders.objet.Produit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests unitaires de la vue projetée du catalogue de produits.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class CatalogueProjeteTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private File ecrireCatalogue(int nombre) throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+        List<Produit> produits = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            produits.add(new Produit("P" + (nombre - i), "Produit " + i, "Description " + i, i, 20.0));
+        }
+        CatalogueBinaire.ecrire(fichier, produits);
+        return fichier;
+    }
+
+    /**
+     * Test : Un produit est lu par son numéro, dans l'ordre d'écriture
+     */
+    @Test
+    public void get_ParNumero_OrdreEcriture() throws IOException {
+        CatalogueProjete catalogue = CatalogueProjete.ouvrir(ecrireCatalogue(10));
+
+        assertEquals(10, catalogue.taille());
+        assertEquals("Produit 0", catalogue.get(0).getLibelle());
+        assertEquals("P1", catalogue.get(9).getId());
+        assertEquals(9.0, catalogue.get(9).getPrixUnitaire(), 0.0);
+        assertEquals(10, catalogue.vue().size());
+        assertEquals("Produit 4", catalogue.vue().get(4).getLibelle());
+    }
+
+    /**
+     * Test : La recherche par identifiant trouve le produit sans parcourir le catalogue
+     */
+    @Test
+    public void parId_TrouveOuNull() throws IOException {
+        CatalogueProjete catalogue = CatalogueProjete.ouvrir(ecrireCatalogue(500));
+
+        assertEquals("Produit 0", catalogue.parId("P500").getLibelle());
+        assertEquals("Produit 499", catalogue.parId("P1").getLibelle());
+        assertEquals("Produit 250", catalogue.parId("P250").getLibelle());
+        assertNull(catalogue.parId("P0"));
+        assertNull(catalogue.parId(null));
+        assertEquals(3, catalogue.nbProduitsEnMemoire());
+    }
+
+    /**
+     * Test : Parcourir tout le catalogue ne garde qu'un nombre borné de produits en mémoire
+     */
+    @Test
+    public void vue_Parcours_MemoireBornee() throws IOException {
+        CatalogueProjete catalogue = CatalogueProjete.ouvrir(ecrireCatalogue(1000));
+
+        int nb = 0;
+        for (Produit produit : catalogue.vue()) {
+            nb++;
+        }
+
+        assertEquals(1000, nb);
+        assertEquals(CatalogueProjete.CAPACITE_CACHE, catalogue.nbProduitsEnMemoire());
+    }
+
+    /**
+     * Test : Les produits sans identifiant sont lisibles mais absents de la recherche par identifiant
+     */
+    @Test
+    public void parId_ProduitSansIdentifiant_Ignore() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+        CatalogueBinaire.ecrire(fichier, Arrays.asList(
+                new Produit(null, "Sucre", "", 1.10, 20.0),
+                new Produit("1", "Café moulu 250g", "", 4.90, 5.5)));
+
+        CatalogueProjete catalogue = CatalogueProjete.ouvrir(fichier);
+
+        assertNull(catalogue.get(0).getId());
+        assertEquals("Café moulu 250g", catalogue.parId("1").getLibelle());
+        assertNull(catalogue.parId(""));
+    }
+
+    /**
+     * Test : Un catalogue de la première version (sans tables) est refusé, pour être réécrit
+     */
+    @Test
+    public void ouvrir_Version1_Rejete() throws IOException {
+        File fichier = dossier.newFile("produits_data.bin");
+        try (DataOutputStream sortie = new DataOutputStream(new FileOutputStream(fichier))) {
+            sortie.writeInt(CatalogueBinaire.MARQUEUR);
+            sortie.writeInt(CatalogueBinaire.VERSION_SANS_TABLES);
+            sortie.writeInt(0);
+        }
+
+        try {
+            CatalogueProjete.ouvrir(fichier);
+            fail("Le catalogue sans tables aurait dû être refusé");
+        } catch (IOException attendue) {
+            assertTrue(attendue.getMessage().contains("sans table"));
+        }
+    }
+}
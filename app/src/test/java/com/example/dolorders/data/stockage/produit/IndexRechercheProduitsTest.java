@@ -0,0 +1,214 @@
+package com.example.dolorders.data.stockage.produit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.data.stockage.EcritureAtomique;
+import com.example.dolorders.data.stockage.SignatureFichier;
+import com.example.dolorders.objet.Produit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests unitaires de l'index de recherche des produits.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class IndexRechercheProduitsTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private List<Produit> catalogue;
+    private IndexRechercheProduits index;
+
+    @Before
+    public void setUp() {
+        catalogue = Arrays.asList(
+                new Produit("1", "Eau minérale Évian 1.5L", "Bouteille plastique", 1.50, 5.5),
+                new Produit("2", "Café moulu", "Arabica, torréfaction française", 4.20, 5.5),
+                new Produit("3", "Crème fraîche", "Pot de 20cl", 2.10, 5.5),
+                new Produit("4", "Café", "Grains", 5.00, 5.5),
+                new Produit("5", "Thé vert", "Sachets, parfum café", 3.00, 5.5),
+                new Produit("6", "Décaféiné", "", 4.80, 5.5)
+        );
+        index = new IndexRechercheProduits(catalogue);
+    }
+
+    private List<String> ids(List<Produit> produits) {
+        List<String> ids = new ArrayList<>();
+        for (Produit produit : produits) {
+            ids.add(produit.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Test : La normalisation retire accents, casse et ponctuation
+     */
+    @Test
+    public void normaliser_RetireAccentsCasseEtPonctuation() {
+        assertEquals("creme fraiche", IndexRechercheProduits.normaliser("  Crème-FRAÎCHE ! "));
+        assertEquals("eau minerale evian 1 5l", IndexRechercheProduits.normaliser("Eau minérale Évian 1.5L"));
+        assertEquals("", IndexRechercheProduits.normaliser(null));
+    }
+
+    /**
+     * Test : La recherche ignore les accents, dans la saisie comme dans le catalogue
+     */
+    @Test
+    public void rechercher_SansAccents_TrouveLesProduitsAccentues() {
+        assertEquals(Arrays.asList("3"), ids(index.rechercher("creme")));
+        assertEquals(Arrays.asList("1"), ids(index.rechercher("EVIAN")));
+    }
+
+    /**
+     * Test : Les résultats sont classés par qualité de correspondance
+     * (libellé identique, début de libellé, contenu du libellé, puis description)
+     */
+    @Test
+    public void rechercher_ClasseParPertinence() {
+        assertEquals(Arrays.asList("4", "2", "6", "5"), ids(index.rechercher("café")));
+    }
+
+    /**
+     * Test : Une saisie de 3 caractères ou plus trouve aussi le milieu d'un mot
+     */
+    @Test
+    public void rechercher_SousChaine_TrouveLeMilieuDesMots() {
+        assertEquals(Arrays.asList("2"), ids(index.rechercher("torref")));
+        assertEquals(Arrays.asList("6"), ids(index.rechercher("feine")));
+    }
+
+    /**
+     * Test : Une saisie courte ne correspond qu'aux débuts de mots
+     */
+    @Test
+    public void rechercher_SaisieCourte_DebutsDeMots() {
+        assertEquals(Arrays.asList("4", "2", "5"), ids(index.rechercher("ca")));
+        assertTrue(index.rechercher("af").isEmpty());
+    }
+
+    /**
+     * Test : Une saisie vide retourne tout le catalogue, dans l'ordre
+     */
+    @Test
+    public void rechercher_SaisieVide_RetourneToutLeCatalogue() {
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6"), ids(index.rechercher("")));
+        assertTrue(index.rechercher("introuvable").isEmpty());
+    }
+
+    /**
+     * Test : Un index relu depuis le disque donne les mêmes résultats
+     */
+    @Test
+    public void lire_IndexEcrit_MemesResultats() throws Exception {
+        SignatureFichier signature = signatureCatalogue("v1");
+        IndexRechercheProduits relu = relire(ecrire(index, signature), signature);
+
+        assertNotNull(relu);
+        assertEquals(ids(index.rechercher("café")), ids(relu.rechercher("café")));
+        assertEquals(ids(index.rechercher("ca")), ids(relu.rechercher("ca")));
+        assertEquals(ids(index.rechercher("torref")), ids(relu.rechercher("torref")));
+        assertEquals(6, relu.taille());
+    }
+
+    /**
+     * Test : Un index relu peut être réécrit à l'identique (textes lus depuis la projection)
+     */
+    @Test
+    public void ecrire_IndexRelu_MemeContenu() throws Exception {
+        SignatureFichier signature = signatureCatalogue("v1");
+        File fichier = ecrire(index, signature);
+        File copie = ecrire(relire(fichier, signature), signature);
+
+        assertTrue(Arrays.equals(Files.readAllBytes(fichier.toPath()),
+                Files.readAllBytes(copie.toPath())));
+    }
+
+    /**
+     * Test : Un index tronqué est rejeté à la lecture
+     */
+    @Test(expected = IOException.class)
+    public void lire_IndexTronque_LeveUneException() throws Exception {
+        SignatureFichier signature = signatureCatalogue("v1");
+        File fichier = ecrire(index, signature);
+        try (RandomAccessFile acces = new RandomAccessFile(fichier, "rw")) {
+            acces.setLength(fichier.length() / 2);
+        }
+
+        relire(fichier, signature);
+    }
+
+    /**
+     * Test : Un index écrit pour une autre version du catalogue n'est pas relu
+     */
+    @Test
+    public void lire_CatalogueModifie_RetourneNull() throws Exception {
+        File fichier = dossier.newFile("produits_data.json");
+        ecrireContenu(fichier, "v1");
+        File fichierIndex = ecrire(index, SignatureFichier.de(fichier));
+
+        ecrireContenu(fichier, "version 2, plus longue");
+        assertNull(relire(fichierIndex, SignatureFichier.de(fichier)));
+    }
+
+    /**
+     * Test : Un index projeté reste lisible quand son fichier est remplacé de façon atomique
+     */
+    @Test
+    public void lire_IndexRemplaceAtomiquement_IndexProjeteIntact() throws Exception {
+        File fichierIndex = new File(dossier.getRoot(), "produits_index.bin");
+        SignatureFichier signature = signatureCatalogue("v1");
+        EcritureAtomique.ecrire(fichierIndex, sortie -> index.ecrire(new DataOutputStream(sortie), signature));
+        IndexRechercheProduits projete = relire(fichierIndex, signature);
+        List<String> attendus = ids(index.rechercher("café"));
+
+        // Nouvel index, plus court : une réécriture sur place tronquerait le fichier projeté
+        IndexRechercheProduits autre = new IndexRechercheProduits(catalogue.subList(0, 1));
+        SignatureFichier signatureV2 = signatureCatalogue("v2");
+        EcritureAtomique.ecrire(fichierIndex, sortie -> autre.ecrire(new DataOutputStream(sortie), signatureV2));
+
+        assertNotNull(projete);
+        assertEquals(attendus, ids(projete.rechercher("café")));
+        assertNull(relire(fichierIndex, signature));
+    }
+
+    private SignatureFichier signatureCatalogue(String contenu) throws Exception {
+        File fichier = dossier.newFile("catalogue_" + contenu + ".json");
+        ecrireContenu(fichier, contenu);
+        return SignatureFichier.de(fichier);
+    }
+
+    private static void ecrireContenu(File fichier, String contenu) throws Exception {
+        try (FileOutputStream fos = new FileOutputStream(fichier)) {
+            fos.write(contenu.getBytes("UTF-8"));
+        }
+    }
+
+    private File ecrire(IndexRechercheProduits index, SignatureFichier signature) throws Exception {
+        File fichier = File.createTempFile("produits_index", ".bin", dossier.getRoot());
+        try (DataOutputStream sortie = new DataOutputStream(new FileOutputStream(fichier))) {
+            index.ecrire(sortie, signature);
+        }
+        return fichier;
+    }
+
+    private IndexRechercheProduits relire(File fichier, SignatureFichier signature) throws Exception {
+        return IndexRechercheProduits.lire(fichier, signature, catalogue);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Tests unitaires du chargement partagé entre plusieurs demandes.
+ * L'exécuteur est simulé : les tâches planifiées ne s'exécutent que quand le test le décide.
+ */
+public class ChargementPartageTest {
+
+    private Deque<Runnable> taches;
+    private int nbLectures;
+    private int valeurStockee;
+    private List<Integer> publies;
+    private List<RuntimeException> echecs;
+    private ChargementPartage<Integer> chargement;
+
+    @Before
+    public void setUp() {
+        taches = new ArrayDeque<>();
+        nbLectures = 0;
+        valeurStockee = 1;
+        publies = new ArrayList<>();
+        echecs = new ArrayList<>();
+        chargement = new ChargementPartage<>(taches::add, () -> {
+            nbLectures++;
+            return valeurStockee;
+        }, publies::add, echecs::add);
+    }
+
+    private void executerTaches() {
+        while (!taches.isEmpty()) {
+            taches.poll().run();
+        }
+    }
+
+    /**
+     * Test : Le chargement s'exécute sur l'exécuteur, pas dans l'appelant
+     */
+    @Test
+    public void demander_ExecuteSurLExecuteur() {
+        chargement.demander();
+
+        assertEquals(0, nbLectures);
+        assertTrue(chargement.isEnCours());
+
+        executerTaches();
+        assertEquals(1, nbLectures);
+        assertEquals(1, publies.size());
+        assertFalse(chargement.isEnCours());
+    }
+
+    /**
+     * Test : Plusieurs demandes simultanées ne déclenchent qu'une seule lecture
+     */
+    @Test
+    public void demander_Simultanees_UneSeuleLecture() {
+        chargement.demander();
+        chargement.demander();
+        chargement.demander();
+
+        executerTaches();
+
+        assertEquals(1, nbLectures);
+        assertEquals(1, publies.size());
+    }
+
+    /**
+     * Test : Une demande après la fin d'un chargement relit le stockage
+     */
+    @Test
+    public void demander_ApresChargement_RelitLeStockage() {
+        chargement.demander();
+        executerTaches();
+        chargement.demander();
+        executerTaches();
+
+        assertEquals(2, nbLectures);
+    }
+
+    /**
+     * Test : Un rafraîchissement pendant un chargement relance une lecture, une seule fois
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rafraichir_PendantChargement_RelanceUneFois() {
+        ChargementPartage<Integer>[] ref = new ChargementPartage[1];
+        ref[0] = new ChargementPartage<>(taches::add, () -> {
+            nbLectures++;
+            if (nbLectures == 1) {
+                // Écritures pendant la première lecture
+                valeurStockee = 2;
+                ref[0].rafraichir();
+                ref[0].rafraichir();
+            }
+            return valeurStockee;
+        }, publies::add, echecs::add);
+
+        ref[0].demander();
+        executerTaches();
+
+        assertEquals(2, nbLectures);
+        assertEquals(Integer.valueOf(2), publies.get(publies.size() - 1));
+        assertFalse(ref[0].isEnCours());
+    }
+
+    /**
+     * Test : Un chargement en échec est signalé sans lever d'exception et n'empêche pas les demandes suivantes
+     */
+    @Test
+    public void demander_ApresEchec_Relance() {
+        boolean[] echouer = {true};
+        ChargementPartage<Integer> fragile = new ChargementPartage<>(taches::add, () -> {
+            nbLectures++;
+            if (echouer[0]) {
+                throw new IllegalStateException("fichier illisible");
+            }
+            return valeurStockee;
+        }, publies::add, echecs::add);
+
+        fragile.demander();
+        executerTaches();
+        assertEquals(1, echecs.size());
+        assertFalse(fragile.isEnCours());
+
+        echouer[0] = false;
+        fragile.demander();
+        executerTaches();
+        assertEquals(1, publies.size());
+    }
+}
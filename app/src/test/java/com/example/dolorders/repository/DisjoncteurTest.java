@@ -0,0 +1,94 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests unitaires de la détection des échecs systémiques vers Dolibarr.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class DisjoncteurTest {
+
+    private Disjoncteur disjoncteur;
+
+    @Before
+    public void setUp() {
+        disjoncteur = new Disjoncteur();
+    }
+
+    /**
+     * Test : Une clé API refusée ouvre le disjoncteur dès la première réponse
+     */
+    @Test
+    public void enregistrerReponse_CleRefusee_OuvertAussitot() {
+        disjoncteur.enregistrerReponse(401);
+
+        assertTrue(disjoncteur.estOuvert());
+        assertEquals(Disjoncteur.Cause.AUTORISATION, disjoncteur.getCause());
+    }
+
+    /**
+     * Test : Les erreurs 5xx n'ouvrent le disjoncteur qu'une fois le seuil atteint de suite
+     */
+    @Test
+    public void enregistrerReponse_ErreursServeurConsecutives_OuvertAuSeuil() {
+        for (int i = 1; i < Disjoncteur.SEUIL_ERREURS_SERVEUR; i++) {
+            disjoncteur.enregistrerReponse(500);
+        }
+        assertFalse(disjoncteur.estOuvert());
+
+        disjoncteur.enregistrerReponse(503);
+
+        assertEquals(Disjoncteur.Cause.SERVEUR, disjoncteur.getCause());
+    }
+
+    /**
+     * Test : Une réponse propre à l'élément (ex : 400, 404) remet le compte à zéro
+     */
+    @Test
+    public void enregistrerReponse_ErreurDeLElement_RemetLeCompteAZero() {
+        for (int i = 0; i < 10; i++) {
+            disjoncteur.enregistrerReponse(500);
+            disjoncteur.enregistrerReponse(i % 2 == 0 ? 400 : 200);
+            disjoncteur.enregistrerEchecConnexion();
+            disjoncteur.enregistrerReponse(404);
+        }
+
+        assertFalse(disjoncteur.estOuvert());
+        assertNull(disjoncteur.getCause());
+    }
+
+    /**
+     * Test : Des connexions refusées consécutives ouvrent le disjoncteur ; la première cause est conservée
+     */
+    @Test
+    public void enregistrerEchecConnexion_Consecutifs_OuvertEtCauseConservee() {
+        for (int i = 0; i < Disjoncteur.SEUIL_ERREURS_CONNEXION; i++) {
+            disjoncteur.enregistrerEchecConnexion();
+        }
+        disjoncteur.enregistrerReponse(403);
+        disjoncteur.enregistrerReponse(200);
+
+        assertTrue(disjoncteur.estOuvert());
+        assertEquals(Disjoncteur.Cause.CONNEXION, disjoncteur.getCause());
+    }
+
+    /**
+     * Test : La réinitialisation referme le disjoncteur et oublie les échecs passés
+     */
+    @Test
+    public void reinitialiser_RefermeEtOublieLesEchecs() {
+        disjoncteur.enregistrerEchecConnexion();
+        disjoncteur.enregistrerReponse(401);
+
+        disjoncteur.reinitialiser();
+        disjoncteur.enregistrerEchecConnexion();
+
+        assertFalse(disjoncteur.estOuvert());
+    }
+}
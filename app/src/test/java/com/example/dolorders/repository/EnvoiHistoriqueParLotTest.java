@@ -0,0 +1,157 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests unitaires de l'envoi groupé des lignes de commande vers l'historique,
+ * contre un serveur d'historique simulé.
+ */
+public class EnvoiHistoriqueParLotTest {
+
+    private static final List<String> LIGNES = Arrays.asList(
+            "{\"idclient\":12,\"idcommande\":40,\"codearticle\":\"1\",\"qte\":3}",
+            "{\"idclient\":12,\"idcommande\":40,\"codearticle\":\"2\",\"qte\":1}",
+            "{\"idclient\":12,\"idcommande\":40,\"codearticle\":\"7\",\"qte\":10}");
+
+    private ServeurHistoriqueFactice serveur;
+    private EnvoiHistoriqueParLot envoi;
+
+    private String idRecu;
+    private String erreurRecue;
+
+    private final EnvoiHistoriqueParLot.RetourEnvoi retour = new EnvoiHistoriqueParLot.RetourEnvoi() {
+        @Override
+        public void onSucces(String historiqueId) {
+            idRecu = historiqueId;
+        }
+
+        @Override
+        public void onErreur(String message) {
+            erreurRecue = message;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        serveur = new ServeurHistoriqueFactice();
+        envoi = new EnvoiHistoriqueParLot(serveur.transportLot());
+        idRecu = null;
+        erreurRecue = null;
+    }
+
+    /**
+     * Test : Toutes les lignes partent dans une seule requête
+     */
+    @Test
+    public void envoyer_LotAccepte_UneSeuleRequete() {
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+
+        assertEquals(1, serveur.nbRequetesLot);
+        assertEquals(0, serveur.nbRequetesLigne);
+        assertEquals(3, serveur.lignesEnregistrees.size());
+        assertEquals("7", serveur.lignesEnregistrees.get(2).get("codearticle").getAsString());
+        assertEquals(EnvoiHistoriqueParLot.ID_LOT_ENVOYE, idRecu);
+        assertNull(erreurRecue);
+    }
+
+    /**
+     * Test : Endpoint de lot absent → repli ligne par ligne, puis plus de tentative de lot
+     */
+    @Test
+    public void envoyer_EndpointAbsent_ReplieEtMemorise() {
+        serveur.codeReponseLot = 404;
+
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+
+        assertEquals(3, serveur.nbRequetesLigne);
+        assertEquals(3, serveur.lignesEnregistrees.size());
+        assertEquals("all_lines_sent", idRecu);
+        assertTrue(envoi.isLotNonSupporte());
+
+        // Commande suivante : directement ligne par ligne
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+        assertEquals(1, serveur.nbRequetesLot);
+        assertEquals(6, serveur.nbRequetesLigne);
+    }
+
+    /**
+     * Test : Lot refusé (400) → repli pour cette commande, le lot reste tenté pour les suivantes
+     */
+    @Test
+    public void envoyer_LotRefuse_ReplieSansMemoriser() {
+        serveur.codeReponseLot = 400;
+
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+
+        assertEquals(3, serveur.nbRequetesLigne);
+        assertEquals("all_lines_sent", idRecu);
+        assertFalse(envoi.isLotNonSupporte());
+
+        serveur.codeReponseLot = 200;
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+        assertEquals(2, serveur.nbRequetesLot);
+        assertEquals(6, serveur.lignesEnregistrees.size());
+    }
+
+    /**
+     * Test : Erreur serveur (500) → erreur remontée sans repli (pas de doublons)
+     */
+    @Test
+    public void envoyer_ErreurServeur_PasDeRepli() {
+        serveur.codeReponseLot = 500;
+
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+
+        assertEquals(0, serveur.nbRequetesLigne);
+        assertTrue(serveur.lignesEnregistrees.isEmpty());
+        assertTrue(erreurRecue.contains("500"));
+        assertNull(idRecu);
+    }
+
+    /**
+     * Test : Erreur réseau (pas de réponse) → erreur remontée sans repli
+     */
+    @Test
+    public void envoyer_ErreurReseau_PasDeRepli() {
+        envoi = new EnvoiHistoriqueParLot((corps, reponse) -> reponse.onErreur(0, "Pas de connexion"));
+
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+
+        assertEquals(0, serveur.nbRequetesLigne);
+        assertEquals("Pas de connexion", erreurRecue);
+    }
+
+    /**
+     * Test : Le repli remonte les échecs de lignes
+     */
+    @Test
+    public void envoyer_RepliEnEchec_RemonteLErreur() {
+        serveur.codeReponseLot = 405;
+        serveur.codeReponseLigne = 500;
+
+        envoi.envoyer(LIGNES, serveur.envoiParLigne(LIGNES), retour);
+
+        assertTrue(erreurRecue.contains("3/3"));
+        assertNull(idRecu);
+    }
+
+    /**
+     * Test : Le corps du lot contient les lignes telles quelles
+     */
+    @Test
+    public void construireCorps_FormatLines() {
+        assertEquals("{\"lines\":[{\"a\":1},{\"b\":2}]}",
+                EnvoiHistoriqueParLot.construireCorps(Arrays.asList("{\"a\":1}", "{\"b\":2}")));
+        assertEquals("{\"lines\":[]}",
+                EnvoiHistoriqueParLot.construireCorps(Arrays.asList()));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests unitaires de la création sans doublon, contre un module natif Dolibarr simulé.
+ */
+public class EnvoiIdempotentTest {
+
+    private static final String CLE = "dolorders-7f3c";
+
+    /**
+     * Module natif simulé : enregistre les éléments créés par ref_ext, et peut perdre
+     * la réponse d'une création (l'élément est créé mais le client ne le sait pas).
+     */
+    private static class ModuleNatifFactice implements EnvoiIdempotent.Transport {
+        final Map<String, String> idsParCle = new HashMap<>();
+        int nbCreations;
+        int nbRecherches;
+        int reponsesPerdues;
+        boolean rechercheEnPanne;
+
+        @Override
+        public void creer(String cle, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+            nbCreations++;
+            String id = String.valueOf(100 + nbCreations);
+            idsParCle.put(cle, id);
+            if (reponsesPerdues > 0) {
+                reponsesPerdues--;
+                reponse.onErreur(0, "Erreur envoi - pas de connexion au serveur (TimeoutError)");
+                return;
+            }
+            reponse.onSucces(id);
+        }
+
+        @Override
+        public void rechercher(String filtre, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+            nbRecherches++;
+            if (rechercheEnPanne) {
+                reponse.onErreur(0, "Erreur vérification - pas de connexion au serveur (NoConnectionError)");
+                return;
+            }
+            String id = idsParCle.get(CLE);
+            if (id == null || !filtre.equals(EnvoiIdempotent.construireFiltre(CLE))) {
+                reponse.onErreur(404, "Not found");
+            } else {
+                reponse.onSucces("[{\"id\":\"" + id + "\",\"ref_ext\":\"" + CLE + "\"}]");
+            }
+        }
+    }
+
+    private ModuleNatifFactice serveur;
+    private EnvoiIdempotent envoi;
+
+    private String idRecu;
+    private boolean retrouve;
+    private String erreurRecue;
+
+    private final EnvoiIdempotent.RetourCreation retour = new EnvoiIdempotent.RetourCreation() {
+        @Override
+        public void onCree(String idDolibarr, boolean dejaCree) {
+            idRecu = idDolibarr;
+            retrouve = dejaCree;
+        }
+
+        @Override
+        public void onErreur(String message) {
+            erreurRecue = message;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        serveur = new ModuleNatifFactice();
+        envoi = new EnvoiIdempotent(serveur);
+    }
+
+    /**
+     * Test : Premier envoi, sans vérification préalable
+     */
+    @Test
+    public void envoyer_PremierEnvoi_CreeSansRecherche() {
+        envoi.envoyer(CLE, false, retour);
+
+        assertEquals("101", idRecu);
+        assertFalse(retrouve);
+        assertEquals(1, serveur.nbCreations);
+        assertEquals(0, serveur.nbRecherches);
+    }
+
+    /**
+     * Test : Réponse perdue puis nouvelle tentative : l'élément est retrouvé par sa clé, pas recréé
+     */
+    @Test
+    public void envoyer_ReponsePerdue_ElementRetrouveSansDoublon() {
+        serveur.reponsesPerdues = 1;
+
+        envoi.envoyer(CLE, false, retour);
+
+        assertEquals("101", idRecu);
+        assertTrue(retrouve);
+        assertEquals(1, serveur.nbCreations);
+        assertEquals(1, serveur.nbRecherches);
+        assertNull(erreurRecue);
+    }
+
+    /**
+     * Test : Envoi repris après une tentative précédente dont la création n'a jamais abouti
+     */
+    @Test
+    public void envoyer_DejaTenteMaisAbsent_Cree() {
+        envoi.envoyer(CLE, true, retour);
+
+        assertEquals("101", idRecu);
+        assertFalse(retrouve);
+        assertEquals(1, serveur.nbRecherches);
+        assertEquals(1, serveur.nbCreations);
+    }
+
+    /**
+     * Test : Si l'existence ne peut pas être vérifiée, rien n'est recréé et l'erreur est remontée
+     */
+    @Test
+    public void envoyer_VerificationImpossible_PasDeNouvelleCreation() {
+        serveur.reponsesPerdues = 1;
+        serveur.rechercheEnPanne = true;
+
+        envoi.envoyer(CLE, false, retour);
+
+        assertNull(idRecu);
+        assertTrue(erreurRecue.contains("pas de connexion"));
+        assertEquals(1, serveur.nbCreations);
+    }
+
+    /**
+     * Test : Une seule nouvelle tentative après vérification quand les réponses se perdent
+     */
+    @Test
+    public void envoyer_ReponsesToujoursPerdues_NouvellesTentativesBornees() {
+        EnvoiIdempotent.Transport sansTrace = new EnvoiIdempotent.Transport() {
+            @Override
+            public void creer(String cle, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+                serveur.nbCreations++;
+                reponse.onErreur(0, "Erreur envoi - pas de connexion au serveur (TimeoutError)");
+            }
+
+            @Override
+            public void rechercher(String filtre, EnvoiHistoriqueParLot.ReponseHttp reponse) {
+                serveur.nbRecherches++;
+                reponse.onErreur(404, "Not found");
+            }
+        };
+
+        new EnvoiIdempotent(sansTrace).envoyer(CLE, false, retour);
+
+        assertEquals(1 + EnvoiIdempotent.MAX_NOUVELLES_TENTATIVES, serveur.nbCreations);
+        assertTrue(erreurRecue.contains("pas de connexion"));
+    }
+
+    /**
+     * Test : Lecture des réponses de Dolibarr (ID seul, objet JSON, liste de recherche)
+     */
+    @Test
+    public void extraireId_FormatsDeReponse() {
+        assertEquals("154", EnvoiIdempotent.extraireIdCree("154\n"));
+        assertEquals("154", EnvoiIdempotent.extraireIdCree("\"154\""));
+        assertEquals("154", EnvoiIdempotent.extraireIdCree("{\"id\":154}"));
+        assertNull(EnvoiIdempotent.extraireIdCree("{\"error\":\"x\"}"));
+
+        assertEquals("12", EnvoiIdempotent.extraireIdExistant("[{\"id\":\"12\"},{\"id\":\"13\"}]"));
+        assertNull(EnvoiIdempotent.extraireIdExistant("[]"));
+        assertNull(EnvoiIdempotent.extraireIdExistant("{\"error\":{\"code\":404}}"));
+    }
+
+    /**
+     * Test : Les clés générées sont uniques et le filtre est encodé pour l'URL
+     */
+    @Test
+    public void cleEtFiltre() {
+        String cle = EnvoiIdempotent.genererCle();
+
+        assertTrue(cle.startsWith(EnvoiIdempotent.PREFIXE_CLE));
+        assertNotEquals(cle, EnvoiIdempotent.genererCle());
+        assertEquals("%28t.ref_ext%3A%3D%3A%27dolorders-7f3c%27%29", EnvoiIdempotent.construireFiltre(CLE));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests unitaires de l'estimation des délais d'attente des requêtes.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class EstimateurReseauTest {
+
+    private static final String PRODUITS = "GET products";
+    private static final String LIGNES = "POST dolordersapi/fournisseurss";
+
+    private EstimateurReseau estimateur;
+
+    @Before
+    public void setUp() {
+        estimateur = new EstimateurReseau();
+    }
+
+    /**
+     * Test : Le point d'accès ignore le serveur, les paramètres et les IDs
+     */
+    @Test
+    public void cleEndpoint_CheminSansParametresNiIds() {
+        assertEquals(PRODUITS, EstimateurReseau.cleEndpoint("GET",
+                "https://erp.exemple.fr/api/index.php/products?sortfield=t.ref&limit=500&page=3"));
+        assertEquals("GET orders/{id}/lines", EstimateurReseau.cleEndpoint("GET",
+                "https://erp.exemple.fr/dolibarr/api/index.php/orders/154/lines"));
+        assertEquals("GET users/info", EstimateurReseau.cleEndpoint("GET",
+                "https://erp.exemple.fr/api/index.php/users/info/"));
+    }
+
+    /**
+     * Test : Sans mesure, le délai par défaut est utilisé, allongé pour un corps volumineux
+     */
+    @Test
+    public void delai_SansMesure_DelaiParDefaut() {
+        assertEquals(EstimateurReseau.DELAI_SANS_MESURE_MS, estimateur.delai(LIGNES, 0));
+        assertTrue(estimateur.delai(LIGNES, 200_000) > EstimateurReseau.DELAI_SANS_MESURE_MS);
+    }
+
+    /**
+     * Test : Un point d'accès rapide et régulier reçoit un délai court, borné par le minimum
+     */
+    @Test
+    public void delai_PointAccesRapide_DelaiMinimal() {
+        for (int i = 0; i < 20; i++) {
+            estimateur.enregistrer(LIGNES, 200, 300, 50);
+        }
+
+        assertEquals(EstimateurReseau.DELAI_MIN_MS, estimateur.delai(LIGNES, 300));
+    }
+
+    /**
+     * Test : Le délai d'une page volumineuse suit le débit mesuré et la taille habituelle de la réponse
+     */
+    @Test
+    public void delai_ReponseVolumineuse_SuitLeDebit() {
+        // 1 Mo en 20 s : environ 50 octets/ms
+        for (int i = 0; i < 20; i++) {
+            estimateur.enregistrer(PRODUITS, 20_000, 0, 1_000_000);
+        }
+
+        int delai = estimateur.delai(PRODUITS, 0);
+
+        assertEquals(50, estimateur.getDebit(), 5);
+        assertTrue("Délai trop court : " + delai, delai >= 30_000);
+        assertTrue("Délai trop long : " + delai, delai <= 60_000);
+        assertEquals(EstimateurReseau.DELAI_SANS_MESURE_MS, estimateur.delai(LIGNES, 0));
+    }
+
+    /**
+     * Test : Une latence irrégulière allonge le délai (écart lissé)
+     */
+    @Test
+    public void delai_LatenceIrreguliere_DelaiPlusLong() {
+        EstimateurReseau regulier = new EstimateurReseau();
+        for (int i = 0; i < 20; i++) {
+            regulier.enregistrer(LIGNES, 2_000, 300, 50);
+            estimateur.enregistrer(LIGNES, i % 2 == 0 ? 500 : 3_500, 300, 50);
+        }
+
+        assertTrue(estimateur.delai(LIGNES, 300) > regulier.delai(LIGNES, 300));
+    }
+
+    /**
+     * Test : Les estimations encodées sont relues à l'identique ; une forme illisible donne des estimations vides
+     */
+    @Test
+    public void encoderDecoder_ConserveLesEstimations() {
+        estimateur.enregistrer(PRODUITS, 20_000, 0, 1_000_000);
+        estimateur.enregistrer(LIGNES, 800, 300, 50);
+
+        EstimateurReseau relu = EstimateurReseau.decoder(estimateur.encoder());
+
+        assertEquals(estimateur.getDebit(), relu.getDebit(), 0.01);
+        assertEquals(estimateur.delai(PRODUITS, 0), relu.delai(PRODUITS, 0), 1);
+        assertEquals(estimateur.delai(LIGNES, 300), relu.delai(LIGNES, 300), 1);
+        assertEquals(EstimateurReseau.DELAI_SANS_MESURE_MS, EstimateurReseau.decoder("illisible").delai(LIGNES, 0));
+    }
+
+    /**
+     * Test : L'attente avant une nouvelle tentative double à chaque tentative, en partie aléatoire, et reste bornée
+     */
+    @Test
+    public void attenteAvantTentative_ExponentielleBornee() {
+        assertEquals(250, EstimateurReseau.attenteAvantTentative(1, 0));
+        assertEquals(500, EstimateurReseau.attenteAvantTentative(1, 0.999_999));
+        assertEquals(500, EstimateurReseau.attenteAvantTentative(2, 0));
+        assertEquals(EstimateurReseau.ATTENTE_MAX_MS / 2, EstimateurReseau.attenteAvantTentative(50, 0));
+        assertEquals(EstimateurReseau.ATTENTE_MAX_MS, EstimateurReseau.attenteAvantTentative(50, 0.999_999));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests unitaires de l'état d'envoi persisté des éléments de la liste d'attente.
+ */
+public class EtatEnvoiTest {
+
+    /**
+     * Test : Seules les lignes non acceptées par l'historique restent à envoyer
+     */
+    @Test
+    public void lignesRestantes_IgnoreLesLignesEnvoyees() {
+        EtatEnvoi etat = EtatEnvoi.INITIAL
+                .avecIdDolibarr("154")
+                .avecLignesEnvoyees(Arrays.asList(0, 2))
+                .avecLignesEnvoyees(Collections.singletonList(3));
+
+        assertEquals(Arrays.asList(1, 4), etat.lignesRestantes(5));
+        assertEquals(Collections.singletonList(1), etat.lignesRestantes(4));
+        assertEquals(Arrays.asList(0, 1, 2), EtatEnvoi.INITIAL.lignesRestantes(3));
+    }
+
+    /**
+     * Test : L'état relu est identique à l'état enregistré
+     */
+    @Test
+    public void encoderDecoder_ConserveLEtat() {
+        EtatEnvoi etat = EtatEnvoi.INITIAL.avecIdDolibarr("154").avecLignesEnvoyees(Arrays.asList(3, 0, 1));
+
+        EtatEnvoi relu = EtatEnvoi.decoder(etat.encoder());
+
+        assertEquals("154|0,1,3", etat.encoder());
+        assertEquals("154", relu.getIdDolibarr());
+        assertEquals(etat.getLignesEnvoyees(), relu.getLignesEnvoyees());
+    }
+
+    /**
+     * Test : Des lignes acceptées sans ID Dolibarr sont conservées tant que l'élément n'est pas créé
+     */
+    @Test
+    public void encoderDecoder_SansIdDolibarr() {
+        EtatEnvoi relu = EtatEnvoi.decoder(EtatEnvoi.INITIAL.avecLignesEnvoyees(Collections.singletonList(2)).encoder());
+
+        assertFalse(relu.estCree());
+        assertNull(relu.getIdDolibarr());
+        assertEquals(Collections.singleton(2), relu.getLignesEnvoyees());
+    }
+
+    /**
+     * Test : L'enregistrement de l'ID oublie les lignes envoyées sans ID, mais pas celles envoyées avec
+     */
+    @Test
+    public void avecIdDolibarr_OublieLesLignesEnvoyeesSansId() {
+        EtatEnvoi sansId = EtatEnvoi.INITIAL.avecLignesEnvoyees(Arrays.asList(0, 1));
+        EtatEnvoi cree = sansId.avecIdDolibarr("154");
+
+        assertTrue(cree.estCree());
+        assertTrue(cree.getLignesEnvoyees().isEmpty());
+
+        EtatEnvoi avecLignes = cree.avecLignesEnvoyees(Collections.singletonList(0));
+        assertSame(avecLignes, avecLignes.avecIdDolibarr("154"));
+    }
+
+    /**
+     * Test : La clé de l'élément est conservée à travers l'encodage et l'enregistrement de l'ID
+     */
+    @Test
+    public void cleIdempotence_Conservee() {
+        EtatEnvoi etat = EtatEnvoi.INITIAL.avecCleIdempotence("dolorders-7f3c")
+                .avecLignesEnvoyees(Collections.singletonList(1))
+                .avecIdDolibarr("154");
+
+        EtatEnvoi relu = EtatEnvoi.decoder(etat.encoder());
+
+        assertEquals("154||dolorders-7f3c", etat.encoder());
+        assertEquals("dolorders-7f3c", relu.getCleIdempotence());
+        assertEquals("154", relu.getIdDolibarr());
+        assertNull(EtatEnvoi.decoder("154|0").getCleIdempotence());
+    }
+
+    /**
+     * Test : Un état absent ou illisible est l'état initial (tout sera envoyé)
+     */
+    @Test
+    public void decoder_AbsentOuIllisible_EtatInitial() {
+        assertSame(EtatEnvoi.INITIAL, EtatEnvoi.decoder(null));
+        assertSame(EtatEnvoi.INITIAL, EtatEnvoi.decoder("n'importe quoi"));
+
+        EtatEnvoi lignesIllisibles = EtatEnvoi.decoder("154|0,x");
+        assertEquals("154", lignesIllisibles.getIdDolibarr());
+        assertTrue(lignesIllisibles.getLignesEnvoyees().isEmpty());
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests unitaires de l'exécuteur de tâches asynchrones à concurrence bornée.
+ * Les tâches sont simulées : elles restent en cours jusqu'à ce que le test les termine.
+ */
+public class ExecuteurConcurrentBorneTest {
+
+    /** Signal de fin des tâches démarrées et pas encore terminées, par nom */
+    private Map<String, Runnable> enCours;
+
+    /** Noms des tâches dans leur ordre de démarrage */
+    private List<String> demarrees;
+
+    private int nbAppelsFin;
+
+    @Before
+    public void setUp() {
+        enCours = new LinkedHashMap<>();
+        demarrees = new ArrayList<>();
+        nbAppelsFin = 0;
+    }
+
+    private ExecuteurConcurrentBorne.TacheAsynchrone tache(String nom) {
+        return terminee -> {
+            demarrees.add(nom);
+            enCours.put(nom, terminee);
+        };
+    }
+
+    /**
+     * Test : Au plus maxEnCours tâches sont démarrées en même temps
+     */
+    @Test
+    public void soumettre_DemarreAuPlusMaxEnCours() {
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(2);
+
+        executeur.soumettre(tache("a"));
+        executeur.soumettre(tache("b"));
+        executeur.soumettre(tache("c"));
+
+        assertEquals(2, executeur.getNbEnCours());
+        assertEquals(2, demarrees.size());
+        assertTrue(enCours.containsKey("a"));
+        assertTrue(enCours.containsKey("b"));
+    }
+
+    /**
+     * Test : Une place libérée démarre la tâche suivante, dans l'ordre de soumission
+     */
+    @Test
+    public void terminee_DemarreLaTacheSuivante() {
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(1);
+        executeur.soumettre(tache("a"));
+        executeur.soumettre(tache("b"));
+        executeur.soumettre(tache("c"));
+
+        enCours.remove("a").run();
+        assertEquals("b", demarrees.get(1));
+        assertEquals(2, demarrees.size());
+
+        enCours.remove("b").run();
+        assertEquals("c", demarrees.get(2));
+    }
+
+    /**
+     * Test : Le callback final est appelé une seule fois, après la dernière tâche
+     */
+    @Test
+    public void fermer_AppelleLaFinApresToutesLesTaches() {
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(2);
+        executeur.soumettre(tache("a"));
+        executeur.soumettre(tache("b"));
+        executeur.fermer(() -> nbAppelsFin++);
+
+        enCours.remove("b").run();
+        assertEquals(0, nbAppelsFin);
+
+        enCours.remove("a").run();
+        assertEquals(1, nbAppelsFin);
+        assertEquals(0, executeur.getNbEnCours());
+    }
+
+    /**
+     * Test : Sans tâche, la fermeture appelle immédiatement le callback final
+     */
+    @Test
+    public void fermer_SansTache_AppelleLaFinImmediatement() {
+        new ExecuteurConcurrentBorne(3).fermer(() -> nbAppelsFin++);
+
+        assertEquals(1, nbAppelsFin);
+    }
+
+    /**
+     * Test : Un signal de fin appelé deux fois ne libère qu'une place
+     */
+    @Test
+    public void terminee_AppelDouble_Ignore() {
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(1);
+        executeur.soumettre(tache("a"));
+        executeur.soumettre(tache("b"));
+        executeur.soumettre(tache("c"));
+
+        Runnable finA = enCours.remove("a");
+        finA.run();
+        finA.run();
+
+        assertEquals(1, executeur.getNbEnCours());
+        assertEquals(2, demarrees.size());
+    }
+
+    /**
+     * Test : Des milliers de tâches terminées de façon synchrone ne débordent pas la pile
+     */
+    @Test
+    public void tachesSynchrones_PasDeDebordementDePile() {
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(1);
+        int[] nbExecutees = {0};
+
+        for (int i = 0; i < 100000; i++) {
+            executeur.soumettre(terminee -> {
+                nbExecutees[0]++;
+                terminee.run();
+            });
+        }
+        executeur.fermer(() -> nbAppelsFin++);
+
+        assertEquals(100000, nbExecutees[0]);
+        assertEquals(1, nbAppelsFin);
+    }
+
+    /**
+     * Test : Aucune tâche ne peut être soumise après la fermeture
+     */
+    @Test(expected = IllegalStateException.class)
+    public void soumettre_ApresFermeture_LeveException() {
+        ExecuteurConcurrentBorne executeur = new ExecuteurConcurrentBorne(1);
+        executeur.fermer(() -> nbAppelsFin++);
+
+        executeur.soumettre(tache("a"));
+    }
+}
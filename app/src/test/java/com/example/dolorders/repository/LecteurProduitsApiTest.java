@@ -0,0 +1,89 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Produit;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests unitaires de la lecture en flux des réponses GET /products.
+ */
+public class LecteurProduitsApiTest {
+
+    private LecteurProduitsApi lecteur;
+
+    @Before
+    public void setUp() {
+        lecteur = new LecteurProduitsApi(new Gson());
+    }
+
+    private InputStream flux(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test : Un tableau de produits est converti via ProduitMapper
+     */
+    @Test
+    public void lire_TableauDeProduits_RetourneLesProduits() throws Exception {
+        String json = "[" +
+                "{\"id\":\"1\",\"label\":\"Evian 1.5L\",\"description\":\"Eau minérale\",\"price\":\"1.50000000\",\"tva_tx\":\"20.000\",\"ref\":\"EV15\",\"status\":\"1\"}," +
+                "{\"id\":\"2\",\"label\":\"\",\"ref\":\"PAIN\",\"price\":\"3.5\",\"tva_tx\":\"5.5\"}" +
+                "]";
+
+        List<Produit> produits = lecteur.lire(flux(json));
+
+        assertEquals(2, produits.size());
+        assertEquals("Evian 1.5L", produits.get(0).getLibelle());
+        assertEquals(1.50, produits.get(0).getPrixUnitaire(), 0.001);
+        assertEquals("PAIN", produits.get(1).getLibelle());
+        assertEquals(5.5, produits.get(1).getTauxTva(), 0.001);
+    }
+
+    /**
+     * Test : Les champs inconnus de l'API sont ignorés
+     */
+    @Test
+    public void lire_ChampsSupplementaires_SontIgnores() throws Exception {
+        String json = "[{\"id\":\"1\",\"label\":\"Evian\",\"array_options\":{\"x\":[1,2]},\"price\":\"1\"}]";
+
+        List<Produit> produits = lecteur.lire(flux(json));
+
+        assertEquals(1, produits.size());
+        assertEquals("Evian", produits.get(0).getLibelle());
+    }
+
+    /**
+     * Test : Un tableau vide retourne une liste vide
+     */
+    @Test
+    public void lire_TableauVide_RetourneListeVide() throws Exception {
+        assertTrue(lecteur.lire(flux("[]")).isEmpty());
+    }
+
+    /**
+     * Test : Un objet d'erreur Dolibarr à la place du tableau est refusé
+     */
+    @Test(expected = IOException.class)
+    public void lire_ObjetErreur_LeveIOException() throws Exception {
+        lecteur.lire(flux("{\"error\":{\"code\":403,\"message\":\"Forbidden\"}}"));
+    }
+
+    /**
+     * Test : Une réponse tronquée est refusée
+     */
+    @Test(expected = IOException.class)
+    public void lire_ReponseTronquee_LeveIOException() throws Exception {
+        lecteur.lire(flux("[{\"id\":\"1\",\"label\":\"Evi"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dolorders.repository;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serveur d'historique (dolordersapi) simulé en mémoire pour les tests.
+ * Il expose l'endpoint de lot et l'endpoint ligne par ligne, enregistre les lignes reçues
+ * et peut être configuré pour refuser les lots ou tomber en panne.
+ */
+class ServeurHistoriqueFactice {
+
+    /** Code HTTP renvoyé pour un lot, ou 200 si le lot est accepté */
+    int codeReponseLot = 200;
+
+    /** Code HTTP renvoyé pour une ligne seule, ou 200 si elle est acceptée */
+    int codeReponseLigne = 200;
+
+    int nbRequetesLot;
+    int nbRequetesLigne;
+
+    /** Lignes enregistrées dans l'historique, dans l'ordre de réception */
+    final List<JsonObject> lignesEnregistrees = new ArrayList<>();
+
+    /**
+     * Transport vers POST /dolordersapi/fournisseurss/batch.
+     */
+    EnvoiHistoriqueParLot.Transport transportLot() {
+        return (corpsJson, reponse) -> {
+            nbRequetesLot++;
+            if (codeReponseLot != 200) {
+                reponse.onErreur(codeReponseLot, "Erreur envoi historique (Code: " + codeReponseLot + ")");
+                return;
+            }
+            JsonArray lignes = JsonParser.parseString(corpsJson).getAsJsonObject().getAsJsonArray("lines");
+            List<String> ids = new ArrayList<>();
+            for (JsonElement ligne : lignes) {
+                lignesEnregistrees.add(ligne.getAsJsonObject());
+                ids.add(String.valueOf(lignesEnregistrees.size()));
+            }
+            reponse.onSucces(ids.toString());
+        };
+    }
+
+    /**
+     * Envoi ligne par ligne vers POST /dolordersapi/fournisseurss, utilisé en repli.
+     */
+    EnvoiHistoriqueParLot.EnvoiParLigne envoiParLigne(List<String> corpsLignes) {
+        return retour -> {
+            int nbErreurs = 0;
+            for (String corps : corpsLignes) {
+                nbRequetesLigne++;
+                if (codeReponseLigne == 200) {
+                    lignesEnregistrees.add(JsonParser.parseString(corps).getAsJsonObject());
+                } else {
+                    nbErreurs++;
+                }
+            }
+            if (nbErreurs > 0) {
+                retour.onErreur("Échec envoi historique (" + nbErreurs + "/" + corpsLignes.size() + " lignes en erreur)");
+            } else {
+                retour.onSucces("all_lines_sent");
+            }
+        };
+    }
+}
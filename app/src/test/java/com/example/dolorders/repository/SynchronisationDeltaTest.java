@@ -0,0 +1,126 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Produit;
+
+import org.junit.Test;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Tests unitaires des règles de synchronisation incrémentale.
+ */
+public class SynchronisationDeltaTest {
+
+    private static final long MAINTENANT = 1700000000000L;
+    private static final long UNE_HEURE = 60L * 60L * 1000L;
+
+    // ==================== TESTS DU CHOIX DU MODE ====================
+
+    /**
+     * Test : Sans marqueur, la synchronisation est complète
+     */
+    @Test
+    public void estDeltaPossible_SansMarqueur_RetourneFalse() {
+        assertFalse(SynchronisationDelta.estDeltaPossible(-1, -1, false, MAINTENANT));
+    }
+
+    /**
+     * Test : Avec un marqueur récent et un cache rempli, seul le delta est demandé
+     */
+    @Test
+    public void estDeltaPossible_MarqueurRecent_RetourneTrue() {
+        assertTrue(SynchronisationDelta.estDeltaPossible(
+                MAINTENANT - UNE_HEURE, MAINTENANT - 24 * UNE_HEURE, false, MAINTENANT));
+    }
+
+    /**
+     * Test : Un cache vide impose une synchronisation complète
+     */
+    @Test
+    public void estDeltaPossible_CacheVide_RetourneFalse() {
+        assertFalse(SynchronisationDelta.estDeltaPossible(
+                MAINTENANT - UNE_HEURE, MAINTENANT - UNE_HEURE, true, MAINTENANT));
+    }
+
+    /**
+     * Test : Une synchronisation complète trop ancienne impose de tout recharger (suppressions)
+     */
+    @Test
+    public void estDeltaPossible_SyncCompleteAncienne_RetourneFalse() {
+        assertFalse(SynchronisationDelta.estDeltaPossible(
+                MAINTENANT - UNE_HEURE,
+                MAINTENANT - SynchronisationDelta.INTERVALLE_SYNC_COMPLETE_MS - 1,
+                false, MAINTENANT));
+    }
+
+    /**
+     * Test : Un marqueur dans le futur (horloge modifiée) n'est pas fiable
+     */
+    @Test
+    public void estDeltaPossible_MarqueurDansLeFutur_RetourneFalse() {
+        assertFalse(SynchronisationDelta.estDeltaPossible(
+                MAINTENANT + UNE_HEURE, MAINTENANT - UNE_HEURE, false, MAINTENANT));
+    }
+
+    // ==================== TESTS DU FILTRE ====================
+
+    /**
+     * Test : Le filtre sqlfilters porte sur t.tms, avec la marge de sécurité
+     */
+    @Test
+    public void construireFiltre_FormatDolibarr() throws Exception {
+        String filtre = SynchronisationDelta.construireFiltre(MAINTENANT, TimeZone.getTimeZone("UTC"));
+
+        // 1700000000000 = 2023-11-14 22:13:20 UTC, moins une heure de marge
+        assertEquals("(t.tms:>:'2023-11-14 21:13:20')", URLDecoder.decode(filtre, "UTF-8"));
+        assertFalse(filtre.contains(" "));
+        assertFalse(filtre.contains("'"));
+    }
+
+    // ==================== TESTS DE FUSION ====================
+
+    /**
+     * Test : Les éléments modifiés remplacent les existants à leur position, les nouveaux sont ajoutés
+     */
+    @Test
+    public void fusionner_RemplaceEtAjoute() {
+        List<Produit> existants = Arrays.asList(
+                new Produit("1", "Evian", "", 1.0, 20.0),
+                new Produit("2", "Contrex", "", 2.0, 20.0),
+                new Produit("3", "Pain", "", 3.5, 5.5));
+        List<Produit> modifies = Arrays.asList(
+                new Produit("2", "Contrex 1L", "", 2.3, 20.0),
+                new Produit("4", "Vittel", "", 1.2, 20.0));
+
+        List<Produit> resultat = SynchronisationDelta.fusionner(existants, modifies, Produit::getId);
+
+        assertEquals(4, resultat.size());
+        assertEquals("Evian", resultat.get(0).getLibelle());
+        assertEquals("Contrex 1L", resultat.get(1).getLibelle());
+        assertEquals(2.3, resultat.get(1).getPrixUnitaire(), 0.001);
+        assertEquals("Pain", resultat.get(2).getLibelle());
+        assertEquals("Vittel", resultat.get(3).getLibelle());
+    }
+
+    /**
+     * Test : Un delta vide laisse la liste inchangée
+     */
+    @Test
+    public void fusionner_DeltaVide_ListeInchangee() {
+        List<Produit> existants = Arrays.asList(
+                new Produit("1", "Evian", "", 1.0, 20.0),
+                new Produit("2", "Contrex", "", 2.0, 20.0));
+
+        List<Produit> resultat = SynchronisationDelta.fusionner(existants, new ArrayList<>(), Produit::getId);
+
+        assertEquals(existants, resultat);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.dolorders.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests unitaires de la synchronisation paginée et reprenable.
+ * Le serveur est simulé : les pages sont livrées à la demande, dans l'ordre choisi par le test.
+ */
+public class SynchronisationPagineeTest {
+
+    private static final int TAILLE_PAGE = 2;
+
+    /** Pages demandées et pas encore livrées, par index de page */
+    private Map<Integer, SynchronisationPaginee.RetourPage<String>> pagesDemandees;
+
+    /** Éléments écrits par le consommateur, dans l'ordre */
+    private List<String> elementsEcrits;
+
+    private SynchronisationPaginee.PointDeRepriseMemoire pointDeReprise;
+    private Integer nbElementsTermine;
+    private String erreur;
+
+    private final SynchronisationPaginee.SynchronisationCallback callback =
+            new SynchronisationPaginee.SynchronisationCallback() {
+                @Override
+                public void onTermine(int nbElementsRecus) {
+                    nbElementsTermine = nbElementsRecus;
+                }
+
+                @Override
+                public void onErreur(String message) {
+                    erreur = message;
+                }
+            };
+
+    @Before
+    public void setUp() {
+        pagesDemandees = new LinkedHashMap<>();
+        elementsEcrits = new ArrayList<>();
+        pointDeReprise = new SynchronisationPaginee.PointDeRepriseMemoire();
+        nbElementsTermine = null;
+        erreur = null;
+    }
+
+    private SynchronisationPaginee<String> creerSynchronisation(int maxPagesEnVol) {
+        return new SynchronisationPaginee<>(
+                (page, taille, retour) -> pagesDemandees.put(page, retour),
+                (page, elements) -> elementsEcrits.addAll(elements),
+                pointDeReprise,
+                TAILLE_PAGE,
+                maxPagesEnVol);
+    }
+
+    private void livrer(int page, String... elements) {
+        List<String> liste = new ArrayList<>();
+        for (String element : elements) {
+            liste.add(element);
+        }
+        pagesDemandees.remove(page).onPage(liste);
+    }
+
+    // ==================== TESTS DU PIPELINE ====================
+
+    /**
+     * Test : Le nombre de pages demandées simultanément est borné
+     */
+    @Test
+    public void demarrer_DemandeAuPlusMaxPagesEnVol() {
+        creerSynchronisation(3).demarrer(callback);
+
+        assertEquals(3, pagesDemandees.size());
+        assertTrue(pagesDemandees.containsKey(0));
+        assertTrue(pagesDemandees.containsKey(2));
+    }
+
+    /**
+     * Test : Une page reçue en avance attend les pages précédentes avant d'être écrite
+     */
+    @Test
+    public void pagesDesordonnees_EcritesDansLOrdre() {
+        creerSynchronisation(3).demarrer(callback);
+
+        livrer(1, "c", "d");
+        assertTrue(elementsEcrits.isEmpty());
+        assertEquals(-1, pointDeReprise.getDernierePageTerminee());
+
+        livrer(0, "a", "b");
+        assertEquals(4, elementsEcrits.size());
+        assertEquals("a", elementsEcrits.get(0));
+        assertEquals("d", elementsEcrits.get(3));
+        assertEquals(1, pointDeReprise.getDernierePageTerminee());
+    }
+
+    /**
+     * Test : Une page incomplète termine la synchronisation et efface le point de reprise
+     */
+    @Test
+    public void pageIncomplete_TermineLaSynchronisation() {
+        creerSynchronisation(2).demarrer(callback);
+
+        livrer(0, "a", "b");
+        livrer(1, "c");
+        // La page 2 demandée en avance arrive vide après la fin
+        livrer(2);
+
+        assertEquals(Integer.valueOf(3), nbElementsTermine);
+        assertEquals(3, elementsEcrits.size());
+        assertEquals(-1, pointDeReprise.getDernierePageTerminee());
+        assertNull(erreur);
+    }
+
+    /**
+     * Test : Une première page vide termine la synchronisation sans élément
+     */
+    @Test
+    public void premierePageVide_TermineSansElement() {
+        creerSynchronisation(1).demarrer(callback);
+
+        livrer(0);
+
+        assertEquals(Integer.valueOf(0), nbElementsTermine);
+        assertTrue(elementsEcrits.isEmpty());
+    }
+
+    // ==================== TESTS DE REPRISE ====================
+
+    /**
+     * Test : Une erreur conserve le point de reprise sur la dernière page écrite
+     */
+    @Test
+    public void erreur_ConserveLePointDeReprise() {
+        creerSynchronisation(2).demarrer(callback);
+
+        livrer(0, "a", "b");
+        pagesDemandees.remove(1).onErreur("Erreur API (Code: 500)");
+
+        assertEquals("Erreur API (Code: 500)", erreur);
+        assertNull(nbElementsTermine);
+        assertEquals(0, pointDeReprise.getDernierePageTerminee());
+    }
+
+    /**
+     * Test : Une synchronisation interrompue reprend après la dernière page écrite
+     */
+    @Test
+    public void reprise_RepartDeLaPageSuivante() {
+        pointDeReprise.enregistrer(4);
+        SynchronisationPaginee<String> synchronisation = creerSynchronisation(2);
+
+        assertTrue(synchronisation.estUneReprise());
+        synchronisation.demarrer(callback);
+
+        assertTrue(pagesDemandees.containsKey(5));
+        assertTrue(pagesDemandees.containsKey(6));
+        assertFalse(pagesDemandees.containsKey(0));
+    }
+
+    /**
+     * Test : Une erreur d'écriture locale interrompt la synchronisation
+     */
+    @Test
+    public void erreurEcriture_InterromptLaSynchronisation() {
+        SynchronisationPaginee<String> synchronisation = new SynchronisationPaginee<>(
+                (page, taille, retour) -> pagesDemandees.put(page, retour),
+                (page, elements) -> {
+                    throw new java.io.IOException("disque plein");
+                },
+                pointDeReprise,
+                TAILLE_PAGE,
+                1);
+        synchronisation.demarrer(callback);
+
+        livrer(0, "a", "b");
+
+        assertTrue(erreur.contains("disque plein"));
+        assertEquals(-1, pointDeReprise.getDernierePageTerminee());
+        assertTrue(pagesDemandees.isEmpty());
+    }
+
+    /**
+     * Test : Après annulation, les pages encore attendues sont ignorées
+     */
+    @Test
+    public void annuler_IgnoreLesPagesSuivantes() {
+        SynchronisationPaginee<String> synchronisation = creerSynchronisation(2);
+        synchronisation.demarrer(callback);
+
+        synchronisation.annuler();
+        livrer(0, "a", "b");
+
+        assertTrue(elementsEcrits.isEmpty());
+        assertNull(nbElementsTermine);
+    }
+}
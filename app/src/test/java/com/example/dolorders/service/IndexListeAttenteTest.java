@@ -0,0 +1,111 @@
+package com.example.dolorders.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.example.dolorders.objet.LigneCommande;
+import com.example.dolorders.objet.Produit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests unitaires de l'index des commandes en attente.
+ * Ces tests n'ont aucune dépendance Android.
+ */
+public class IndexListeAttenteTest {
+
+    private Client client(String id, String nom) {
+        return new Client.Builder()
+                .setId(id)
+                .setNom(nom)
+                .setAdresse("1 rue du Test")
+                .setCodePostal("00000")
+                .setVille("Testville")
+                .setAdresseMail("test@test.com")
+                .setTelephone("0102030405")
+                .setUtilisateur("testeur")
+                .setDateSaisie(new Date())
+                .build();
+    }
+
+    private Commande commande(String id, Client client) {
+        List<LigneCommande> lignes = new ArrayList<>();
+        lignes.add(new LigneCommande(new Produit("1", "Produit A", "", 10.0), 1, 0.0, true));
+        return new Commande.Builder()
+                .setId(id)
+                .setClient(client)
+                .setLignesCommande(lignes)
+                .setUtilisateur("testeur")
+                .build();
+    }
+
+    /**
+     * Test : Les commandes sont regroupées par client, dans leur ordre d'origine
+     */
+    @Test
+    public void commandesDe_RegroupeParClientDansLOrdre() {
+        Client dupont = client("3", "Dupont");
+        Client martin = client("12", "Martin");
+        IndexListeAttente index = new IndexListeAttente(Arrays.asList(
+                commande("C1", dupont), commande("C2", martin), commande("C3", dupont)));
+
+        List<Commande> commandesDupont = index.commandesDe(dupont);
+
+        assertEquals(2, commandesDupont.size());
+        assertEquals("C1", commandesDupont.get(0).getId());
+        assertEquals("C3", commandesDupont.get(1).getId());
+        assertEquals(Arrays.asList("Dupont", "Martin"), new ArrayList<>(index.nomsClients()));
+    }
+
+    /**
+     * Test : Les commandes sont rattachées par le nom, même si l'ID du client a changé
+     * (client local envoyé puis renuméroté par Dolibarr)
+     */
+    @Test
+    public void commandesDe_ClientRenumerote_RattacheParNom() {
+        IndexListeAttente index = new IndexListeAttente(Arrays.asList(commande("C1", client("3", "Dupont"))));
+
+        assertEquals(1, index.commandesDe(client("154", "Dupont")).size());
+        assertTrue(index.commandesDe(client("3", "Durand")).isEmpty());
+    }
+
+    /**
+     * Test : Une commande retirée disparaît de l'index, et un client sans commande n'y figure plus
+     */
+    @Test
+    public void retirer_TientLIndexAJour() {
+        Client dupont = client("3", "Dupont");
+        Commande c1 = commande("C1", dupont);
+        IndexListeAttente index = new IndexListeAttente(Arrays.asList(c1, commande("C2", dupont)));
+
+        assertTrue(index.retirer(commande("C1", client("154", "Dupont"))));
+        assertFalse(index.retirer(c1));
+        assertEquals(1, index.commandesDe(dupont).size());
+
+        assertTrue(index.retirer(commande("C2", dupont)));
+        assertTrue(index.estVide());
+        assertTrue(index.nomsClients().isEmpty());
+
+        index.ajouter(commande("C4", dupont));
+        assertEquals(1, index.commandesDe(dupont).size());
+    }
+
+    /**
+     * Test : Une liste de commandes absente (stockage illisible) donne un index vide
+     */
+    @Test
+    public void construire_ListeAbsente_IndexVide() {
+        IndexListeAttente index = new IndexListeAttente(null);
+
+        assertTrue(index.estVide());
+        assertTrue(index.commandesDe("Dupont").isEmpty());
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.dolorders.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.dolorders.data.stockage.commande.AdapteurStockageCommande;
+import com.example.dolorders.data.stockage.commande.JournalCommandes;
+import com.example.dolorders.objet.Client;
+import com.example.dolorders.objet.Commande;
+import com.example.dolorders.objet.LigneCommande;
+import com.example.dolorders.objet.Produit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests unitaires des règles d'envoi de la liste d'attente.
+ */
+public class PlanEnvoiListeAttenteTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private Client client(String id, String nom, boolean fromApi) {
+        return new Client.Builder()
+                .setId(id)
+                .setNom(nom)
+                .setAdresse("1 rue du Test")
+                .setCodePostal("00000")
+                .setVille("Testville")
+                .setAdresseMail("test@test.com")
+                .setTelephone("0102030405")
+                .setUtilisateur("testeur")
+                .setDateSaisie(new Date())
+                .setFromApi(fromApi)
+                .build();
+    }
+
+    private Commande commande(String id, Client client) {
+        List<LigneCommande> lignes = new ArrayList<>();
+        lignes.add(new LigneCommande(new Produit("1", "Produit A", "", 10.0), 2, 0.0, true));
+        return new Commande.Builder()
+                .setId(id)
+                .setClient(client)
+                .setLignesCommande(lignes)
+                .setUtilisateur("testeur")
+                .build();
+    }
+
+    // ==================== TESTS DU CHOIX DES CLIENTS ====================
+
+    /**
+     * Test : Les clients locaux passent en premier, puis les clients API ayant des commandes
+     */
+    @Test
+    public void clientsAEnvoyer_LocauxPuisApiAvecCommandes() {
+        Client local = client("L1", "Local", false);
+        Client apiAvecCommande = client("12", "Api avec commande", true);
+        Client apiSansCommande = client("13", "Api sans commande", true);
+
+        List<Client> resultat = PlanEnvoiListeAttente.clientsAEnvoyer(
+                Collections.singletonList(local),
+                Arrays.asList(apiSansCommande, apiAvecCommande),
+                Collections.singletonList(commande("C1", apiAvecCommande)));
+
+        assertEquals(2, resultat.size());
+        assertSame(local, resultat.get(0));
+        assertSame(apiAvecCommande, resultat.get(1));
+    }
+
+    /**
+     * Test : Un client ayant plusieurs commandes n'apparaît qu'une fois
+     */
+    @Test
+    public void clientsAEnvoyer_PlusieursCommandes_SansDoublon() {
+        Client local = client("L1", "Local", false);
+
+        List<Client> resultat = PlanEnvoiListeAttente.clientsAEnvoyer(
+                Collections.singletonList(local),
+                new ArrayList<>(),
+                Arrays.asList(commande("C1", local), commande("C2", local)));
+
+        assertEquals(1, resultat.size());
+    }
+
+    /**
+     * Test : Les commandes sont rattachées au client local en priorité (même nom)
+     */
+    @Test
+    public void clientsAEnvoyer_NomCommun_PrefereLeClientLocal() {
+        Client local = client("L1", "Dupont", false);
+        Client api = client("12", "Dupont", true);
+
+        List<Client> resultat = PlanEnvoiListeAttente.clientsAEnvoyer(
+                Collections.singletonList(local),
+                Collections.singletonList(api),
+                Collections.singletonList(commande("C1", api)));
+
+        assertEquals(1, resultat.size());
+        assertSame(local, resultat.get(0));
+    }
+
+    /**
+     * Test : Rien en attente, rien à envoyer (stockages absents compris)
+     */
+    @Test
+    public void clientsAEnvoyer_RienEnAttente_ListeVide() {
+        assertTrue(PlanEnvoiListeAttente.clientsAEnvoyer(null, null, null).isEmpty());
+    }
+
+    /**
+     * Test : Les clients ayant des commandes suivent l'ordre de leur première commande,
+     * et l'homonyme le premier de la liste est retenu
+     */
+    @Test
+    public void clientsAEnvoyer_OrdreDesPremieresCommandes() {
+        Client martin = client("12", "Martin", true);
+        Client dupont = client("13", "Dupont", true);
+        Client homonyme = client("14", "Dupont", true);
+
+        List<Client> resultat = PlanEnvoiListeAttente.clientsAEnvoyer(
+                new ArrayList<>(),
+                Arrays.asList(martin, dupont, homonyme),
+                Arrays.asList(commande("C1", homonyme), commande("C2", martin), commande("C3", dupont)));
+
+        assertEquals(2, resultat.size());
+        assertSame(dupont, resultat.get(0));
+        assertSame(martin, resultat.get(1));
+    }
+
+    // ==================== TESTS DES NOUVELLES TENTATIVES ====================
+
+    /**
+     * Test : Un échec de connexion relance le travail, dans la limite des tentatives
+     */
+    @Test
+    public void doitReessayer_EchecConnexion_JusquALaLimite() {
+        assertTrue(PlanEnvoiListeAttente.doitReessayer(true, 0));
+        assertTrue(PlanEnvoiListeAttente.doitReessayer(true, PlanEnvoiListeAttente.MAX_TENTATIVES - 2));
+        assertFalse(PlanEnvoiListeAttente.doitReessayer(true, PlanEnvoiListeAttente.MAX_TENTATIVES - 1));
+    }
+
+    /**
+     * Test : Des refus de Dolibarr (validation) ne relancent pas le travail
+     */
+    @Test
+    public void doitReessayer_SansEchecConnexion_RetourneFalse() {
+        assertFalse(PlanEnvoiListeAttente.doitReessayer(false, 0));
+    }
+
+    // ==================== TESTS DE LA FIN D'ENVOI D'UN ÉLÉMENT ====================
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Commande.class, new AdapteurStockageCommande())
+            .create();
+
+    /**
+     * Journal (en mode différé, comme celui du stockage) contenant une commande envoyée.
+     */
+    private JournalCommandes journalAvecCommande(File fichier, Commande commande) throws IOException {
+        JournalCommandes journal = new JournalCommandes(fichier, gson, true);
+        journal.enregistrerAjout(commande);
+        journal.ecrireEnAttente();
+        return journal;
+    }
+
+    /**
+     * Relit le journal comme après un redémarrage : les lignes non écrites sont perdues.
+     */
+    private List<Commande> relireApresArret(File fichier) throws IOException {
+        List<Commande> commandes = new ArrayList<>();
+        new JournalCommandes(fichier, gson, true).rejouer(commandes);
+        return commandes;
+    }
+
+    /**
+     * Test : Suppression écrite puis arrêt : la commande a disparu et son état d'envoi est effacé
+     */
+    @Test
+    public void supprimerPuisOublier_SuppressionEcrite_EtatEfface() throws Exception {
+        File fichier = new File(dossier.getRoot(), "commandes_data.json.journal");
+        JournalCommandes journal = journalAvecCommande(fichier, commande("CMD-1", client("L1", "Local", false)));
+        Map<String, String> etats = new HashMap<>();
+        etats.put("CMD-1", "42");
+
+        boolean termine = PlanEnvoiListeAttente.supprimerPuisOublier(() -> {
+            try {
+                journal.enregistrerSuppression("CMD-1");
+                journal.ecrireEnAttente();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }, () -> etats.remove("CMD-1"));
+
+        assertTrue(termine);
+        assertTrue(relireApresArret(fichier).isEmpty());
+        assertTrue(etats.isEmpty());
+    }
+
+    /**
+     * Test : Arrêt entre la suppression (encore en attente d'écriture) et son écriture :
+     * la commande reste en local avec son état d'envoi, elle ne sera pas recréée dans Dolibarr
+     */
+    @Test
+    public void supprimerPuisOublier_ArretAvantEcriture_EtatConserve() throws Exception {
+        File fichier = new File(dossier.getRoot(), "commandes_data.json.journal");
+        JournalCommandes journal = journalAvecCommande(fichier, commande("CMD-1", client("L1", "Local", false)));
+        Map<String, String> etats = new HashMap<>();
+        etats.put("CMD-1", "42");
+
+        try {
+            PlanEnvoiListeAttente.supprimerPuisOublier(() -> {
+                try {
+                    journal.enregistrerSuppression("CMD-1");
+                } catch (IOException e) {
+                    return false;
+                }
+                throw new IllegalStateException("Arrêt de l'application avant l'écriture");
+            }, () -> etats.remove("CMD-1"));
+        } catch (IllegalStateException arret) {
+            // Le processus est arrêté : rien d'autre n'est exécuté
+        }
+
+        List<Commande> apresArret = relireApresArret(fichier);
+        assertEquals(1, apresArret.size());
+        assertEquals("42", etats.get(apresArret.get(0).getId()));
+    }
+
+    /**
+     * Test : Une suppression non écrite laisse l'état d'envoi en place
+     */
+    @Test
+    public void supprimerPuisOublier_EcritureEchouee_EtatConserve() {
+        Map<String, String> etats = new HashMap<>();
+        etats.put("CMD-1", "42");
+
+        assertFalse(PlanEnvoiListeAttente.supprimerPuisOublier(() -> false, () -> etats.remove("CMD-1")));
+        assertEquals("42", etats.get("CMD-1"));
+    }
+}
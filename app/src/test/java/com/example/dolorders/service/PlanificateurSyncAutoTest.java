@@ -0,0 +1,127 @@
+package com.example.dolorders.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests unitaires du déclenchement automatique de l'envoi sur réseau non facturé.
+ * Le minuteur et l'horloge sont simulés : le test fait avancer le temps.
+ */
+public class PlanificateurSyncAutoTest {
+
+    private long maintenant;
+    private Runnable tachePlanifiee;
+    private long echeance;
+    private boolean aDesElements;
+    private int nbEnvois;
+
+    private PlanificateurSyncAuto planificateur;
+
+    @Before
+    public void setUp() {
+        maintenant = 1_000_000L;
+        tachePlanifiee = null;
+        aDesElements = true;
+        nbEnvois = 0;
+
+        planificateur = new PlanificateurSyncAuto(
+                new PlanificateurSyncAuto.Minuteur() {
+                    @Override
+                    public void planifier(Runnable tache, long delaiMs) {
+                        tachePlanifiee = tache;
+                        echeance = maintenant + delaiMs;
+                    }
+
+                    @Override
+                    public void annuler(Runnable tache) {
+                        if (tache == tachePlanifiee) {
+                            tachePlanifiee = null;
+                        }
+                    }
+                },
+                () -> maintenant,
+                () -> aDesElements,
+                () -> nbEnvois++);
+    }
+
+    /** Avance le temps jusqu'à l'échéance de la tâche planifiée et l'exécute */
+    private void avancerJusquALEcheance() {
+        Runnable tache = tachePlanifiee;
+        tachePlanifiee = null;
+        maintenant = echeance;
+        tache.run();
+    }
+
+    /**
+     * Test : L'envoi part après le délai de stabilisation
+     */
+    @Test
+    public void reseauDisponible_EnvoieApresStabilisation() {
+        planificateur.onReseauDisponible();
+
+        assertEquals(0, nbEnvois);
+        assertEquals(maintenant + PlanificateurSyncAuto.DELAI_STABILISATION_MS, echeance);
+
+        avancerJusquALEcheance();
+        assertEquals(1, nbEnvois);
+        assertFalse(planificateur.isEnvoiPlanifie());
+    }
+
+    /**
+     * Test : Un réseau qui clignote ne déclenche qu'un envoi, après la dernière reconnexion
+     */
+    @Test
+    public void reseauInstable_UnSeulEnvoi() {
+        planificateur.onReseauDisponible();
+        maintenant += 5_000;
+        planificateur.onReseauPerdu();
+        assertNull(tachePlanifiee);
+
+        maintenant += 5_000;
+        planificateur.onReseauDisponible();
+        planificateur.onReseauDisponible();
+        avancerJusquALEcheance();
+
+        assertEquals(1, nbEnvois);
+    }
+
+    /**
+     * Test : Liste d'attente vide, rien n'est envoyé
+     */
+    @Test
+    public void listeAttenteVide_PasDEnvoi() {
+        aDesElements = false;
+
+        planificateur.onReseauDisponible();
+        avancerJusquALEcheance();
+
+        assertEquals(0, nbEnvois);
+        assertNull(tachePlanifiee);
+    }
+
+    /**
+     * Test : Un réseau retrouvé trop tôt décale l'envoi à la fin de l'intervalle minimal
+     */
+    @Test
+    public void envoiTropRapproche_DecaleALaFinDeLIntervalle() {
+        planificateur.onReseauDisponible();
+        avancerJusquALEcheance();
+        long premierEnvoi = maintenant;
+
+        maintenant += 60_000;
+        planificateur.onReseauDisponible();
+        avancerJusquALEcheance();
+
+        assertEquals(1, nbEnvois);
+        assertTrue(planificateur.isEnvoiPlanifie());
+        assertEquals(premierEnvoi + PlanificateurSyncAuto.INTERVALLE_MIN_MS, echeance);
+
+        avancerJusquALEcheance();
+        assertEquals(2, nbEnvois);
+    }
+}